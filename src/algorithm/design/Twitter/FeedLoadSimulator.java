@@ -0,0 +1,302 @@
+package algorithm.design.Twitter;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Description:信息流服务的负载模拟，回放一张关注关系图，统计读信息流的延迟分位数
+ * 1.关注关系：每个用户关注若干人(平均AVG_FOLLOWS次，去掉重复的)，被关注的人按Zipf分布选，排名靠前的用户粉丝很多，
+ * 和真实社交网络一样少数大V占了大部分关注；
+ * 2.负载：先发PRELOAD_POSTS条推文预热，再按同一份操作序列回放，POST_RATIO的操作是发推(作者按同样的Zipf分布选，
+ * 大V发得多)，其余是读最新一页，其中NEXT_PAGE_RATIO的读再用游标翻下一页；
+ * 3.对比三种模式：全部写扩散(celebrityThreshold=Integer.MAX_VALUE)、几个阈值下的推拉结合、全部读时拉取(0)，
+ * 以及单线程的旧版Twitter(每次读都归并所有关注的人，不能并发所以只用一个线程)；
+ * 4.输出读的p50/p99/p99.9、发推的p99、吞吐量、平均每条推文写扩散的次数和时间线里保存的总条数；
+ * 阈值越低，发推越快，但关注的大V越多，读的时候要归并的推文列表越多。
+ * 线程数多于CPU核数时延迟里会包含线程被调度出去的时间，分位数按相同条件对比。
+ * 用法: java algorithm.design.Twitter.FeedLoadSimulator [用户数] [线程数(默认CPU核数)]
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class FeedLoadSimulator {
+    private static final int AVG_FOLLOWS = 40;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final int PRELOAD_POSTS = 50_000;
+    private static final int OPERATIONS = 400_000;
+    private static final double POST_RATIO = 0.1;
+    private static final double NEXT_PAGE_RATIO = 0.2;
+    private static final int FEED_LENGTH = 200;
+    private static final int PAGE_SIZE = 10;
+    private static final int[] HYBRID_THRESHOLDS = {1000, 5000};
+
+    private static final int POST = 0, READ = 1, READ_NEXT = 2;
+
+    //回放的操作序列
+    private static final class Trace {
+        final int[] followers;
+        final int[] followees;
+        final int[] preloadAuthors;
+        final int[] ops;
+        final int[] users;
+
+        Trace(int[] followers, int[] followees, int[] preloadAuthors, int[] ops, int[] users) {
+            this.followers = followers;
+            this.followees = followees;
+            this.preloadAuthors = preloadAuthors;
+            this.ops = ops;
+            this.users = users;
+        }
+    }
+
+    //被测对象，旧版Twitter也包装成这个接口
+    private interface Feed {
+        void post(int userId, long tweetId);
+
+        //返回游标，READ_NEXT时用来读下一页
+        long read(int userId, long cursor);
+
+        void follow(int followerId, int followeeId);
+
+        //写扩散的总次数，不支持时返回-1
+        default long fanOutWrites() {
+            return -1;
+        }
+
+        //时间线里保存的总条数，不支持时返回-1
+        default long storedEntries() {
+            return -1;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Trace trace = generate(userCount, new SplittableRandom(42));
+
+        int[] followerCounts = new int[userCount];
+        for (int followee : trace.followees) {
+            followerCounts[followee]++;
+        }
+        int[] sorted = followerCounts.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%d users, %d follow edges, max followers %d, median %d%n",
+                userCount, trace.followees.length, sorted[userCount - 1], sorted[userCount / 2]);
+        for (int threshold : HYBRID_THRESHOLDS) {
+            int celebrities = 0;
+            long edges = 0;
+            for (int c : followerCounts) {
+                if (c >= threshold) {
+                    celebrities++;
+                    edges += c;
+                }
+            }
+            System.out.printf("%d users with >= %d followers, %.0f%% of follow edges%n",
+                    celebrities, threshold, 100.0 * edges / trace.followees.length);
+        }
+        System.out.printf("%d preload posts, %d operations (%.0f%% posts), %d threads, feed length %d, page size %d%n%n",
+                PRELOAD_POSTS, OPERATIONS, POST_RATIO * 100, threads, FEED_LENGTH, PAGE_SIZE);
+        System.out.printf("%-22s %9s %9s %10s %10s %12s %12s %14s%n", "mode", "read p50", "read p99",
+                "read p99.9", "post p99", "ops/s", "fan-out/post", "stored entries");
+
+        run("fan-out-on-write", Integer.MAX_VALUE, trace, threads);
+        for (int threshold : HYBRID_THRESHOLDS) {
+            run("hybrid(" + threshold + ")", threshold, trace, threads);
+        }
+        run("fan-out-on-read", 0, trace, threads);
+
+        Twitter twitter = new Twitter();
+        Feed legacy = new Feed() {
+            @Override
+            public void post(int userId, long tweetId) {
+                twitter.postTweet(userId, (int) tweetId);
+            }
+
+            @Override
+            public long read(int userId, long cursor) {
+                //旧版不支持翻页，每次都读最新的10条，不再翻下一页
+                twitter.getNewsFeed(userId);
+                return NewsFeedService.END;
+            }
+
+            @Override
+            public void follow(int followerId, int followeeId) {
+                twitter.follow(followerId, followeeId);
+            }
+        };
+        replay("Twitter(1 thread)", legacy, trace, 1);
+    }
+
+    private static void run(String name, int threshold, Trace trace, int threads) throws InterruptedException {
+        NewsFeedService service = NewsFeedService.newBuilder().feedLength(FEED_LENGTH)
+                .celebrityThreshold(threshold).pageSize(PAGE_SIZE).build();
+        replay(name, new Feed() {
+            @Override
+            public void post(int userId, long tweetId) {
+                service.postTweet(userId, tweetId);
+            }
+
+            @Override
+            public long read(int userId, long cursor) {
+                return service.getNewsFeed(userId, cursor, PAGE_SIZE).nextCursor();
+            }
+
+            @Override
+            public void follow(int followerId, int followeeId) {
+                service.follow(followerId, followeeId);
+            }
+
+            @Override
+            public long fanOutWrites() {
+                return service.fanOutWrites();
+            }
+
+            @Override
+            public long storedEntries() {
+                return service.storedEntries();
+            }
+        }, trace, threads);
+    }
+
+    //建立关注关系、预热、多线程回放，打印延迟、吞吐量和写扩散的统计
+    private static void replay(String name, Feed feed, Trace trace, int threads) throws InterruptedException {
+        for (int i = 0; i < trace.followers.length; i++) {
+            feed.follow(trace.followers[i], trace.followees[i]);
+        }
+        long tweetId = 0;
+        for (int author : trace.preloadAuthors) {
+            feed.post(author, ++tweetId);
+        }
+        //读一遍预热JIT
+        for (int i = 0; i < trace.users.length / 4; i++) {
+            feed.read(trace.users[i], NewsFeedService.FIRST_PAGE);
+        }
+        long writesBefore = feed.fanOutWrites();
+
+        long[][] readLatency = new long[threads][];
+        long[][] postLatency = new long[threads][];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long firstTweet = tweetId;
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            new Thread(() -> {
+                long[] reads = new long[OPERATIONS / threads + 1];
+                long[] posts = new long[OPERATIONS / threads + 1];
+                int r = 0, p = 0;
+                try {
+                    start.await();
+                    for (int i = id; i < trace.ops.length; i += threads) {
+                        int user = trace.users[i];
+                        long begin = System.nanoTime();
+                        if (trace.ops[i] == POST) {
+                            feed.post(user, firstTweet + i + 1);
+                            posts[p++] = System.nanoTime() - begin;
+                            continue;
+                        }
+                        long cursor = feed.read(user, NewsFeedService.FIRST_PAGE);
+                        if (trace.ops[i] == READ_NEXT && cursor != NewsFeedService.END) {
+                            //翻页单独计时
+                            begin = System.nanoTime();
+                            feed.read(user, cursor);
+                        }
+                        reads[r++] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    readLatency[id] = Arrays.copyOf(reads, r);
+                    postLatency[id] = Arrays.copyOf(posts, p);
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        long[] reads = merge(readLatency);
+        long[] posts = merge(postLatency);
+        long writes = feed.fanOutWrites() - writesBefore;
+        System.out.printf("%-22s %9s %9s %10s %10s %12.0f %12s %14s%n", name, micros(reads, 0.5), micros(reads, 0.99),
+                micros(reads, 0.999), micros(posts, 0.99), OPERATIONS * 1e9 / elapsed,
+                writesBefore < 0 ? "-" : String.format("%.1f", (double) writes / posts.length),
+                feed.storedEntries() < 0 ? "-" : String.valueOf(feed.storedEntries()));
+    }
+
+    private static Trace generate(int userCount, SplittableRandom rand) {
+        //Zipf分布的累积权重，第k个用户的权重是 1/(k+1)^s
+        double[] cumulative = new double[userCount];
+        double sum = 0;
+        for (int k = 0; k < userCount; k++) {
+            sum += 1 / Math.pow(k + 1, ZIPF_EXPONENT);
+            cumulative[k] = sum;
+        }
+        Set<Long> edges = new LinkedHashSet<>();
+        for (int i = 0; i < userCount * AVG_FOLLOWS; i++) {
+            int follower = rand.nextInt(userCount);
+            int followee = zipf(cumulative, rand);
+            if (follower != followee) {
+                edges.add((long) follower << 32 | followee);
+            }
+        }
+        int[] followers = new int[edges.size()];
+        int[] followees = new int[edges.size()];
+        int e = 0;
+        for (long edge : edges) {
+            followers[e] = (int) (edge >>> 32);
+            followees[e++] = (int) edge;
+        }
+        int[] preloadAuthors = new int[PRELOAD_POSTS];
+        for (int i = 0; i < preloadAuthors.length; i++) {
+            preloadAuthors[i] = zipf(cumulative, rand);
+        }
+        int[] ops = new int[OPERATIONS];
+        int[] users = new int[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            double x = rand.nextDouble();
+            if (x < POST_RATIO) {
+                ops[i] = POST;
+                users[i] = zipf(cumulative, rand);
+            } else {
+                ops[i] = x < POST_RATIO + (1 - POST_RATIO) * NEXT_PAGE_RATIO ? READ_NEXT : READ;
+                users[i] = rand.nextInt(userCount);
+            }
+        }
+        return new Trace(followers, followees, preloadAuthors, ops, users);
+    }
+
+    private static int zipf(double[] cumulative, SplittableRandom rand) {
+        double x = rand.nextDouble() * cumulative[cumulative.length - 1];
+        int i = Arrays.binarySearch(cumulative, x);
+        return i >= 0 ? i : Math.min(-i - 1, cumulative.length - 1);
+    }
+
+    private static long[] merge(long[][] parts) {
+        int n = 0;
+        for (long[] p : parts) {
+            n += p.length;
+        }
+        long[] all = new long[n];
+        int pos = 0;
+        for (long[] p : parts) {
+            System.arraycopy(p, 0, all, pos, p.length);
+            pos += p.length;
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    //分位数，单位微秒
+    private static String micros(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        int i = (int) Math.min(sorted.length - 1, Math.ceil(q * sorted.length) - 1);
+        return String.format("%.1fus", sorted[Math.max(i, 0)] / 1000.0);
+    }
+}
@@ -0,0 +1,509 @@
+package algorithm.design.Twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Description:线程安全的信息流服务，Twitter的可扩展版本
+ * 设计思路:
+ * 1.推拉结合：普通用户发推时写扩散(fan-out-on-write)，推文直接写进每个粉丝的主页时间线，读的时候不用归并；
+ * 粉丝数达到celebrityThreshold的大V只写自己的推文列表，粉丝读的时候再拉取(fan-out-on-read)合并进来，
+ * 避免一条推文写几十万次；
+ * 2.每个用户的主页时间线和自己的推文列表都是有界的环形缓冲区，最多保留feedLength条，写满后覆盖最旧的；
+ * 缓冲区按需从16条开始倍增，不活跃的用户不占满容量；
+ * 3.推文按全局递增的序号排序，分页游标就是上一页最后一条的序号，下一页取序号更小的，
+ * 翻页期间有新推文也不会重复或者错位；翻到缓冲区保留的最旧一条之后就没有了；
+ * 4.大V判断有滞后：粉丝数达到阈值时变成拉模式，降到阈值一半以下才变回推模式，避免在阈值附近反复切换；
+ * 变回推模式时把最近的推文补进每个粉丝的主页时间线；关注普通用户时同样把他最近的推文补进来；
+ * 5.取消关注只是把对方从关注列表里删掉，同时清理主页时间线里对方的推文；
+ * 取关前发出的推文可能在清理之后才写扩散进来，所以读的时候对取关时刻之前的推文再按关注列表过滤一次，
+ * 没取关过的用户读的时候不用过滤；
+ * 6.读的时候要找出关注的大V，大V单独记在一个集合里，遍历关注列表和大V集合中较小的一个；
+ * 7.并发：用户表和关注关系用ConcurrentHashMap，每条时间线单独加锁，不会同时持有两条时间线的锁；
+ * 同一条推文可能被写扩散和补推各写一次，按序号去重。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class NewsFeedService {
+    /**
+     * 第一页的游标
+     */
+    public static final long FIRST_PAGE = Long.MAX_VALUE;
+    /**
+     * 没有下一页时的游标
+     */
+    public static final long END = 0;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int feedLength;
+    private final int celebrityThreshold;
+    private final int pageSize;
+    private final ConcurrentHashMap<Integer, User> users = new ConcurrentHashMap<>();
+    private final Set<Integer> celebrities = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong fanOutWrites = new AtomicLong();
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int feedLength = 800;
+        private int celebrityThreshold = 10_000;
+        private int pageSize = 20;
+
+        //每条时间线最多保留的推文数
+        public Builder feedLength(int feedLength) {
+            this.feedLength = feedLength;
+            return this;
+        }
+
+        //粉丝数达到这个值改成读时拉取，0表示全部拉取，Integer.MAX_VALUE表示全部写扩散
+        public Builder celebrityThreshold(int celebrityThreshold) {
+            this.celebrityThreshold = celebrityThreshold;
+            return this;
+        }
+
+        //getNewsFeed不指定条数时每页的条数
+        public Builder pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public NewsFeedService build() {
+            return new NewsFeedService(this);
+        }
+    }
+
+    private NewsFeedService(Builder builder) {
+        if (builder.feedLength < 1 || builder.pageSize < 1) {
+            throw new IllegalArgumentException("should be more than 0.");
+        }
+        if (builder.celebrityThreshold < 0) {
+            throw new IllegalArgumentException("celebrityThreshold should not be negative.");
+        }
+        this.feedLength = builder.feedLength;
+        this.celebrityThreshold = builder.celebrityThreshold;
+        this.pageSize = Math.min(builder.pageSize, builder.feedLength);
+    }
+
+    /**
+     * 一页信息流，推文从新到旧
+     */
+    public static final class FeedPage {
+        private final List<Long> tweetIds;
+        private final List<Integer> authorIds;
+        private final long nextCursor;
+
+        FeedPage(List<Long> tweetIds, List<Integer> authorIds, long nextCursor) {
+            this.tweetIds = Collections.unmodifiableList(tweetIds);
+            this.authorIds = Collections.unmodifiableList(authorIds);
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Long> tweetIds() {
+            return tweetIds;
+        }
+
+        //和tweetIds一一对应的作者
+        public List<Integer> authorIds() {
+            return authorIds;
+        }
+
+        //传给getNewsFeed取下一页，没有下一页时是END
+        public long nextCursor() {
+            return nextCursor;
+        }
+
+        public boolean hasMore() {
+            return nextCursor != END;
+        }
+
+        @Override
+        public String toString() {
+            return tweetIds + (hasMore() ? " next=" + nextCursor : " end");
+        }
+    }
+
+    /**
+     * 发一条推文
+     */
+    public void postTweet(int userId, long tweetId) {
+        User author = user(userId);
+        long seq = sequence.incrementAndGet();
+        //先写自己的推文列表再看是否大V，和变回推模式时的补推配合，保证推文不会两边都漏掉
+        author.posts.add(seq, tweetId, userId);
+        author.home.add(seq, tweetId, userId);
+        if (author.celebrity) {
+            return;
+        }
+        for (Integer followerId : author.followers) {
+            User follower = users.get(followerId);
+            if (follower != null) {
+                follower.home.add(seq, tweetId, userId);
+                fanOutWrites.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 最新的一页
+     */
+    public FeedPage getNewsFeed(int userId) {
+        return getNewsFeed(userId, FIRST_PAGE, pageSize);
+    }
+
+    /**
+     * 游标之前(更旧)的最多limit条推文，游标是FIRST_PAGE或者上一页的nextCursor()
+     */
+    public FeedPage getNewsFeed(int userId, long cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit should be more than 0.");
+        }
+        limit = Math.min(limit, feedLength);
+        List<Long> tweetIds = new ArrayList<>();
+        List<Integer> authorIds = new ArrayList<>();
+        User user = users.get(userId);
+        if (user == null) {
+            return new FeedPage(tweetIds, authorIds, END);
+        }
+
+        //主页时间线(写扩散的结果)加上关注的大V的推文列表，多路归并；多取一条用来判断有没有下一页
+        int fetch = limit + 1;
+        PriorityQueue<Slice> heap = new PriorityQueue<>((a, b) -> Long.compare(b.seq(), a.seq()));
+        long unfollowSeq = user.unfollowSeq;
+        Slice home = user.home.read(cursor, fetch, unfollowSeq,
+                author -> author == userId || user.followees.contains(author));
+        if (home.size > 0) {
+            heap.offer(home);
+        }
+        boolean fewerFollowees = user.followees.size() <= celebrities.size();
+        for (Integer id : fewerFollowees ? user.followees : celebrities) {
+            if (fewerFollowees ? celebrities.contains(id) : user.followees.contains(id)) {
+                User followee = users.get(id);
+                Slice posts = followee.posts.read(cursor, fetch, 0, null);
+                if (posts.size > 0) {
+                    heap.offer(posts);
+                }
+            }
+        }
+
+        long last = END;
+        boolean more = false;
+        while (!heap.isEmpty()) {
+            Slice s = heap.poll();
+            long seq = s.seq();
+            //大V刚切换模式时同一条推文可能两边都有
+            if (seq != last) {
+                if (tweetIds.size() == limit) {
+                    more = true;
+                    break;
+                }
+                tweetIds.add(s.tweets[s.pos]);
+                authorIds.add(s.authors[s.pos]);
+                last = seq;
+            }
+            if (++s.pos < s.size) {
+                heap.offer(s);
+            }
+        }
+        return new FeedPage(tweetIds, authorIds, more ? last : END);
+    }
+
+    /**
+     * 关注，关注自己或者重复关注什么都不做
+     */
+    public void follow(int followerId, int followeeId) {
+        if (followerId == followeeId) {
+            return;
+        }
+        User follower = user(followerId);
+        User followee = user(followeeId);
+        if (!follower.followees.add(followeeId)) {
+            return;
+        }
+        boolean backfill;
+        synchronized (followee) {
+            followee.followers.add(followerId);
+            if (!followee.celebrity && followee.followers.size() >= celebrityThreshold) {
+                followee.celebrity = true;
+                celebrities.add(followeeId);
+            }
+            backfill = !followee.celebrity;
+        }
+        //先加进粉丝列表再补推，并发发出的推文要么被写扩散，要么在补推时读到
+        if (backfill) {
+            follower.home.addAll(followee.posts.read(FIRST_PAGE, feedLength, 0, null));
+        }
+    }
+
+    /**
+     * 取消关注
+     */
+    public void unfollow(int followerId, int followeeId) {
+        User follower = users.get(followerId);
+        User followee = users.get(followeeId);
+        if (follower == null || followee == null || !follower.followees.remove(followeeId)) {
+            return;
+        }
+        List<Integer> demoted = null;
+        synchronized (followee) {
+            followee.followers.remove(followerId);
+            if (followee.celebrity && followee.followers.size() < celebrityThreshold / 2) {
+                followee.celebrity = false;
+                celebrities.remove(followeeId);
+                demoted = new ArrayList<>(followee.followers);
+            }
+        }
+        //先从粉丝列表里删掉再清理：之后分配到序号的推文写扩散时已经看不到这个粉丝，
+        //还会写进来的只能是序号不超过此刻sequence的推文，读的时候按关注列表过滤
+        follower.home.removeAuthor(followeeId);
+        long seq = sequence.get();
+        synchronized (follower) {
+            //并发取关时只能变大
+            if (seq > follower.unfollowSeq) {
+                follower.unfollowSeq = seq;
+            }
+        }
+        //变回推模式，把最近的推文补进粉丝的主页时间线
+        if (demoted != null) {
+            Slice recent = followee.posts.read(FIRST_PAGE, feedLength, 0, null);
+            for (Integer id : demoted) {
+                User u = users.get(id);
+                if (u != null) {
+                    recent.pos = 0;
+                    u.home.addAll(recent);
+                }
+            }
+        }
+    }
+
+    public int followerCount(int userId) {
+        User u = users.get(userId);
+        return u == null ? 0 : u.followers.size();
+    }
+
+    //当前是否是读时拉取的大V
+    public boolean isCelebrity(int userId) {
+        User u = users.get(userId);
+        return u != null && u.celebrity;
+    }
+
+    //写扩散写入粉丝主页时间线的总次数
+    public long fanOutWrites() {
+        return fanOutWrites.get();
+    }
+
+    //所有时间线里保存的推文条数
+    public long storedEntries() {
+        long n = 0;
+        for (User u : users.values()) {
+            n += u.home.size() + u.posts.size();
+        }
+        return n;
+    }
+
+    private User user(int userId) {
+        User u = users.get(userId);
+        if (u == null) {
+            u = users.computeIfAbsent(userId, id -> {
+                if (celebrityThreshold == 0) {
+                    celebrities.add(id);
+                }
+                return new User(feedLength, celebrityThreshold == 0);
+            });
+        }
+        return u;
+    }
+
+    private static final class User {
+        final Set<Integer> followers = ConcurrentHashMap.newKeySet();
+        final Set<Integer> followees = ConcurrentHashMap.newKeySet();
+        final Timeline posts;//自己发的推文
+        final Timeline home;//写扩散进来的推文，包括自己的
+        volatile boolean celebrity;
+        volatile long unfollowSeq;//取关时(已从对方粉丝列表删掉之后)的最大序号，不超过它的推文读的时候要检查作者
+
+        User(int feedLength, boolean celebrity) {
+            this.posts = new Timeline(feedLength);
+            this.home = new Timeline(feedLength);
+            this.celebrity = celebrity;
+        }
+    }
+
+    /**
+     * 从时间线里复制出来的一段，按序号从新到旧
+     */
+    private static final class Slice {
+        final long[] seqs;
+        final long[] tweets;
+        final int[] authors;
+        int size;
+        int pos;//归并时的当前位置
+
+        Slice(int capacity) {
+            seqs = new long[capacity];
+            tweets = new long[capacity];
+            authors = new int[capacity];
+        }
+
+        long seq() {
+            return seqs[pos];
+        }
+    }
+
+    /**
+     * 按序号有序的有界环形缓冲区，写满后覆盖最旧的
+     */
+    private static final class Timeline {
+        private final int maxCapacity;
+        private long[] seqs = new long[0];
+        private long[] tweets = new long[0];
+        private int[] authors = new int[0];
+        private int start;//最旧一条的位置
+        private int size;
+
+        Timeline(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+        }
+
+        private int index(int i) {
+            int j = start + i;
+            return j < seqs.length ? j : j - seqs.length;
+        }
+
+        /**
+         * 插入一条推文，序号已存在时忽略；通常序号比已有的都大，直接追加，
+         * 并发写入乱序时从尾部往前找位置
+         */
+        synchronized void add(long seq, long tweetId, int author) {
+            int pos = size;
+            while (pos > 0 && seqs[index(pos - 1)] >= seq) {
+                if (seqs[index(pos - 1)] == seq) {
+                    return;
+                }
+                pos--;
+            }
+            if (size == seqs.length && !grow()) {
+                //写满了，覆盖最旧的；比最旧的还旧就不要了
+                if (pos == 0) {
+                    return;
+                }
+                start = index(1);
+                size--;
+                pos--;
+            }
+            for (int i = size; i > pos; i--) {
+                int to = index(i), from = index(i - 1);
+                seqs[to] = seqs[from];
+                tweets[to] = tweets[from];
+                authors[to] = authors[from];
+            }
+            int at = index(pos);
+            seqs[at] = seq;
+            tweets[at] = tweetId;
+            authors[at] = author;
+            size++;
+        }
+
+        //容量翻倍，到上限后返回false
+        private boolean grow() {
+            int capacity = seqs.length;
+            if (capacity >= maxCapacity) {
+                return false;
+            }
+            int newCapacity = Math.min(maxCapacity, Math.max(INITIAL_CAPACITY, capacity * 2));
+            long[] s = new long[newCapacity];
+            long[] t = new long[newCapacity];
+            int[] a = new int[newCapacity];
+            for (int i = 0; i < size; i++) {
+                int j = index(i);
+                s[i] = seqs[j];
+                t[i] = tweets[j];
+                a[i] = authors[j];
+            }
+            seqs = s;
+            tweets = t;
+            authors = a;
+            start = 0;
+            return true;
+        }
+
+        //插入slice中剩下的推文
+        void addAll(Slice slice) {
+            //从旧到新插入，大部分是追加
+            for (int i = slice.size - 1; i >= slice.pos; i--) {
+                add(slice.seqs[i], slice.tweets[i], slice.authors[i]);
+            }
+        }
+
+        /**
+         * 序号小于before的最多limit条，从新到旧；序号不超过checkBelow的要作者满足accept
+         */
+        synchronized Slice read(long before, int limit, long checkBelow, IntPredicate accept) {
+            Slice slice = new Slice(Math.min(limit, size));
+            for (int i = size - 1; i >= 0 && slice.size < limit; i--) {
+                int j = index(i);
+                if (seqs[j] < before && (seqs[j] > checkBelow || accept.test(authors[j]))) {
+                    slice.seqs[slice.size] = seqs[j];
+                    slice.tweets[slice.size] = tweets[j];
+                    slice.authors[slice.size] = authors[j];
+                    slice.size++;
+                }
+            }
+            return slice;
+        }
+
+        //删除某个作者的所有推文
+        synchronized void removeAuthor(int author) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int from = index(i);
+                if (authors[from] != author) {
+                    int to = index(kept++);
+                    seqs[to] = seqs[from];
+                    tweets[to] = tweets[from];
+                    authors[to] = authors[from];
+                }
+            }
+            size = kept;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+
+    public static void main(String[] args) {
+        NewsFeedService service = NewsFeedService.newBuilder().feedLength(5).celebrityThreshold(4).pageSize(3).build();
+        service.postTweet(1, 101);
+        service.postTweet(2, 201);
+        service.follow(3, 1);
+        service.follow(3, 2);
+        service.follow(4, 2);
+        service.follow(5, 2);
+        service.follow(6, 2);//用户2有4个粉丝，变成大V
+        service.postTweet(2, 202);
+        service.postTweet(1, 102);
+        service.postTweet(3, 301);
+        System.out.println("user 2 celebrity: " + service.isCelebrity(2));
+        FeedPage page = service.getNewsFeed(3);
+        System.out.println(page);//[301, 102, 202] next=...
+        System.out.println(service.getNewsFeed(3, page.nextCursor(), 3));//[201, 101] end
+        service.unfollow(3, 2);
+        service.unfollow(5, 2);
+        service.unfollow(6, 2);//用户2降到1个粉丝，低于阈值的一半，变回推模式，最近的推文补进用户4的时间线
+        System.out.println("user 2 celebrity: " + service.isCelebrity(2));
+        System.out.println(service.getNewsFeed(3));//[301, 102, 101] end
+        service.postTweet(2, 203);
+        System.out.println(service.getNewsFeed(4));//[203, 202, 201] end
+    }
+}
@@ -31,14 +31,14 @@ public class Twitter {
     private Map<Integer, Set<Integer>> followings;
 
     /**
-     * 全局使用的时间戳字段，用户每发布一条推文之前 + 1
+     * 时间戳字段，用户每发布一条推文之前 + 1（每个实例单独计数，多个实例不会互相影响）
      */
-    private static int timestamp = 0;
+    private int timestamp = 0;
 
     /**
      * 合并 k 组推文使用的数据结构（可以在方法里创建使用），声明成全局变量非必需，视个人情况使用
      */
-    private static PriorityQueue<Tweet> maxHeap;
+    private final PriorityQueue<Tweet> maxHeap;
 
     /**
      * Initialize your data structure here.
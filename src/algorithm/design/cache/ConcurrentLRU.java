@@ -0,0 +1,261 @@
+package algorithm.design.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Description:线程安全的LRU缓存，基于LRU中的双向链表(NodeDoubleLinkedList)实现
+ * 设计思路:
+ * 1.分段加锁(lock striping)：按key的hash把缓存分成若干段(Segment)，每段有自己的锁、链表和容量，
+ * 不同段上的操作互不阻塞；
+ * 2.查找走每段的ConcurrentHashMap，不需要加锁；get命中后要把节点移到链表尾部，这次访问先记到
+ * 段的读缓冲区(read buffer)里，攒够一批或者有写操作拿到段锁时再批量重放，读只会tryLock，永远不会因为链表调整而阻塞；
+ * 读缓冲区满了就丢弃访问记录，这只会让LRU顺序略有偏差，不影响正确性；
+ * 3.按权重淘汰：每个条目的权重由Weigher计算(默认为1，即按条目数)，段的总权重超过上限时从链表头淘汰，
+ * 被淘汰的条目在释放锁之后通知EvictionListener。
+ *
+ * 链表节点在发布之后值不再修改(set已存在的key时换成新节点)，所以读线程不加锁也能看到完整的值。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class ConcurrentLRU<K, V> {
+
+    //计算条目权重
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    //条目被淘汰时的回调
+    public interface EvictionListener<K, V> {
+        void onEviction(K key, V value);
+    }
+
+    //链表节点，额外记录key和权重
+    private static class Entry<K, V> extends LRU.Node<V> {
+        final K key;
+        final int weight;
+        boolean live;//仍在链表中(只在持有段锁时读写)
+
+        Entry(K key, V value, int weight) {
+            super(value);
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final Weigher<K, V> weigher;
+    private final EvictionListener<K, V> listener;
+
+    public ConcurrentLRU(long maxWeight) {
+        this(maxWeight, 16, (k, v) -> 1, null);
+    }
+
+    /**
+     * @param maxWeight        总权重上限(平均分给各段)
+     * @param concurrencyLevel 段数，向上取到2的幂
+     * @param weigher          条目权重，须为非负数
+     * @param listener         淘汰回调，可为null
+     */
+    public ConcurrentLRU(long maxWeight, int concurrencyLevel,
+                         Weigher<K, V> weigher, EvictionListener<K, V> listener) {
+        if (maxWeight < 1 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("should be more than 0.");
+        }
+        int n = 1;
+        while (n < concurrencyLevel && n < maxWeight) {
+            n <<= 1;
+        }
+        this.segments = newSegments(n);
+        this.segmentShift = StripedReadBuffer.segmentShift(n);
+        for (int i = 0; i < n; i++) {
+            //余数分给前几段，保证总和等于maxWeight
+            segments[i] = new Segment<>(maxWeight / n + (i < maxWeight % n ? 1 : 0));
+        }
+        this.weigher = weigher;
+        this.listener = listener;
+    }
+
+    public V get(K key) {
+        Segment<K, V> s = segmentFor(key);
+        Entry<K, V> e = s.map.get(key);
+        if (e == null) {
+            return null;
+        }
+        s.recordAccess(e);
+        return e.value;
+    }
+
+    public void set(K key, V value) {
+        set(key, value, listener);
+    }
+
+    //写入，被淘汰的条目通知给指定的回调(TieredCache先收集起来，释放自己的锁之后再降级)
+    void set(K key, V value, EvictionListener<K, V> listener) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight should not be negative.");
+        }
+        notifyEvicted(segmentFor(key).put(key, value, weight), listener);
+    }
+
+    public V remove(K key) {
+        Entry<K, V> e = segmentFor(key).remove(key);
+        return e == null ? null : e.value;
+    }
+
+    //条目数
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> s : segments) {
+            size += s.map.size();
+        }
+        return size;
+    }
+
+    //当前总权重
+    public long weightedSize() {
+        long weight = 0;
+        for (Segment<K, V> s : segments) {
+            weight += s.weight;
+        }
+        return weight;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        return segments[StripedReadBuffer.segmentIndex(key, segmentShift)];
+    }
+
+    private static <K, V> void notifyEvicted(List<Entry<K, V>> evicted, EvictionListener<K, V> listener) {
+        if (listener == null || evicted == null) {
+            return;
+        }
+        for (Entry<K, V> e : evicted) {
+            listener.onEviction(e.key, e.value);
+        }
+    }
+
+    //泛型数组只能先建通配符数组再转型，unchecked只压在这一处
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int n) {
+        return (Segment<K, V>[]) new Segment<?, ?>[n];
+    }
+
+    private static class Segment<K, V> {
+        final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<>();
+        final LRU.NodeDoubleLinkedList<V> nodeList = new LRU.NodeDoubleLinkedList<>();
+        final ReentrantLock lock = new ReentrantLock();
+        final StripedReadBuffer<Entry<K, V>> readBuffer = new StripedReadBuffer<>();
+        final Consumer<Entry<K, V>> touch = this::touch;
+        final long maxWeight;
+        volatile long weight;//只在持有锁时修改
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        //记录一次访问：先写入读缓冲区，攒够一批后再尝试拿锁重放；拿不到锁就留给下一个拿到锁的线程
+        void recordAccess(Entry<K, V> e) {
+            if (readBuffer.record(e) && lock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        List<Entry<K, V>> put(K key, V value, int weight) {
+            Entry<K, V> e = new Entry<>(key, value, weight);
+            lock.lock();
+            try {
+                drainReadBuffer();
+                Entry<K, V> old = map.put(key, e);
+                if (old != null) {
+                    unlink(old);
+                }
+                e.live = true;
+                nodeList.addNode(e);
+                this.weight += weight;
+                return evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Entry<K, V> remove(K key) {
+            lock.lock();
+            try {
+                Entry<K, V> e = map.remove(key);
+                if (e != null) {
+                    unlink(e);
+                }
+                return e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //从链表头淘汰直到不超过权重上限(须持有锁)
+        private List<Entry<K, V>> evict() {
+            List<Entry<K, V>> evicted = null;
+            while (weight > maxWeight && nodeList.head != null) {
+                @SuppressWarnings("unchecked")
+                Entry<K, V> e = (Entry<K, V>) nodeList.head;
+                unlink(e);
+                map.remove(e.key, e);
+                if (evicted == null) {
+                    evicted = new ArrayList<>();
+                }
+                evicted.add(e);
+            }
+            return evicted;
+        }
+
+        //批量重放读缓冲区中的访问(须持有锁)
+        private void drainReadBuffer() {
+            readBuffer.drain(touch);
+        }
+
+        private void touch(Entry<K, V> e) {
+            if (e.live) {
+                nodeList.moveNodeToTail(e);
+            }
+        }
+
+        private void unlink(Entry<K, V> e) {
+            if (e.live) {
+                nodeList.removeNode(e);
+                e.live = false;
+                weight -= e.weight;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        ConcurrentLRU<String, Integer> testCache = new ConcurrentLRU<>(3, 1, (k, v) -> 1,
+                (k, v) -> System.out.println("evicted: " + k + "=" + v));
+        testCache.set("A", 1);
+        testCache.set("B", 2);
+        testCache.set("C", 3);
+        testCache.set("D", 4);
+        testCache.set("E", 5);
+        testCache.set("F", 6);
+        System.out.println(testCache.get("B"));
+        System.out.println(testCache.get("E"));
+        testCache.set("G", 7);
+        System.out.println(testCache.get("D"));
+        System.out.println(testCache.get("E"));
+        System.out.println(testCache.get("F"));
+        System.out.println(testCache.get("G"));
+        System.out.println("size: " + testCache.size() + ", weight: " + testCache.weightedSize());
+    }
+}
@@ -0,0 +1,120 @@
+package algorithm.design.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description:多线程吞吐量对比：LRU.MyCache(只能用一把全局锁共享) vs ConcurrentLRU
+ * 负载为读多写少(默认90%的get，未命中时set)，key服从偏斜分布(少数热点key占大部分访问)。
+ * 用法: java algorithm.design.cache.ConcurrentLRUBenchmark [每轮毫秒数] [最大线程数]
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class ConcurrentLRUBenchmark {
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int KEY_SPACE = CAPACITY * 4;
+    private static final int READ_PERCENT = 90;
+
+    //两种缓存的统一接口
+    private interface Cache {
+        Integer get(Integer key);
+
+        void set(Integer key, Integer value);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        System.out.printf("%-8s %-14s %16s %10s%n", "threads", "cache", "ops/s", "hit rate");
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            LRU.MyCache<Integer, Integer> lru = new LRU.MyCache<>(CAPACITY);
+            Cache locked = new Cache() {
+                public synchronized Integer get(Integer key) {
+                    return lru.get(key);
+                }
+
+                public synchronized void set(Integer key, Integer value) {
+                    lru.set(key, value);
+                }
+            };
+            ConcurrentLRU<Integer, Integer> clru = new ConcurrentLRU<>(CAPACITY);
+            Cache striped = new Cache() {
+                public Integer get(Integer key) {
+                    return clru.get(key);
+                }
+
+                public void set(Integer key, Integer value) {
+                    clru.set(key, value);
+                }
+            };
+            run(threads, millis, "MyCache", locked);
+            run(threads, millis, "ConcurrentLRU", striped);
+        }
+    }
+
+    private static void run(int threads, long millis, String name, Cache cache) throws InterruptedException {
+        //预热：先填满缓存，再跑一轮不计时的负载
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.set(nextKey(ThreadLocalRandom.current()), i);
+        }
+        measure(threads, millis / 2, cache);
+        long[] r = measure(threads, millis, cache);
+        System.out.printf("%-8d %-14s %,16d %9.1f%%%n", threads, name,
+                r[0] * 1000 / millis, r[0] == 0 ? 0.0 : 100.0 * r[1] / r[2]);
+    }
+
+    //返回{总操作数, get命中数, get总数}
+    private static long[] measure(int threads, long millis, Cache cache) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        LongAdder hits = new LongAdder();
+        LongAdder gets = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom rand = ThreadLocalRandom.current();
+                long n = 0, h = 0, g = 0;
+                try {
+                    start.await();
+                    while ((n & 255) != 0 || System.nanoTime() < deadline[0]) {
+                        Integer key = nextKey(rand);
+                        if (rand.nextInt(100) < READ_PERCENT) {
+                            g++;
+                            if (cache.get(key) != null) {
+                                h++;
+                            } else {
+                                cache.set(key, key);
+                            }
+                        } else {
+                            cache.set(key, key);
+                        }
+                        n++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    ops.add(n);
+                    hits.add(h);
+                    gets.add(g);
+                    done.countDown();
+                }
+            }).start();
+        }
+        deadline[0] = System.nanoTime() + millis * 1_000_000L;
+        start.countDown();
+        done.await();
+        return new long[]{ops.sum(), hits.sum(), gets.sum()};
+    }
+
+    //偏斜分布：u^3 把大部分访问集中到较小的key上，再乘以奇数打散
+    private static Integer nextKey(ThreadLocalRandom rand) {
+        double u = rand.nextDouble();
+        int rank = (int) (u * u * u * KEY_SPACE);
+        return (rank * 0x9E3779B9) & (KEY_SPACE - 1);
+    }
+}
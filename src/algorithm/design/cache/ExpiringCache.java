@@ -0,0 +1,459 @@
+package algorithm.design.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Description:支持过期时间和提前刷新的线程安全LRU缓存
+ * 设计思路:
+ * 1.容量淘汰和ConcurrentLRU相同：分段加锁，查找不加锁，命中记录在读缓冲区里批量重放；
+ * 2.过期：支持写入后过期(expireAfterWrite)和访问后过期(expireAfterAccess)，两者都设置时取较早的；
+ * 每段有一个TimerWheel，写入时按到期时间放置定时器，时间轮在写操作和读缓冲区重放时推进，过期条目O(1)删除，
+ * 不需要额外的清理线程全量扫描；
+ * 访问只更新条目的访问时间(volatile写)，不移动定时器，定时器到点时再按最新的访问时间判断，没过期就重新放置；
+ * 3.读到已过期但还没被时间轮删除的条目时当作未命中；
+ * 4.提前刷新(refreshAfterWrite)：命中的条目写入时间超过刷新间隔时，在executor里异步调用loader重新加载，
+ * 调用方直接拿到旧值，不会等待；刷新间隔比过期时间短时，热点key会在过期前被刷新，不会因为过期而未命中；
+ * 5.配置了loader时，get未命中会同步加载并放入缓存(同一个key并发未命中时可能加载多次)。
+ * 被容量淘汰和过期删除的条目都会在释放锁之后通知EvictionListener。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class ExpiringCache<K, V> {
+
+    //链表节点，额外记录key、写入/访问时间和时间轮的定时器
+    private static class Entry<K, V> extends LRU.Node<V> {
+        //字段更新器只能按Entry.class创建，没法带类型参数
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Entry> REFRESHING =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "refreshing");
+
+        final K key;
+        final long writeTime;
+        volatile long accessTime;
+        volatile int refreshing;//1表示正在异步刷新
+        TimerWheel.Timer<Entry<K, V>> timer;//只在持有段锁时读写
+        boolean live;//仍在链表中(只在持有段锁时读写)
+
+        Entry(K key, V value, long now) {
+            super(value);
+            this.key = key;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final long expireAfterWriteNanos;//0表示不过期
+    private final long expireAfterAccessNanos;
+    private final long refreshAfterWriteNanos;
+    private final Function<K, V> loader;
+    private final Executor executor;
+    private final LongSupplier ticker;
+    private final ConcurrentLRU.EvictionListener<K, V> listener;
+
+    public static <K, V> Builder<K, V> newBuilder() {
+        return new Builder<>();
+    }
+
+    public static class Builder<K, V> {
+        private long maximumSize = Long.MAX_VALUE;
+        private int concurrencyLevel = 16;
+        private long expireAfterWriteNanos;
+        private long expireAfterAccessNanos;
+        private long refreshAfterWriteNanos;
+        private Function<K, V> loader;
+        private Executor executor = ForkJoinPool.commonPool();
+        private LongSupplier ticker = System::nanoTime;
+        private ConcurrentLRU.EvictionListener<K, V> listener;
+
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder<K, V> concurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+            this.expireAfterAccessNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        //需要同时设置loader
+        public Builder<K, V> refreshAfterWrite(long duration, TimeUnit unit) {
+            this.refreshAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder<K, V> loader(Function<K, V> loader) {
+            this.loader = loader;
+            return this;
+        }
+
+        public Builder<K, V> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        //时间来源(纳秒)，测试时可以替换成手动推进的时钟
+        public Builder<K, V> ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public Builder<K, V> evictionListener(ConcurrentLRU.EvictionListener<K, V> listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public ExpiringCache<K, V> build() {
+            return new ExpiringCache<>(this);
+        }
+    }
+
+    private ExpiringCache(Builder<K, V> builder) {
+        if (builder.maximumSize < 1 || builder.concurrencyLevel < 1) {
+            throw new IllegalArgumentException("should be more than 0.");
+        }
+        if (builder.expireAfterWriteNanos < 0 || builder.expireAfterAccessNanos < 0
+                || builder.refreshAfterWriteNanos < 0) {
+            throw new IllegalArgumentException("duration should not be negative.");
+        }
+        if (builder.refreshAfterWriteNanos > 0 && builder.loader == null) {
+            throw new IllegalArgumentException("refreshAfterWrite requires a loader.");
+        }
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+        this.loader = builder.loader;
+        this.executor = builder.executor;
+        this.ticker = builder.ticker;
+        this.listener = builder.listener;
+
+        long maximumSize = builder.maximumSize;
+        int n = 1;
+        while (n < builder.concurrencyLevel && n < maximumSize) {
+            n <<= 1;
+        }
+        this.segments = newSegments(n);
+        this.segmentShift = StripedReadBuffer.segmentShift(n);
+        long now = ticker.getAsLong();
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment<>(this, maximumSize / n + (i < maximumSize % n ? 1 : 0), now);
+        }
+    }
+
+    public V get(K key) {
+        long now = ticker.getAsLong();
+        Segment<K, V> s = segmentFor(key);
+        Entry<K, V> e = s.map.get(key);
+        if (e != null && !isExpired(e, now)) {
+            if (expireAfterAccessNanos > 0) {
+                e.accessTime = now;
+            }
+            notifyEvicted(s.recordAccess(e, now));
+            if (refreshAfterWriteNanos > 0 && now - e.writeTime >= refreshAfterWriteNanos) {
+                refresh(s, e);
+            }
+            return e.value;
+        }
+        if (e != null) {
+            notifyEvicted(s.cleanUp(now));//读到过期条目，顺便推进时间轮
+        }
+        if (loader == null) {
+            return null;
+        }
+        V value = loader.apply(key);
+        if (value != null) {
+            set(key, value);
+        }
+        return value;
+    }
+
+    public void set(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        notifyEvicted(segmentFor(key).put(key, value, ticker.getAsLong(), null));
+    }
+
+    public V remove(K key) {
+        Entry<K, V> e = segmentFor(key).remove(key);
+        return e == null || isExpired(e, ticker.getAsLong()) ? null : e.value;
+    }
+
+    //推进所有段的时间轮，删除已过期的条目
+    public void cleanUp() {
+        long now = ticker.getAsLong();
+        for (Segment<K, V> s : segments) {
+            s.lock.lock();
+            List<Entry<K, V>> evicted;
+            try {
+                s.drainReadBuffer();
+                evicted = s.expire(now, null);
+            } finally {
+                s.lock.unlock();
+            }
+            notifyEvicted(evicted);
+        }
+    }
+
+    //条目数，包括已过期但还没删除的
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> s : segments) {
+            size += s.map.size();
+        }
+        return size;
+    }
+
+    //异步刷新，同一个条目同时只有一个刷新任务；刷新失败保留旧值，下次命中再试
+    private void refresh(Segment<K, V> s, Entry<K, V> e) {
+        if (!Entry.REFRESHING.compareAndSet(e, 0, 1)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    V value = loader.apply(e.key);
+                    if (value != null) {
+                        notifyEvicted(s.put(e.key, value, ticker.getAsLong(), e));
+                    }
+                } finally {
+                    e.refreshing = 0;
+                }
+            });
+        } catch (RuntimeException ex) {
+            e.refreshing = 0;
+        }
+    }
+
+    //到期时间，没有设置过期时返回Long.MAX_VALUE
+    private long expiresAt(Entry<K, V> e) {
+        long time = Long.MAX_VALUE;
+        if (expireAfterWriteNanos > 0) {
+            time = e.writeTime + expireAfterWriteNanos;
+        }
+        if (expireAfterAccessNanos > 0) {
+            time = Math.min(time, e.accessTime + expireAfterAccessNanos);
+        }
+        return time;
+    }
+
+    private boolean isExpired(Entry<K, V> e, long now) {
+        return expiresAt(e) <= now;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        return segments[StripedReadBuffer.segmentIndex(key, segmentShift)];
+    }
+
+    private void notifyEvicted(List<Entry<K, V>> evicted) {
+        if (listener == null || evicted == null) {
+            return;
+        }
+        for (Entry<K, V> e : evicted) {
+            listener.onEviction(e.key, e.value);
+        }
+    }
+
+    //泛型数组只能先建通配符数组再转型，unchecked只压在这一处
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int n) {
+        return (Segment<K, V>[]) new Segment<?, ?>[n];
+    }
+
+    private static class Segment<K, V> {
+        final ExpiringCache<K, V> cache;
+        final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<>();
+        final LRU.NodeDoubleLinkedList<V> nodeList = new LRU.NodeDoubleLinkedList<>();
+        final TimerWheel<Entry<K, V>> wheel;
+        final ReentrantLock lock = new ReentrantLock();
+        final StripedReadBuffer<Entry<K, V>> readBuffer = new StripedReadBuffer<>();
+        final Consumer<Entry<K, V>> touch = this::touch;
+        final long maximumSize;
+        long size;//链表中的条目数(只在持有锁时读写)
+
+        Segment(ExpiringCache<K, V> cache, long maximumSize, long now) {
+            this.cache = cache;
+            this.maximumSize = maximumSize;
+            this.wheel = new TimerWheel<>(now);
+        }
+
+        //记录一次命中：先写入读缓冲区，攒够一批后再尝试拿锁重放，并推进时间轮
+        List<Entry<K, V>> recordAccess(Entry<K, V> e, long now) {
+            return readBuffer.record(e) ? cleanUp(now) : null;
+        }
+
+        //拿不到锁就算了，留给下一个拿到锁的线程
+        List<Entry<K, V>> cleanUp(long now) {
+            if (!lock.tryLock()) {
+                return null;
+            }
+            try {
+                drainReadBuffer();
+                return expire(now, null);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //写入新值；expected不为null时只在当前条目仍是expected时才替换(异步刷新用)
+        List<Entry<K, V>> put(K key, V value, long now, Entry<K, V> expected) {
+            Entry<K, V> e = new Entry<>(key, value, now);
+            lock.lock();
+            try {
+                drainReadBuffer();
+                List<Entry<K, V>> evicted = expire(now, null);
+                Entry<K, V> old = map.get(key);
+                if (expected != null && old != expected) {
+                    return evicted;
+                }
+                map.put(key, e);
+                if (old != null) {
+                    unlink(old);
+                }
+                e.live = true;
+                nodeList.addNode(e);
+                size++;
+                long expiresAt = cache.expiresAt(e);
+                if (expiresAt != Long.MAX_VALUE) {
+                    e.timer = new TimerWheel.Timer<>(e);
+                    wheel.schedule(e.timer, expiresAt);
+                }
+                return evict(evicted);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Entry<K, V> remove(K key) {
+            lock.lock();
+            try {
+                Entry<K, V> e = map.remove(key);
+                if (e != null) {
+                    unlink(e);
+                }
+                return e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //推进时间轮，删除过期条目(须持有锁)
+        List<Entry<K, V>> expire(long now, List<Entry<K, V>> evicted) {
+            @SuppressWarnings("unchecked")
+            List<Entry<K, V>>[] out = (List<Entry<K, V>>[]) new List<?>[]{evicted};
+            wheel.advance(now, timer -> {
+                Entry<K, V> e = timer.item;
+                if (!e.live) {
+                    return;
+                }
+                long expiresAt = cache.expiresAt(e);
+                if (expiresAt > now) {
+                    wheel.schedule(timer, expiresAt);//期间被访问过，到期时间推后了
+                    return;
+                }
+                unlink(e);
+                map.remove(e.key, e);
+                if (out[0] == null) {
+                    out[0] = new ArrayList<>();
+                }
+                out[0].add(e);
+            });
+            return out[0];
+        }
+
+        //从链表头淘汰直到不超过容量(须持有锁)
+        private List<Entry<K, V>> evict(List<Entry<K, V>> evicted) {
+            while (size > maximumSize && nodeList.head != null) {
+                @SuppressWarnings("unchecked")
+                Entry<K, V> e = (Entry<K, V>) nodeList.head;
+                unlink(e);
+                map.remove(e.key, e);
+                if (evicted == null) {
+                    evicted = new ArrayList<>();
+                }
+                evicted.add(e);
+            }
+            return evicted;
+        }
+
+        //批量重放读缓冲区中的访问(须持有锁)
+        private void drainReadBuffer() {
+            readBuffer.drain(touch);
+        }
+
+        private void touch(Entry<K, V> e) {
+            if (e.live) {
+                nodeList.moveNodeToTail(e);
+            }
+        }
+
+        private void unlink(Entry<K, V> e) {
+            if (e.live) {
+                nodeList.removeNode(e);
+                e.live = false;
+                size--;
+                if (e.timer != null) {
+                    wheel.deschedule(e.timer);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        AtomicLong clock = new AtomicLong();//手动推进的时钟(纳秒)
+        AtomicLong loads = new AtomicLong();
+        ExpiringCache<String, String> cache = ExpiringCache.<String, String>newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(10, TimeUnit.SECONDS)
+                .refreshAfterWrite(6, TimeUnit.SECONDS)
+                .loader(k -> k + "#" + loads.incrementAndGet())
+                .executor(Runnable::run)//演示中同步执行刷新
+                .ticker(clock::get)
+                .evictionListener((k, v) -> System.out.println("expired: " + k + "=" + v))
+                .build();
+        System.out.println(cache.get("hot"));//未命中，同步加载
+        cache.get("cold");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(7));
+        System.out.println(cache.get("hot"));//超过刷新间隔：返回旧值，同时刷新
+        System.out.println(cache.get("hot"));//刷新后的新值
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        cache.cleanUp();//cold已过期被删除，hot刚刷新过还没过期
+        System.out.println(cache.get("hot") + ", size: " + cache.size());
+
+        ExpiringCache<String, Integer> session = ExpiringCache.<String, Integer>newBuilder()
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .ticker(clock::get)
+                .build();
+        session.set("a", 1);
+        session.set("b", 2);
+        for (int i = 0; i < 3; i++) {//a每20分钟访问一次，一直不过期
+            clock.addAndGet(TimeUnit.MINUTES.toNanos(20));
+            session.get("a");
+        }
+        session.cleanUp();
+        System.out.println("a=" + session.get("a") + ", b=" + session.get("b") + ", size: " + session.size());
+    }
+}
@@ -0,0 +1,97 @@
+package algorithm.design.cache;
+
+/**
+ * Description:用Count-Min Sketch估计key的访问频率，供TinyLFU做准入判断
+ * 设计思路:
+ * 1.每个计数器只有4位(最大15)，一个long存16个计数器；每个key用4个不同的种子算出4个位置，
+ * 频率取4个计数器中的最小值，多个key落到同一个计数器只会让估计偏大；
+ * 2.一个key的4个计数器分别取自4个long里同一组(hash低2位决定的组)内的不同计数器；
+ * 3.老化(aging)：累计增加次数达到sampleSize(容量的10倍)后，所有计数器减半，
+ * 让过去的热点逐渐冷却，频率只反映最近一段时间的访问。
+ *
+ * 不是线程安全的，由调用方加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class FrequencySketch {
+    private static final long[] SEED = {//4个哈希函数的种子
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;//减半后清掉每个计数器的最高位
+    private static final long ONE_MASK = 0x1111111111111111L;//每个计数器的最低位
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;//上次老化以来的增加次数
+
+    /**
+     * @param maximumSize 缓存的最大条目数，决定计数器的个数
+     */
+    public FrequencySketch(long maximumSize) {
+        int n = (int) Math.min(Math.max(maximumSize, 8), 1 << 30);
+        int length = Integer.highestOneBit(n - 1) << 1;//向上取到2的幂
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = (int) Math.min(10L * n, Integer.MAX_VALUE);
+    }
+
+    //估计key的访问次数(0~15)
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    //记录一次访问，4个计数器各加1(已到15的不再加)
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    //所有计数器减半
+    private void reset() {
+        int count = 0;
+        for (int i = 0; i < table.length; i++) {
+            count += Long.bitCount(table[i] & ONE_MASK);//减半时被舍掉的1
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (count >>> 2);
+    }
+
+    private int indexOf(int item, int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    //打散hashCode，避免低质量的hashCode集中在少数计数器上
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,206 @@
+package algorithm.design.cache;
+
+/**
+ * Description:int->int的LRU缓存，和LRU.MyCache功能相同，但不装箱、不为每个条目分配节点
+ * 设计思路:
+ * 1.条目存放在平行的基本类型数组里(keys/values)，下标就是条目的编号，链表的前后指针也用下标数组(prev/next)表示，
+ * -1表示空；容量在构造时确定，数组一次分配好，淘汰的条目直接复用它的下标；
+ * 2.key->下标的查找用开放寻址的哈希表(线性探测)，表里存"下标+1"(0表示空槽)，
+ * 删除时把后面同一探测链上的元素往前挪(backward shift)，不需要墓碑；
+ * 3.所以稳定状态下get/set不分配任何对象。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class IntIntLRUCache {
+    private final int[] keys;
+    private final int[] values;
+    private final int[] prev;
+    private final int[] next;
+    private final int[] table;//开放寻址哈希表，存条目下标+1
+    private final int mask;
+    private final int capacity;
+    private int head = -1;//最久未使用
+    private int tail = -1;//最近使用
+    private int size;
+
+    public IntIntLRUCache(int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException("should be more than 0.");
+        }
+        this.capacity = capacity;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;//装载因子不超过0.5
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    //不存在时返回-1
+    public int get(int key) {
+        return get(key, -1);
+    }
+
+    public int get(int key, int defaultValue) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return defaultValue;
+        }
+        moveToTail(i);
+        return values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    public void set(int key, int value) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            values[i] = value;
+            moveToTail(i);
+            return;
+        }
+        if (size == capacity) {//删除最不常用记录(即链表头)，复用它的下标
+            i = head;
+            unlink(i);
+            removeFromTable(keys[i]);
+        } else {
+            i = size++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        linkLast(i);
+        insertIntoTable(key, i);
+    }
+
+    public boolean remove(int key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return false;
+        }
+        unlink(i);
+        removeFromTable(key);
+        //把最后一个条目挪到空出来的下标，保证[0, size)都是有效条目
+        int last = --size;
+        if (i != last) {
+            keys[i] = keys[last];
+            values[i] = values[last];
+            prev[i] = prev[last];
+            next[i] = next[last];
+            if (prev[i] >= 0) {
+                next[prev[i]] = i;
+            } else {
+                head = i;
+            }
+            if (next[i] >= 0) {
+                prev[next[i]] = i;
+            } else {
+                tail = i;
+            }
+            table[slotOf(keys[i])] = i + 1;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void moveToTail(int i) {
+        if (i != tail) {
+            unlink(i);
+            linkLast(i);
+        }
+    }
+
+    private void linkLast(int i) {
+        prev[i] = tail;
+        next[i] = -1;
+        if (tail >= 0) {
+            next[tail] = i;
+        } else {
+            head = i;
+        }
+        tail = i;
+    }
+
+    private void unlink(int i) {
+        if (prev[i] >= 0) {
+            next[prev[i]] = next[i];
+        } else {
+            head = next[i];
+        }
+        if (next[i] >= 0) {
+            prev[next[i]] = prev[i];
+        } else {
+            tail = prev[i];
+        }
+    }
+
+    //条目下标，不存在返回-1
+    private int indexOf(int key) {
+        for (int s = hash(key) & mask; ; s = (s + 1) & mask) {
+            int i = table[s] - 1;
+            if (i < 0 || keys[i] == key) {
+                return i;
+            }
+        }
+    }
+
+    //key所在的槽(key必须存在)
+    private int slotOf(int key) {
+        int s = hash(key) & mask;
+        while (keys[table[s] - 1] != key) {
+            s = (s + 1) & mask;
+        }
+        return s;
+    }
+
+    private void insertIntoTable(int key, int i) {
+        int s = hash(key) & mask;
+        while (table[s] != 0) {
+            s = (s + 1) & mask;
+        }
+        table[s] = i + 1;
+    }
+
+    //删除后把探测链上后面的元素往前挪，填补空槽
+    private void removeFromTable(int key) {
+        int hole = slotOf(key);
+        for (int s = (hole + 1) & mask; table[s] != 0; s = (s + 1) & mask) {
+            int home = hash(keys[table[s] - 1]) & mask;
+            //home不在(hole, s]之间时，这个元素可以挪到hole
+            if (((s - home) & mask) >= ((s - hole) & mask)) {
+                table[hole] = table[s];
+                hole = s;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public static void main(String[] args) {
+        IntIntLRUCache testCache = new IntIntLRUCache(3);
+        testCache.set(1, 1);
+        testCache.set(2, 2);
+        testCache.set(3, 3);
+        testCache.set(4, 4);
+        testCache.set(5, 5);
+        testCache.set(6, 6);
+        System.out.println(testCache.get(2));
+        System.out.println(testCache.get(1));
+        testCache.set(7, 7);
+        System.out.println(testCache.get(4));
+        System.out.println(testCache.get(3));
+        System.out.println(testCache.get(5));
+        System.out.println(testCache.get(6));
+        System.out.println(testCache.get(7));
+    }
+}
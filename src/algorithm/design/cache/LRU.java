@@ -71,6 +71,22 @@ public class LRU {
             this.tail = node;
         }
 
+        //删除链表中的任意节点
+        public void removeNode(Node<V> node) {
+            if (node == this.head) {
+                this.head = node.next;
+            } else {
+                node.last.next = node.next;
+            }
+            if (node == this.tail) {
+                this.tail = node.last;
+            } else {
+                node.next.last = node.last;
+            }
+            node.last = null;
+            node.next = null;
+        }
+
         public Node<V> removeHead() {
             if (this.head == null) {
                 return null;
@@ -0,0 +1,287 @@
+package algorithm.design.cache;
+
+/**
+ * Description:long->long的LFU缓存，结构和LFU.LFUCache相同，但不装箱、不为每个条目分配节点
+ * 设计思路:
+ * 1.和LFU一样，用一个按频数递增排列的"频数桶"双向链表，每个桶下挂同频数条目的双向链表，
+ * 条目被访问时移到下一个频数的桶的头部，满时淘汰最小频数桶的尾节点，get/set均为O(1)；
+ * 2.条目和桶都存放在平行的基本类型数组里，用下标代替指针(-1表示空)；
+ * 非空的桶不会多于条目数，所以桶数组和条目数组一样大，空出来的桶下标用一个空闲链表回收；
+ * 3.key->下标的查找用开放寻址的哈希表(线性探测，删除时backward shift)，和IntIntLRUCache相同；
+ * 4.所以稳定状态下get/set不分配任何对象。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class LongLongLFUCache {
+    //条目
+    private final long[] keys;
+    private final long[] values;
+    private final int[] up;//同一个桶里的前一个条目
+    private final int[] down;//同一个桶里的后一个条目
+    private final int[] bucketOf;//条目所在的桶
+    //频数桶
+    private final long[] times;
+    private final int[] bucketHead;
+    private final int[] bucketTail;
+    private final int[] bucketLast;
+    private final int[] bucketNext;//桶链表的后一个，也用作空闲桶链表的指针
+    private int headBucket = -1;//频数最小的桶
+    private int freeBucket;//空闲桶链表的头
+
+    private final int[] table;//开放寻址哈希表，存条目下标+1
+    private final int mask;
+    private final int capacity;
+    private int size;
+
+    public LongLongLFUCache(int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException("should be more than 0.");
+        }
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.up = new int[capacity];
+        this.down = new int[capacity];
+        this.bucketOf = new int[capacity];
+        this.times = new long[capacity];
+        this.bucketHead = new int[capacity];
+        this.bucketTail = new int[capacity];
+        this.bucketLast = new int[capacity];
+        this.bucketNext = new int[capacity];
+        for (int b = 0; b < capacity; b++) {
+            bucketNext[b] = b + 1 < capacity ? b + 1 : -1;
+        }
+        this.freeBucket = 0;
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;//装载因子不超过0.5
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    //不存在时返回-1
+    public long get(long key) {
+        return get(key, -1L);
+    }
+
+    public long get(long key, long defaultValue) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return defaultValue;
+        }
+        increment(i);
+        return values[i];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    //访问次数，不存在时返回0
+    public long frequency(long key) {
+        int i = indexOf(key);
+        return i < 0 ? 0 : times[bucketOf[i]];
+    }
+
+    public void set(long key, long value) {
+        int i = indexOf(key);
+        if (i >= 0) {
+            values[i] = value;
+            increment(i);
+            return;
+        }
+        if (size == capacity) {//删除最小频数桶的尾节点，复用它的下标
+            i = bucketTail[headBucket];
+            detach(i);
+            removeFromTable(keys[i]);
+        } else {
+            i = size++;
+        }
+        keys[i] = key;
+        values[i] = value;
+        int b = headBucket;
+        if (b < 0 || times[b] != 1) {
+            b = newBucketAfter(-1, 1);
+        }
+        attach(i, b);
+        insertIntoTable(key, i);
+    }
+
+    public boolean remove(long key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return false;
+        }
+        detach(i);
+        removeFromTable(key);
+        //把最后一个条目挪到空出来的下标，保证[0, size)都是有效条目
+        int last = --size;
+        if (i != last) {
+            keys[i] = keys[last];
+            values[i] = values[last];
+            up[i] = up[last];
+            down[i] = down[last];
+            int b = bucketOf[i] = bucketOf[last];
+            if (up[i] >= 0) {
+                down[up[i]] = i;
+            } else {
+                bucketHead[b] = i;
+            }
+            if (down[i] >= 0) {
+                up[down[i]] = i;
+            } else {
+                bucketTail[b] = i;
+            }
+            table[slotOf(keys[i])] = i + 1;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //条目移到下一个频数的桶
+    private void increment(int i) {
+        int b = bucketOf[i];
+        long t = times[b] + 1;
+        int next = bucketNext[b];
+        if (bucketHead[b] == bucketTail[b] && (next < 0 || times[next] != t)) {
+            times[b] = t;//桶里只有这一个条目，直接改桶的频数
+            return;
+        }
+        //先在旧桶后面找到(或建好)目标桶，再从旧桶摘下条目，旧桶空了会被回收
+        int target = next >= 0 && times[next] == t ? next : newBucketAfter(b, t);
+        detach(i);
+        attach(i, target);
+    }
+
+    //加到桶的头部
+    private void attach(int i, int b) {
+        bucketOf[i] = b;
+        up[i] = -1;
+        down[i] = bucketHead[b];
+        if (bucketHead[b] >= 0) {
+            up[bucketHead[b]] = i;
+        } else {
+            bucketTail[b] = i;
+        }
+        bucketHead[b] = i;
+    }
+
+    //从桶中摘下，桶空了就回收
+    private void detach(int i) {
+        int b = bucketOf[i];
+        if (up[i] >= 0) {
+            down[up[i]] = down[i];
+        } else {
+            bucketHead[b] = down[i];
+        }
+        if (down[i] >= 0) {
+            up[down[i]] = up[i];
+        } else {
+            bucketTail[b] = up[i];
+        }
+        if (bucketHead[b] < 0) {
+            freeBucket(b);
+        }
+    }
+
+    //在桶prev后面新建一个频数为t的空桶，prev为-1时建在最前面
+    private int newBucketAfter(int prev, long t) {
+        int b = freeBucket;
+        freeBucket = bucketNext[b];
+        times[b] = t;
+        bucketHead[b] = -1;
+        bucketTail[b] = -1;
+        int next = prev >= 0 ? bucketNext[prev] : headBucket;
+        bucketLast[b] = prev;
+        bucketNext[b] = next;
+        if (prev >= 0) {
+            bucketNext[prev] = b;
+        } else {
+            headBucket = b;
+        }
+        if (next >= 0) {
+            bucketLast[next] = b;
+        }
+        return b;
+    }
+
+    private void freeBucket(int b) {
+        int last = bucketLast[b];
+        int next = bucketNext[b];
+        if (last >= 0) {
+            bucketNext[last] = next;
+        } else {
+            headBucket = next;
+        }
+        if (next >= 0) {
+            bucketLast[next] = last;
+        }
+        bucketNext[b] = freeBucket;
+        freeBucket = b;
+    }
+
+    //条目下标，不存在返回-1
+    private int indexOf(long key) {
+        for (int s = hash(key) & mask; ; s = (s + 1) & mask) {
+            int i = table[s] - 1;
+            if (i < 0 || keys[i] == key) {
+                return i;
+            }
+        }
+    }
+
+    //key所在的槽(key必须存在)
+    private int slotOf(long key) {
+        int s = hash(key) & mask;
+        while (keys[table[s] - 1] != key) {
+            s = (s + 1) & mask;
+        }
+        return s;
+    }
+
+    private void insertIntoTable(long key, int i) {
+        int s = hash(key) & mask;
+        while (table[s] != 0) {
+            s = (s + 1) & mask;
+        }
+        table[s] = i + 1;
+    }
+
+    //删除后把探测链上后面的元素往前挪，填补空槽
+    private void removeFromTable(long key) {
+        int hole = slotOf(key);
+        for (int s = (hole + 1) & mask; table[s] != 0; s = (s + 1) & mask) {
+            int home = hash(keys[table[s] - 1]) & mask;
+            //home不在(hole, s]之间时，这个元素可以挪到hole
+            if (((s - home) & mask) >= ((s - hole) & mask)) {
+                table[hole] = table[s];
+                hole = s;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public static void main(String[] args) {
+        LongLongLFUCache testCache = new LongLongLFUCache(3);
+        testCache.set(1, 1);
+        testCache.set(2, 2);
+        testCache.get(1);
+        testCache.get(1);
+        testCache.get(2);
+        testCache.set(3, 3);
+        testCache.set(4, 4);//淘汰访问次数最少的3
+        System.out.println(testCache.get(3));
+        System.out.println(testCache.get(4));
+        testCache.set(5, 5);//2和4都访问了2次，淘汰其中较久未访问的2
+        System.out.println(testCache.get(2));
+        System.out.println(testCache.get(1) + " times: " + testCache.frequency(1));
+        System.out.println(testCache.get(5));
+    }
+}
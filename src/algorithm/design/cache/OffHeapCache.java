@@ -0,0 +1,151 @@
+package algorithm.design.cache;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Description:值存放在堆外内存的LRU缓存
+ * 设计思路:
+ * 1.值经Serializer序列化后写入SlabAllocator分配的堆外块，堆上只留key和地址，值不占堆空间，GC也不扫描；
+ * 2.每一级(size class)各有一条LRU链表(LRU.NodeDoubleLinkedList，节点里存key)，
+ * 某一级分配失败时淘汰这一级最久未使用的条目，腾出的块正好能放下新值；
+ * 3.超过一页的值不缓存。
+ * 所有方法加同一把锁，读写都是O(1)加上一次序列化/反序列化。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class OffHeapCache<K, V> {
+
+    private static final int DEFAULT_PAGE_SIZE = 1 << 20;
+
+    //链表节点，value存key，另外记录值在堆外的位置
+    private static class Entry<K> extends LRU.Node<K> {
+        final long address;
+        final int length;
+        final int sizeClass;
+
+        Entry(K key, long address, int length, int sizeClass) {
+            super(key);
+            this.address = address;
+            this.length = length;
+            this.sizeClass = sizeClass;
+        }
+    }
+
+    private final HashMap<K, Entry<K>> map = new HashMap<>();
+    private final LRU.NodeDoubleLinkedList<K>[] nodeLists;//每一级一条LRU链表
+    private final SlabAllocator allocator;
+    private final Serializer<V> serializer;
+    private long evictions;
+
+    public OffHeapCache(long capacity, Serializer<V> serializer) {
+        this(capacity, DEFAULT_PAGE_SIZE, serializer);
+    }
+
+    /**
+     * @param capacity   堆外内存总字节数
+     * @param pageSize   页大小，也是能缓存的最大值
+     * @param serializer 值的序列化方式
+     */
+    public OffHeapCache(long capacity, int pageSize, Serializer<V> serializer) {
+        this.allocator = new SlabAllocator(capacity, pageSize);
+        this.serializer = serializer;
+        int classes = allocator.sizeClassOf(pageSize) + 1;
+        @SuppressWarnings("unchecked")
+        LRU.NodeDoubleLinkedList<K>[] nodeLists = (LRU.NodeDoubleLinkedList<K>[]) new LRU.NodeDoubleLinkedList<?>[classes];
+        this.nodeLists = nodeLists;
+        for (int i = 0; i < classes; i++) {
+            nodeLists[i] = new LRU.NodeDoubleLinkedList<>();
+        }
+    }
+
+    //写入，值太大或者放不下时返回false(原来的值也会被删除)
+    public synchronized boolean put(K key, V value) {
+        invalidate(key);
+        int length = serializer.size(value);
+        int sizeClass = allocator.sizeClassOf(length);
+        if (sizeClass < 0) {
+            return false;
+        }
+        long address = allocator.allocate(sizeClass);
+        while (address < 0) {
+            //这一级没有空闲块了，淘汰这一级最久未使用的条目
+            LRU.Node<K> head = nodeLists[sizeClass].head;
+            if (head == null) {
+                return false;//页都分给了其他级
+            }
+            invalidate(head.value);
+            evictions++;
+            address = allocator.allocate(sizeClass);
+        }
+        try {
+            serializer.write(value, allocator.buffer(address, length));
+        } catch (RuntimeException e) {
+            allocator.free(address, sizeClass);
+            throw e;
+        }
+        Entry<K> entry = new Entry<>(key, address, length, sizeClass);
+        map.put(key, entry);
+        nodeLists[sizeClass].addNode(entry);
+        return true;
+    }
+
+    public synchronized V get(K key) {
+        Entry<K> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        nodeLists[entry.sizeClass].moveNodeToTail(entry);
+        return read(entry);
+    }
+
+    //删除并返回值
+    public synchronized V remove(K key) {
+        Entry<K> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        V value = read(entry);
+        invalidate(key);
+        return value;
+    }
+
+    //删除，不读取值
+    public synchronized boolean invalidate(K key) {
+        Entry<K> entry = map.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        nodeLists[entry.sizeClass].removeNode(entry);
+        allocator.free(entry.address, entry.sizeClass);
+        return true;
+    }
+
+    public synchronized boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    //已占用的堆外字节数(按块大小计)
+    public synchronized long usedBytes() {
+        return allocator.usedBytes();
+    }
+
+    public long capacity() {
+        return allocator.capacity();
+    }
+
+    //因为空间不足被淘汰的条目数
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    private V read(Entry<K> entry) {
+        ByteBuffer buffer = allocator.buffer(entry.address, entry.length);
+        return serializer.read(buffer);
+    }
+}
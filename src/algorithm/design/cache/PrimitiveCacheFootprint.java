@@ -0,0 +1,103 @@
+package algorithm.design.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntConsumer;
+
+/**
+ * Description:比较装箱版本(LRU.MyCache、LFU.LFUCache)和基本类型版本(IntIntLRUCache、LongLongLFUCache)
+ * 装满N个条目后的堆占用，以及稳定状态下每次get/set分配的字节数
+ * 用法: java algorithm.design.cache.PrimitiveCacheFootprint [条目数]
+ * 每次分配的字节数依赖HotSpot的com.sun.management.ThreadMXBean，其他JVM上显示为-1。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class PrimitiveCacheFootprint {
+
+    private static final int OPS = 2_000_000;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%-22s %14s %12s %12s%n", "cache", "heap (MB)", "bytes/entry", "bytes/op");
+
+        @SuppressWarnings("unchecked")
+        LRU.MyCache<Integer, Integer>[] lru = (LRU.MyCache<Integer, Integer>[]) new LRU.MyCache<?, ?>[1];
+        report("LRU.MyCache", n, () -> lru[0] = new LRU.MyCache<>(n),
+                k -> lru[0].set(k, k), k -> {
+                    if (lru[0].get(k) == null) {
+                        lru[0].set(k, k);
+                    }
+                });
+        lru[0] = null;
+
+        IntIntLRUCache[] intLru = new IntIntLRUCache[1];
+        report("IntIntLRUCache", n, () -> intLru[0] = new IntIntLRUCache(n),
+                k -> intLru[0].set(k, k), k -> {
+                    if (intLru[0].get(k) < 0) {
+                        intLru[0].set(k, k);
+                    }
+                });
+        intLru[0] = null;
+
+        LFU.LFUCache[] lfu = new LFU.LFUCache[1];
+        report("LFU.LFUCache", n, () -> lfu[0] = new LFU.LFUCache(n),
+                k -> lfu[0].set(k, k), k -> {
+                    if (lfu[0].get(k) < 0) {
+                        lfu[0].set(k, k);
+                    }
+                });
+        lfu[0] = null;
+
+        LongLongLFUCache[] longLfu = new LongLongLFUCache[1];
+        report("LongLongLFUCache", n, () -> longLfu[0] = new LongLongLFUCache(n),
+                k -> longLfu[0].set(k, k), k -> {
+                    if (longLfu[0].get(k) < 0) {
+                        longLfu[0].set(k, k);
+                    }
+                });
+    }
+
+    //create创建缓存，fill用来装满，op是稳定状态下的一次操作(key的范围是容量的2倍，约一半未命中)
+    private static void report(String name, int n, Runnable create, IntConsumer fill, IntConsumer op) {
+        long before = usedHeap();
+        create.run();
+        for (int k = 0; k < n; k++) {
+            fill.accept(k);
+        }
+        long heap = usedHeap() - before;
+
+        int[] keys = new int[OPS];//事先生成key，避免把随机数的分配算进去
+        long seed = 42;
+        for (int i = 0; i < OPS; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            keys[i] = (int) ((seed >>> 33) % (2L * n));
+        }
+        for (int i = 0; i < OPS / 4; i++) {//预热
+            op.accept(keys[i]);
+        }
+        long allocated = allocatedBytes();
+        for (int i = 0; i < OPS; i++) {
+            op.accept(keys[i]);
+        }
+        long perOp = allocated < 0 ? -1 : (allocatedBytes() - allocated) / OPS;
+        System.out.printf("%-22s %14.1f %12d %12d%n", name, heap / 1048576.0, heap / n, perOp);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {//多做几次gc，取最小值
+            System.gc();
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,67 @@
+package algorithm.design.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Description:把值写入堆外内存和读回来的序列化接口，OffHeapCache用它存取值
+ * write时buffer的position在值的起点、剩余空间正好是size(value)字节；
+ * read时buffer的position在值的起点、limit在值的终点。
+ * buffer由缓存复用，实现中不能保留对它的引用。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public interface Serializer<T> {
+
+    //序列化后的字节数
+    int size(T value);
+
+    void write(T value, ByteBuffer buffer);
+
+    T read(ByteBuffer buffer);
+
+    Serializer<byte[]> BYTES = new Serializer<byte[]>() {
+        public int size(byte[] value) {
+            return value.length;
+        }
+
+        public void write(byte[] value, ByteBuffer buffer) {
+            buffer.put(value);
+        }
+
+        public byte[] read(ByteBuffer buffer) {
+            byte[] value = new byte[buffer.remaining()];
+            buffer.get(value);
+            return value;
+        }
+    };
+
+    Serializer<String> STRING = new Serializer<String>() {
+        public int size(String value) {
+            return value.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        public void write(String value, ByteBuffer buffer) {
+            buffer.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public String read(ByteBuffer buffer) {
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    };
+
+    Serializer<Long> LONG = new Serializer<Long>() {
+        public int size(Long value) {
+            return 8;
+        }
+
+        public void write(Long value, ByteBuffer buffer) {
+            buffer.putLong(value);
+        }
+
+        public Long read(ByteBuffer buffer) {
+            return buffer.getLong();
+        }
+    };
+}
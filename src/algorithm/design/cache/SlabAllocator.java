@@ -0,0 +1,157 @@
+package algorithm.design.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Description:堆外内存的slab分配器(类似memcached)
+ * 设计思路:
+ * 1.内存来自若干块直接内存(ByteBuffer.allocateDirect，每块不超过1GB)，按页(默认1MB)切分；
+ * 2.分配大小分成若干级(size class)，从64字节开始每级大约乘以1.25，最大一级是一页；
+ * 每一级按需领取整页，再把页切成这一级大小的块，释放的块放进这一级的空闲栈里复用，
+ * 所以分配和释放都是O(1)，也没有外部碎片(内部碎片不超过约25%)；
+ * 3.页一旦分给某一级就不再归还，所有页都分完以后，某一级没有空闲块时分配失败，由调用方淘汰同一级的旧条目；
+ * 4.地址用一个long表示：高32位是第几块直接内存，低32位是块内偏移。
+ * 这些对象都在堆外，GC不需要扫描它们。
+ *
+ * 不是线程安全的，由调用方加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class SlabAllocator {
+    private static final int MIN_CHUNK = 64;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final long MAX_ARENA = 1L << 30;//每块直接内存的上限
+
+    private final int pageSize;
+    private final ByteBuffer[] arenas;
+    private final ByteBuffer[] views;//每块直接内存的一个副本，复用来定位读写，避免每次duplicate
+    private final int pagesPerArena;
+    private final int totalPages;
+    private int usedPages;
+
+    private final int[] chunkSizes;//每一级的块大小
+    private final long[][] freeChunks;//每一级的空闲块栈
+    private final int[] freeCounts;
+    private final long[] carvePage;//每一级正在切分的页的地址，-1表示没有
+    private final int[] carveOffset;//正在切分的页里下一个块的偏移
+    private final long[] usedBytes;//每一级已分配出去的字节数
+
+    /**
+     * @param capacity 总字节数(向下取整到页)
+     * @param pageSize 页大小，也是能分配的最大块
+     */
+    public SlabAllocator(long capacity, int pageSize) {
+        if (pageSize < MIN_CHUNK || capacity < pageSize) {
+            throw new IllegalArgumentException("capacity should be at least one page of at least " + MIN_CHUNK + " bytes.");
+        }
+        this.pageSize = pageSize;
+        this.pagesPerArena = (int) (MAX_ARENA / pageSize);
+        this.totalPages = (int) Math.min(capacity / pageSize, Integer.MAX_VALUE);
+        int arenaCount = (totalPages + pagesPerArena - 1) / pagesPerArena;
+        this.arenas = new ByteBuffer[arenaCount];
+        this.views = new ByteBuffer[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            int pages = Math.min(pagesPerArena, totalPages - i * pagesPerArena);
+            arenas[i] = ByteBuffer.allocateDirect(pages * pageSize);
+            views[i] = arenas[i].duplicate();
+        }
+
+        int[] sizes = new int[64];
+        int n = 0;
+        for (double size = MIN_CHUNK; size < pageSize; size *= GROWTH_FACTOR) {
+            int s = ((int) size + 7) & ~7;//按8字节对齐
+            if (n == sizes.length) {
+                sizes = Arrays.copyOf(sizes, n * 2);
+            }
+            if (n == 0 || s > sizes[n - 1]) {
+                sizes[n++] = s;
+            }
+        }
+        if (n == sizes.length) {
+            sizes = Arrays.copyOf(sizes, n + 1);
+        }
+        sizes[n++] = pageSize;
+        this.chunkSizes = Arrays.copyOf(sizes, n);
+        this.freeChunks = new long[n][16];
+        this.freeCounts = new int[n];
+        this.carvePage = new long[n];
+        Arrays.fill(carvePage, -1L);
+        this.carveOffset = new int[n];
+        this.usedBytes = new long[n];
+    }
+
+    //能容纳size字节的最小一级，超过一页返回-1
+    public int sizeClassOf(int size) {
+        if (size > pageSize) {
+            return -1;
+        }
+        int lo = 0, hi = chunkSizes.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (chunkSizes[mid] >= size) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    public int chunkSize(int sizeClass) {
+        return chunkSizes[sizeClass];
+    }
+
+    //分配一块，失败(这一级没有空闲块且没有空闲页)返回-1
+    public long allocate(int sizeClass) {
+        long address;
+        if (freeCounts[sizeClass] > 0) {
+            address = freeChunks[sizeClass][--freeCounts[sizeClass]];
+        } else {
+            int chunk = chunkSizes[sizeClass];
+            if (carvePage[sizeClass] < 0 || carveOffset[sizeClass] + chunk > pageSize) {
+                if (usedPages == totalPages) {
+                    return -1L;
+                }
+                int page = usedPages++;
+                carvePage[sizeClass] = ((long) (page / pagesPerArena) << 32) | (long) (page % pagesPerArena) * pageSize;
+                carveOffset[sizeClass] = 0;
+            }
+            address = carvePage[sizeClass] + carveOffset[sizeClass];
+            carveOffset[sizeClass] += chunk;
+        }
+        usedBytes[sizeClass] += chunkSizes[sizeClass];
+        return address;
+    }
+
+    public void free(long address, int sizeClass) {
+        long[] stack = freeChunks[sizeClass];
+        if (freeCounts[sizeClass] == stack.length) {
+            freeChunks[sizeClass] = stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[freeCounts[sizeClass]++] = address;
+        usedBytes[sizeClass] -= chunkSizes[sizeClass];
+    }
+
+    //定位到[address, address+length)的缓冲区，下次调用前有效
+    public ByteBuffer buffer(long address, int length) {
+        ByteBuffer view = views[(int) (address >>> 32)];
+        int offset = (int) address;
+        view.limit(offset + length).position(offset);
+        return view;
+    }
+
+    //已分配出去的字节数(按块大小计)
+    public long usedBytes() {
+        long used = 0;
+        for (long u : usedBytes) {
+            used += u;
+        }
+        return used;
+    }
+
+    public long capacity() {
+        return (long) totalPages * pageSize;
+    }
+}
@@ -0,0 +1,62 @@
+package algorithm.design.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Description:分段缓存(ConcurrentLRU、TinyLFU、ExpiringCache)共用的读缓冲区和分段选择
+ * 1.每段一个有损的读缓冲区：命中时把条目写进环形数组，不加锁；攒够DRAIN_THRESHOLD条后由拿到段锁的线程批量重放，
+ * 缓冲区满了就丢弃这次访问记录，只会让淘汰顺序略有偏差，不影响正确性；
+ * 2.按key的hash选段：hash乘以黄金分割常数打散后取高位。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+final class StripedReadBuffer<E> {
+    static final int SIZE = 64;//每段读缓冲区大小(2的幂)
+    private static final int MASK = SIZE - 1;
+    private static final int DRAIN_THRESHOLD = SIZE / 2;//攒够这么多次访问再重放
+
+    private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong writes = new AtomicLong();//写入位置
+    private volatile long drained;//已重放到的位置
+
+    /**
+     * 记录一次访问，返回是否攒够了一批、应该尝试拿锁重放
+     */
+    boolean record(E e) {
+        long w = writes.get();
+        long pending = w - drained;
+        if (pending < SIZE && writes.compareAndSet(w, w + 1)) {
+            buffer.lazySet((int) (w & MASK), e);
+            pending++;
+        }
+        return pending >= DRAIN_THRESHOLD;
+    }
+
+    /**
+     * 按写入顺序重放缓冲区中的访问(须持有段锁)
+     */
+    void drain(Consumer<E> consumer) {
+        long end = writes.get();
+        for (long i = drained; i < end; i++) {
+            E e = buffer.getAndSet((int) (i & MASK), null);
+            if (e != null) {
+                consumer.accept(e);
+            }
+        }
+        drained = end;
+    }
+
+    //段数n(2的幂)对应的移位
+    static int segmentShift(int n) {
+        return 32 - Integer.numberOfTrailingZeros(n);
+    }
+
+    //key所在的段
+    static int segmentIndex(Object key, int segmentShift) {
+        int h = key.hashCode() * 0x9E3779B9;//打散hash，取高位选段
+        return segmentShift == 32 ? 0 : h >>> segmentShift;
+    }
+}
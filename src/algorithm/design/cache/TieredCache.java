@@ -0,0 +1,181 @@
+package algorithm.design.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description:两级缓存：堆上的ConcurrentLRU + 堆外的OffHeapCache
+ * 设计思路:
+ * 1.堆上一级放最热的条目，读不需要反序列化；被LRU淘汰的条目通过EvictionListener降级(demote)写入堆外一级；
+ * 2.get在堆上未命中时查堆外，命中就从堆外删除并升级(promote)回堆上，同一个key只会存在于其中一级；
+ * 3.堆外一级可以有几个GB，值都在直接内存里，不会增加GC扫描的开销；
+ * 4.同一个key在两级之间的移动(升级、set、remove、降级)都在这个key所在的条带锁(striped lock)里进行，
+ * 否则升级时从堆外取出旧值之后，并发的set写进堆上的新值会被旧值覆盖；
+ * 5.降级在释放条带锁之后进行(被淘汰的key可能在别的条带，嵌套加锁会死锁)：每次写操作在条带里记下一个全局递增的序号，
+ * 降级时如果被淘汰key的条带在这次写入开始之后被别人写过，这个key可能已经被重新写入、删除或者降级了更新的值，
+ * 就丢弃要降级的旧值，保证同一个key只存在于其中一级，堆外也不会留下过期的值(误判只会多一次未命中)。
+ * 从淘汰到降级完成的很短时间内被淘汰的key在两级都查不到，也只会多一次未命中。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class TieredCache<K, V> {
+    private static final int STRIPES = 64;//条带锁数量(2的幂)
+    private static final int STRIPE_SHIFT = StripedReadBuffer.segmentShift(STRIPES);
+
+    private final ConcurrentLRU<K, V> heap;
+    private final OffHeapCache<K, V> offHeap;
+    private final LongAdder heapHits = new LongAdder();
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Object[] locks = new Object[STRIPES];
+    private final long[] lastWrite = new long[STRIPES];//每个条带最后一次写的序号(持有条带锁时读写)
+    private final AtomicLong writes = new AtomicLong();//写操作的全局序号
+
+    //一次写入时堆上淘汰的条目，释放条带锁之后再降级
+    private final class Evicted implements ConcurrentLRU.EvictionListener<K, V> {
+        final long since = writes.get();//写入开始时(已持有条带锁)的全局序号
+        long seq;//这次写入的序号
+        final List<K> keys = new ArrayList<>(1);
+        final List<V> values = new ArrayList<>(1);
+
+        @Override
+        public void onEviction(K key, V value) {
+            keys.add(key);
+            values.add(value);
+        }
+    }
+
+    /**
+     * @param heapEntries  堆上一级的条目数
+     * @param offHeapBytes 堆外一级的字节数
+     * @param serializer   值的序列化方式
+     */
+    public TieredCache(long heapEntries, long offHeapBytes, Serializer<V> serializer) {
+        this.offHeap = new OffHeapCache<>(offHeapBytes, serializer);
+        //被淘汰的条目由写入的线程收集起来再降级，这里不设回调
+        this.heap = new ConcurrentLRU<>(heapEntries, 16, (k, v) -> 1, null);
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public V get(K key) {
+        V value = heap.get(key);
+        if (value != null) {
+            heapHits.increment();
+            return value;
+        }
+        int s = stripe(key);
+        Evicted evicted;
+        synchronized (locks[s]) {
+            //拿锁之前可能已经被别的线程升级或者写入了
+            value = heap.get(key);
+            if (value != null) {
+                heapHits.increment();
+                return value;
+            }
+            value = offHeap.remove(key);
+            if (value == null) {
+                misses.increment();
+                return null;
+            }
+            offHeapHits.increment();
+            evicted = new Evicted();
+            heap.set(key, value, evicted);
+            evicted.seq = stamp(s);
+        }
+        demote(evicted);
+        return value;
+    }
+
+    public void set(K key, V value) {
+        int s = stripe(key);
+        Evicted evicted;
+        synchronized (locks[s]) {
+            evicted = new Evicted();
+            offHeap.invalidate(key);
+            heap.set(key, value, evicted);
+            evicted.seq = stamp(s);
+        }
+        demote(evicted);
+    }
+
+    public void remove(K key) {
+        int s = stripe(key);
+        synchronized (locks[s]) {
+            heap.remove(key);
+            offHeap.invalidate(key);
+            stamp(s);
+        }
+    }
+
+    //把堆上淘汰的条目写入堆外(不能持有条带锁)
+    private void demote(Evicted evicted) {
+        for (int i = 0; i < evicted.keys.size(); i++) {
+            K key = evicted.keys.get(i);
+            int s = stripe(key);
+            synchronized (locks[s]) {
+                //写入开始之后这个条带只被自己写过才降级
+                long last = lastWrite[s];
+                if (last <= evicted.since || last == evicted.seq) {
+                    offHeap.put(key, evicted.values.get(i));
+                    stamp(s);
+                }
+            }
+        }
+    }
+
+    //记录条带s的一次写操作(须持有条带锁，在修改完两级之后调用)
+    private long stamp(int s) {
+        return lastWrite[s] = writes.incrementAndGet();
+    }
+
+    private static int stripe(Object key) {
+        return StripedReadBuffer.segmentIndex(key, STRIPE_SHIFT);
+    }
+
+    public long heapSize() {
+        return heap.size();
+    }
+
+    public long offHeapSize() {
+        return offHeap.size();
+    }
+
+    public long offHeapUsedBytes() {
+        return offHeap.usedBytes();
+    }
+
+    public String stats() {
+        return String.format("heap hits: %d, off-heap hits: %d, misses: %d, off-heap evictions: %d",
+                heapHits.sum(), offHeapHits.sum(), misses.sum(), offHeap.evictions());
+    }
+
+    public static void main(String[] args) {
+        TieredCache<Long, String> cache = new TieredCache<>(10_000, 64L << 20, Serializer.STRING);
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            padding.append('x');
+        }
+        for (long k = 0; k < 200_000; k++) {
+            cache.set(k, k + padding.toString());
+        }
+        System.out.printf("heap entries: %d, off-heap entries: %d, off-heap used: %.1f MB%n",
+                cache.heapSize(), cache.offHeapSize(), cache.offHeapUsedBytes() / 1048576.0);
+        java.util.Random rand = new java.util.Random(1);
+        for (int i = 0; i < 500_000; i++) {
+            double u = rand.nextDouble();
+            long k = (long) (u * u * 300_000);
+            String v = cache.get(k);
+            if (v == null) {
+                cache.set(k, k + padding.toString());
+            } else if (!v.startsWith(k + "x")) {
+                throw new IllegalStateException("wrong value for " + k);
+            }
+        }
+        System.out.println(cache.stats());
+    }
+}
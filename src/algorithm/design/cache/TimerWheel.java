@@ -0,0 +1,148 @@
+package algorithm.design.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Description:分层时间轮(hierarchical timing wheel)，添加、删除定时器都是O(1)
+ * 设计思路:
+ * 1.共4层，每层64个桶；第0层每个桶约1ms(2^20纳秒)，往上每层桶的跨度是下一层的64倍
+ * (约1ms、67ms、4.3s、4.6min)，整层分别覆盖约67ms、4.3s、4.6min、4.9h；
+ * 2.定时器按剩余时间放到能容纳它的最低一层，桶的位置由到期时间决定；超过最高层范围的放在最高层最远的桶里；
+ * 3.时间前进时，每层依次处理从上次时间到当前时间扫过的桶：到期的交给回调，还没到期的重新放置，
+ * 这样高层的定时器会逐级下沉到低层，精度最终是第0层一个桶的跨度(约1ms)；
+ * 4.回调里可以重新schedule同一个定时器(比如按访问时间过期的条目被访问过，实际到期时间推后了)；
+ * 5.放置时已经过期的定时器在下一次advance时到期。
+ *
+ * 不是线程安全的，由调用方加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class TimerWheel<T> {
+    private static final int LEVELS = 4;
+    private static final int BUCKET_BITS = 6;
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final int[] SHIFT = {20, 26, 32, 38};//每层桶跨度的位数
+
+    //定时器，同时也是桶里双向链表的节点
+    public static final class Timer<T> {
+        public final T item;
+        long time;//到期时间(纳秒)
+        Timer<T> last;
+        Timer<T> next;
+
+        public Timer(T item) {
+            this.item = item;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    private final Timer<T>[][] buckets;//每个桶是带哨兵的循环双向链表
+    private long currentTime;
+
+    public TimerWheel(long now) {
+        this.currentTime = now;
+        @SuppressWarnings("unchecked")
+        Timer<T>[][] buckets = (Timer<T>[][]) new Timer<?>[LEVELS][BUCKETS];
+        this.buckets = buckets;
+        for (int l = 0; l < LEVELS; l++) {
+            for (int b = 0; b < BUCKETS; b++) {
+                Timer<T> sentinel = new Timer<>(null);
+                sentinel.last = sentinel;
+                sentinel.next = sentinel;
+                buckets[l][b] = sentinel;
+            }
+        }
+    }
+
+    //按到期时间放置定时器，已经在时间轮里的先移除
+    public void schedule(Timer<T> timer, long time) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+        }
+        timer.time = time;
+        long delay = Math.max(time - currentTime, 0);
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= span(level)) {
+            level++;
+        }
+        //已经过期的放到当前时间所在的桶，下次advance就会处理(按原来的时间会落进已经扫过的桶，要等一整圈)；
+        //最多放到当前时间后面第63个桶，超出范围的到时候再重新放置
+        long at = Math.min(Math.max(time, currentTime), currentTime + span(level) - (1L << SHIFT[level]));
+        Timer<T> sentinel = buckets[level][(int) ((at >>> SHIFT[level]) & (BUCKETS - 1))];
+        timer.last = sentinel.last;
+        timer.next = sentinel;
+        sentinel.last.next = timer;
+        sentinel.last = timer;
+    }
+
+    public void deschedule(Timer<T> timer) {
+        if (timer.isScheduled()) {
+            unlink(timer);
+        }
+    }
+
+    //把时间推进到now，到期的定时器(到期时间<=now)交给onExpire
+    public void advance(long now, Consumer<Timer<T>> onExpire) {
+        long previousTime = currentTime;
+        if (now <= previousTime) {
+            return;
+        }
+        currentTime = now;
+        for (int l = 0; l < LEVELS; l++) {
+            long previousTicks = previousTime >>> SHIFT[l];
+            long currentTicks = now >>> SHIFT[l];
+            if (currentTicks == previousTicks) {
+                if (l == 0) {
+                    //还在同一个桶里，也要处理当前桶里已经到期的(比如放置时已经过期的定时器)
+                    expire(buckets[0][(int) (currentTicks & (BUCKETS - 1))], now, onExpire);
+                }
+                break;//这一层没有扫过新的桶，更高层也不会有
+            }
+            long count = Math.min(currentTicks - previousTicks + 1, BUCKETS);
+            for (long t = currentTicks - count + 1; t <= currentTicks; t++) {
+                expire(buckets[l][(int) (t & (BUCKETS - 1))], now, onExpire);
+            }
+        }
+    }
+
+    private void expire(Timer<T> sentinel, long now, Consumer<Timer<T>> onExpire) {
+        //先把整个桶摘下来，处理过程中重新放置的定时器不会再被这一轮扫到
+        if (sentinel.next == sentinel) {
+            return;
+        }
+        Timer<T> timer = sentinel.next;
+        sentinel.last.next = null;
+        sentinel.last = sentinel;
+        sentinel.next = sentinel;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.last = null;
+            timer.next = null;
+            if (timer.time <= now) {
+                onExpire.accept(timer);
+            } else {
+                schedule(timer, timer.time);
+            }
+            timer = next;
+        }
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.last.next = timer.next;
+        timer.next.last = timer.last;
+        timer.last = null;
+        timer.next = null;
+    }
+
+    private static long span(int level) {
+        return 1L << (SHIFT[level] + BUCKET_BITS);
+    }
+}
@@ -0,0 +1,302 @@
+package algorithm.design.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Description:W-TinyLFU缓存，线程安全，get/set均为O(1)
+ * 设计思路:
+ * 1.频率由FrequencySketch(Count-Min Sketch，定期老化)估计，不需要像LFU那样为每个频数维护链表；
+ * 2.缓存分成三个LRU队列：窗口区(window，约1%)、试用区(probation)和保护区(protected，占主区的80%)；
+ * 新条目先进入窗口区，被挤出窗口区后作为候选者进入主区，和试用区的头节点(牺牲者)比较频率，
+ * 频率高的留下，所以一次性扫描的大量冷数据进不了主区，不会冲掉热点；
+ * 3.试用区的条目再次被访问就升级到保护区，保护区满了就把最久未访问的降回试用区(分段LRU)；
+ * 4.并发方式与ConcurrentLRU相同：按key分段加锁，查找走ConcurrentHashMap不加锁，
+ * 命中记录在读缓冲区里批量重放(同时累加频率)，被淘汰的条目在释放锁之后通知EvictionListener。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class TinyLFU<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    //链表节点，额外记录key和所在的队列
+    private static class Entry<K, V> extends LRU.Node<V> {
+        final K key;
+        int queue;
+        boolean live;//仍在链表中(只在持有段锁时读写)
+
+        Entry(K key, V value) {
+            super(value);
+            this.key = key;
+        }
+    }
+
+    private static final int MIN_SEGMENT_SIZE = 64;//每段至少这么多条目，否则窗口区和保护区分不出来
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final ConcurrentLRU.EvictionListener<K, V> listener;
+
+    public TinyLFU(long maximumSize) {
+        this(maximumSize, 16, null);
+    }
+
+    /**
+     * @param maximumSize      最大条目数(平均分给各段)
+     * @param concurrencyLevel 段数，向上取到2的幂
+     * @param listener         淘汰回调，可为null
+     */
+    public TinyLFU(long maximumSize, int concurrencyLevel, ConcurrentLRU.EvictionListener<K, V> listener) {
+        if (maximumSize < 1 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("should be more than 0.");
+        }
+        int n = 1;
+        while (n < concurrencyLevel && (n << 1) * MIN_SEGMENT_SIZE <= maximumSize) {
+            n <<= 1;
+        }
+        this.segments = newSegments(n);
+        this.segmentShift = StripedReadBuffer.segmentShift(n);
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment<>(maximumSize / n + (i < maximumSize % n ? 1 : 0));
+        }
+        this.listener = listener;
+    }
+
+    public V get(K key) {
+        Segment<K, V> s = segmentFor(key);
+        Entry<K, V> e = s.map.get(key);
+        if (e == null) {
+            return null;
+        }
+        s.recordAccess(e);
+        return e.value;
+    }
+
+    public void set(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        List<Entry<K, V>> evicted = segmentFor(key).put(key, value);
+        if (listener != null && evicted != null) {
+            for (Entry<K, V> e : evicted) {
+                listener.onEviction(e.key, e.value);
+            }
+        }
+    }
+
+    public V remove(K key) {
+        Entry<K, V> e = segmentFor(key).remove(key);
+        return e == null ? null : e.value;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> s : segments) {
+            size += s.map.size();
+        }
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        return segments[StripedReadBuffer.segmentIndex(key, segmentShift)];
+    }
+
+    //泛型数组只能先建通配符数组再转型，unchecked只压在这一处
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int n) {
+        return (Segment<K, V>[]) new Segment<?, ?>[n];
+    }
+
+    private static class Segment<K, V> {
+        final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<>();
+        @SuppressWarnings("unchecked")
+        final LRU.NodeDoubleLinkedList<V>[] queues = (LRU.NodeDoubleLinkedList<V>[]) new LRU.NodeDoubleLinkedList<?>[]{
+                new LRU.NodeDoubleLinkedList<V>(), new LRU.NodeDoubleLinkedList<V>(), new LRU.NodeDoubleLinkedList<V>()};
+        final long[] sizes = new long[3];//各队列的条目数
+        final long[] maxSizes = new long[3];//窗口区、主区、保护区的上限
+        final FrequencySketch sketch;
+        final ReentrantLock lock = new ReentrantLock();
+        final StripedReadBuffer<Entry<K, V>> readBuffer = new StripedReadBuffer<>();
+        final Consumer<Entry<K, V>> replayHit = this::replayHit;
+        final long maximumSize;
+
+        Segment(long maximumSize) {
+            this.maximumSize = maximumSize;
+            maxSizes[WINDOW] = Math.max(1, maximumSize / 100);
+            maxSizes[PROBATION] = maximumSize - maxSizes[WINDOW];
+            maxSizes[PROTECTED] = maxSizes[PROBATION] * 4 / 5;
+            this.sketch = new FrequencySketch(maximumSize);
+        }
+
+        //记录一次命中：先写入读缓冲区，攒够一批后再尝试拿锁重放
+        void recordAccess(Entry<K, V> e) {
+            if (readBuffer.record(e) && lock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        List<Entry<K, V>> put(K key, V value) {
+            Entry<K, V> e = new Entry<>(key, value);
+            lock.lock();
+            try {
+                drainReadBuffer();
+                sketch.increment(key);
+                Entry<K, V> old = map.put(key, e);
+                if (old != null && old.live) {
+                    //更新值：新节点替换旧节点，并当作一次命中
+                    unlink(old);
+                    link(e, old.queue);
+                    onHit(e);
+                    return null;
+                }
+                link(e, WINDOW);
+                return evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Entry<K, V> remove(K key) {
+            lock.lock();
+            try {
+                Entry<K, V> e = map.remove(key);
+                if (e != null) {
+                    unlink(e);
+                }
+                return e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //窗口区超出上限时把头节点移入试用区，总数超出上限时在候选者和牺牲者之间淘汰一个(须持有锁)
+        private List<Entry<K, V>> evict() {
+            List<Entry<K, V>> evicted = null;
+            while (sizes[WINDOW] > maxSizes[WINDOW]) {
+                @SuppressWarnings("unchecked")
+                Entry<K, V> candidate = (Entry<K, V>) queues[WINDOW].head;
+                unlink(candidate);
+                link(candidate, PROBATION);
+                if (sizes[WINDOW] + sizes[PROBATION] + sizes[PROTECTED] > maximumSize) {
+                    @SuppressWarnings("unchecked")
+                    Entry<K, V> victim = (Entry<K, V>) queues[PROBATION].head;
+                    Entry<K, V> loser = admit(candidate, victim) ? victim : candidate;
+                    unlink(loser);
+                    map.remove(loser.key, loser);
+                    if (evicted == null) {
+                        evicted = new ArrayList<>();
+                    }
+                    evicted.add(loser);
+                }
+            }
+            return evicted;
+        }
+
+        //候选者频率更高才能挤掉牺牲者；频率相同时偶尔放行，防止攻击者用固定频率的key把热点挡在外面
+        private boolean admit(Entry<K, V> candidate, Entry<K, V> victim) {
+            if (candidate == victim) {
+                return false;
+            }
+            int candidateFreq = sketch.frequency(candidate.key);
+            int victimFreq = sketch.frequency(victim.key);
+            if (candidateFreq > victimFreq) {
+                return true;
+            }
+            return candidateFreq > 5 && (ThreadLocalRandom.current().nextInt() & 127) == 0;
+        }
+
+        //批量重放读缓冲区中的命中(须持有锁)
+        private void drainReadBuffer() {
+            readBuffer.drain(replayHit);
+        }
+
+        private void replayHit(Entry<K, V> e) {
+            sketch.increment(e.key);
+            if (e.live) {
+                onHit(e);
+            }
+        }
+
+        //命中时调整队列：窗口区和保护区移到尾部，试用区升级到保护区
+        private void onHit(Entry<K, V> e) {
+            if (e.queue != PROBATION) {
+                queues[e.queue].moveNodeToTail(e);
+                return;
+            }
+            unlink(e);
+            link(e, PROTECTED);
+            while (sizes[PROTECTED] > maxSizes[PROTECTED]) {
+                @SuppressWarnings("unchecked")
+                Entry<K, V> demoted = (Entry<K, V>) queues[PROTECTED].head;
+                unlink(demoted);
+                link(demoted, PROBATION);
+            }
+        }
+
+        private void link(Entry<K, V> e, int queue) {
+            e.queue = queue;
+            e.live = true;
+            queues[queue].addNode(e);
+            sizes[queue]++;
+        }
+
+        private void unlink(Entry<K, V> e) {
+            if (e.live) {
+                queues[e.queue].removeNode(e);
+                e.live = false;
+                sizes[e.queue]--;
+            }
+        }
+    }
+
+    //对比TinyLFU和ConcurrentLRU在"热点访问+周期性全量扫描"负载下的命中率
+    public static void main(String[] args) {
+        int capacity = 1000;
+        TinyLFU<Integer, Integer> tinyLfu = new TinyLFU<>(capacity);
+        ConcurrentLRU<Integer, Integer> lru = new ConcurrentLRU<>(capacity);
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        long lfuHits = 0, lruHits = 0, requests = 0;
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 5000; i++) {//热点：2000个key，访问集中在前面
+                double u = rand.nextDouble();
+                int key = (int) (u * u * u * 2000);
+                requests++;
+                if (tinyLfu.get(key) != null) {
+                    lfuHits++;
+                } else {
+                    tinyLfu.set(key, key);
+                }
+                if (lru.get(key) != null) {
+                    lruHits++;
+                } else {
+                    lru.set(key, key);
+                }
+            }
+            for (int i = 0; i < 3000; i++) {//扫描：每个key只访问一次
+                int key = 1_000_000 + round * 3000 + i;
+                requests++;
+                if (tinyLfu.get(key) == null) {
+                    tinyLfu.set(key, key);
+                }
+                if (lru.get(key) == null) {
+                    lru.set(key, key);
+                }
+            }
+        }
+        System.out.printf("TinyLFU hit rate: %.1f%%%n", 100.0 * lfuHits / requests);
+        System.out.printf("LRU     hit rate: %.1f%%%n", 100.0 * lruHits / requests);
+        System.out.println("size: " + tinyLfu.size());
+    }
+}
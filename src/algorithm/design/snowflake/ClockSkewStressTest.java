@@ -0,0 +1,107 @@
+package algorithm.design.snowflake;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description:借用时间模式的压力测试
+ * 多个线程不停地生成ID，使序列号一直处于用完的状态；同时用一个模拟时钟缓慢前进，并不时回退几十毫秒。检查:
+ * 1.按生成顺序(在生成器的锁里记录)所有ID严格递增，所以也没有重复；
+ * 2.ID里的时间戳不超过模拟时钟出现过的最大值加上maxBorrowMillis；
+ * 3.默认模式的SnowFlakeUtils在时钟回退时抛异常。
+ * 为了尽快用完序列号，测试用的布局只有6位序列号(每毫秒64个ID)。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class ClockSkewStressTest {
+
+    private static final SnowFlakeLayout LAYOUT = new SnowFlakeLayout(47, 5, 5, 6, 1480166465631L);
+    private static final long MAX_BORROW_MILLIS = 3;
+    private static final int THREADS = 4;
+    private static final int IDS_PER_THREAD = 500_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        AtomicLong maxClock = new AtomicLong(clock.get());
+        SnowFlakeUtils generator = new SnowFlakeUtils(9, 20, LAYOUT, MAX_BORROW_MILLIS, false, clock::get);
+
+        long[] ids = new long[THREADS * IDS_PER_THREAD];
+        int[] count = new int[1];
+        AtomicBoolean stop = new AtomicBoolean();
+        int[] regressions = new int[1];
+        //模拟时钟：大约每200微秒前进1毫秒(比生成ID慢得多，序列号总是不够用)，每隔一段时间回退1~50毫秒
+        Thread ticker = new Thread(() -> {
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            while (!stop.get()) {
+                if (rand.nextInt(200) == 0) {
+                    clock.addAndGet(-1 - rand.nextInt(50));
+                    regressions[0]++;
+                } else {
+                    //先更新maxClock再发布新的时钟值，生成器读到的时钟不会超过maxClock
+                    long next = clock.get() + 1;
+                    maxClock.accumulateAndGet(next, Math::max);
+                    clock.set(next);
+                }
+                long until = System.nanoTime() + 200_000;
+                while (System.nanoTime() < until) {
+                    Thread.yield();
+                }
+            }
+        });
+        ticker.start();
+
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[THREADS];
+        long[] violations = new long[1];
+        for (int t = 0; t < THREADS; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    synchronized (generator) {//锁里记录，得到全局的生成顺序
+                        long id = generator.nextId();
+                        if (LAYOUT.timestampOf(id) > maxClock.get() + MAX_BORROW_MILLIS) {
+                            violations[0]++;
+                        }
+                        ids[count[0]++] = id;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        stop.set(true);
+        ticker.join();
+
+        int nonIncreasing = 0;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] <= ids[i - 1]) {
+                nonIncreasing++;
+            }
+        }
+        System.out.printf("%d ids in %d ms, %d clock regressions%n", ids.length, elapsed / 1_000_000, regressions[0]);
+        System.out.println("non-increasing ids (duplicates included): " + nonIncreasing);
+        System.out.println("ids borrowing more than " + MAX_BORROW_MILLIS + " ms: " + violations[0]);
+
+        //默认模式在时钟回退时抛异常
+        AtomicLong strictClock = new AtomicLong(System.currentTimeMillis());
+        SnowFlakeUtils strict = new SnowFlakeUtils(9, 20, SnowFlakeLayout.DEFAULT, 0L, true, strictClock::get);
+        strict.nextId();
+        strictClock.addAndGet(-10);
+        boolean thrown = false;
+        try {
+            strict.nextId();
+        } catch (RuntimeException e) {
+            thrown = true;
+        }
+        System.out.println("strict mode throws on clock regression: " + thrown);
+
+        if (nonIncreasing != 0 || violations[0] != 0 || !thrown) {
+            throw new AssertionError("clock skew stress test failed");
+        }
+        System.out.println("PASS");
+    }
+}
@@ -0,0 +1,68 @@
+package algorithm.design.snowflake;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description:多线程生成ID的吞吐量对比
+ * 注意12位序列号每毫秒最多4096个ID，所以单个节点的上限约为每秒409.6万个(IdWorker只有10位序列号，上限约102.4万)。
+ * 用法: java algorithm.design.snowflake.IdGeneratorBenchmark [每轮毫秒数] [最大线程数]
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class IdGeneratorBenchmark {
+
+    private interface Generator {
+        void next(long[] sink);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        System.out.printf("%-8s %-34s %14s%n", "threads", "generator", "ids/s");
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            IdWorker idWorker = new IdWorker(2);
+            run(threads, millis, "IdWorker.nextId", sink -> sink[0] = idWorker.nextId(), 1);
+            SnowFlakeUtils utils = new SnowFlakeUtils(9, 20);
+            run(threads, millis, "SnowFlakeUtils.nextId", sink -> sink[0] = utils.nextId(), 1);
+            LockFreeSnowFlake lockFree = new LockFreeSnowFlake(9, 20);
+            run(threads, millis, "LockFreeSnowFlake.nextId", sink -> sink[0] = lockFree.nextId(), 1);
+            LockFreeSnowFlake buffered = new LockFreeSnowFlake(9, 20);
+            run(threads, millis, "LockFreeSnowFlake.nextBufferedId", sink -> sink[0] = buffered.nextBufferedId(), 1);
+            LockFreeSnowFlake batch = new LockFreeSnowFlake(9, 20);
+            run(threads, millis, "LockFreeSnowFlake.nextIds(256)", sink -> batch.nextIds(sink, 0, 256), 256);
+        }
+    }
+
+    //perCall是每次调用产生的ID数
+    private static void run(int threads, long millis, String name, Generator generator, int perCall)
+            throws InterruptedException {
+        LongAdder ids = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                long[] sink = new long[perCall];
+                long n = 0;
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline[0]) {
+                        generator.next(sink);
+                        n += perCall;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    ids.add(n);
+                    done.countDown();
+                }
+            }).start();
+        }
+        deadline[0] = System.nanoTime() + millis * 1_000_000L;
+        start.countDown();
+        done.await();
+        System.out.printf("%-8d %-34s %,14d%n", threads, name, ids.sum() * 1000 / millis);
+    }
+}
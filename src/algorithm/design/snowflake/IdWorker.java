@@ -13,72 +13,47 @@ package algorithm.design.snowflake;
  * */
 public class IdWorker {
     private final long workerId;
-    private final static long twepoch = 1288834974657L;
-    private long sequence = 0L;
-    private final static long workerIdBits = 4L;
-    public final static long maxWorkerId = -1L ^ -1L << workerIdBits;
-    private final static long sequenceBits = 10L;
-    private final static long workerIdShift = sequenceBits;
-    private final static long timestampLeftShift = sequenceBits + workerIdBits;
-    public final static long sequenceMask = -1L ^ -1L << sequenceBits;
-    private long lastTimestamp = -1L;
+    public final static long maxWorkerId = SnowFlakeLayout.ID_WORKER.maxMachineId();
+    public final static long sequenceMask = SnowFlakeLayout.ID_WORKER.maxSequence();
+    private final SnowFlakeLayout layout;
+    private final long node;
+    private final SequenceClock clock;
+    private long clockRegressions;// 时钟回退的次数
 
     public IdWorker(final long workerId) {
+        this(workerId, SnowFlakeLayout.ID_WORKER, 0L);
+    }
+
+    /**
+     * @param layout          位布局，workerId放在机器一段
+     * @param maxBorrowMillis 序列号用完时最多借用的未来毫秒数，见SequenceClock
+     */
+    public IdWorker(final long workerId, SnowFlakeLayout layout, long maxBorrowMillis) {
         super();
-        if (workerId > this.maxWorkerId || workerId < 0) {
+        if (workerId > layout.maxMachineId() || workerId < 0) {
             throw new IllegalArgumentException(String.format(
                     "worker Id can't be greater than %d or less than 0",
-                    this.maxWorkerId));
+                    layout.maxMachineId()));
         }
         this.workerId = workerId;
+        this.layout = layout;
+        this.node = layout.node(0, workerId);
+        this.clock = new SequenceClock(layout, maxBorrowMillis, false, System::currentTimeMillis);
     }
 
     public synchronized long nextId() {
-        long timestamp = this.timeGen();
-        if (this.lastTimestamp == timestamp) {
-            this.sequence = (this.sequence + 1) & this.sequenceMask;
-            if (this.sequence == 0) {
-                System.out.println("###########" + sequenceMask);
-                timestamp = this.tilNextMillis(this.lastTimestamp);
-            }
-        } else {
-            this.sequence = 0;
-        }
-        if (timestamp < this.lastTimestamp) {
-            try {
-                throw new Exception(
-                        String.format(
-                                "Clock moved backwards. Refusing to generate id for %d milliseconds",
-                                this.lastTimestamp - timestamp));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        this.lastTimestamp = timestamp;
-        long nextId = ((timestamp - twepoch << timestampLeftShift))
-                | (this.workerId << this.workerIdShift) | (this.sequence);
-        System.out.println("timestamp:" + timestamp + ",timestampLeftShift:"
-                + timestampLeftShift + ",nextId:" + nextId + ",workerId:"
-                + workerId + ",sequence:" + sequence);
-        return nextId;
-    }
-
-    //持续到截止时间，并返回截止时间
-    private long tilNextMillis(final long lastTimestamp) {
-        long timestamp = this.timeGen();
-        while (timestamp <= lastTimestamp) {
-            timestamp = this.timeGen();
+        if (this.clock.next()) {
+            //时钟回退时只计数，沿用上次的时间戳继续生成，不会产生重复的ID；不在锁里打印日志
+            this.clockRegressions++;
         }
-        return timestamp;
+        return this.layout.compose(this.clock.getStmp(), this.node, this.clock.getSequence());
     }
 
-    //得到系统当前时间
-    private long timeGen() {
-        return System.currentTimeMillis();
+    //时钟回退的次数，调用方可以定期查询并自行上报
+    public synchronized long getClockRegressions() {
+        return this.clockRegressions;
     }
 
-
     public static void main(String[] args) {
         IdWorker worker2 = new IdWorker(2);
         System.out.println(worker2.nextId());
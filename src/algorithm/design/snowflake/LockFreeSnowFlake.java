@@ -0,0 +1,127 @@
+package algorithm.design.snowflake;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Description:无锁的snowFlake ID生成器，位布局用SnowFlakeLayout，默认和SnowFlakeUtils相同(41位时间戳、5位数据中心、5位机器、12位序列号)
+ * 设计思路:
+ * 1.把"相对时间戳+序列号"拼成一个long放在AtomicLong里(就是ID去掉数据中心和机器两段)，
+ * 生成ID只需要一次CAS，不需要synchronized，多线程之间没有锁竞争；
+ * 2.nextIds(n)一次CAS预留同一毫秒内连续的一段序列号，这一段ID就是连续的整数；
+ * 3.nextBufferedId()从线程自己的缓冲区取ID，缓冲区用完了再批量预留一段，大多数调用连CAS都没有；
+ * 缓冲区里的ID是预留时的时间戳，所以只在线程内单调递增，不同线程之间只保证唯一；
+ * 4.当前毫秒的序列号用完时不忙等，而是让出CPU(Thread.yield，等得久就park)到下一毫秒；时钟回退时沿用上次的时间戳继续分配，
+ * 序列号用完了再等真实时钟追上来，保证不会产生重复ID。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class LockFreeSnowFlake {
+    private final static int BUFFER_SIZE = 64;// 每个线程缓冲区一次预留的ID数
+
+    private final SnowFlakeLayout layout;
+    private final int sequenceBits;
+    private final long maxSequence;
+    private final long epoch;
+    private final long node;// 数据中心和机器两段拼好的值
+    private final AtomicLong state = new AtomicLong();// 相对时间戳 << sequenceBits | 下一个序列号
+    private final ThreadLocal<IdBlock> buffers = ThreadLocal.withInitial(IdBlock::new);
+
+    // 预留的一段连续ID [next, end)
+    private static class IdBlock {
+        long next;
+        long end;
+    }
+
+    public LockFreeSnowFlake(long datacenterId, long machineId) {
+        this(datacenterId, machineId, SnowFlakeLayout.DEFAULT);
+    }
+
+    public LockFreeSnowFlake(long datacenterId, long machineId, SnowFlakeLayout layout) {
+        this.layout = layout;
+        this.sequenceBits = layout.getSequenceBits();
+        this.maxSequence = layout.maxSequence();
+        this.epoch = layout.getEpoch();
+        this.node = layout.node(datacenterId, machineId);
+    }
+
+    public SnowFlakeLayout getLayout() {
+        return layout;
+    }
+
+    //产生下一个ID
+    public long nextId() {
+        return reserve(1, null);
+    }
+
+    //产生n个ID，按从小到大的顺序返回
+    public long[] nextIds(int n) {
+        long[] ids = new long[n];
+        nextIds(ids, 0, n);
+        return ids;
+    }
+
+    //产生len个ID写入ids[off, off+len)
+    public void nextIds(long[] ids, int off, int len) {
+        IdBlock block = new IdBlock();
+        while (len > 0) {
+            reserve(len, block);
+            int got = (int) (block.end - block.next);
+            for (long id = block.next; id < block.end; id++) {
+                ids[off++] = id;
+            }
+            len -= got;
+        }
+    }
+
+    //从线程自己的缓冲区取一个ID
+    public long nextBufferedId() {
+        IdBlock block = buffers.get();
+        if (block.next == block.end) {
+            reserve(BUFFER_SIZE, block);
+        }
+        return block.next++;
+    }
+
+    //在同一毫秒内预留最多n个(至少1个)连续的ID，返回第一个ID，block不为null时把这一段写入block
+    private long reserve(int n, IdBlock block) {
+        for (; ; ) {
+            long cur = state.get();
+            long now = System.currentTimeMillis() - epoch;
+            long stmp = cur >>> sequenceBits;
+            long sequence = cur & maxSequence;
+            if (now > stmp) {//新的一毫秒，序列号从0开始
+                stmp = now;
+                sequence = 0;
+            } else if (sequence == 0 && now < stmp) {
+                //序列号用完时进位到了下一毫秒(新的一毫秒至少会分配一个序列号，所以只有进位会出现序列号为0)，
+                //而真实时钟还没到，等到那一毫秒
+                parkUntil(stmp + epoch);
+                continue;
+            }
+            long count = Math.min(n, maxSequence + 1 - sequence);
+            //用完最后一个序列号时会进位到下一毫秒、序列号为0
+            long next = (stmp << sequenceBits | sequence) + count;
+            if (state.compareAndSet(cur, next)) {
+                long id = layout.compose(stmp, node, sequence);
+                if (block != null) {
+                    block.next = id;
+                    block.end = id + count;
+                }
+                return id;
+            }
+        }
+    }
+
+    //等到绝对时间millis：差一毫秒以内只让出CPU(park的精度不够，会白白错过大半毫秒)，更久的park
+    private static void parkUntil(long millis) {
+        long wait = millis - System.currentTimeMillis();
+        if (wait > 1) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(wait - 1));
+        } else if (wait > 0) {
+            Thread.yield();
+        }
+    }
+}
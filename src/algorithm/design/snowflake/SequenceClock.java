@@ -0,0 +1,89 @@
+package algorithm.design.snowflake;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Description:IdWorker和SnowFlakeUtils共用的逻辑时钟，给出下一个(时间戳, 序列号)
+ * 逻辑时间戳只增不减，所以生成的ID严格递增、不会重复：
+ * 1.真实时钟前进时，逻辑时钟跟上，序列号归0；
+ * 2.同一毫秒或者时钟回退时，沿用逻辑时间戳，序列号加1；
+ * 3.序列号用完时向未来"借"下一毫秒，但逻辑时钟最多领先真实时钟maxBorrowMillis毫秒，
+ * 超过了就等真实时钟追上来(maxBorrowMillis为0就是原来的做法：等到下一毫秒)；
+ * 时钟回退很多时，先把回退前那一毫秒剩下的序列号用完，再按上面的规则借用或等待。
+ * failOnBackwards为true时，时钟回退直接抛异常(SnowFlakeUtils原来的做法)。
+ *
+ * 不是线程安全的，由调用方加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+class SequenceClock {
+    private final long epoch;
+    private final long maxSequence;
+    private final long maxBorrowMillis;
+    private final boolean failOnBackwards;
+    private final LongSupplier millis;// 真实时钟(毫秒)
+    private long lastNow = Long.MIN_VALUE;// 上次读到的真实时钟
+    private long lastStmp = -1L;// 上一个ID的相对时间戳
+    private long sequence;// 上一个ID的序列号
+
+    SequenceClock(SnowFlakeLayout layout, long maxBorrowMillis, boolean failOnBackwards, LongSupplier millis) {
+        if (maxBorrowMillis < 0) {
+            throw new IllegalArgumentException("maxBorrowMillis can't be less than 0");
+        }
+        this.epoch = layout.getEpoch();
+        this.maxSequence = layout.maxSequence();
+        this.maxBorrowMillis = maxBorrowMillis;
+        this.failOnBackwards = failOnBackwards;
+        this.millis = millis;
+    }
+
+    //前进到下一个ID，之后用getStmp()和getSequence()取值；返回真实时钟是否比上次调用时回退了
+    boolean next() {
+        long now = millis.getAsLong() - epoch;
+        boolean backwards = now < lastNow;
+        lastNow = now;
+        if (now > lastStmp) {
+            lastStmp = now;
+            sequence = 0L;
+            return backwards;
+        }
+        if (now < lastStmp && failOnBackwards) {
+            throw new RuntimeException("Clock moved backwards.  Refusing to generate id for "
+                    + (lastStmp - now) + " milliseconds");
+        }
+        if (sequence < maxSequence) {
+            sequence++;
+            return backwards;
+        }
+        //序列号用完了，借下一毫秒；领先太多就等真实时钟
+        long target = lastStmp + 1;
+        while (target - now > maxBorrowMillis) {
+            waitMillis(target - maxBorrowMillis - now);
+            now = millis.getAsLong() - epoch;
+        }
+        lastNow = now;
+        lastStmp = Math.max(now, target);
+        sequence = 0L;
+        return backwards;
+    }
+
+    long getStmp() {
+        return lastStmp;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    //等待ms毫秒：一毫秒以内只让出CPU，更久的park
+    private static void waitMillis(long ms) {
+        if (ms > 1) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(ms - 1));
+        } else {
+            Thread.yield();
+        }
+    }
+}
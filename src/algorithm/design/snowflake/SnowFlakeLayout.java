@@ -0,0 +1,103 @@
+package algorithm.design.snowflake;
+
+/**
+ * Description:snowFlake ID的位布局，IdWorker、SnowFlakeUtils和LockFreeSnowFlake共用
+ * ID从高到低依次是：符号位(始终为0)、时间戳、数据中心、机器、序列号，四段的位数加起来必须是63。
+ * 时间戳是相对起始时间(epoch)的毫秒数。
+ * 序列号位数越多，每毫秒能生成的ID越多；时间戳位数越多，能用的年数越长(41位约69年)。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class SnowFlakeLayout {
+    // SnowFlakeUtils原来的布局：41位时间戳、5位数据中心、5位机器、12位序列号
+    public static final SnowFlakeLayout DEFAULT = new SnowFlakeLayout(41, 5, 5, 12, 1480166465631L);
+    // IdWorker原来的布局：49位时间戳、4位机器、10位序列号
+    public static final SnowFlakeLayout ID_WORKER = new SnowFlakeLayout(49, 0, 4, 10, 1288834974657L);
+
+    private final int timestampBits;
+    private final int datacenterBits;
+    private final int machineBits;
+    private final int sequenceBits;
+    private final long epoch;
+
+    public SnowFlakeLayout(int timestampBits, int datacenterBits, int machineBits, int sequenceBits, long epoch) {
+        if (timestampBits < 1 || datacenterBits < 0 || machineBits < 0 || sequenceBits < 1
+                || timestampBits + datacenterBits + machineBits + sequenceBits != 63) {
+            throw new IllegalArgumentException(String.format(
+                    "bit widths %d/%d/%d/%d should be positive and add up to 63",
+                    timestampBits, datacenterBits, machineBits, sequenceBits));
+        }
+        this.timestampBits = timestampBits;
+        this.datacenterBits = datacenterBits;
+        this.machineBits = machineBits;
+        this.sequenceBits = sequenceBits;
+        this.epoch = epoch;
+    }
+
+    public int getSequenceBits() {
+        return sequenceBits;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long maxDatacenterId() {
+        return -1L ^ (-1L << datacenterBits);
+    }
+
+    public long maxMachineId() {
+        return -1L ^ (-1L << machineBits);
+    }
+
+    public long maxSequence() {
+        return -1L ^ (-1L << sequenceBits);
+    }
+
+    public long maxTimestamp() {
+        return -1L ^ (-1L << timestampBits);
+    }
+
+    //数据中心和机器两段拼好的值
+    public long node(long datacenterId, long machineId) {
+        if (datacenterId > maxDatacenterId() || datacenterId < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "datacenterId can't be greater than %d or less than 0", maxDatacenterId()));
+        }
+        if (machineId > maxMachineId() || machineId < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "machineId can't be greater than %d or less than 0", maxMachineId()));
+        }
+        return datacenterId << (sequenceBits + machineBits) | machineId << sequenceBits;
+    }
+
+    /**
+     * @param stmp     相对epoch的毫秒数
+     * @param node     node()的返回值
+     * @param sequence 序列号
+     */
+    public long compose(long stmp, long node, long sequence) {
+        if (stmp > maxTimestamp() || stmp < 0) {
+            throw new IllegalStateException("timestamp " + stmp + " doesn't fit in " + timestampBits + " bits");
+        }
+        return stmp << (sequenceBits + machineBits + datacenterBits) | node | sequence;
+    }
+
+    //ID里的绝对时间戳(毫秒)
+    public long timestampOf(long id) {
+        return (id >>> (sequenceBits + machineBits + datacenterBits)) + epoch;
+    }
+
+    public long datacenterOf(long id) {
+        return (id >>> (sequenceBits + machineBits)) & maxDatacenterId();
+    }
+
+    public long machineOf(long id) {
+        return (id >>> sequenceBits) & maxMachineId();
+    }
+
+    public long sequenceOf(long id) {
+        return id & maxSequence();
+    }
+}
@@ -1,76 +1,55 @@
 package algorithm.design.snowflake;
 
+import java.util.function.LongSupplier;
+
 //使用snowFlake算法生成分布式唯一id
 //链接：https://blog.csdn.net/qq_36095679/article/details/90677138
 //参考：https://blog.csdn.net/zyt425916200/article/details/52775542
 public class SnowFlakeUtils {
-    // 起始的时间戳
-    private final static long START_STMP = 1480166465631L;
-    // 每一部分占用的位数，就三个
-    private final static long SEQUENCE_BIT = 12;// 序列号占用的位数
-    private final static long MACHINE_BIT = 5; // 机器标识占用的位数
-    private final static long DATACENTER_BIT = 5;// 数据中心占用的位数
-    // 每一部分最大值
-    private final static long MAX_DATACENTER_NUM = -1L ^ (-1L << DATACENTER_BIT);
-    private final static long MAX_MACHINE_NUM = -1L ^ (-1L << MACHINE_BIT);
-    private final static long MAX_SEQUENCE = -1L ^ (-1L << SEQUENCE_BIT);
-    // 每一部分向左的位移
-    private final static long MACHINE_LEFT = SEQUENCE_BIT;
-    private final static long DATACENTER_LEFT = SEQUENCE_BIT + MACHINE_BIT;
-    private final static long TIMESTMP_LEFT = DATACENTER_LEFT + DATACENTER_BIT;
-    private long datacenterId; // 数据中心
-    private long machineId; // 机器标识
-    private long sequence = 0L; // 序列号
-    private long lastStmp = -1L;// 上一次时间戳
+    // 位布局，默认是41位时间戳、5位数据中心、5位机器、12位序列号
+    private final SnowFlakeLayout layout;
+    private final long node; // 数据中心和机器标识拼好的值
+    private final SequenceClock clock;
 
     public SnowFlakeUtils(long datacenterId, long machineId) {
-        if (datacenterId > MAX_DATACENTER_NUM || datacenterId < 0) {
-            throw new IllegalArgumentException("datacenterId can't be greater than MAX_DATACENTER_NUM or less than 0");
-        }
-        if (machineId > MAX_MACHINE_NUM || machineId < 0) {
-            throw new IllegalArgumentException("machineId can't be greater than MAX_MACHINE_NUM or less than 0");
-        }
-        this.datacenterId = datacenterId;
-        this.machineId = machineId;
+        this(datacenterId, machineId, SnowFlakeLayout.DEFAULT, 0L, true);
+    }
+
+    /**
+     * 时钟回退不抛异常的模式：逻辑时钟最多领先真实时钟maxBorrowMillis毫秒，见SequenceClock
+     *
+     * @param layout          位布局
+     * @param maxBorrowMillis 最多借用的未来毫秒数
+     */
+    public SnowFlakeUtils(long datacenterId, long machineId, SnowFlakeLayout layout, long maxBorrowMillis) {
+        this(datacenterId, machineId, layout, maxBorrowMillis, false);
+    }
+
+    private SnowFlakeUtils(long datacenterId, long machineId, SnowFlakeLayout layout, long maxBorrowMillis,
+                           boolean failOnBackwards) {
+        this(datacenterId, machineId, layout, maxBorrowMillis, failOnBackwards, System::currentTimeMillis);
     }
+
+    //millis是时钟来源，测试时用来模拟时钟回退
+    SnowFlakeUtils(long datacenterId, long machineId, SnowFlakeLayout layout, long maxBorrowMillis,
+                   boolean failOnBackwards, LongSupplier millis) {
+        this.layout = layout;
+        this.node = layout.node(datacenterId, machineId);
+        this.clock = new SequenceClock(layout, maxBorrowMillis, failOnBackwards, millis);
+    }
+
     //产生下一个ID
     public synchronized long nextId() {
-        long currStmp = getNewstmp();
-        //如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过  这个时候应当抛出异常
-        if (currStmp < lastStmp) {
-            throw new RuntimeException("Clock moved backwards.  Refusing to generate id");
-        }
-        if (currStmp == lastStmp) {
-            //if条件里表示当前调用和上一次调用落在了相同毫秒内，只能通过第三部分，序列号自增来判断为唯一，所以+1.
-            sequence = (sequence + 1) & MAX_SEQUENCE;
-            if (sequence == 0L) {//同一毫秒的序列数已经达到最大，只能等待下一个毫秒
-                currStmp = getNextMill();
-            }
-        } else {//时间戳改变，毫秒内序列重置
-            //不同毫秒内，序列号置为0
-            //执行到这个分支的前提是currTimestamp > lastTimestamp，说明本次调用跟上次调用对比，已经不再同一个毫秒内了，这个时候序号可以重新回置0了。
-            sequence = 0L;
-        }
-        lastStmp = currStmp;
+        //同一毫秒内序列号自增；序列号用完了等待下一毫秒(或者借用)；
+        //默认模式下，如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过，这个时候抛出异常
+        clock.next();
         //就是用相对毫秒数、机器ID和自增序号拼接
         //移位并通过或运算拼到一起组成64位的ID
-        return (currStmp - START_STMP) << TIMESTMP_LEFT //时间戳部分
-                | datacenterId << DATACENTER_LEFT      //数据中心部分
-                | machineId << MACHINE_LEFT            //机器标识部分
-                | sequence;                            //序列号部分
-    }
-
-    private long getNextMill() {
-        long mill = getNewstmp();
-        //使用while循环等待直到下一毫秒。
-        while (mill <= lastStmp) {
-            mill = getNewstmp();
-        }
-        return mill;
+        return layout.compose(clock.getStmp(), node, clock.getSequence());
     }
 
-    private long getNewstmp() {
-        return System.currentTimeMillis();
+    public SnowFlakeLayout getLayout() {
+        return layout;
     }
 
     public static void main(String[] args) {
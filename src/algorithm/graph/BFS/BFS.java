@@ -1,5 +1,6 @@
 package algorithm.graph.BFS;
 
+import algorithm.graph.CsrGraph;
 import algorithm.graph.Graph;
 
 import java.util.ArrayList;
@@ -25,6 +26,30 @@ public class BFS {
                 bfs(v);
     }
 
+    //CSR图上的bfs，用数组做队列，不装箱
+    public BFS(CsrGraph G) {
+        visited = new boolean[G.V()];
+        int[] queue = new int[G.V()];
+        for (int s = 0; s < G.V(); s++) {
+            if (visited[s])
+                continue;
+            int head = 0, tail = 0;
+            queue[tail++] = s;
+            visited[s] = true;
+            while (head < tail) {
+                int v = queue[head++];
+                order.add(v);
+                for (int i = G.begin(v), end = G.end(v); i < end; i++) {
+                    int w = G.target(i);
+                    if (!visited[w]) {
+                        queue[tail++] = w;
+                        visited[w] = true;
+                    }
+                }
+            }
+        }
+    }
+
     //从传入顶点开始bfs
     private void bfs(int s) {
         Queue<Integer> queue = new LinkedList<>();
@@ -0,0 +1,311 @@
+package algorithm.graph;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Description:压缩稀疏行(CSR)存储的不可变图(支持有向，无向，带权，无权)
+ * 设计思路:
+ * 1.顶点v的邻接点是targets[offsets[v], offsets[v+1])，带权图的权重在weights的相同位置，
+ * 无向图每条边存两次(两个方向)；
+ * 2.每行的邻接点从小到大排好序，hasEdge/getWeight二分查找，遍历顺序和Graph/WeightedGraph(TreeSet/TreeMap)相同；
+ * 3.内存：每条有向弧4字节(带权8字节)，每个顶点4字节；TreeSet<Integer>每条弧一个TreeMap.Entry(约40字节)
+ * 加上一个Integer(超出缓存范围时16字节)，还有每个顶点一个TreeSet和TreeMap对象，差不多小一个数量级；
+ * 4.遍历时用begin(v)/end(v)/target(i)/weight(i)按下标访问，不装箱，也不用在树里查权重；
+ * adj(v)返回Iterable<Integer>，和Graph的接口兼容，但会装箱；
+ * 5.通过Builder逐条加边、fromEdges从边数组、from从Graph/WeightedGraph构建，
+ * 和Graph/WeightedGraph一样不允许自环和平行边。
+ * BFS、CC、Dijkstra、DijkstraOptimized、BellmanFord有接收CsrGraph的构造函数。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class CsrGraph {
+
+    private final int V;
+    private final int E;
+    private final boolean directed;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;//无权图为null
+
+    private CsrGraph(int V, int E, boolean directed, int[] offsets, int[] targets, int[] weights) {
+        this.V = V;
+        this.E = E;
+        this.directed = directed;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public static Builder builder(int V, boolean directed) {
+        return new Builder(V, directed);
+    }
+
+    /**
+     * 逐条加边，build()时一次性排好序
+     */
+    public static class Builder {
+        private final int V;
+        private final boolean directed;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int[] weight;//第一次加带权的边时才分配
+        private int size;
+
+        private Builder(int V, boolean directed) {
+            if (V < 0) throw new IllegalArgumentException("V must be non-negative");
+            this.V = V;
+            this.directed = directed;
+        }
+
+        public Builder addEdge(int a, int b) {
+            if (weight != null) throw new IllegalArgumentException("weight is required in weighted graph.");
+            add(a, b);
+            return this;
+        }
+
+        public Builder addEdge(int a, int b, int w) {
+            if (weight == null) {
+                if (size > 0) throw new IllegalArgumentException("weight is not allowed in unweighted graph.");
+                weight = new int[from.length];
+            }
+            add(a, b);
+            weight[size - 1] = w;
+            return this;
+        }
+
+        private void add(int a, int b) {
+            validate(V, a);
+            validate(V, b);
+            if (a == b) throw new IllegalArgumentException("Self Loop is Detected!");
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                if (weight != null) weight = Arrays.copyOf(weight, capacity);
+            }
+            from[size] = a;
+            to[size] = b;
+            size++;
+        }
+
+        public CsrGraph build() {
+            return CsrGraph.build(V, directed, from, to, weight, size);
+        }
+    }
+
+    /**
+     * 从边数组构建，第i条边是from[i]-to[i]，weights为null时是无权图
+     */
+    public static CsrGraph fromEdges(int V, boolean directed, int[] from, int[] to, int[] weights) {
+        if (V < 0) throw new IllegalArgumentException("V must be non-negative");
+        if (from.length != to.length || (weights != null && weights.length != from.length))
+            throw new IllegalArgumentException("edge arrays should have the same length.");
+        for (int i = 0; i < from.length; i++) {
+            validate(V, from[i]);
+            validate(V, to[i]);
+            if (from[i] == to[i]) throw new IllegalArgumentException("Self Loop is Detected!");
+        }
+        return build(V, directed, from, to, weights, from.length);
+    }
+
+    //计数排序分到各行，每行再按邻接点排序
+    private static CsrGraph build(int V, boolean directed, int[] from, int[] to, int[] weight, int E) {
+        int[] offsets = new int[V + 1];
+        for (int i = 0; i < E; i++) {
+            offsets[from[i] + 1]++;
+            if (!directed) offsets[to[i] + 1]++;
+        }
+        for (int v = 0; v < V; v++)
+            offsets[v + 1] += offsets[v];
+
+        int arcs = offsets[V];
+        int[] targets = new int[arcs];
+        int[] weights = weight == null ? null : new int[arcs];
+        int[] next = Arrays.copyOf(offsets, V);
+        for (int i = 0; i < E; i++) {
+            int p = next[from[i]]++;
+            targets[p] = to[i];
+            if (weights != null) weights[p] = weight[i];
+            if (!directed) {
+                p = next[to[i]]++;
+                targets[p] = from[i];
+                if (weights != null) weights[p] = weight[i];
+            }
+        }
+
+        long[] row = weights == null ? null : new long[maxDegree(offsets)];
+        for (int v = 0; v < V; v++) {
+            int begin = offsets[v], end = offsets[v + 1];
+            if (weights == null) {
+                Arrays.sort(targets, begin, end);
+            } else {
+                //邻接点放在高32位，和权重一起排序
+                for (int i = begin; i < end; i++)
+                    row[i - begin] = (long) targets[i] << 32 | (weights[i] & 0xffffffffL);
+                Arrays.sort(row, 0, end - begin);
+                for (int i = begin; i < end; i++) {
+                    targets[i] = (int) (row[i - begin] >>> 32);
+                    weights[i] = (int) row[i - begin];
+                }
+            }
+            for (int i = begin + 1; i < end; i++)
+                if (targets[i] == targets[i - 1]) throw new IllegalArgumentException("Parallel Edges are Detected!");
+        }
+        return new CsrGraph(V, E, directed, offsets, targets, weights);
+    }
+
+    private static int maxDegree(int[] offsets) {
+        int max = 0;
+        for (int v = 0; v + 1 < offsets.length; v++)
+            max = Math.max(max, offsets[v + 1] - offsets[v]);
+        return max;
+    }
+
+    /**
+     * 从Graph构建，Graph的邻接点已经排好序，直接按行复制
+     */
+    public static CsrGraph from(Graph g) {
+        int V = g.V();
+        int[] offsets = new int[V + 1];
+        for (int v = 0; v < V; v++) {
+            int degree = 0;
+            for (int ignored : g.adj(v))
+                degree++;
+            offsets[v + 1] = offsets[v] + degree;
+        }
+        int[] targets = new int[offsets[V]];
+        for (int v = 0, p = 0; v < V; v++)
+            for (int w : g.adj(v))
+                targets[p++] = w;
+        return new CsrGraph(V, g.E(), g.isDirected(), offsets, targets, null);
+    }
+
+    /**
+     * 从WeightedGraph构建
+     */
+    public static CsrGraph from(WeightedGraph g) {
+        int V = g.V();
+        int[] offsets = new int[V + 1];
+        for (int v = 0; v < V; v++) {
+            int degree = 0;
+            for (int ignored : g.adj(v))
+                degree++;
+            offsets[v + 1] = offsets[v] + degree;
+        }
+        int[] targets = new int[offsets[V]];
+        int[] weights = new int[offsets[V]];
+        for (int v = 0, p = 0; v < V; v++)
+            for (int w : g.adj(v)) {
+                targets[p] = w;
+                weights[p++] = g.getWeight(v, w);
+            }
+        return new CsrGraph(V, g.E(), g.isDirected(), offsets, targets, weights);
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    private static void validate(int V, int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + "is invalid");
+    }
+
+    public void validateVertex(int v) {
+        validate(V, v);
+    }
+
+    public int V() {
+        return V;
+    }
+
+    public int E() {
+        return E;
+    }
+
+    //顶点v的邻接点在targets中的起始下标
+    public int begin(int v) {
+        return offsets[v];
+    }
+
+    //顶点v的邻接点在targets中的结束下标(不包含)
+    public int end(int v) {
+        return offsets[v + 1];
+    }
+
+    //第i条弧的终点
+    public int target(int i) {
+        return targets[i];
+    }
+
+    //第i条弧的权重，无权图为1
+    public int weight(int i) {
+        return weights == null ? 1 : weights[i];
+    }
+
+    //出度(无向图就是度)
+    public int degree(int v) {
+        validateVertex(v);
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public boolean hasEdge(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        return Arrays.binarySearch(targets, offsets[v], offsets[v + 1], w) >= 0;
+    }
+
+    public int getWeight(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        int i = Arrays.binarySearch(targets, offsets[v], offsets[v + 1], w);
+        if (i < 0) throw new IllegalArgumentException(String.format("No edge %d-%d", v, w));
+        return weight(i);
+    }
+
+    public Iterable<Integer> adj(int v) {
+        validateVertex(v);
+        int begin = offsets[v], end = offsets[v + 1];
+        return () -> new Iterator<Integer>() {
+            private int i = begin;
+
+            @Override
+            public boolean hasNext() {
+                return i < end;
+            }
+
+            @Override
+            public Integer next() {
+                if (i >= end) throw new NoSuchElementException();
+                return targets[i++];
+            }
+        };
+    }
+
+    //数组占用的字节数
+    public long memoryBytes() {
+        return 4L * offsets.length + 4L * targets.length + (weights == null ? 0 : 4L * weights.length);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("V = %d, E = %d, directed = %b\n", V, E, directed));
+        for (int v = 0; v < V; v++) {
+            sb.append(String.format("%d : ", v));
+            for (int i = offsets[v]; i < offsets[v + 1]; i++)
+                if (weights == null) sb.append(String.format("%d ", targets[i]));
+                else sb.append(String.format("(%d: %d) ", targets[i], weights[i]));
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package algorithm.graph;
+
+import algorithm.graph.BFS.BFS;
+import algorithm.graph.DFS.CC;
+import algorithm.graph.shortest_path.BellmanFord;
+import algorithm.graph.shortest_path.Dijkstra;
+import algorithm.graph.shortest_path.DijkstraOptimized;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Description:CsrGraph和Graph/WeightedGraph的对比
+ * 1.校验：小的随机图上(有向、无向)，BFS顺序、连通分量、Dijkstra、DijkstraOptimized、BellmanFord
+ * 在两种表示上的结果一致，包括负权边和负权环的情况；
+ * 2.大图：V个顶点E条边的随机无向带权图(权重1~100)，对比建图后的堆内存占用(GC之后的差值)、
+ * BFS、CC、DijkstraOptimized的耗时(多轮取最快)；
+ * Graph只能从文件读，先写到临时文件里；旧的CC递归dfs在大图上会栈溢出，放在栈很大的线程里跑。
+ * 用法: java -Xmx2g algorithm.graph.CsrGraphBenchmark [V] [E]
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class CsrGraphBenchmark {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        verify();
+
+        int V = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int E = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Random rand = new Random(42);
+        int[][] edges = randomEdges(V, E, false, rand);
+        int[] weights = new int[E];
+        for (int i = 0; i < E; i++)
+            weights[i] = 1 + rand.nextInt(100);
+        File file = writeGraphFile(V, edges);
+
+        System.out.printf("%nrandom undirected graph, V = %d, E = %d%n", V, E);
+        System.out.printf("%-34s %12s%n", "representation", "heap MB");
+        Object[] keep = new Object[1];
+        long graphBytes = retained(() -> keep[0] = new Graph(file.getPath()));
+        Graph g = (Graph) keep[0];
+        long csrBytes = retained(() -> keep[0] = CsrGraph.from(g));
+        CsrGraph csr = (CsrGraph) keep[0];
+        long weightedBytes = retained(() -> keep[0] = weightedGraph(V, edges, weights));
+        WeightedGraph wg = (WeightedGraph) keep[0];
+        long weightedCsrBytes = retained(() -> keep[0] = CsrGraph.fromEdges(V, false, edges[0], edges[1], weights));
+        CsrGraph wcsr = (CsrGraph) keep[0];
+        keep[0] = null;
+        System.out.printf("%-34s %12.1f%n", "Graph(TreeSet)", graphBytes / 1e6);
+        System.out.printf("%-34s %12.1f  (arrays %.1f)%n", "CsrGraph", csrBytes / 1e6, csr.memoryBytes() / 1e6);
+        System.out.printf("%-34s %12.1f%n", "WeightedGraph(TreeMap)", weightedBytes / 1e6);
+        System.out.printf("%-34s %12.1f  (arrays %.1f)%n", "CsrGraph(weighted)", weightedCsrBytes / 1e6,
+                wcsr.memoryBytes() / 1e6);
+
+        System.out.printf("%n%-34s %12s %12s %8s%n", "algorithm", "old ms", "csr ms", "speedup");
+        compare("BFS", () -> new BFS(g), () -> new BFS(csr));
+        compare("CC", () -> runWithLargeStack(() -> new CC(wg)), () -> new CC(wcsr));
+        compare("DijkstraOptimized", () -> new DijkstraOptimized(wg, 0), () -> new DijkstraOptimized(wcsr, 0));
+        file.delete();
+    }
+
+    private static void verify() throws IOException {
+        Random rand = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            boolean directed = round % 2 == 1;
+            int V = 50 + rand.nextInt(100);
+            int E = V + rand.nextInt(3 * V);
+            int[][] edges = randomEdges(V, E, directed, rand);
+            int[] weights = new int[E];
+            //一半的有向图带负权边
+            boolean negative = directed && round % 4 == 3;
+            for (int i = 0; i < E; i++)
+                weights[i] = negative ? rand.nextInt(60) - 5 : 1 + rand.nextInt(50);
+
+            File file = writeGraphFile(V, edges);
+            Graph g = new Graph(file.getPath(), directed);
+            file.delete();
+            CsrGraph csr = CsrGraph.from(g);
+            check(csr.toString().equals(g.toString()), "toString");
+            check(String.valueOf(new BFS(g).order()).equals(String.valueOf(new BFS(csr).order())), "BFS order");
+
+            WeightedGraph wg = new WeightedGraph(V, directed);
+            for (int i = 0; i < E; i++)
+                wg.addEdge(edges[0][i], edges[1][i], weights[i]);
+            CsrGraph built = CsrGraph.fromEdges(V, directed, edges[0], edges[1], weights);
+            CsrGraph.Builder builder = CsrGraph.builder(V, directed);
+            for (int i = 0; i < E; i++)
+                builder.addEdge(edges[0][i], edges[1][i], weights[i]);
+            CsrGraph wcsr = CsrGraph.from(wg);
+            check(wcsr.toString().equals(wg.toString()) && built.toString().equals(wg.toString())
+                    && builder.build().toString().equals(wg.toString()), "weighted toString");
+            for (int i = 0; i < E; i++)
+                check(built.hasEdge(edges[0][i], edges[1][i]) && built.getWeight(edges[0][i], edges[1][i]) == weights[i],
+                        "getWeight");
+
+            if (!directed) {
+                CC a = new CC(wg), b = new CC(wcsr);
+                check(a.count() == b.count(), "CC count");
+                for (int v = 0; v < V; v++)
+                    check(a.isConnected(0, v) == b.isConnected(0, v), "CC isConnected");
+            }
+            if (!negative) {
+                Dijkstra d1 = new Dijkstra(wg, 0), d2 = new Dijkstra(wcsr, 0);
+                DijkstraOptimized d3 = new DijkstraOptimized(wg, 0), d4 = new DijkstraOptimized(wcsr, 0);
+                for (int v = 0; v < V; v++)
+                    check(d1.distTo(v) == d2.distTo(v) && d1.distTo(v) == d3.distTo(v) && d1.distTo(v) == d4.distTo(v),
+                            "Dijkstra distTo");
+            }
+            BellmanFord b1 = new BellmanFord(wg, 0), b2 = new BellmanFord(wcsr, 0);
+            check(b1.hasNegativeCycle() == b2.hasNegativeCycle(), "BellmanFord negative cycle");
+            if (!b1.hasNegativeCycle())
+                for (int v = 0; v < V; v++)
+                    check(b1.isConnectedTo(v) == b2.isConnectedTo(v) && b1.distTo(v) == b2.distTo(v), "BellmanFord distTo");
+        }
+        System.out.println("BFS, CC, Dijkstra, DijkstraOptimized, BellmanFord on CsrGraph: OK");
+    }
+
+    private static void check(boolean ok, String what) {
+        if (!ok) throw new IllegalStateException("csr check failed: " + what);
+    }
+
+    //不重复、没有自环的随机边，edges[0]是起点，edges[1]是终点
+    private static int[][] randomEdges(int V, int E, boolean directed, Random rand) {
+        int[][] edges = new int[2][E];
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < E; ) {
+            int a = rand.nextInt(V), b = rand.nextInt(V);
+            if (a == b) continue;
+            long key = directed ? (long) a * V + b : (long) Math.min(a, b) * V + Math.max(a, b);
+            if (seen.add(key)) {
+                edges[0][i] = a;
+                edges[1][i] = b;
+                i++;
+            }
+        }
+        return edges;
+    }
+
+    private static File writeGraphFile(int V, int[][] edges) throws IOException {
+        File file = File.createTempFile("graph", ".txt");
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println(V + " " + edges[0].length);
+            for (int i = 0; i < edges[0].length; i++)
+                out.println(edges[0][i] + " " + edges[1][i]);
+        }
+        return file;
+    }
+
+    private static WeightedGraph weightedGraph(int V, int[][] edges, int[] weights) {
+        WeightedGraph wg = new WeightedGraph(V, false);
+        for (int i = 0; i < weights.length; i++)
+            wg.addEdge(edges[0][i], edges[1][i], weights[i]);
+        return wg;
+    }
+
+    //构建前后GC之后的堆内存差值
+    private static long retained(Runnable build) {
+        long before = usedAfterGc();
+        build.run();
+        return usedAfterGc() - before;
+    }
+
+    private static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void compare(String name, Supplier<Object> old, Supplier<Object> csr) {
+        double a = bestMillis(old), b = bestMillis(csr);
+        System.out.printf("%-34s %12.1f %12.1f %7.1fx%n", name, a, b, a / b);
+    }
+
+    private static double bestMillis(Supplier<Object> run) {
+        long best = Long.MAX_VALUE;
+        List<Object> sink = new ArrayList<>();
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            sink.add(run.get());
+            best = Math.min(best, System.nanoTime() - start);
+            sink.clear();
+        }
+        return best / 1e6;
+    }
+
+    private static Object runWithLargeStack(Supplier<Object> run) {
+        Object[] result = new Object[1];
+        Thread t = new Thread(null, () -> result[0] = run.get(), "large-stack", 1L << 30);
+        t.start();
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result[0];
+    }
+}
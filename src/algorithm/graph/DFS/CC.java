@@ -1,5 +1,6 @@
 package algorithm.graph.DFS;
 
+import algorithm.graph.CsrGraph;
 import algorithm.graph.WeightedGraph;
 
 import java.util.ArrayList;
@@ -24,6 +25,33 @@ public class CC {
             }
     }
 
+    //CSR图上用显式栈做dfs，顶点很多时不会栈溢出
+    public CC(CsrGraph G){
+
+        visited = new int[G.V()];
+        for(int i = 0; i < visited.length; i ++)
+            visited[i] = -1;
+
+        int[] stack = new int[G.V()];
+        for(int s = 0; s < G.V(); s ++)
+            if(visited[s] == -1){
+                int top = 0;
+                stack[top ++] = s;
+                visited[s] = cccount;
+                while(top > 0){
+                    int v = stack[-- top];
+                    for(int i = G.begin(v), end = G.end(v); i < end; i ++){
+                        int w = G.target(i);
+                        if(visited[w] == -1){
+                            visited[w] = cccount;
+                            stack[top ++] = w;
+                        }
+                    }
+                }
+                cccount ++;
+            }
+    }
+
     private void dfs(int v, int ccid){
 
         visited[v] = ccid;
@@ -37,18 +65,23 @@ public class CC {
     }
 
     public boolean isConnected(int v, int w){
-        G.validateVertex(v);
-        G.validateVertex(w);
+        validateVertex(v);
+        validateVertex(w);
         return visited[v] == visited[w];
     }
 
+    private void validateVertex(int v){
+        if(v < 0 || v >= visited.length)
+            throw new IllegalArgumentException("vertex " + v + "is invalid");
+    }
+
     public ArrayList<Integer>[] components(){
 
         ArrayList<Integer>[] res = new ArrayList[cccount];
         for(int i = 0; i < cccount; i ++)
             res[i] = new ArrayList<Integer>();
 
-        for(int v = 0; v < G.V(); v ++)
+        for(int v = 0; v < visited.length; v ++)
             res[visited[v]].add(v);
         return res;
     }
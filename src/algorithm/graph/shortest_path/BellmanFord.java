@@ -1,5 +1,6 @@
 package algorithm.graph.shortest_path;
 
+import algorithm.graph.CsrGraph;
 import algorithm.graph.WeightedGraph;
 
 import java.util.Arrays;
@@ -41,21 +42,57 @@ public class BellmanFord {
                     hasNegCycle = true;
     }
 
+    //CSR图上按行顺序扫描所有弧；某一轮没有松弛任何顶点时后面的轮次也不会再变，提前结束
+    public BellmanFord(CsrGraph G, int s) {
+
+        G.validateVertex(s);
+        this.s = s;
+
+        dis = new int[G.V()];
+        Arrays.fill(dis, Integer.MAX_VALUE);
+        dis[s] = 0;
+
+        boolean updated = true;
+        for (int pass = 1; pass < G.V() && updated; pass++) {
+            updated = false;
+            for (int v = 0; v < G.V(); v++) {
+                if (dis[v] == Integer.MAX_VALUE) continue;
+                for (int i = G.begin(v), end = G.end(v); i < end; i++)
+                    if (dis[v] + G.weight(i) < dis[G.target(i)]) {
+                        dis[G.target(i)] = dis[v] + G.weight(i);
+                        updated = true;
+                    }
+            }
+        }
+
+        for (int v = 0; v < G.V() && updated; v++) {
+            if (dis[v] == Integer.MAX_VALUE) continue;
+            for (int i = G.begin(v), end = G.end(v); i < end; i++)
+                if (dis[v] + G.weight(i) < dis[G.target(i)])
+                    hasNegCycle = true;
+        }
+    }
+
     public boolean hasNegativeCycle() {
         return hasNegCycle;
     }
 
     public boolean isConnectedTo(int v) {
-        G.validateVertex(v);
+        validateVertex(v);
         return dis[v] != Integer.MAX_VALUE;
     }
 
     public int distTo(int v) {
-        G.validateVertex(v);
+        validateVertex(v);
         if (hasNegCycle) throw new RuntimeException("exist negative cycle.");
         return dis[v];
     }
 
+    private void validateVertex(int v) {
+        if (v < 0 || v >= dis.length)
+            throw new IllegalArgumentException("vertex " + v + "is invalid");
+    }
+
     static public void main(String[] args) {
 
         WeightedGraph g = new WeightedGraph("C:\\Users\\daito\\ideaproject\\justforfun\\src\\_courses.imooc\\Graph_Algorithms\\Shortest_Path\\BellmanFordAlgorithm\\g.txt");
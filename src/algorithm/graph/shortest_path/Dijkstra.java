@@ -1,6 +1,7 @@
 package algorithm.graph.shortest_path;
 
 
+import algorithm.graph.CsrGraph;
 import algorithm.graph.WeightedGraph;
 
 import java.util.Arrays;
@@ -47,14 +48,49 @@ public class Dijkstra {
         }
     }
 
+    //CSR图上按下标取权重，不用在TreeMap里查getWeight
+    public Dijkstra(CsrGraph G, int s) {
+
+        G.validateVertex(s);
+        this.s = s;
+
+        dis = new int[G.V()];
+        Arrays.fill(dis, Integer.MAX_VALUE);
+        dis[s] = 0;
+
+        visited = new boolean[G.V()];
+
+        while (true) {
+            int cur = -1, curdis = Integer.MAX_VALUE;
+            for (int v = 0; v < G.V(); v++)
+                if (!visited[v] && dis[v] < curdis) {
+                    curdis = dis[v];
+                    cur = v;
+                }
+            if (cur == -1) break;
+
+            visited[cur] = true;
+            for (int i = G.begin(cur), end = G.end(cur); i < end; i++) {
+                int w = G.target(i);
+                if (!visited[w] && dis[cur] + G.weight(i) < dis[w])
+                    dis[w] = dis[cur] + G.weight(i);
+            }
+        }
+    }
+
     public boolean isConnectedTo(int v) {
-        G.validateVertex(v);
+        validateVertex(v);
         return visited[v];
     }
 
     public int distTo(int v) {
-        G.validateVertex(v);
+        validateVertex(v);
         return dis[v];
     }
 
+    private void validateVertex(int v) {
+        if (v < 0 || v >= dis.length)
+            throw new IllegalArgumentException("vertex " + v + "is invalid");
+    }
+
 }
@@ -1,5 +1,6 @@
 package algorithm.graph.shortest_path;
 
+import algorithm.graph.CsrGraph;
 import algorithm.graph.WeightedGraph;
 
 import java.util.Arrays;
@@ -63,13 +64,67 @@ public class DijkstraOptimized {
         }
     }
 
+    /**
+     * CSR图上的版本：权重按下标取，优先队列换成long数组的二叉堆，
+     * 高32位是距离(Dijkstra要求权重非负，距离不会是负数)，低32位是顶点，按long比较就是按距离比较，不用创建Node对象
+     */
+    public DijkstraOptimized(CsrGraph G, int s) {
+
+        G.validateVertex(s);
+        this.s = s;
+
+        dis = new int[G.V()];
+        Arrays.fill(dis, Integer.MAX_VALUE);
+        dis[s] = 0;
+
+        visited = new boolean[G.V()];
+
+        long[] heap = new long[16];
+        int size = 0;
+        heap[size++] = s;
+        while (size > 0) {
+
+            int cur = (int) heap[0];
+            long last = heap[--size];
+            //下沉
+            int i = 0;
+            for (int child; (child = 2 * i + 1) < size; i = child) {
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= last) break;
+                heap[i] = heap[child];
+            }
+            heap[i] = last;
+            if (visited[cur]) continue;
+
+            visited[cur] = true;
+            for (int e = G.begin(cur), end = G.end(cur); e < end; e++) {
+                int w = G.target(e);
+                if (!visited[w] && dis[cur] + G.weight(e) < dis[w]) {
+                    dis[w] = dis[cur] + G.weight(e);
+                    if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+                    long node = (long) dis[w] << 32 | w;
+                    //上浮
+                    int j = size++;
+                    for (int parent; j > 0 && heap[parent = (j - 1) / 2] > node; j = parent)
+                        heap[j] = heap[parent];
+                    heap[j] = node;
+                }
+            }
+        }
+    }
+
     public boolean isConnectedTo(int v) {
-        G.validateVertex(v);
+        validateVertex(v);
         return visited[v];
     }
 
     public int distTo(int v) {
-        G.validateVertex(v);
+        validateVertex(v);
         return dis[v];
     }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= dis.length)
+            throw new IllegalArgumentException("vertex " + v + "is invalid");
+    }
 }
@@ -31,6 +31,12 @@ public class BloomFilter {
     private static BitSet bits = new BitSet(DEFAULT_SIZE);
     private static SimpleHash[] func = new SimpleHash[seeds.length];
 
+    static {
+        for (int i = 0; i < seeds.length; i++) {
+            func[i] = new SimpleHash(DEFAULT_SIZE, seeds[i]);
+        }
+    }
+
     public static void addValue(String value) {
         for (SimpleHash f : func)//将字符串value哈希为8个或多个整数，然后在这些整数的bit上变为1    
             bits.set(f.hash(value), true);
@@ -50,9 +56,6 @@ public class BloomFilter {
 
     public static void main(String[] args) {
         String value = "xkeyideal@gmail.com";
-        for (int i = 0; i < seeds.length; i++) {
-            func[i] = new SimpleHash(DEFAULT_SIZE, seeds[i]);
-        }
         add(value);
         System.out.println(contains(value));
     }
@@ -7,10 +7,13 @@ import java.util.TreeMap;
 
 /**
  * Description:带虚拟节点的一致哈希
+ * 演示用：状态是静态的，服务器列表和虚拟节点数写死，实际使用见algorithm.hash.routing.ConsistentHashRing
  *
  * @author: matreeix
  * @date: 2018/10/18 17:17
+ * @deprecated 使用 {@link algorithm.hash.routing.ConsistentHashRing}
  */
+@Deprecated
 public class ConsistentHashingWithVirtualNode {
     /**
      * 待添加入Hash环的服务器列表
@@ -85,10 +88,10 @@ public class ConsistentHashingWithVirtualNode {
         // 得到大于该Hash值的所有Map
         SortedMap<Integer, String> subMap =
                 virtualNodes.tailMap(hash);
-        // 第一个Key就是顺时针过去离node最近的那个结点
-        Integer i = subMap.firstKey();
+        // 第一个Key就是顺时针过去离node最近的那个结点，比最后一个Key还大时绕回到环的第一个Key
+        Integer i = subMap.isEmpty() ? virtualNodes.firstKey() : subMap.firstKey();
         // 返回对应的虚拟节点名称，这里字符串稍微截取一下
-        String virtualNode = subMap.get(i);
+        String virtualNode = virtualNodes.get(i);
         return virtualNode.substring(0, virtualNode.indexOf("&&"));
     }
 
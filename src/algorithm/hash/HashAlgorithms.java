@@ -1,5 +1,8 @@
 package algorithm.hash;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Hash算法大全<br>
  * 推荐使用FNV1算法
@@ -350,5 +353,336 @@ public class HashAlgorithms {
         hash |= FNVHash1(str);
         return hash;
     }
-}
 
+    /**
+     * MurmurHash3的x64_128版本，每次处理16个字节，输出128位
+     * 结果和Guava的Hashing.murmur3_128(seed)相同(seed取非负的32位整数时)
+     *
+     * @param data
+     *            输入字节
+     * @param offset
+     *            起始位置
+     * @param length
+     *            长度
+     * @param seed
+     *            种子
+     * @param out
+     *            长度至少为2，依次写入128位结果的低64位和高64位
+     */
+    public static void murmur3_128(byte[] data, int offset, int length, long seed, long[] out) {
+        murmur3_128(littleEndian(data), offset, length, seed, out);
+    }
+
+    /**
+     * MurmurHash3的x64_128版本，对buf中position到limit之间的字节计算，不改变position
+     * 堆内和堆外(direct，例如SlabAllocator.buffer返回的视图)的ByteBuffer都可以，不复制数据
+     */
+    public static void murmur3_128(ByteBuffer buf, long seed, long[] out) {
+        murmur3_128(littleEndian(buf), buf.position(), buf.remaining(), seed, out);
+    }
+
+    private static void murmur3_128(ByteBuffer b, int offset, int length, long seed, long[] out) {
+        long h1 = seed;
+        long h2 = seed;
+        int end = offset + (length & ~15);
+        for (int i = offset; i < end; i += 16) {
+            h1 = murmur3Mix1(h1, h2, b.getLong(i));
+            h2 = murmur3Mix2(h2, h1, b.getLong(i + 8));
+        }
+        murmur3Finish(b, end, length & 15, length, h1, h2, out);
+    }
+
+    private static final long MURMUR3_C1 = 0x87c37b91114253d5L;
+    private static final long MURMUR3_C2 = 0x4cf5ad432745937fL;
+
+    static long murmur3Mix1(long h1, long h2, long k1) {
+        h1 ^= Long.rotateLeft(k1 * MURMUR3_C1, 31) * MURMUR3_C2;
+        return (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+    }
+
+    static long murmur3Mix2(long h2, long h1, long k2) {
+        h2 ^= Long.rotateLeft(k2 * MURMUR3_C2, 33) * MURMUR3_C1;
+        return (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+    }
+
+    /**
+     * 处理最后不足16个字节(从b的end开始的tail个字节)并做最终混合
+     */
+    static void murmur3Finish(ByteBuffer b, int end, int tail, long length, long h1, long h2, long[] out) {
+        long k1 = 0;
+        long k2 = 0;
+        switch (tail) {
+            case 15: k2 ^= (long) (b.get(end + 14) & 0xff) << 48;
+            case 14: k2 ^= (long) (b.get(end + 13) & 0xff) << 40;
+            case 13: k2 ^= (long) (b.get(end + 12) & 0xff) << 32;
+            case 12: k2 ^= (long) (b.get(end + 11) & 0xff) << 24;
+            case 11: k2 ^= (long) (b.get(end + 10) & 0xff) << 16;
+            case 10: k2 ^= (long) (b.get(end + 9) & 0xff) << 8;
+            case 9:
+                k2 ^= b.get(end + 8) & 0xff;
+                h2 ^= Long.rotateLeft(k2 * MURMUR3_C2, 33) * MURMUR3_C1;
+            case 8: k1 ^= (long) (b.get(end + 7) & 0xff) << 56;
+            case 7: k1 ^= (long) (b.get(end + 6) & 0xff) << 48;
+            case 6: k1 ^= (long) (b.get(end + 5) & 0xff) << 40;
+            case 5: k1 ^= (long) (b.get(end + 4) & 0xff) << 32;
+            case 4: k1 ^= (long) (b.get(end + 3) & 0xff) << 24;
+            case 3: k1 ^= (long) (b.get(end + 2) & 0xff) << 16;
+            case 2: k1 ^= (long) (b.get(end + 1) & 0xff) << 8;
+            case 1:
+                k1 ^= b.get(end) & 0xff;
+                h1 ^= Long.rotateLeft(k1 * MURMUR3_C1, 31) * MURMUR3_C2;
+            default:
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    /**
+     * MurmurHash3的x64_128版本，种子为0
+     */
+    public static long[] murmur3_128(byte[] data) {
+        long[] out = new long[2];
+        murmur3_128(data, 0, data.length, 0, out);
+        return out;
+    }
+
+    /**
+     * MurmurHash3的最终混合，让每一位输入都影响所有输出位
+     */
+    static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * xxHash64，每次处理32个字节(4路并行，每路8个字节)，输出64位，结果和xxHash官方实现(XXH64)相同
+     *
+     * @param data
+     *            输入字节
+     * @param offset
+     *            起始位置
+     * @param length
+     *            长度
+     * @param seed
+     *            种子
+     * @return 64位hash值
+     */
+    public static long xxHash64(byte[] data, int offset, int length, long seed) {
+        return xxHash64(littleEndian(data), offset, length, seed);
+    }
+
+    /**
+     * xxHash64，种子为0
+     */
+    public static long xxHash64(byte[] data) {
+        return xxHash64(littleEndian(data), 0, data.length, 0);
+    }
+
+    /**
+     * xxHash64，对buf中position到limit之间的字节计算，不改变position，堆内堆外都可以
+     */
+    public static long xxHash64(ByteBuffer buf, long seed) {
+        return xxHash64(littleEndian(buf), buf.position(), buf.remaining(), seed);
+    }
+
+    static final long XXH_P1 = 0x9e3779b185ebca87L;
+    static final long XXH_P2 = 0xc2b2ae3d27d4eb4fL;
+    static final long XXH_P3 = 0x165667b19e3779f9L;
+    static final long XXH_P4 = 0x85ebca77c2b2ae63L;
+    static final long XXH_P5 = 0x27d4eb2f165667c5L;
+
+    private static long xxHash64(ByteBuffer b, int offset, int length, long seed) {
+        int i = offset;
+        int end = offset + length;
+        long h;
+        if (length >= 32) {
+            long v1 = seed + XXH_P1 + XXH_P2;
+            long v2 = seed + XXH_P2;
+            long v3 = seed;
+            long v4 = seed - XXH_P1;
+            for (int limit = end - 32; i <= limit; i += 32) {
+                v1 = xxh64Round(v1, b.getLong(i));
+                v2 = xxh64Round(v2, b.getLong(i + 8));
+                v3 = xxh64Round(v3, b.getLong(i + 16));
+                v4 = xxh64Round(v4, b.getLong(i + 24));
+            }
+            h = xxh64Merge(v1, v2, v3, v4);
+        } else {
+            h = seed + XXH_P5;
+        }
+        return xxh64Finish(b, i, end - i, h + length);
+    }
+
+    static long xxh64Round(long acc, long input) {
+        acc += input * XXH_P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * XXH_P1;
+    }
+
+    /**
+     * 合并4路累加器
+     */
+    static long xxh64Merge(long v1, long v2, long v3, long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = (h ^ xxh64Round(0, v1)) * XXH_P1 + XXH_P4;
+        h = (h ^ xxh64Round(0, v2)) * XXH_P1 + XXH_P4;
+        h = (h ^ xxh64Round(0, v3)) * XXH_P1 + XXH_P4;
+        return (h ^ xxh64Round(0, v4)) * XXH_P1 + XXH_P4;
+    }
+
+    /**
+     * 处理最后不足32个字节(从b的i开始的remaining个字节)并做最终混合，h已经加上了总长度
+     */
+    static long xxh64Finish(ByteBuffer b, int i, int remaining, long h) {
+        for (; remaining >= 8; i += 8, remaining -= 8) {
+            h ^= xxh64Round(0, b.getLong(i));
+            h = Long.rotateLeft(h, 27) * XXH_P1 + XXH_P4;
+        }
+        if (remaining >= 4) {
+            h ^= (b.getInt(i) & 0xffffffffL) * XXH_P1;
+            h = Long.rotateLeft(h, 23) * XXH_P2 + XXH_P3;
+            i += 4;
+            remaining -= 4;
+        }
+        for (; remaining > 0; i++, remaining--) {
+            h ^= (b.get(i) & 0xff) * XXH_P5;
+            h = Long.rotateLeft(h, 11) * XXH_P1;
+        }
+        h ^= h >>> 33;
+        h *= XXH_P2;
+        h ^= h >>> 29;
+        h *= XXH_P3;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * wyhash(final4版本)，每次处理48个字节(3路，每路两个8字节做64x64→128位乘法)，输出64位
+     * 短输入(<=16字节)不循环，读几次有重叠的4字节或8字节就结束，是这几个算法里短键最快的
+     *
+     * @param data
+     *            输入字节
+     * @param offset
+     *            起始位置
+     * @param length
+     *            长度
+     * @param seed
+     *            种子
+     * @return 64位hash值
+     */
+    public static long wyhash(byte[] data, int offset, int length, long seed) {
+        return wyhash(littleEndian(data), offset, length, seed);
+    }
+
+    /**
+     * wyhash，种子为0
+     */
+    public static long wyhash(byte[] data) {
+        return wyhash(littleEndian(data), 0, data.length, 0);
+    }
+
+    /**
+     * wyhash，对buf中position到limit之间的字节计算，不改变position，堆内堆外都可以
+     */
+    public static long wyhash(ByteBuffer buf, long seed) {
+        return wyhash(littleEndian(buf), buf.position(), buf.remaining(), seed);
+    }
+
+    private static final long WY_P0 = 0xa0761d6478bd642fL;
+    private static final long WY_P1 = 0xe7037ed1a0b428dbL;
+    private static final long WY_P2 = 0x8ebc6af09c88c6e3L;
+    private static final long WY_P3 = 0x589965cc75374cc3L;
+
+    private static long wyhash(ByteBuffer b, int offset, int length, long seed) {
+        seed ^= wymix(seed ^ WY_P0, WY_P1);
+        long a;
+        long c;
+        if (length <= 16) {
+            if (length >= 4) {
+                int q = (length >>> 3) << 2;
+                a = (b.getInt(offset) & 0xffffffffL) << 32 | (b.getInt(offset + q) & 0xffffffffL);
+                c = (b.getInt(offset + length - 4) & 0xffffffffL) << 32 | (b.getInt(offset + length - 4 - q) & 0xffffffffL);
+            } else if (length > 0) {
+                a = (b.get(offset) & 0xffL) << 16 | (b.get(offset + (length >>> 1)) & 0xffL) << 8
+                        | (b.get(offset + length - 1) & 0xffL);
+                c = 0;
+            } else {
+                a = 0;
+                c = 0;
+            }
+        } else {
+            int i = length;
+            int p = offset;
+            if (i > 48) {
+                long see1 = seed;
+                long see2 = seed;
+                do {
+                    seed = wymix(b.getLong(p) ^ WY_P1, b.getLong(p + 8) ^ seed);
+                    see1 = wymix(b.getLong(p + 16) ^ WY_P2, b.getLong(p + 24) ^ see1);
+                    see2 = wymix(b.getLong(p + 32) ^ WY_P3, b.getLong(p + 40) ^ see2);
+                    p += 48;
+                    i -= 48;
+                } while (i > 48);
+                seed ^= see1 ^ see2;
+            }
+            while (i > 16) {
+                seed = wymix(b.getLong(p) ^ WY_P1, b.getLong(p + 8) ^ seed);
+                i -= 16;
+                p += 16;
+            }
+            a = b.getLong(p + i - 16);
+            c = b.getLong(p + i - 8);
+        }
+        a ^= WY_P1;
+        c ^= seed;
+        long lo = a * c;
+        long hi = unsignedMultiplyHigh(a, c);
+        return wymix(lo ^ WY_P0 ^ length, hi ^ WY_P1);
+    }
+
+    /**
+     * 128位乘积的低64位和高64位异或
+     */
+    private static long wymix(long a, long b) {
+        return a * b ^ unsignedMultiplyHigh(a, b);
+    }
+
+    /**
+     * 两个无符号64位数乘积的高64位(Java 9以后可以用Math.multiplyHigh再修正符号)
+     */
+    static long unsignedMultiplyHigh(long a, long b) {
+        long aLo = a & 0xffffffffL;
+        long aHi = a >>> 32;
+        long bLo = b & 0xffffffffL;
+        long bHi = b >>> 32;
+        long loLo = aLo * bLo;
+        long hiLo = aHi * bLo;
+        long cross = (loLo >>> 32) + (hiLo & 0xffffffffL) + aLo * bHi;
+        return aHi * bHi + (hiLo >>> 32) + (cross >>> 32);
+    }
+
+    /**
+     * 按小端序读long/int的视图：HotSpot把ByteBuffer.getLong编译成一次8字节读，不是逐字节拼
+     */
+    static ByteBuffer littleEndian(byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 同一块内存(堆内或堆外)的小端序视图，下标和buf相同
+     */
+    static ByteBuffer littleEndian(ByteBuffer buf) {
+        return buf.order() == ByteOrder.LITTLE_ENDIAN ? buf : buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,242 @@
+package algorithm.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+/**
+ * Description:HashAlgorithms中各hash函数的速度和雪崩效应对比
+ * 1.校验：xxHash64、wyhash、murmur3_128和官方测试向量一致，ByteBuffer(堆内/堆外)和增量计算的结果和byte[]一致；
+ * 2.速度：8、32、256、4096字节的输入，每个函数多轮取最快的一轮，给出每次hash的纳秒数和吞吐量；
+ * 按String计算的旧函数用同样长度的ASCII字符串；
+ * 3.雪崩(SMHasher的Avalanche测试)：随机16字节输入，每翻转一个输入位，统计每个输出位翻转的概率，
+ * 理想是50%，列出所有(输入位, 输出位)组合中偏离最大的|p-0.5|*2；
+ * 每个组合的抽样误差(标准差)是 1/sqrt(样本数)，上万个组合取最大值时纯噪声也能到4倍标准差，
+ * 所以按5倍标准差判断是否合格(样本数足够多时相当于SMHasher的1%阈值)。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class HashBenchmark {
+    private static final int[] SIZES = {8, 32, 256, 4096};
+    private static final long TOTAL_BYTES = 64L << 20;//每轮处理的总字节数
+    private static final int ROUNDS = 5;
+    private static final int AVALANCHE_BYTES = 16;
+    private static final int AVALANCHE_SAMPLES = 100_000;
+
+    private static final class Candidate {
+        final String name;
+        final int outputBits;
+        final ToLongFunction<byte[]> bytes;//按字节计算
+        final ToLongFunction<String> string;//按String计算(旧函数)
+
+        Candidate(String name, int outputBits, ToLongFunction<byte[]> bytes, ToLongFunction<String> string) {
+            this.name = name;
+            this.outputBits = outputBits;
+            this.bytes = bytes;
+            this.string = string;
+        }
+    }
+
+    public static void main(String[] args) {
+        verify();
+        long[] out = new long[2];
+        Candidate[] candidates = {
+                new Candidate("xxHash64", 64, HashAlgorithms::xxHash64, null),
+                new Candidate("wyhash", 64, HashAlgorithms::wyhash, null),
+                new Candidate("murmur3_128", 64, b -> {
+                    HashAlgorithms.murmur3_128(b, 0, b.length, 0, out);
+                    return out[0];
+                }, null),
+                new Candidate("FNVHash1(byte[])", 32, HashAlgorithms::FNVHash1, null),
+                new Candidate("FNVHash(byte[])", 32, HashAlgorithms::FNVHash, null),
+                new Candidate("bernstein", 32, null, HashAlgorithms::bernstein),
+                new Candidate("RSHash", 32, null, HashAlgorithms::RSHash),
+                new Candidate("JSHash", 32, null, HashAlgorithms::JSHash),
+                new Candidate("ELFHash", 32, null, HashAlgorithms::ELFHash),
+                new Candidate("BKDRHash", 32, null, HashAlgorithms::BKDRHash),
+                new Candidate("String.hashCode", 32, null, HashAlgorithms::java),
+        };
+
+        System.out.printf("%n%-18s", "ns/hash (GB/s)");
+        for (int size : SIZES) {
+            System.out.printf("%20s", size + " bytes");
+        }
+        System.out.println();
+        for (Candidate c : candidates) {
+            System.out.printf("%-18s", c.name);
+            for (int size : SIZES) {
+                double ns = nanosPerHash(c, size);
+                System.out.printf("%20s", String.format("%.1f (%.2f)", ns, size / ns));
+            }
+            System.out.println();
+        }
+        //堆外内存上直接计算，不复制
+        System.out.printf("%-18s", "xxHash64(direct)");
+        for (int size : SIZES) {
+            double ns = nanosPerDirectHash(size);
+            System.out.printf("%20s", String.format("%.1f (%.2f)", ns, size / ns));
+        }
+        System.out.println();
+
+        double sigma = 1 / Math.sqrt(AVALANCHE_SAMPLES);
+        System.out.printf("%navalanche, %d-byte keys, %d samples (noise %.4f per cell, threshold %.4f)%n",
+                AVALANCHE_BYTES, AVALANCHE_SAMPLES, sigma, 5 * sigma);
+        for (Candidate c : candidates) {
+            double bias = worstAvalancheBias(c);
+            System.out.printf("%-18s worst bias %.4f %s%n", c.name, bias, bias > 5 * sigma ? "FAIL" : "pass");
+        }
+    }
+
+    //和官方实现的测试向量比较，并检查各种输入方式的结果一致
+    private static void verify() {
+        check(HashAlgorithms.xxHash64(new byte[0]) == 0xef46db3751d8e999L, "xxHash64 empty");
+        check(HashAlgorithms.xxHash64("abc".getBytes(StandardCharsets.US_ASCII)) == 0x44bc2cf5ad770999L, "xxHash64 abc");
+        check(HashAlgorithms.xxHash64("Nobody inspects the spammish repetition".getBytes(StandardCharsets.US_ASCII))
+                == 0xfbcea83c8a378bf1L, "xxHash64 long");
+        String[] inputs = {"", "a", "abc", "message digest", "abcdefghijklmnopqrstuvwxyz",
+                "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789",
+                "12345678901234567890123456789012345678901234567890123456789012345678901234567890"};
+        long[] wyhash = {0x0409638ee2bde459L, 0xa8412d091b5fe0a9L, 0x32dd92e4b2915153L, 0x8619124089a3a16bL,
+                0x7a43afb61d7f5f40L, 0xff42329b90e50d58L, 0xc39cab13b115aad3L};
+        for (int i = 0; i < inputs.length; i++) {
+            byte[] b = inputs[i].getBytes(StandardCharsets.US_ASCII);
+            check(HashAlgorithms.wyhash(b, 0, b.length, i) == wyhash[i], "wyhash vector " + i);
+        }
+        long[] out = new long[2];
+        HashAlgorithms.murmur3_128("hello".getBytes(StandardCharsets.US_ASCII), 0, 5, 0, out);
+        check(out[0] == 0xcbd8a7b341bd9b02L && out[1] == 0x5b1e906a48ae1d19L, "murmur3_128 hello");
+
+        Random rand = new Random(7);
+        long[] expected = new long[2];
+        for (int len = 0; len < 300; len++) {
+            byte[] data = new byte[len];
+            rand.nextBytes(data);
+            long seed = rand.nextLong();
+            ByteBuffer direct = ByteBuffer.allocateDirect(len + 3);
+            direct.position(3);
+            direct.put(data).position(3);
+            long xx = HashAlgorithms.xxHash64(data, 0, len, seed);
+            check(HashAlgorithms.xxHash64(direct, seed) == xx, "xxHash64 direct " + len);
+            check(HashAlgorithms.wyhash(direct, seed) == HashAlgorithms.wyhash(data, 0, len, seed), "wyhash direct " + len);
+            HashAlgorithms.murmur3_128(data, 0, len, seed, expected);
+            HashAlgorithms.murmur3_128(direct, seed, out);
+            check(out[0] == expected[0] && out[1] == expected[1], "murmur3_128 direct " + len);
+
+            //随机切成几段增量输入
+            StreamingHasher xs = StreamingHasher.xxHash64(seed);
+            StreamingHasher ms = StreamingHasher.murmur3_128(seed);
+            for (int p = 0; p < len; ) {
+                int n = Math.min(len - p, rand.nextInt(40));
+                xs.update(data, p, n);
+                ms.update(data, p, n);
+                p += n;
+            }
+            check(xs.getValue() == xx, "streaming xxHash64 " + len);
+            ms.getValue128(out);
+            check(out[0] == expected[0] && out[1] == expected[1], "streaming murmur3_128 " + len);
+        }
+        System.out.println("test vectors, ByteBuffer and streaming results: OK");
+    }
+
+    private static void check(boolean ok, String what) {
+        if (!ok) {
+            throw new IllegalStateException("hash check failed: " + what);
+        }
+    }
+
+    private static double nanosPerHash(Candidate c, int size) {
+        int count = (int) (TOTAL_BYTES / size);
+        //64个不同的输入轮流用，避免每次都是同一个
+        byte[][] inputs = new byte[64][size];
+        String[] strings = new String[64];
+        Random rand = new Random(size);
+        for (int i = 0; i < inputs.length; i++) {
+            for (int j = 0; j < size; j++) {
+                inputs[i][j] = (byte) (' ' + rand.nextInt(95));
+            }
+            strings[i] = new String(inputs[i], StandardCharsets.US_ASCII);
+        }
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            if (c.bytes != null) {
+                for (int i = 0; i < count; i++) {
+                    sink += c.bytes.applyAsLong(inputs[i & 63]);
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    sink += c.string.applyAsLong(strings[i & 63]);
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return sink == 42 ? best : (double) best / count;
+    }
+
+    private static double nanosPerDirectHash(int size) {
+        int count = (int) (TOTAL_BYTES / size);
+        ByteBuffer buf = ByteBuffer.allocateDirect(size * 64);
+        Random rand = new Random(size);
+        for (int i = 0; i < buf.capacity(); i++) {
+            buf.put(i, (byte) rand.nextInt());
+        }
+        ByteBuffer[] views = new ByteBuffer[64];
+        for (int i = 0; i < views.length; i++) {
+            buf.limit((i + 1) * size).position(i * size);
+            views[i] = buf.slice();
+        }
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                sink += HashAlgorithms.xxHash64(views[i & 63], 0);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return sink == 42 ? best : (double) best / count;
+    }
+
+    //最坏的(输入位, 输出位)翻转概率偏差|p-0.5|*2
+    private static double worstAvalancheBias(Candidate c) {
+        int inBits = AVALANCHE_BYTES * 8;
+        int[][] flips = new int[inBits][c.outputBits];
+        Random rand = new Random(11);
+        byte[] key = new byte[AVALANCHE_BYTES];
+        char[] chars = new char[AVALANCHE_BYTES];
+        for (int s = 0; s < AVALANCHE_SAMPLES; s++) {
+            rand.nextBytes(key);
+            long base = hash(c, key, chars);
+            for (int bit = 0; bit < inBits; bit++) {
+                key[bit >>> 3] ^= 1 << (bit & 7);
+                long diff = base ^ hash(c, key, chars);
+                key[bit >>> 3] ^= 1 << (bit & 7);
+                int[] row = flips[bit];
+                for (int o = 0; o < c.outputBits; o++) {
+                    row[o] += (int) (diff >>> o) & 1;
+                }
+            }
+        }
+        double worst = 0;
+        for (int[] row : flips) {
+            for (int f : row) {
+                worst = Math.max(worst, Math.abs((double) f / AVALANCHE_SAMPLES - 0.5) * 2);
+            }
+        }
+        return worst;
+    }
+
+    //按String计算的函数把每个字节当成一个字符(0~255)
+    private static long hash(Candidate c, byte[] key, char[] chars) {
+        if (c.bytes != null) {
+            return c.bytes.applyAsLong(key);
+        }
+        for (int i = 0; i < key.length; i++) {
+            chars[i] = (char) (key[i] & 0xff);
+        }
+        return c.string.applyAsLong(new String(chars));
+    }
+}
@@ -0,0 +1,205 @@
+package algorithm.hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Description:增量计算的hash，数据可以分多次输入，结果和一次性计算HashAlgorithms中对应的函数相同
+ * 设计思路:
+ * 1.算法按固定大小的块处理(xxHash64是32字节，murmur3_128是16字节)，输入先凑满内部缓冲区里的一块，
+ * 剩下的整块直接在输入上处理，不复制，最后不足一块的留到下次或者结束时处理；
+ * 2.子类只需要实现处理一块和结束两个方法，块处理、尾部处理和最终混合复用HashAlgorithms里的实现；
+ * 3.wyhash的尾部要回头读前面的字节，不适合增量计算，没有提供；
+ * 4.非线程安全，reset()之后可以重复使用。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public abstract class StreamingHasher {
+    private final byte[] block;
+    private final ByteBuffer blockView;
+    private int buffered;//缓冲区里的字节数
+    private long length;//已经输入的总字节数
+
+    protected StreamingHasher(int blockSize) {
+        this.block = new byte[blockSize];
+        this.blockView = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * xxHash64的增量版本
+     */
+    public static StreamingHasher xxHash64(long seed) {
+        return new XXHash64(seed);
+    }
+
+    /**
+     * murmur3_128的增量版本
+     */
+    public static StreamingHasher murmur3_128(long seed) {
+        return new Murmur3(seed);
+    }
+
+    public StreamingHasher update(byte[] data, int offset, int length) {
+        return update(HashAlgorithms.littleEndian(data), offset, length);
+    }
+
+    public StreamingHasher update(byte[] data) {
+        return update(data, 0, data.length);
+    }
+
+    /**
+     * 输入buf中position到limit之间的字节，不改变position
+     */
+    public StreamingHasher update(ByteBuffer buf) {
+        return update(HashAlgorithms.littleEndian(buf), buf.position(), buf.remaining());
+    }
+
+    public StreamingHasher update(String s) {
+        return update(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //按小端序输入8个字节
+    public StreamingHasher updateLong(long v) {
+        if (block.length - buffered >= 8) {
+            blockView.putLong(buffered, v);
+            buffered += 8;
+            length += 8;
+            if (buffered == block.length) {
+                processBlock(blockView, 0);
+                buffered = 0;
+            }
+            return this;
+        }
+        ByteBuffer tmp = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, v);
+        return update(tmp, 0, 8);
+    }
+
+    private StreamingHasher update(ByteBuffer b, int offset, int len) {
+        length += len;
+        int end = offset + len;
+        if (buffered > 0) {
+            int n = Math.min(len, block.length - buffered);
+            for (int i = 0; i < n; i++) {
+                block[buffered++] = b.get(offset + i);
+            }
+            offset += n;
+            if (buffered < block.length) {
+                return this;
+            }
+            processBlock(blockView, 0);
+            buffered = 0;
+        }
+        for (; offset + block.length <= end; offset += block.length) {
+            processBlock(b, offset);
+        }
+        for (; offset < end; offset++) {
+            block[buffered++] = b.get(offset);
+        }
+        return this;
+    }
+
+    /**
+     * 64位结果，不影响之后继续输入
+     */
+    public long getValue() {
+        return finish(blockView, buffered, length);
+    }
+
+    /**
+     * 128位结果写入out[0](低64位)和out[1](高64位)；64位的算法out[1]为0
+     */
+    public void getValue128(long[] out) {
+        out[0] = getValue();
+        out[1] = 0;
+    }
+
+    public void reset() {
+        buffered = 0;
+        length = 0;
+        resetState();
+    }
+
+    /**
+     * 处理b中从offset开始的一整块
+     */
+    protected abstract void processBlock(ByteBuffer b, int offset);
+
+    /**
+     * 处理tail[0, tailLength)这些不足一块的字节并返回结果，不能修改状态
+     */
+    protected abstract long finish(ByteBuffer tail, int tailLength, long totalLength);
+
+    protected abstract void resetState();
+
+    private static final class XXHash64 extends StreamingHasher {
+        private final long seed;
+        private long v1, v2, v3, v4;
+
+        XXHash64(long seed) {
+            super(32);
+            this.seed = seed;
+            resetState();
+        }
+
+        @Override
+        protected void processBlock(ByteBuffer b, int offset) {
+            v1 = HashAlgorithms.xxh64Round(v1, b.getLong(offset));
+            v2 = HashAlgorithms.xxh64Round(v2, b.getLong(offset + 8));
+            v3 = HashAlgorithms.xxh64Round(v3, b.getLong(offset + 16));
+            v4 = HashAlgorithms.xxh64Round(v4, b.getLong(offset + 24));
+        }
+
+        @Override
+        protected long finish(ByteBuffer tail, int tailLength, long totalLength) {
+            long h = totalLength >= 32 ? HashAlgorithms.xxh64Merge(v1, v2, v3, v4) : seed + HashAlgorithms.XXH_P5;
+            return HashAlgorithms.xxh64Finish(tail, 0, tailLength, h + totalLength);
+        }
+
+        @Override
+        protected void resetState() {
+            v1 = seed + HashAlgorithms.XXH_P1 + HashAlgorithms.XXH_P2;
+            v2 = seed + HashAlgorithms.XXH_P2;
+            v3 = seed;
+            v4 = seed - HashAlgorithms.XXH_P1;
+        }
+    }
+
+    private static final class Murmur3 extends StreamingHasher {
+        private final long seed;
+        private final long[] out = new long[2];
+        private long h1, h2;
+
+        Murmur3(long seed) {
+            super(16);
+            this.seed = seed;
+            resetState();
+        }
+
+        @Override
+        protected void processBlock(ByteBuffer b, int offset) {
+            h1 = HashAlgorithms.murmur3Mix1(h1, h2, b.getLong(offset));
+            h2 = HashAlgorithms.murmur3Mix2(h2, h1, b.getLong(offset + 8));
+        }
+
+        @Override
+        protected long finish(ByteBuffer tail, int tailLength, long totalLength) {
+            HashAlgorithms.murmur3Finish(tail, 0, tailLength, totalLength, h1, h2, out);
+            return out[0];
+        }
+
+        @Override
+        public void getValue128(long[] result) {
+            getValue();
+            result[0] = out[0];
+            result[1] = out[1];
+        }
+
+        @Override
+        protected void resetState() {
+            h1 = seed;
+            h2 = seed;
+        }
+    }
+}
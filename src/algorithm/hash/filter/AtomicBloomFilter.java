@@ -0,0 +1,137 @@
+package algorithm.hash.filter;
+
+import algorithm.hash.HashAlgorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Description:按预计元素数和误判率确定大小的布隆过滤器，线程安全
+ * 设计思路:
+ * 1.大小：n个元素、误判率p时，最优的位数 m = -n*ln(p)/(ln2)^2，哈希函数个数 k = m/n*ln2；
+ * 2.哈希：只对输入字节算一次128位的murmur3，拆成h1、h2两个64位值，
+ * 第i个位置取 h1 + i*h2 (double hashing，Kirsch和Mitzenmacher证明误判率和k个独立哈希函数渐近相同)；
+ * 3.位数组是long[]，用AtomicLongArray保存，插入时对每个long做CAS，多线程插入和查询都不加锁；
+ * 插入时只有确实需要置位才CAS，重复插入只是读。
+ * 和BloomFilter(algorithm.hash)相比：不是静态单例，大小可配置，哈希只算一次且按字节处理。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class AtomicBloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int numHashFunctions;
+
+    /**
+     * @param expectedInsertions 预计插入的元素数
+     * @param fpp                目标误判率，(0, 1)之间
+     */
+    public AtomicBloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions should be more than 0.");
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp should be in (0, 1).");
+        }
+        long m = optimalNumOfBits(expectedInsertions, fpp);
+        long words = (m + 63) >>> 6;
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("filter too large: " + m + " bits");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitSize = words << 6;
+        this.numHashFunctions = optimalNumOfHashFunctions(expectedInsertions, bitSize);
+    }
+
+    //插入，返回是否改变了过滤器(false说明元素可能已经在里面了)
+    public boolean put(byte[] value) {
+        long[] h = new long[2];
+        HashAlgorithms.murmur3_128(value, 0, value.length, 0, h);
+        return put(h[0], h[1]);
+    }
+
+    public boolean put(String value) {
+        return put(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //可能在集合中返回true，一定不在返回false
+    public boolean mightContain(byte[] value) {
+        long[] h = new long[2];
+        HashAlgorithms.murmur3_128(value, 0, value.length, 0, h);
+        return mightContain(h[0], h[1]);
+    }
+
+    public boolean mightContain(String value) {
+        return mightContain(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //按已有的128位哈希值插入(ScalableBloomFilter的各个分片共用一次哈希)
+    boolean put(long h1, long h2) {
+        boolean changed = false;
+        long combined = h1;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitSize;
+            changed |= setBit(index);
+            combined += h2;
+        }
+        return changed;
+    }
+
+    boolean mightContain(long h1, long h2) {
+        long combined = h1;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitSize;
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    private boolean setBit(long index) {
+        int i = (int) (index >>> 6);
+        long mask = 1L << index;
+        long old;
+        do {
+            old = bits.get(i);
+            if ((old & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(i, old, old | mask));
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int numHashFunctions() {
+        return numHashFunctions;
+    }
+
+    //已置位的位数
+    public long bitCount() {
+        long count = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            count += Long.bitCount(bits.get(i));
+        }
+        return count;
+    }
+
+    //按当前置位比例估计的误判率
+    public double expectedFpp() {
+        return Math.pow((double) bitCount() / bitSize, numHashFunctions);
+    }
+
+    //m = -n*ln(p)/(ln2)^2
+    static long optimalNumOfBits(long n, double p) {
+        return (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+
+    //k = m/n*ln2，至少为1
+    static int optimalNumOfHashFunctions(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+}
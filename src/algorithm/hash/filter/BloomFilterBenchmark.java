@@ -0,0 +1,101 @@
+package algorithm.hash.filter;
+
+import algorithm.hash.BloomFilter;
+import algorithm.hash.HashAlgorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * Description:布隆过滤器查询吞吐量对比
+ * 各插入N个字符串，再查询N个字符串(一半插入过、一半没插入过)，多轮取最快的一轮，同时给出实际误判率和占用空间。
+ * BloomFilter(algorithm.hash)是静态的固定大小(2^25位，4MB)，8个哈希函数；其余的按N和1%的误判率确定大小。
+ * 第一行只算哈希不查过滤器，作为参照(它的fpp一列没有意义)。
+ * CountingBloomFilter额外验证删除：删掉一半元素后剩下的都还在。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class BloomFilterBenchmark {
+    private static final int N = 4_000_000;
+    private static final double FPP = 0.01;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String[] inserted = new String[N];
+        String[] queries = new String[N];
+        for (int i = 0; i < N; i++) {
+            inserted[i] = "user:" + i + "@example.com";
+            //偶数下标查插入过的，奇数下标查没插入过的
+            queries[i] = (i & 1) == 0 ? inserted[i] : "user:" + (N + i) + "@example.com";
+        }
+
+        //只做UTF-8编码和murmur3_128，是后三个过滤器每次查询的固定开销
+        long[] h = new long[2];
+        report("murmur3_128 only", 0, queries, s -> {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            HashAlgorithms.murmur3_128(b, 0, b.length, 0, h);
+            return (h[0] & 1) == 0;
+        });
+
+        for (String s : inserted) {
+            BloomFilter.add(s);
+        }
+        report("BloomFilter (static)", 4L << 20, queries, BloomFilter::contains);
+
+        AtomicBloomFilter atomic = new AtomicBloomFilter(N, FPP);
+        for (String s : inserted) {
+            atomic.put(s);
+        }
+        report("AtomicBloomFilter", atomic.bitSize() / 8, queries, atomic::mightContain);
+
+        CountingBloomFilter counting = new CountingBloomFilter(N, FPP);
+        for (String s : inserted) {
+            counting.put(s);
+        }
+        report("CountingBloomFilter", counting.counterCount() / 2, queries, counting::mightContain);
+
+        BlockedBloomFilter blocked = new BlockedBloomFilter(N, FPP);
+        for (String s : inserted) {
+            blocked.put(s);
+        }
+        report("BlockedBloomFilter", blocked.bitSize() / 8, queries, blocked::mightContain);
+
+        //删除偶数编号的一半，奇数编号的必须都还在
+        for (int i = 0; i < N; i += 2) {
+            if (!counting.remove(inserted[i])) {
+                throw new IllegalStateException("remove failed: " + inserted[i]);
+            }
+        }
+        int stillThere = 0;
+        for (int i = 0; i < N; i++) {
+            boolean present = counting.mightContain(inserted[i]);
+            if ((i & 1) == 1 && !present) {
+                throw new IllegalStateException("false negative after remove: " + inserted[i]);
+            }
+            if ((i & 1) == 0 && present) {
+                stillThere++;
+            }
+        }
+        System.out.printf("CountingBloomFilter after removing %d keys: no false negatives, %.4f of removed keys still match%n",
+                N / 2, (double) stillThere / (N / 2));
+    }
+
+    private static void report(String name, long bytes, String[] queries, Predicate<String> filter) {
+        long best = Long.MAX_VALUE;
+        int falsePositives = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            int positives = 0;
+            long start = System.nanoTime();
+            for (String q : queries) {
+                if (filter.test(q)) {
+                    positives++;
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            falsePositives = positives - queries.length / 2;
+        }
+        System.out.printf("%-22s %6.2f M contains/s  fpp %.4f  %6d KB%n",
+                name, queries.length * 1e3 / best, (double) falsePositives / (queries.length / 2), bytes >> 10);
+    }
+}
@@ -0,0 +1,128 @@
+package algorithm.hash.filter;
+
+import algorithm.hash.HashAlgorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Description:计数布隆过滤器，支持删除，线程安全
+ * 设计思路:
+ * 1.把AtomicBloomFilter的每一位换成4位计数器，一个long存16个，插入时k个计数器加1，删除时减1，
+ * 计数器都不为0就认为可能存在；同样的误判率下占用空间是普通布隆过滤器的4倍；
+ * 2.计数器加到15就不再变化(包括删除时也不减)，否则溢出或者减到0会造成漏报；
+ * 在最优大小下一个计数器超过15的概率极小(约1.37e-15*m)；
+ * 3.只能删除确实插入过的元素，删除没插入过的元素可能造成其他元素漏报，所以remove会先检查mightContain；
+ * 4.大小和哈希方式与AtomicBloomFilter相同，计数器用AtomicLongArray做CAS更新。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class CountingBloomFilter {
+    private static final long MAX_COUNT = 15;
+
+    private final AtomicLongArray counters;
+    private final long counterCount;
+    private final int numHashFunctions;
+
+    /**
+     * @param expectedInsertions 预计同时存在的元素数
+     * @param fpp                目标误判率，(0, 1)之间
+     */
+    public CountingBloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions should be more than 0.");
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp should be in (0, 1).");
+        }
+        long m = AtomicBloomFilter.optimalNumOfBits(expectedInsertions, fpp);
+        long words = (m + 15) >>> 4;
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("filter too large: " + m + " counters");
+        }
+        this.counters = new AtomicLongArray((int) words);
+        this.counterCount = words << 4;
+        this.numHashFunctions = AtomicBloomFilter.optimalNumOfHashFunctions(expectedInsertions, counterCount);
+    }
+
+    public void put(byte[] value) {
+        long[] h = hash(value);
+        long combined = h[0];
+        for (int i = 0; i < numHashFunctions; i++) {
+            add((combined & Long.MAX_VALUE) % counterCount, 1);
+            combined += h[1];
+        }
+    }
+
+    public void put(String value) {
+        put(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //删除一个插入过的元素，元素一定不在时返回false
+    public boolean remove(byte[] value) {
+        long[] h = hash(value);
+        if (!mightContain(h[0], h[1])) {
+            return false;
+        }
+        long combined = h[0];
+        for (int i = 0; i < numHashFunctions; i++) {
+            add((combined & Long.MAX_VALUE) % counterCount, -1);
+            combined += h[1];
+        }
+        return true;
+    }
+
+    public boolean remove(String value) {
+        return remove(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean mightContain(byte[] value) {
+        long[] h = hash(value);
+        return mightContain(h[0], h[1]);
+    }
+
+    public boolean mightContain(String value) {
+        return mightContain(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean mightContain(long h1, long h2) {
+        long combined = h1;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % counterCount;
+            if (((counters.get((int) (index >>> 4)) >>> ((index & 15) << 2)) & 0xfL) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    //计数器加delta(1或-1)，已经是15的不变
+    private void add(long index, int delta) {
+        int i = (int) (index >>> 4);
+        int shift = (int) (index & 15) << 2;
+        long old;
+        do {
+            old = counters.get(i);
+            long count = (old >>> shift) & 0xfL;
+            if (count == MAX_COUNT || (count == 0 && delta < 0)) {
+                return;
+            }
+        } while (!counters.compareAndSet(i, old, old + ((long) delta << shift)));
+    }
+
+    private static long[] hash(byte[] value) {
+        long[] h = new long[2];
+        HashAlgorithms.murmur3_128(value, 0, value.length, 0, h);
+        return h;
+    }
+
+    public long counterCount() {
+        return counterCount;
+    }
+
+    public int numHashFunctions() {
+        return numHashFunctions;
+    }
+}
@@ -0,0 +1,302 @@
+package algorithm.hash.filter;
+
+import algorithm.hash.HashAlgorithms;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Description:布谷鸟过滤器(Cuckoo Filter，Fan等人)，支持删除，非线程安全
+ * 设计思路:
+ * 1.每个元素只存一个f位的指纹，放在两个候选桶之一，每个桶4个槽；
+ * 两个候选桶满足 i1 + i2 ≡ hash(指纹) (mod 桶数)，所以只凭指纹和当前桶就能算出另一个桶，桶数不必是2的幂；
+ * 2.插入时两个桶都满了就在其中一个桶里随机踢出一个指纹，把它挪到它的另一个桶，最多踢MAX_KICKS次；
+ * 还放不下就把最后手里的指纹存进victim槽，victim被占用时过滤器算满，之后插入直接失败；
+ * 3.存储：指纹宽度f取8、16或32，槽按顺序紧凑地放在long[]里，一个桶在一个long里(f=32时是两个)；
+ * 查询时把指纹复制到每个槽的位置上异或，用SWAR判断有没有为0的槽，一个桶只需要一次比较；
+ * 4.误判率约为 2*4/2^f，载荷95%时每个元素占 f/0.95 位；误判率要求低于约0.3%时比同样误判率的布隆过滤器省空间；
+ * 5.删除只能删插入过的元素(和CountingBloomFilter一样)，同一个元素插入多次要删除多次；
+ * 6.toByteArray/fromByteArray用于快照。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class CuckooFilter {
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final double MAX_LOAD = 0.95;//按预计元素数确定桶数时的目标载荷
+    private static final int MAX_KICKS = 500;
+    private static final int MAGIC = 0x43554b31;//"CUK1"
+
+    private final long[] table;
+    private final int numBuckets;
+    private final int fingerprintBits;
+    private final int bucketBits;
+    private final long fingerprintMask;
+    private final long bucketMask;
+    private final long lo;//每个槽的最低位为1
+    private final long hi;//每个槽的最高位为1
+    private long count;
+
+    //victim槽：踢出失败时没放下的那个指纹
+    private boolean victimUsed;
+    private int victimIndex;
+    private long victimFingerprint;
+
+    /**
+     * @param expectedInsertions 预计同时存在的元素数
+     * @param fpp                目标误判率，决定指纹宽度
+     */
+    public CuckooFilter(long expectedInsertions, double fpp) {
+        this(fingerprintBitsFor(fpp), bucketsFor(expectedInsertions));
+    }
+
+    /**
+     * @param expectedInsertions 预计同时存在的元素数
+     * @param fingerprintBits    指纹宽度，8、16或32
+     */
+    public CuckooFilter(long expectedInsertions, int fingerprintBits) {
+        this(fingerprintBits, bucketsFor(expectedInsertions));
+    }
+
+    //按桶数构造(fromByteArray用)
+    private CuckooFilter(int fingerprintBits, int numBuckets) {
+        if (fingerprintBits != 8 && fingerprintBits != 16 && fingerprintBits != 32) {
+            throw new IllegalArgumentException("fingerprintBits should be 8, 16 or 32.");
+        }
+        this.numBuckets = numBuckets;
+        this.fingerprintBits = fingerprintBits;
+        this.bucketBits = fingerprintBits * SLOTS_PER_BUCKET;
+        this.fingerprintMask = (1L << fingerprintBits) - 1;
+        this.bucketMask = bucketBits == 64 ? -1L : (1L << bucketBits) - 1;
+        this.lo = Long.divideUnsigned(-1L, fingerprintMask);//0x0101...、0x00010001...、0x0000000100000001
+        this.hi = lo << (fingerprintBits - 1);
+        this.table = new long[(int) (((long) numBuckets * bucketBits + 63) >>> 6)];
+    }
+
+    private static int fingerprintBitsFor(double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp should be in (0, 1).");
+        }
+        double needed = Math.log(2.0 * SLOTS_PER_BUCKET / fpp) / Math.log(2);
+        return needed <= 8 ? 8 : needed <= 16 ? 16 : 32;
+    }
+
+    private static int bucketsFor(long expectedInsertions) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions should be more than 0.");
+        }
+        long buckets = Math.max(2, (long) Math.ceil(expectedInsertions / (SLOTS_PER_BUCKET * MAX_LOAD)));
+        if (buckets * SLOTS_PER_BUCKET * 32 / 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("filter too large: " + expectedInsertions + " insertions");
+        }
+        return (int) buckets;
+    }
+
+    //插入，过滤器满了返回false
+    public boolean put(byte[] value) {
+        if (victimUsed) {
+            return false;
+        }
+        long[] h = hash(value);
+        insert(index(h[0]), fingerprint(h[1]));
+        return true;
+    }
+
+    public boolean put(String value) {
+        return put(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //可能在集合中返回true，一定不在返回false
+    public boolean mightContain(byte[] value) {
+        long[] h = hash(value);
+        long fp = fingerprint(h[1]);
+        int i1 = index(h[0]);
+        int i2 = altIndex(i1, fp);
+        return bucketContains(i1, fp) || bucketContains(i2, fp)
+                || (victimUsed && victimFingerprint == fp && (victimIndex == i1 || victimIndex == i2));
+    }
+
+    public boolean mightContain(String value) {
+        return mightContain(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //删除一个插入过的元素，一定不在时返回false
+    public boolean remove(byte[] value) {
+        long[] h = hash(value);
+        long fp = fingerprint(h[1]);
+        int i1 = index(h[0]);
+        int i2 = altIndex(i1, fp);
+        if (victimUsed && victimFingerprint == fp && (victimIndex == i1 || victimIndex == i2)) {
+            victimUsed = false;
+            count--;
+            return true;
+        }
+        if (deleteFromBucket(i1, fp) || deleteFromBucket(i2, fp)) {
+            count--;
+            //腾出了一个槽，重新插入victim
+            if (victimUsed) {
+                victimUsed = false;
+                count--;
+                insert(victimIndex, victimFingerprint);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public boolean remove(String value) {
+        return remove(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //先试两个候选桶，都满了就从桶i开始踢，踢不动的指纹放进victim
+    private void insert(int i, long fp) {
+        if (insertIntoBucket(i, fp) || insertIntoBucket(altIndex(i, fp), fp)) {
+            count++;
+            return;
+        }
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        for (int n = 0; n < MAX_KICKS; n++) {
+            int slot = rand.nextInt(SLOTS_PER_BUCKET);
+            long kicked = getSlot(i, slot);
+            setSlot(i, slot, fp);
+            fp = kicked;
+            i = altIndex(i, fp);
+            if (insertIntoBucket(i, fp)) {
+                count++;
+                return;
+            }
+        }
+        victimUsed = true;
+        victimIndex = i;
+        victimFingerprint = fp;
+        count++;
+    }
+
+    private static long[] hash(byte[] value) {
+        long[] h = new long[2];
+        HashAlgorithms.murmur3_128(value, 0, value.length, 0, h);
+        return h;
+    }
+
+    //0表示空槽，指纹不能为0
+    private long fingerprint(long h2) {
+        long fp = h2 & fingerprintMask;
+        return fp == 0 ? 1 : fp;
+    }
+
+    //h1的高32位映射到[0, numBuckets)
+    private int index(long h1) {
+        return (int) (((h1 >>> 32) * numBuckets) >>> 32);
+    }
+
+    //i1 + i2 ≡ hash(fp) (mod numBuckets)，altIndex(altIndex(i, fp), fp) == i
+    private int altIndex(int i, long fp) {
+        int h = (int) ((((fp * 0x5bd1e995L) & 0xffffffffL) * numBuckets) >>> 32);
+        int alt = h - i;
+        return alt < 0 ? alt + numBuckets : alt;
+    }
+
+    private boolean bucketContains(int bucket, long fp) {
+        long pattern = fp * lo;
+        long start = (long) bucket * bucketBits;
+        int word = (int) (start >>> 6);
+        if (bucketBits == 128) {
+            return hasZeroLane(table[word] ^ pattern, -1L) || hasZeroLane(table[word + 1] ^ pattern, -1L);
+        }
+        return hasZeroLane((table[word] >>> (start & 63)) ^ pattern, bucketMask);
+    }
+
+    //x中有没有为0的槽(只看mask范围内的槽)
+    private boolean hasZeroLane(long x, long mask) {
+        return ((x - lo) & ~x & hi & mask) != 0;
+    }
+
+    private boolean insertIntoBucket(int bucket, long fp) {
+        for (int j = 0; j < SLOTS_PER_BUCKET; j++) {
+            if (getSlot(bucket, j) == 0) {
+                setSlot(bucket, j, fp);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean deleteFromBucket(int bucket, long fp) {
+        for (int j = 0; j < SLOTS_PER_BUCKET; j++) {
+            if (getSlot(bucket, j) == fp) {
+                setSlot(bucket, j, 0);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getSlot(int bucket, int slot) {
+        long bit = ((long) bucket * SLOTS_PER_BUCKET + slot) * fingerprintBits;
+        return (table[(int) (bit >>> 6)] >>> (bit & 63)) & fingerprintMask;
+    }
+
+    private void setSlot(int bucket, int slot, long fp) {
+        long bit = ((long) bucket * SLOTS_PER_BUCKET + slot) * fingerprintBits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        table[word] = (table[word] & ~(fingerprintMask << shift)) | (fp << shift);
+    }
+
+    /**
+     * 快照格式(大端)：
+     * int magic, byte 指纹宽度, int 桶数, long 元素数, byte victim是否占用, int victim桶, long victim指纹, long[] 表
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buf = ByteBuffer.allocate(4 + 1 + 4 + 8 + 1 + 4 + 8 + table.length * 8);
+        buf.putInt(MAGIC).put((byte) fingerprintBits).putInt(numBuckets).putLong(count)
+                .put((byte) (victimUsed ? 1 : 0)).putInt(victimIndex).putLong(victimFingerprint);
+        buf.asLongBuffer().put(table);
+        return buf.array();
+    }
+
+    public static CuckooFilter fromByteArray(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new IllegalArgumentException("not a cuckoo filter snapshot");
+            }
+            int fingerprintBits = buf.get();
+            int numBuckets = buf.getInt();
+            if (numBuckets < 1) {
+                throw new IllegalArgumentException("bad bucket count: " + numBuckets);
+            }
+            CuckooFilter filter = new CuckooFilter(fingerprintBits, numBuckets);
+            filter.count = buf.getLong();
+            filter.victimUsed = buf.get() != 0;
+            filter.victimIndex = buf.getInt();
+            filter.victimFingerprint = buf.getLong();
+            if (buf.remaining() != filter.table.length * 8) {
+                throw new IllegalArgumentException("snapshot length mismatch");
+            }
+            buf.asLongBuffer().get(filter.table);
+            return filter;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated cuckoo filter snapshot", e);
+        }
+    }
+
+    //元素数(包括victim)
+    public long size() {
+        return count;
+    }
+
+    public double loadFactor() {
+        return (double) count / ((long) numBuckets * SLOTS_PER_BUCKET);
+    }
+
+    public long bitSize() {
+        return (long) table.length * 64;
+    }
+
+    public int fingerprintBits() {
+        return fingerprintBits;
+    }
+}
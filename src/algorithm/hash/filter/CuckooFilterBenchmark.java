@@ -0,0 +1,96 @@
+package algorithm.hash.filter;
+
+import algorithm.hash.BloomFilter;
+
+import java.util.function.Predicate;
+
+/**
+ * Description:布谷鸟过滤器和布隆过滤器的误判率、空间和吞吐量对比
+ * 对8、16、32位指纹的CuckooFilter，各取一个同样目标误判率(2*4/2^f)的AtomicBloomFilter对比；
+ * 每组插入N个字符串，再查询N个插入过的和N个没插入过的，给出每个元素占的位数、实际误判率、插入和查询吞吐量，
+ * 布谷鸟过滤器另外给出删除吞吐量和快照大小。BloomFilter(algorithm.hash)是静态的固定大小，只测一次。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class CuckooFilterBenchmark {
+    private static final int N = 1_000_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        String[] inserted = new String[N];
+        String[] absent = new String[N];
+        for (int i = 0; i < N; i++) {
+            inserted[i] = "user:" + i + "@example.com";
+            absent[i] = "user:" + (N + i) + "@example.com";
+        }
+        System.out.printf("%-28s %10s %12s %10s %10s%n", "filter", "bits/item", "fpp", "put M/s", "test M/s");
+
+        long start = System.nanoTime();
+        for (String s : inserted) {
+            BloomFilter.add(s);
+        }
+        long putNanos = System.nanoTime() - start;
+        report("BloomFilter (static, 4MB)", 4L << 23, putNanos, inserted, absent, BloomFilter::contains);
+
+        for (int bits : new int[]{8, 16, 32}) {
+            double fpp = 8.0 / Math.pow(2, bits);
+
+            AtomicBloomFilter bloom = new AtomicBloomFilter(N, fpp);
+            start = System.nanoTime();
+            for (String s : inserted) {
+                bloom.put(s);
+            }
+            putNanos = System.nanoTime() - start;
+            report(String.format("AtomicBloomFilter p=%.1e", fpp), bloom.bitSize(), putNanos, inserted, absent, bloom::mightContain);
+
+            CuckooFilter cuckoo = new CuckooFilter(N, bits);
+            start = System.nanoTime();
+            for (String s : inserted) {
+                if (!cuckoo.put(s)) {
+                    throw new IllegalStateException("cuckoo filter full at " + cuckoo.size());
+                }
+            }
+            putNanos = System.nanoTime() - start;
+            report("CuckooFilter f=" + bits, cuckoo.bitSize(), putNanos, inserted, absent, cuckoo::mightContain);
+
+            //快照还原后删除全部元素
+            byte[] snapshot = cuckoo.toByteArray();
+            CuckooFilter restored = CuckooFilter.fromByteArray(snapshot);
+            start = System.nanoTime();
+            for (String s : inserted) {
+                if (!restored.remove(s)) {
+                    throw new IllegalStateException("remove failed: " + s);
+                }
+            }
+            long removeNanos = System.nanoTime() - start;
+            System.out.printf("%-28s load %.3f, snapshot %d KB, remove %.2f M/s, size after remove %d%n", "",
+                    cuckoo.loadFactor(), snapshot.length >> 10, N * 1e3 / removeNanos, restored.size());
+        }
+    }
+
+    private static void report(String name, long bits, long putNanos, String[] inserted, String[] absent,
+                               Predicate<String> filter) {
+        for (String s : inserted) {
+            if (!filter.test(s)) {
+                throw new IllegalStateException(name + ": false negative for " + s);
+            }
+        }
+        long best = Long.MAX_VALUE;
+        int falsePositives = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            falsePositives = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < absent.length; i++) {
+                filter.test(inserted[i]);
+                if (filter.test(absent[i])) {
+                    falsePositives++;
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %10.2f %12.2e %10.2f %10.2f%n", name, (double) bits / inserted.length,
+                (double) falsePositives / absent.length, inserted.length * 1e3 / putNanos,
+                2 * absent.length * 1e3 / best);
+    }
+}
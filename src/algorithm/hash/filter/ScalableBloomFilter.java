@@ -0,0 +1,158 @@
+package algorithm.hash.filter;
+
+import algorithm.hash.HashAlgorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description:可扩容的布隆过滤器(Scalable Bloom Filter，Almeida等人)
+ * 不需要事先知道元素个数：
+ * 1.由若干个AtomicBloomFilter分片组成，只往最后一个分片插入，分片装满(达到设计容量)时新建一个分片，
+ * 第i个分片的容量是第一个的2^i倍，误判率是第一个的(1/2)^i倍；
+ * 2.查询时任一分片命中就算命中，总误判率不超过 p0/(1-1/2) = 2*p0，所以第一个分片取目标误判率的一半；
+ * 3.128位哈希只算一次，各分片共用；
+ * 4.分片数组写时复制(copy-on-write)，读不加锁，只有新建分片时加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class ScalableBloomFilter {
+    private static final int GROWTH = 2;//每个分片的容量是上一个的几倍
+    private static final double TIGHTENING = 0.5;//每个分片的误判率是上一个的几倍
+
+    private static class Slice {
+        final AtomicBloomFilter filter;
+        final long capacity;
+        final double fpp;
+        final AtomicLong count = new AtomicLong();
+
+        Slice(long capacity, double fpp) {
+            this.filter = new AtomicBloomFilter(capacity, fpp);
+            this.capacity = capacity;
+            this.fpp = fpp;
+        }
+    }
+
+    private volatile Slice[] slices;
+
+    /**
+     * @param initialCapacity 第一个分片的容量
+     * @param fpp             总的目标误判率
+     */
+    public ScalableBloomFilter(long initialCapacity, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp should be in (0, 1).");
+        }
+        this.slices = new Slice[]{new Slice(initialCapacity, fpp * (1 - TIGHTENING))};
+    }
+
+    //插入，返回是否是新元素(false说明元素可能已经在里面了)
+    public boolean put(byte[] value) {
+        long[] h = new long[2];
+        HashAlgorithms.murmur3_128(value, 0, value.length, 0, h);
+        for (; ; ) {
+            Slice[] s = slices;
+            if (mightContain(s, h[0], h[1])) {
+                return false;
+            }
+            Slice last = s[s.length - 1];
+            if (last.count.get() >= last.capacity) {
+                grow(last);
+                continue;
+            }
+            last.filter.put(h[0], h[1]);
+            last.count.incrementAndGet();
+            return true;
+        }
+    }
+
+    public boolean put(String value) {
+        return put(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean mightContain(byte[] value) {
+        long[] h = new long[2];
+        HashAlgorithms.murmur3_128(value, 0, value.length, 0, h);
+        return mightContain(slices, h[0], h[1]);
+    }
+
+    public boolean mightContain(String value) {
+        return mightContain(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean mightContain(Slice[] s, long h1, long h2) {
+        //新的分片元素多，从后往前查
+        for (int i = s.length - 1; i >= 0; i--) {
+            if (s[i].filter.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //最后一个分片装满了，追加一个分片；别的线程已经追加过就什么都不做
+    private synchronized void grow(Slice full) {
+        Slice[] s = slices;
+        if (s[s.length - 1] != full) {
+            return;
+        }
+        Slice[] grown = Arrays.copyOf(s, s.length + 1);
+        grown[s.length] = new Slice(full.capacity * GROWTH, full.fpp * TIGHTENING);
+        slices = grown;
+    }
+
+    public int sliceCount() {
+        return slices.length;
+    }
+
+    //插入过的元素数(并发插入同一个新元素时可能多算)
+    public long approximateElementCount() {
+        long count = 0;
+        for (Slice s : slices) {
+            count += s.count.get();
+        }
+        return count;
+    }
+
+    public long bitSize() {
+        long size = 0;
+        for (Slice s : slices) {
+            size += s.filter.bitSize();
+        }
+        return size;
+    }
+
+    //测量实际误判率：插入n个元素，再查询n个没插入过的元素
+    public static void main(String[] args) {
+        int n = 1_000_000;
+        double fpp = 0.01;
+        AtomicBloomFilter fixed = new AtomicBloomFilter(n, fpp);
+        ScalableBloomFilter scalable = new ScalableBloomFilter(10_000, fpp);
+        for (int i = 0; i < n; i++) {
+            String key = "key-" + i;
+            fixed.put(key);
+            scalable.put(key);
+        }
+        int fixedFalse = 0, scalableFalse = 0;
+        for (int i = n; i < 2 * n; i++) {
+            String key = "key-" + i;
+            if (fixed.mightContain(key)) {
+                fixedFalse++;
+            }
+            if (scalable.mightContain(key)) {
+                scalableFalse++;
+            }
+        }
+        for (int i = 0; i < n; i += 997) {
+            if (!fixed.mightContain("key-" + i) || !scalable.mightContain("key-" + i)) {
+                throw new IllegalStateException("false negative for key-" + i);
+            }
+        }
+        System.out.printf("AtomicBloomFilter:   %d bits, k=%d, measured fpp %.4f (target %.4f)%n",
+                fixed.bitSize(), fixed.numHashFunctions(), (double) fixedFalse / n, fpp);
+        System.out.printf("ScalableBloomFilter: %d bits, %d slices, measured fpp %.4f (bound %.4f)%n",
+                scalable.bitSize(), scalable.sliceCount(), (double) scalableFalse / n, fpp);
+    }
+}
@@ -0,0 +1,367 @@
+package algorithm.hash.routing;
+
+import algorithm.hash.HashAlgorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description:带权重和虚拟节点的一致性哈希环，取代ConsistentHashingWithVirtualNode
+ * 设计思路:
+ * 1.环上的位置是64位murmur3哈希，节点的每个权重单位对应virtualNodesPerWeight个虚拟节点，
+ * 第i个虚拟节点的位置是 hash(节点名 + "#" + i)；
+ * 2.所有虚拟节点的位置排序后存成long[]，对应的节点下标存成int[]，查找时二分找第一个>=键哈希的位置，
+ * 超过最后一个就回到第0个(环绕)；查找不分配对象，也不用装箱的TreeMap；
+ * 3.成员变化(增删节点、改权重)加锁，重新生成一个不可变的Snapshot后用volatile发布(copy-on-write)，
+ * 路由只读当前Snapshot，不加锁；需要一批键路由一致时可以先取snapshot()再用它路由；
+ * 4.每次成员变化返回RebalanceStats：按哈希空间精确计算(不是抽样)有多少比例的键换了节点，以及各节点的负载均衡情况。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class ConsistentHashRing<N> implements NodeRouter<N> {
+    public static final int DEFAULT_VIRTUAL_NODES_PER_WEIGHT = 160;
+
+    private final int virtualNodesPerWeight;
+    private final Map<N, Integer> weights = new LinkedHashMap<>();
+    private final Map<N, long[]> points = new LinkedHashMap<>();//每个节点的虚拟节点位置，改权重时复用
+    private volatile Snapshot<N> snapshot = new Snapshot<>(new long[0], new int[0], new Object[0], new int[0]);
+
+    public ConsistentHashRing() {
+        this(DEFAULT_VIRTUAL_NODES_PER_WEIGHT);
+    }
+
+    public ConsistentHashRing(int virtualNodesPerWeight) {
+        if (virtualNodesPerWeight < 1) {
+            throw new IllegalArgumentException("virtualNodesPerWeight should be more than 0.");
+        }
+        this.virtualNodesPerWeight = virtualNodesPerWeight;
+    }
+
+    /**
+     * 不可变的环，路由只读它
+     */
+    public static final class Snapshot<N> implements NodeRouter<N> {
+        private final long[] ring;//排序后的虚拟节点位置
+        private final int[] owners;//ring[i]所属节点在nodes中的下标
+        private final Object[] nodes;
+        private final int[] weights;
+
+        private Snapshot(long[] ring, int[] owners, Object[] nodes, int[] weights) {
+            this.ring = ring;
+            this.owners = owners;
+            this.nodes = nodes;
+            this.weights = weights;
+        }
+
+        @Override
+        public N route(long keyHash) {
+            int i = ownerIndex(keyHash);
+            return i < 0 ? null : node(i);
+        }
+
+        //顺时针第一个位置>=keyHash的虚拟节点所属的节点下标
+        private int ownerIndex(long keyHash) {
+            long[] r = ring;
+            if (r.length == 0) {
+                return -1;
+            }
+            int low = 0, high = r.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (r[mid] < keyHash) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return owners[low == r.length ? 0 : low];
+        }
+
+        @SuppressWarnings("unchecked")
+        private N node(int i) {
+            return (N) nodes[i];
+        }
+
+        public int nodeCount() {
+            return nodes.length;
+        }
+
+        public int virtualNodeCount() {
+            return ring.length;
+        }
+
+        @Override
+        public List<N> nodes() {
+            List<N> list = new ArrayList<>(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                list.add(node(i));
+            }
+            return Collections.unmodifiableList(list);
+        }
+
+        //每个节点占哈希空间的比例(即均匀分布的键落到它上面的比例)，下标和nodes()一致
+        double[] shares() {
+            double[] shares = new double[nodes.length];
+            long[] r = ring;
+            for (int i = 0; i < r.length; i++) {
+                //ring[i]负责(ring[i-1], ring[i]]，第0个负责从最后一个绕回来的一段；按无符号数算弧长
+                long arc = r[i] - r[i == 0 ? r.length - 1 : i - 1];
+                shares[owners[i]] += r.length == 1 ? 1.0 : unsignedToDouble(arc) / TWO_64;
+            }
+            return shares;
+        }
+    }
+
+    private static final double TWO_64 = 18446744073709551616.0;
+
+    private static double unsignedToDouble(long v) {
+        double d = (double) (v >>> 1) * 2;
+        return d + (v & 1);
+    }
+
+    static long hash(byte[] key) {
+        long[] h = new long[2];
+        HashAlgorithms.murmur3_128(key, 0, key.length, 0, h);
+        return h[0];
+    }
+
+    /**
+     * 加入节点，已经存在时改成新的权重
+     *
+     * @param weight 权重，虚拟节点数 = weight * virtualNodesPerWeight
+     */
+    public synchronized RebalanceStats<N> addNode(N node, int weight) {
+        if (node == null) {
+            throw new IllegalArgumentException("node should not be null.");
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight should be more than 0.");
+        }
+        weights.put(node, weight);
+        long[] p = points.get(node);
+        int count = weight * virtualNodesPerWeight;
+        if (p == null || p.length < count) {
+            p = virtualNodePoints(node, count);
+            points.put(node, p);
+        }
+        return publish();
+    }
+
+    public RebalanceStats<N> addNode(N node) {
+        return addNode(node, 1);
+    }
+
+    //删除节点，不存在时返回null
+    public synchronized RebalanceStats<N> removeNode(N node) {
+        if (weights.remove(node) == null) {
+            return null;
+        }
+        points.remove(node);
+        return publish();
+    }
+
+    private long[] virtualNodePoints(N node, int count) {
+        long[] p = new long[count];
+        String name = String.valueOf(node);
+        for (int i = 0; i < count; i++) {
+            p[i] = hash((name + "#" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return p;
+    }
+
+    //按当前成员重新生成环并发布，返回和旧环相比的统计
+    private RebalanceStats<N> publish() {
+        Object[] nodes = weights.keySet().toArray();
+        int[] w = new int[nodes.length];
+        int total = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            w[i] = weights.get(nodes[i]);
+            total += w[i] * virtualNodesPerWeight;
+        }
+        //虚拟节点位置和节点下标打包排序：先按位置排，位置相同(几乎不可能)按节点下标
+        long[] pos = new long[total];
+        int[] own = new int[total];
+        Integer[] order = new Integer[total];
+        int k = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            long[] p = points.get(nodes[i]);
+            for (int j = 0; j < w[i] * virtualNodesPerWeight; j++) {
+                pos[k] = p[j];
+                own[k] = i;
+                order[k] = k;
+                k++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> pos[a] != pos[b] ? Long.compare(pos[a], pos[b]) : Integer.compare(own[a], own[b]));
+        long[] ring = new long[total];
+        int[] owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            ring[i] = pos[order[i]];
+            owners[i] = own[order[i]];
+        }
+        Snapshot<N> before = snapshot;
+        Snapshot<N> after = new Snapshot<>(ring, owners, nodes, w);
+        snapshot = after;
+        return RebalanceStats.compare(before, after);
+    }
+
+    @Override
+    public N route(long keyHash) {
+        return snapshot.route(keyHash);
+    }
+
+    @Override
+    public List<N> nodes() {
+        return snapshot.nodes();
+    }
+
+    public Snapshot<N> snapshot() {
+        return snapshot;
+    }
+
+    public int size() {
+        return snapshot.nodeCount();
+    }
+
+    //当前的负载均衡情况
+    public RebalanceStats<N> stats() {
+        Snapshot<N> s = snapshot;
+        return RebalanceStats.compare(s, s);
+    }
+
+    /**
+     * 成员变化前后的统计
+     */
+    public static final class RebalanceStats<N> {
+        private final double movedFraction;
+        private final Map<N, Double> shares;
+        private final double maxLoadRatio;
+        private final double loadStdDev;
+
+        private RebalanceStats(double movedFraction, Map<N, Double> shares, double maxLoadRatio, double loadStdDev) {
+            this.movedFraction = movedFraction;
+            this.shares = shares;
+            this.maxLoadRatio = maxLoadRatio;
+            this.loadStdDev = loadStdDev;
+        }
+
+        static <N> RebalanceStats<N> compare(Snapshot<N> before, Snapshot<N> after) {
+            double[] s = after.shares();
+            int totalWeight = 0;
+            for (int w : after.weights) {
+                totalWeight += w;
+            }
+            Map<N, Double> shares = new LinkedHashMap<>();
+            double max = 0, sumSq = 0;
+            for (int i = 0; i < s.length; i++) {
+                shares.put(after.node(i), s[i]);
+                //负载比 = 实际比例 / 按权重应得的比例，1表示完全均衡
+                double ratio = s[i] / ((double) after.weights[i] / totalWeight);
+                max = Math.max(max, ratio);
+                sumSq += (ratio - 1) * (ratio - 1);
+            }
+            double stdDev = s.length == 0 ? 0 : Math.sqrt(sumSq / s.length);
+            return new RebalanceStats<>(movedFraction(before, after), Collections.unmodifiableMap(shares), max, stdDev);
+        }
+
+        //两个环上换了节点的哈希空间比例：把两个环的位置合并，逐段比较两边的归属
+        private static <N> double movedFraction(Snapshot<N> before, Snapshot<N> after) {
+            if (before == after) {
+                return 0;
+            }
+            if (before.ring.length == 0 || after.ring.length == 0) {
+                return before.ring.length == after.ring.length ? 0 : 1;
+            }
+            long[] merged = new long[before.ring.length + after.ring.length];
+            System.arraycopy(before.ring, 0, merged, 0, before.ring.length);
+            System.arraycopy(after.ring, 0, merged, before.ring.length, after.ring.length);
+            Arrays.sort(merged);
+            double moved = 0;
+            for (int i = 0; i < merged.length; i++) {
+                long end = merged[i];
+                long start = merged[i == 0 ? merged.length - 1 : i - 1];
+                if (i > 0 && start == end) {
+                    continue;
+                }
+                //(start, end]这一段在两个环上都归end之后第一个位置的节点
+                N from = before.node(before.ownerIndex(end));
+                N to = after.node(after.ownerIndex(end));
+                if (!from.equals(to)) {
+                    moved += merged.length == 1 ? 1.0 : unsignedToDouble(end - start) / TWO_64;
+                }
+            }
+            return moved;
+        }
+
+        //换了节点的键的比例
+        public double movedFraction() {
+            return movedFraction;
+        }
+
+        //各节点占的键比例
+        public Map<N, Double> shares() {
+            return shares;
+        }
+
+        //负载最重的节点的负载比(实际比例/按权重应得的比例)
+        public double maxLoadRatio() {
+            return maxLoadRatio;
+        }
+
+        //负载比的标准差
+        public double loadStdDev() {
+            return loadStdDev;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("moved %.2f%% of keys, %d nodes, max load %.3fx, load stddev %.3f",
+                    movedFraction * 100, shares.size(), maxLoadRatio, loadStdDev);
+        }
+    }
+
+    public static void main(String[] args) {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+        for (int i = 0; i < 10; i++) {
+            System.out.println("add node-" + i + ": " + ring.addNode("node-" + i));
+        }
+        System.out.println("add node-10:          " + ring.addNode("node-10") + " (ideal 1/11 = 9.09%)");
+        System.out.println("remove node-3:        " + ring.removeNode("node-3") + " (ideal 1/11 = 9.09%)");
+        System.out.println("node-0 weight 1 -> 3: " + ring.addNode("node-0", 3) + " (ideal 2/12 = 16.67%)");
+
+        //抽样验证：移除一个节点后只有原来在它上面的键换了节点
+        Snapshot<String> before = ring.snapshot();
+        RebalanceStats<String> stats = ring.removeNode("node-7");
+        int samples = 1_000_000, moved = 0;
+        for (int i = 0; i < samples; i++) {
+            String key = "key-" + i;
+            String from = before.route(key);
+            String to = ring.route(key);
+            if (!from.equals(to)) {
+                moved++;
+                if (!from.equals("node-7")) {
+                    throw new IllegalStateException(key + " moved from " + from + " to " + to);
+                }
+            }
+        }
+        System.out.printf("remove node-7: exact moved %.4f, sampled moved %.4f%n",
+                stats.movedFraction(), (double) moved / samples);
+        System.out.printf("max load with 160 vs 5 virtual nodes per weight: %.3fx vs %.3fx%n",
+                ring.stats().maxLoadRatio(), fiveVirtualNodes().maxLoadRatio());
+    }
+
+    //旧实现每个节点只有5个虚拟节点时的负载均衡
+    private static RebalanceStats<String> fiveVirtualNodes() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(5);
+        for (int i = 0; i < 10; i++) {
+            ring.addNode("node-" + i);
+        }
+        return ring.stats();
+    }
+}
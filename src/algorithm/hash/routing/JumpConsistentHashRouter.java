@@ -0,0 +1,97 @@
+package algorithm.hash.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Description:跳跃一致性哈希(Jump Consistent Hash，Lamping和Veach)
+ * 设计思路:
+ * 1.jumpConsistentHash(key, n)不需要任何存储，O(log n)算出键所在的桶[0, n)；桶数从n变成n+1时，
+ * 只有1/(n+1)的键移动，而且都移到新桶里；
+ * 2.桶只能在末尾增删，所以节点按桶号存成数组，权重为w的节点占w个桶；
+ * 3.加节点追加在末尾，移动最少；删除节点时把末尾的桶挪到空出来的位置上，
+ * 这样除了被删节点的键，原来在末尾那几个桶的键也要移动，大约是最少移动量的两倍；
+ * 4.桶数组写时复制，路由不加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class JumpConsistentHashRouter<N> implements NodeRouter<N> {
+    private volatile Object[] buckets = new Object[0];
+
+    /**
+     * 键映射到[0, buckets)中的桶
+     */
+    public static int jumpConsistentHash(long key, int buckets) {
+        long b = -1, j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public N route(long keyHash) {
+        Object[] b = buckets;
+        return b.length == 0 ? null : (N) b[jumpConsistentHash(keyHash, b.length)];
+    }
+
+    //加入节点，占weight个桶；已经存在时先删除再加入
+    public synchronized void addNode(N node, int weight) {
+        if (node == null) {
+            throw new IllegalArgumentException("node should not be null.");
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight should be more than 0.");
+        }
+        removeNode(node);
+        Object[] b = Arrays.copyOf(buckets, buckets.length + weight);
+        Arrays.fill(b, buckets.length, b.length, node);
+        buckets = b;
+    }
+
+    public void addNode(N node) {
+        addNode(node, 1);
+    }
+
+    //删除节点，末尾的桶补到它的位置上；不存在时返回false
+    public synchronized boolean removeNode(N node) {
+        Object[] b = buckets.clone();
+        int size = b.length;
+        for (int i = 0; i < size; i++) {
+            if (node.equals(b[i])) {
+                //从末尾找一个不是node的桶补上
+                while (size > i + 1 && node.equals(b[size - 1])) {
+                    size--;
+                }
+                b[i] = b[size - 1];
+                size--;
+            }
+        }
+        if (size == b.length) {
+            return false;
+        }
+        buckets = Arrays.copyOf(b, size);
+        return true;
+    }
+
+    public int bucketCount() {
+        return buckets.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<N> nodes() {
+        LinkedHashSet<N> set = new LinkedHashSet<>();
+        for (Object o : buckets) {
+            set.add((N) o);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(set));
+    }
+}
@@ -0,0 +1,30 @@
+package algorithm.hash.routing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Description:把键路由到节点的策略
+ * 实现：ConsistentHashRing(一致性哈希环)、JumpConsistentHashRouter(跳跃一致性哈希)、
+ * RendezvousRouter(最高随机权重哈希)、SkeletonRendezvousRouter(分层的最高随机权重哈希)。
+ * 键先用64位murmur3哈希，各实现只处理64位哈希值；成员管理(增删节点、权重)的语义各不相同，由各实现自己提供。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public interface NodeRouter<N> {
+
+    //按64位键哈希路由，没有节点时返回null
+    N route(long keyHash);
+
+    default N route(byte[] key) {
+        return route(ConsistentHashRing.hash(key));
+    }
+
+    default N route(String key) {
+        return route(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //当前的节点
+    List<N> nodes();
+}
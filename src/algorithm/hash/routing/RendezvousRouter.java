@@ -0,0 +1,157 @@
+package algorithm.hash.routing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description:最高随机权重哈希(Rendezvous / HRW hashing，Thaler和Ravishankar)
+ * 设计思路:
+ * 1.每个节点有一个种子(节点名的哈希)，键对每个节点算一个分数 mix(键哈希 ^ 种子)，选分数最高的节点；
+ * 2.加一个节点只有分数最高变成新节点的那部分键移动(1/(n+1))，删一个节点只有它上面的键移动，都是最少的；
+ * 3.带权重时分数取 -w/ln(u)，u是(0, 1)中的均匀随机数(Schindelhauer和Schomaker的加权方式)，
+ * 节点被选中的概率正好和权重成正比；
+ * 4.每次查找要算n个分数，O(n)，节点多时用SkeletonRendezvousRouter；
+ * 5.节点数组写时复制，路由不加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class RendezvousRouter<N> implements NodeRouter<N> {
+
+    private static final class State {
+        final Object[] nodes;
+        final long[] seeds;
+        final int[] weights;
+        final boolean weighted;//有权重不为1的节点
+
+        State(Object[] nodes, long[] seeds, int[] weights) {
+            this.nodes = nodes;
+            this.seeds = seeds;
+            this.weights = weights;
+            boolean w = false;
+            for (int weight : weights) {
+                w |= weight != 1;
+            }
+            this.weighted = w;
+        }
+    }
+
+    private volatile State state = new State(new Object[0], new long[0], new int[0]);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public N route(long keyHash) {
+        State s = state;
+        int best = -1;
+        if (!s.weighted) {
+            long bestScore = Long.MIN_VALUE;
+            for (int i = 0; i < s.seeds.length; i++) {
+                long score = mix(keyHash ^ s.seeds[i]);
+                if (best < 0 || score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+        } else {
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < s.seeds.length; i++) {
+                double score = weightedScore(mix(keyHash ^ s.seeds[i]), s.weights[i]);
+                if (best < 0 || score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+        }
+        return best < 0 ? null : (N) s.nodes[best];
+    }
+
+    //加入节点，已经存在时改成新的权重
+    public synchronized void addNode(N node, int weight) {
+        if (node == null) {
+            throw new IllegalArgumentException("node should not be null.");
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight should be more than 0.");
+        }
+        State s = state;
+        int i = indexOf(s, node);
+        if (i >= 0) {
+            int[] weights = s.weights.clone();
+            weights[i] = weight;
+            state = new State(s.nodes, s.seeds, weights);
+            return;
+        }
+        int n = s.nodes.length;
+        Object[] nodes = Arrays.copyOf(s.nodes, n + 1);
+        long[] seeds = Arrays.copyOf(s.seeds, n + 1);
+        int[] weights = Arrays.copyOf(s.weights, n + 1);
+        nodes[n] = node;
+        seeds[n] = seedOf(node);
+        weights[n] = weight;
+        state = new State(nodes, seeds, weights);
+    }
+
+    public void addNode(N node) {
+        addNode(node, 1);
+    }
+
+    //删除节点，不存在时返回false
+    public synchronized boolean removeNode(N node) {
+        State s = state;
+        int i = indexOf(s, node);
+        if (i < 0) {
+            return false;
+        }
+        int n = s.nodes.length;
+        Object[] nodes = new Object[n - 1];
+        long[] seeds = new long[n - 1];
+        int[] weights = new int[n - 1];
+        System.arraycopy(s.nodes, 0, nodes, 0, i);
+        System.arraycopy(s.nodes, i + 1, nodes, i, n - i - 1);
+        System.arraycopy(s.seeds, 0, seeds, 0, i);
+        System.arraycopy(s.seeds, i + 1, seeds, i, n - i - 1);
+        System.arraycopy(s.weights, 0, weights, 0, i);
+        System.arraycopy(s.weights, i + 1, weights, i, n - i - 1);
+        state = new State(nodes, seeds, weights);
+        return true;
+    }
+
+    private static int indexOf(State s, Object node) {
+        for (int i = 0; i < s.nodes.length; i++) {
+            if (s.nodes[i].equals(node)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static long seedOf(Object node) {
+        return ConsistentHashRing.hash(String.valueOf(node).getBytes(StandardCharsets.UTF_8));
+    }
+
+    //splitmix64的最后一步，把键哈希和种子混合成分数
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    //加权分数 -w/ln(u)，u取h的高53位，落在(0, 1)之间
+    static double weightedScore(long h, int weight) {
+        double u = ((h >>> 11) + 0.5) * 0x1.0p-53;
+        return -weight / Math.log(u);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<N> nodes() {
+        List<N> list = new ArrayList<>();
+        for (Object o : state.nodes) {
+            list.add((N) o);
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
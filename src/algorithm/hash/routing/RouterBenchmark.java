@@ -0,0 +1,106 @@
+package algorithm.hash.routing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Description:四种路由策略在10/100/1000个节点下的对比
+ * 1.查找延迟：预先生成的随机64位键哈希，每次查找的平均纳秒数(多轮取最快)；
+ * 2.路由表大小：按数组元素估算的字节数(对象引用按压缩指针4字节算)；
+ * 3.负载均衡：LOAD_KEYS个键在各节点上的个数的变异系数(标准差/平均值)和最大值/平均值，
+ * 抽样本身带来的变异系数约为 1/sqrt(平均值)，一并列出；
+ * 4.加一个节点、再删掉第0个节点时换了节点的键的比例，理想值分别是1/(n+1)和1/n。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class RouterBenchmark {
+    private static final int LOOKUP_KEYS = 200_000;
+    private static final int LOAD_KEYS = 1_000_000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        long[] keys = new long[LOAD_KEYS];
+        SplittableRandom rand = new SplittableRandom(42);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = rand.nextLong();
+        }
+        for (int n : new int[]{10, 100, 1000}) {
+            System.out.printf("%n%d nodes (sampling floor for load cv %.3f, ideal moved on add %.4f, on remove %.4f)%n",
+                    n, Math.sqrt((double) n / LOAD_KEYS), 1.0 / (n + 1), 1.0 / n);
+            System.out.printf("%-26s %10s %12s %8s %9s %10s %10s%n",
+                    "router", "ns/lookup", "table bytes", "load cv", "max/mean", "moved add", "moved rm");
+
+            ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+            JumpConsistentHashRouter<String> jump = new JumpConsistentHashRouter<>();
+            RendezvousRouter<String> hrw = new RendezvousRouter<>();
+            SkeletonRendezvousRouter<String> skeleton = new SkeletonRendezvousRouter<>();
+            for (int i = 0; i < n; i++) {
+                ring.addNode("node-" + i);
+                jump.addNode("node-" + i);
+                hrw.addNode("node-" + i);
+                skeleton.addNode("node-" + i);
+            }
+
+            run("ConsistentHashRing(160)", ring, ring.snapshot().virtualNodeCount() * 12L, keys, n,
+                    () -> ring.addNode("node-" + n), () -> ring.removeNode("node-" + n), () -> ring.removeNode("node-0"));
+            run("JumpConsistentHash", jump, jump.bucketCount() * 4L, keys, n,
+                    () -> jump.addNode("node-" + n), () -> jump.removeNode("node-" + n), () -> jump.removeNode("node-0"));
+            run("Rendezvous", hrw, n * 16L, keys, n,
+                    () -> hrw.addNode("node-" + n), () -> hrw.removeNode("node-" + n), () -> hrw.removeNode("node-0"));
+            //槽(引用4字节 + 权重4字节)加上内部节点的权重
+            run("SkeletonRendezvous", skeleton, skeleton.capacity() * 8L + skeleton.capacity() * 4L / 7, keys, n,
+                    () -> skeleton.addNode("node-" + n), () -> skeleton.removeNode("node-" + n),
+                    () -> skeleton.removeNode("node-0"));
+        }
+    }
+
+    private static void run(String name, NodeRouter<String> router, long tableBytes, long[] keys, int n,
+                            Runnable add, Runnable undoAdd, Runnable remove) {
+        //查找延迟
+        long best = Long.MAX_VALUE;
+        int sink = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUP_KEYS; i++) {
+                sink += router.route(keys[i]).length();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        //负载均衡
+        Map<String, int[]> load = new HashMap<>();
+        String[] before = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            before[i] = router.route(keys[i]);
+            load.computeIfAbsent(before[i], k -> new int[1])[0]++;
+        }
+        double mean = (double) keys.length / n, sumSq = 0, max = 0;
+        for (int i = 0; i < n; i++) {
+            int[] c = load.get("node-" + i);
+            int count = c == null ? 0 : c[0];
+            sumSq += (count - mean) * (count - mean);
+            max = Math.max(max, count);
+        }
+
+        add.run();
+        double movedAdd = moved(router, keys, before);
+        undoAdd.run();
+        remove.run();
+        double movedRemove = moved(router, keys, before);
+
+        System.out.printf("%-26s %10.1f %12d %8.3f %9.3f %10.4f %10.4f%s%n", name, (double) best / LOOKUP_KEYS,
+                tableBytes, Math.sqrt(sumSq / n) / mean, max / mean, movedAdd, movedRemove, sink == 42 ? " " : "");
+    }
+
+    private static double moved(NodeRouter<String> router, long[] keys, String[] before) {
+        int moved = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (!router.route(keys[i]).equals(before[i])) {
+                moved++;
+            }
+        }
+        return (double) moved / keys.length;
+    }
+}
@@ -0,0 +1,197 @@
+package algorithm.hash.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description:分层的最高随机权重哈希(Skeleton-based rendezvous hashing，Wang和Ravindran)，查找O(log n)
+ * 设计思路:
+ * 1.节点放在一棵FANOUT叉的完全树的叶子(槽)上，每个内部节点记录子树里的总权重；
+ * 2.查找从根开始，每层在有节点的子树中做一次加权HRW(权重就是子树的总权重)，选中的子树再往下，
+ * 一共 FANOUT*log(n) 次打分，节点被选中的概率仍然和权重成正比；孩子权重都相同(满的子树)时直接比较哈希，不算对数；
+ * 3.子树的种子由(高度, 下标)决定，树长高一层时原来的树整体变成新根的第0棵子树，高度和下标都不变，
+ * 所以长高不会让键移动；
+ * 4.加节点优先填删除留下的空槽，没有空槽就往后加，槽用完了树长高一层；
+ * 加节点时会有键移进新节点所在的子树，再在子树里重新选择，所以移动量比RendezvousRouter多一些
+ * (约为最少移动量的2~3倍，见RouterBenchmark)；
+ * 5.树写时复制，路由不加锁。
+ *
+ * @author: matreeix
+ * @date: 2026/10/17
+ */
+public class SkeletonRendezvousRouter<N> implements NodeRouter<N> {
+    private static final int FANOUT = 8;
+
+    private static final class State {
+        final int depth;
+        final Object[] slots;//叶子，null是空槽
+        final int[][] weights;//weights[level][i]：第level层第i棵子树的总权重，weights[depth]是各槽的权重
+        final boolean[][] uniform;//uniform[level][i]：第level层第i棵子树的非空孩子权重都相同
+
+        State(int depth, Object[] slots, int[] slotWeights) {
+            this.depth = depth;
+            this.slots = slots;
+            this.weights = new int[depth + 1][];
+            this.uniform = new boolean[depth][];
+            weights[depth] = slotWeights;
+            for (int level = depth - 1; level >= 0; level--) {
+                int[] children = weights[level + 1];
+                int[] w = new int[children.length / FANOUT];
+                boolean[] u = new boolean[w.length];
+                Arrays.fill(u, true);
+                int[] first = new int[w.length];
+                for (int i = 0; i < children.length; i++) {
+                    int parent = i / FANOUT;
+                    if (children[i] != 0) {
+                        if (first[parent] == 0) {
+                            first[parent] = children[i];
+                        } else if (first[parent] != children[i]) {
+                            u[parent] = false;
+                        }
+                    }
+                    w[parent] += children[i];
+                }
+                weights[level] = w;
+                uniform[level] = u;
+            }
+        }
+    }
+
+    private volatile State state = new State(1, new Object[FANOUT], new int[FANOUT]);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public N route(long keyHash) {
+        State s = state;
+        if (s.weights[0][0] == 0) {
+            return null;
+        }
+        int index = 0;
+        for (int level = 1; level <= s.depth; level++) {
+            int[] w = s.weights[level];
+            long height = s.depth - level;
+            int base = index * FANOUT;
+            int best = -1;
+            if (s.uniform[level - 1][index]) {
+                //非空孩子权重相同时 -w/ln(u) 和哈希值单调一致，直接比较哈希，不用算对数
+                long bestScore = Long.MIN_VALUE;
+                for (int j = base; j < base + FANOUT; j++) {
+                    if (w[j] == 0) {
+                        continue;
+                    }
+                    long score = RendezvousRouter.mix(keyHash ^ seed(height, j)) >>> 11;
+                    if (best < 0 || score > bestScore) {
+                        bestScore = score;
+                        best = j;
+                    }
+                }
+            } else {
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (int j = base; j < base + FANOUT; j++) {
+                    if (w[j] == 0) {
+                        continue;
+                    }
+                    double score = RendezvousRouter.weightedScore(RendezvousRouter.mix(keyHash ^ seed(height, j)), w[j]);
+                    if (best < 0 || score > bestScore) {
+                        bestScore = score;
+                        best = j;
+                    }
+                }
+            }
+            index = best;
+        }
+        return (N) s.slots[index];
+    }
+
+    //子树的种子只由高度和下标决定
+    private static long seed(long height, int index) {
+        return ((height << 32) | index) * 0x9e3779b97f4a7c15L;
+    }
+
+    //加入节点，已经存在时改成新的权重
+    public synchronized void addNode(N node, int weight) {
+        if (node == null) {
+            throw new IllegalArgumentException("node should not be null.");
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight should be more than 0.");
+        }
+        State s = state;
+        int depth = s.depth;
+        Object[] slots = s.slots;
+        int[] slotWeights = s.weights[depth];
+        int slot = indexOf(slots, node);
+        if (slot < 0) {
+            slot = indexOf(slots, null);
+        }
+        if (slot < 0) {
+            //槽用完了，树长高一层，原来的树是第0棵子树
+            slot = slots.length;
+            depth++;
+        }
+        slots = Arrays.copyOf(slots, pow(depth));
+        slotWeights = Arrays.copyOf(slotWeights, slots.length);
+        slots[slot] = node;
+        slotWeights[slot] = weight;
+        state = new State(depth, slots, slotWeights);
+    }
+
+    public void addNode(N node) {
+        addNode(node, 1);
+    }
+
+    //删除节点，留下空槽；不存在时返回false
+    public synchronized boolean removeNode(N node) {
+        State s = state;
+        int slot = indexOf(s.slots, node);
+        if (slot < 0) {
+            return false;
+        }
+        Object[] slots = s.slots.clone();
+        int[] slotWeights = s.weights[s.depth].clone();
+        slots[slot] = null;
+        slotWeights[slot] = 0;
+        state = new State(s.depth, slots, slotWeights);
+        return true;
+    }
+
+    private static int indexOf(Object[] slots, Object node) {
+        for (int i = 0; i < slots.length; i++) {
+            if (node == null ? slots[i] == null : node.equals(slots[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int pow(int depth) {
+        int n = 1;
+        for (int i = 0; i < depth; i++) {
+            n *= FANOUT;
+        }
+        return n;
+    }
+
+    //叶子(槽)的个数
+    public int capacity() {
+        return state.slots.length;
+    }
+
+    public int depth() {
+        return state.depth;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<N> nodes() {
+        List<N> list = new ArrayList<>();
+        for (Object o : state.slots) {
+            if (o != null) {
+                list.add((N) o);
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
@@ -0,0 +1,429 @@
+package data_structure.tree.multiway_tree.BpTree.bench;
+
+import data_structure.tree.multiway_tree.BpTree.bptree.BPlusConfiguration;
+import data_structure.tree.multiway_tree.BpTree.bptree.BPlusTree;
+import data_structure.tree.multiway_tree.BpTree.bptree.BPlusTreePerformanceCounter;
+import data_structure.tree.multiway_tree.BpTree.bptree.KeyValueWrapper;
+import data_structure.tree.multiway_tree.BpTree.util.InvalidBTreeStateException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * Benchmark suite for the B+ Tree engine, which times insertKey, searchKey,
+ * rangeSearch and deleteKey over a matrix of page sizes, unique or
+ * duplicate keys and uniform or zipfian key distributions.
+ *
+ * Each benchmark runs a number of warmup iterations followed by the
+ * measured ones; every iteration starts from a freshly (bulk) loaded tree
+ * so that the operations which modify the tree do not affect the next
+ * iteration, and loading is not timed. For each benchmark we report the
+ * throughput (mean and standard deviation over the iterations), latency
+ * percentiles, the bytes allocated and the physical page reads per
+ * operation.
+ *
+ * The results can be saved as CSV and compared against a previous run, in
+ * which case the exit code is non zero if any of the benchmarks lost more
+ * throughput than the given tolerance; this way a storage engine change
+ * can be checked against the baseline before it goes in.
+ *
+ * Options (all optional):
+ *
+ *  -p page sizes (comma separated, default 256,1024,2048)
+ *  -b benchmarks to run (comma separated, default insert,search,range,delete)
+ *  -k keys loaded in the tree (default 20000)
+ *  -n operations per iteration (default 5000)
+ *  -w warmup iterations (default 2)
+ *  -i measured iterations (default 3)
+ *  -o file to save the results to (CSV)
+ *  -c baseline file (CSV) to compare the results against
+ *  -t tolerated throughput loss when comparing (default 0.1)
+ *
+ */
+@SuppressWarnings("WeakerAccess")
+public class BPlusTreeBenchmark {
+
+    private static final String[] DISTRIBUTIONS = {"uniform", "zipfian"};
+    private static final String CSV_HEADER = "benchmark,pageSize,unique,distribution," +
+            "opsPerSec,opsPerSecStdev,p50Nanos,p90Nanos,p99Nanos,p999Nanos," +
+            "bytesPerOp,pageReadsPerOp";
+
+    private int[] pageSizes = {256, 1024, 2048};            // page sizes to run
+    private String[] benchmarks = {"insert", "search", "range", "delete"};
+    private int keys = 20000;                               // keys loaded
+    private int ops = 5000;                                 // ops per iteration
+    private int warmups = 2;                                // warmup iterations
+    private int iterations = 3;                             // measured iterations
+    private int rangeSize = 100;                            // keys per range query
+    private int duplicates = 3;                             // values per key (non unique)
+    private String outputPath = null;                       // CSV to save
+    private String baselinePath = null;                     // CSV to compare with
+    private double tolerance = 0.1;                         // tolerated throughput loss
+    private final PrintStream out = System.out;             // where to report
+    private final String treePath;                          // scratch tree file
+
+    /**
+     * Constructor that picks the scratch file for the trees
+     */
+    public BPlusTreeBenchmark() {
+        this.treePath = new File(System.getProperty("java.io.tmpdir"),
+                "bptree-bench-" + System.nanoTime() + ".bin").getPath();
+    }
+
+    public static void main(String[] args)
+            throws IOException, InvalidBTreeStateException {
+        BPlusTreeBenchmark b = new BPlusTreeBenchmark();
+        b.parseArguments(args);
+        List<Result> results = b.runAll();
+        if(b.outputPath != null)
+            {b.saveResults(results, b.outputPath);}
+        if(b.baselinePath != null && !b.compareWithBaseline(results, b.baselinePath))
+            {System.exit(1);}
+    }
+
+    /**
+     * Parse the command line options
+     *
+     * @param args the command line arguments
+     */
+    public void parseArguments(String[] args) {
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch(args[i]) {
+                case "-p":
+                    {pageSizes = Arrays.stream(v.split(",")).mapToInt(Integer::parseInt).toArray(); break;}
+                case "-b":
+                    {benchmarks = v.split(","); break;}
+                case "-k":
+                    {keys = Integer.parseInt(v); break;}
+                case "-n":
+                    {ops = Integer.parseInt(v); break;}
+                case "-w":
+                    {warmups = Integer.parseInt(v); break;}
+                case "-i":
+                    {iterations = Integer.parseInt(v); break;}
+                case "-o":
+                    {outputPath = v; break;}
+                case "-c":
+                    {baselinePath = v; break;}
+                case "-t":
+                    {tolerance = Double.parseDouble(v); break;}
+                default:
+                    {throw new IllegalArgumentException("Unknown option: " + args[i]);}
+            }
+        }
+        if(keys < 1 || ops < 1 || iterations < 1 || warmups < 0)
+            {throw new IllegalArgumentException("Invalid benchmark options");}
+    }
+
+    /**
+     * Run all of the benchmarks, printing the results as they come
+     *
+     * @return the results
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    public List<Result> runAll() throws IOException, InvalidBTreeStateException {
+        List<Result> results = new ArrayList<>();
+        out.println(String.format(Locale.ROOT, "%-8s %6s %-6s %-8s %12s %10s %9s %9s %9s %10s %10s %8s",
+                "bench", "page", "unique", "dist", "ops/s", "+-", "p50(ns)",
+                "p90(ns)", "p99(ns)", "p99.9(ns)", "bytes/op", "reads/op"));
+        for(String bench : benchmarks) {
+            for(int pageSize : pageSizes) {
+                for(boolean unique : new boolean[] {true, false}) {
+                    for(String dist : DISTRIBUTIONS) {
+                        Result r = run(bench, pageSize, unique, dist);
+                        out.println(r);
+                        results.add(r);
+                    }
+                }
+            }
+        }
+        return(results);
+    }
+
+    /**
+     * Run a single benchmark
+     *
+     * @param bench the operation to benchmark
+     * @param pageSize page size of the tree
+     * @param unique unique keys or duplicates?
+     * @param dist name of the key distribution
+     * @return the result
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    public Result run(String bench, int pageSize, boolean unique, String dist)
+            throws IOException, InvalidBTreeStateException {
+        Result res = new Result(bench, pageSize, unique, dist);
+        long[] latencies = new long[ops * iterations];
+        // the trees are chatty, keep them quiet while running
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {}
+        }));
+        try {
+            for(int it = 0; it < warmups + iterations; it++) {
+                BPlusTreePerformanceCounter bPerf = new BPlusTreePerformanceCounter(true);
+                BPlusTree bt = loadTree(pageSize, unique, bPerf);
+                // draw the keys up front, so we only time the operations
+                KeyDistribution kd = KeyDistribution.create(dist, keys, 31L * it + pageSize);
+                long[] k = new long[ops];
+                for(int i = 0; i < ops; i++)
+                    {k[i] = kd.next();}
+
+                boolean measured = it >= warmups;
+                int base = measured ? (it - warmups) * ops : 0;
+                int readsBefore = bPerf.getTotalPageCacheMisses();
+                long allocBefore = allocatedBytes();
+                long start = System.nanoTime();
+                for(int i = 0; i < ops; i++) {
+                    long t = System.nanoTime();
+                    runOperation(bt, bench, k[i], unique);
+                    if(measured)
+                        {latencies[base + i] = System.nanoTime() - t;}
+                }
+                long elapsed = System.nanoTime() - start;
+                long alloc = allocatedBytes() - allocBefore;
+                int reads = bPerf.getTotalPageCacheMisses() - readsBefore;
+
+                closeTree(bt);
+                if(measured)
+                    {res.addIteration(elapsed, alloc, reads);}
+            }
+        } finally {
+            System.setOut(out);
+        }
+        res.setLatencies(latencies);
+        return(res);
+    }
+
+    /**
+     * Run the benchmarked operation; the loaded keys are the even numbers
+     * in [0, 2 * keys), so searches, range queries and deletions target
+     * the key 2k while insertions add the key 2k+1.
+     *
+     * @param bt the tree
+     * @param bench the operation to run
+     * @param k the drawn key
+     * @param unique unique keys or duplicates?
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    private void runOperation(BPlusTree bt, String bench, long k, boolean unique)
+            throws IOException, InvalidBTreeStateException {
+        switch(bench) {
+            case "insert":
+                {bt.insertKey(2 * k + 1, "v" + k, unique); break;}
+            case "search":
+                {bt.searchKey(2 * k, unique); break;}
+            case "range":
+                {bt.rangeSearch(2 * k, 2 * k + 2 * rangeSize - 1, unique); break;}
+            case "delete":
+                {bt.deleteKey(2 * k, unique); break;}
+            default:
+                {throw new IllegalArgumentException("Unknown benchmark: " + bench);}
+        }
+    }
+
+    /**
+     * Create a new tree and bulk load it with the benchmark keys; when
+     * duplicates are allowed each key gets a few values.
+     *
+     * @param pageSize page size of the tree
+     * @param unique unique keys or duplicates?
+     * @param bPerf performance counter of the tree
+     * @return the loaded tree
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    private BPlusTree loadTree(int pageSize, boolean unique,
+                               BPlusTreePerformanceCounter bPerf)
+            throws IOException, InvalidBTreeStateException {
+        BPlusTree bt = new BPlusTree(new BPlusConfiguration(pageSize),
+                "rw+", treePath, bPerf);
+        int values = unique ? 1 : duplicates;
+        bt.bulkLoad(new Iterator<KeyValueWrapper>() {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext()
+                {return(next < (long) keys * values);}
+
+            @Override
+            public KeyValueWrapper next() {
+                if(!hasNext())
+                    {throw new NoSuchElementException();}
+                long key = 2 * (next++ / values);
+                return(new KeyValueWrapper(key, "v" + key));
+            }
+        }, 0.7, unique);
+        return(bt);
+    }
+
+    /**
+     * Commit the tree and remove its files
+     *
+     * @param bt the tree
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    private void closeTree(BPlusTree bt) throws IOException, InvalidBTreeStateException {
+        bt.commitTree();
+        if(!new File(treePath).delete())
+            {throw new IOException("Cannot delete the benchmark tree: " + treePath);}
+    }
+
+    /**
+     * Return the bytes allocated by this thread so far, if the JVM can
+     * tell us; otherwise we report zero allocations.
+     *
+     * @return the allocated bytes
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if(mx instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean smx = (com.sun.management.ThreadMXBean) mx;
+            if(smx.isThreadAllocatedMemorySupported() && smx.isThreadAllocatedMemoryEnabled())
+                {return(smx.getThreadAllocatedBytes(Thread.currentThread().getId()));}
+        }
+        return(0L);
+    }
+
+    /**
+     * Save the results as CSV
+     *
+     * @param results the results
+     * @param path file to save them to
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    public void saveResults(List<Result> results, String path) throws IOException {
+        try(PrintWriter w = new PrintWriter(path, "UTF-8")) {
+            w.println(CSV_HEADER);
+            for(Result r : results)
+                {w.println(r.toCsv());}
+        }
+    }
+
+    /**
+     * Compare the throughput of the results against a previous run
+     *
+     * @param results the results
+     * @param path the CSV of the previous run
+     * @return true if no benchmark lost more throughput than the tolerance
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    public boolean compareWithBaseline(List<Result> results, String path)
+            throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        try(BufferedReader r = new BufferedReader(new FileReader(path))) {
+            String line = r.readLine();
+            while((line = r.readLine()) != null) {
+                String[] f = line.split(",");
+                if(f.length > 4)
+                    {baseline.put(f[0] + "," + f[1] + "," + f[2] + "," + f[3],
+                            Double.parseDouble(f[4]));}
+            }
+        }
+
+        boolean ok = true;
+        out.println("\nComparing against the baseline (tolerance: " +
+                (tolerance * 100) + "%)\n");
+        for(Result res : results) {
+            Double before = baseline.get(res.getId());
+            if(before == null)
+                {continue;}
+            double change = (res.getOpsPerSec() - before) / before;
+            boolean regressed = change < -tolerance;
+            ok &= !regressed;
+            out.println(String.format(Locale.ROOT, "\t%-40s %+7.1f%%%s", res.getId(),
+                    change * 100, regressed ? "  <-- REGRESSION" : ""));
+        }
+        return(ok);
+    }
+
+    /**
+     * Results of a single benchmark
+     */
+    public class Result {
+        private final String bench;         // benchmarked operation
+        private final int pageSize;         // page size of the tree
+        private final boolean unique;       // unique keys?
+        private final String dist;          // key distribution
+        private final List<Double> rates;   // ops/s of each iteration
+        private long allocated;             // bytes allocated
+        private long reads;                 // physical page reads
+        private long[] latencies;           // latencies (sorted)
+
+        Result(String bench, int pageSize, boolean unique, String dist) {
+            this.bench = bench;
+            this.pageSize = pageSize;
+            this.unique = unique;
+            this.dist = dist;
+            this.rates = new ArrayList<>();
+        }
+
+        void addIteration(long elapsedNanos, long allocated, long reads) {
+            rates.add(ops * 1e9 / elapsedNanos);
+            this.allocated += allocated;
+            this.reads += reads;
+        }
+
+        void setLatencies(long[] latencies) {
+            Arrays.sort(latencies);
+            this.latencies = latencies;
+        }
+
+        public String getId()
+            {return(bench + "," + pageSize + "," + unique + "," + dist);}
+
+        public double getOpsPerSec()
+            {return(rates.stream().mapToDouble(Double::doubleValue).average().orElse(0));}
+
+        public double getOpsPerSecStdev() {
+            double mean = getOpsPerSec();
+            return(Math.sqrt(rates.stream().mapToDouble(r -> (r - mean) * (r - mean))
+                    .average().orElse(0)));
+        }
+
+        public long getPercentile(double p)
+            {return(latencies[Math.min(latencies.length - 1, (int) (p * latencies.length))]);}
+
+        public double getBytesPerOp()
+            {return(allocated / (double) (ops * rates.size()));}
+
+        public double getPageReadsPerOp()
+            {return(reads / (double) (ops * rates.size()));}
+
+        String toCsv() {
+            return(String.format(Locale.ROOT, "%s,%.1f,%.1f,%d,%d,%d,%d,%.1f,%.3f", getId(),
+                    getOpsPerSec(), getOpsPerSecStdev(), getPercentile(0.5),
+                    getPercentile(0.9), getPercentile(0.99), getPercentile(0.999),
+                    getBytesPerOp(), getPageReadsPerOp()));
+        }
+
+        @Override
+        public String toString() {
+            return(String.format(Locale.ROOT, "%-8s %6d %-6s %-8s %12.1f %10.1f %9d %9d %9d %10d %10.1f %8.3f",
+                    bench, pageSize, unique, dist, getOpsPerSec(), getOpsPerSecStdev(),
+                    getPercentile(0.5), getPercentile(0.9), getPercentile(0.99),
+                    getPercentile(0.999), getBytesPerOp(), getPageReadsPerOp()));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package data_structure.tree.multiway_tree.BpTree.bench;
+
+import java.util.Random;
+
+/**
+ *
+ * Generator of the keys fed to the benchmarks; keys are drawn from [0, n)
+ * either uniformly or following a zipfian distribution.
+ *
+ * The zipfian generator is the one described by Gray et al. in "Quickly
+ * generating billion-record synthetic databases" (as used by YCSB); the
+ * popular ranks are scrambled over the key space so that the hot keys do
+ * not all end up in the first few leaves of the tree.
+ *
+ */
+@SuppressWarnings("unused")
+abstract class KeyDistribution {
+
+    final long n;           // size of the key space
+    final Random rand;      // source of randomness
+
+    /**
+     * Constructor that sets the key space
+     *
+     * @param n size of the key space
+     * @param seed random seed
+     */
+    KeyDistribution(long n, long seed) {
+        this.n = n;
+        this.rand = new Random(seed);
+    }
+
+    /**
+     * Return the next key
+     *
+     * @return a key in [0, n)
+     */
+    abstract long next();
+
+    /**
+     * Create a distribution by name
+     *
+     * @param name either "uniform" or "zipfian"
+     * @param n size of the key space
+     * @param seed random seed
+     * @return the distribution
+     */
+    static KeyDistribution create(String name, long n, long seed) {
+        switch(name) {
+            case "uniform":
+                {return(new Uniform(n, seed));}
+            case "zipfian":
+                {return(new Zipfian(n, 0.99, seed));}
+            default:
+                {throw new IllegalArgumentException("Unknown key distribution: " + name);}
+        }
+    }
+
+    /**
+     * Keys drawn uniformly
+     */
+    private static class Uniform extends KeyDistribution {
+
+        Uniform(long n, long seed)
+            {super(n, seed);}
+
+        @Override
+        long next()
+            {return((rand.nextLong() & Long.MAX_VALUE) % n);}
+    }
+
+    /**
+     * Keys drawn following a (scrambled) zipfian distribution
+     */
+    private static class Zipfian extends KeyDistribution {
+        private final double theta;     // skew of the distribution
+        private final double zetan;     // zeta(n, theta)
+        private final double alpha;     // 1 / (1 - theta)
+        private final double eta;       // see the paper
+
+        Zipfian(long n, double theta, long seed) {
+            super(n, seed);
+            this.theta = theta;
+            this.zetan = zeta(n, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) /
+                    (1 - zeta(2, theta) / zetan);
+        }
+
+        @Override
+        long next() {
+            double u = rand.nextDouble();
+            double uz = u * zetan;
+            long rank;
+            if(uz < 1.0)
+                {rank = 0;}
+            else if(uz < 1.0 + Math.pow(0.5, theta))
+                {rank = 1;}
+            else
+                {rank = (long) (n * Math.pow(eta * u - eta + 1, alpha));}
+            // spread the popular ranks over the key space
+            return(Math.floorMod(rank * 0x9E3779B97F4A7C15L, n));
+        }
+
+        /**
+         * Calculate the generalized harmonic number of order theta
+         *
+         * @param n number of terms
+         * @param theta order
+         * @return the sum of 1/i^theta for i in [1, n]
+         */
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for(long i = 1; i <= n; i++)
+                {sum += 1 / Math.pow(i, theta);}
+            return(sum);
+        }
+    }
+}
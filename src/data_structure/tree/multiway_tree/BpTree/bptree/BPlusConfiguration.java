@@ -10,6 +10,8 @@ package data_structure.tree.multiway_tree.BpTree.bptree;
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class BPlusConfiguration {
 
+    private static final int MIN_COMPACT_ENTRY_SIZE = 3;    // smallest compact leaf entry
+
     private int pageSize;           // page size (in bytes)
     private int keySize;            // key size (in bytes)
     private int entrySize;          // entry size (in bytes)
@@ -23,6 +25,15 @@ public class BPlusConfiguration {
     private int overflowPageDegree;       // overflow page degree
     private int lookupPageSize;           // look up page size
     private int conditionThreshold;       // iterations to perform conditioning
+    private int pageCacheSize;            // pages kept in the page cache
+    private boolean memoryMapped;         // memory map the file?
+    private int mappedChunkPages;         // pages mapped at a time
+    private boolean writeAheadLog;        // use a write-ahead log?
+    private int logGroupCommitSize;       // commits per log sync
+    private int logCheckpointPages;       // logged pages before checkpointing
+    private boolean compactLeaves;        // variable length leaf entries?
+    private int compactLeafHeaderSize;    // compact leaf header size (in bytes)
+    private int maxCompactEntrySize;      // worst case compact leaf entry (in bytes)
 
     /**
      *
@@ -103,10 +114,20 @@ public class BPlusConfiguration {
         this.lookupOverflowHeaderSize = 14;
         this.lookupPageSize = pageSize - headerSize;        // lookup page size
         this.conditionThreshold = conditionThreshold;       // iterations for conditioning
+        this.pageCacheSize = 256;                           // cached pages (0 disables it)
+        this.memoryMapped = false;                          // use the stream-style file
+        this.mappedChunkPages = 1024;                       // pages mapped at a time
+        this.writeAheadLog = false;                         // write to the file directly
+        this.logGroupCommitSize = 32;                       // commits per log sync
+        this.logCheckpointPages = 1000;                     // logged pages before checkpointing
+        this.compactLeaves = false;                         // fixed size leaf entries
+        this.compactLeafHeaderSize = leafHeaderSize + 8;    // 30 bytes, plus the first key
+        // key delta, overflow pointer, value length and the value itself
+        this.maxCompactEntrySize = 9 + 9 + TreeLeaf.varLongSize(entrySize) + entrySize;
         // now calculate the tree degree
         this.treeDegree = calculateDegree(2*keySize, internalNodeHeaderSize);
         // leaf & overflow have the same header size.
-        this.leafNodeDegree = calculateDegree((2*keySize)+entrySize, leafHeaderSize);
+        this.leafNodeDegree = calculateLeafDegree();
         this.overflowPageDegree = calculateDegree(entrySize, leafHeaderSize);
         this.lookupOverflowPageDegree = calculateDegree(keySize,
                 lookupOverflowHeaderSize);
@@ -123,6 +144,19 @@ public class BPlusConfiguration {
     private int calculateDegree(int elementSize, int elementHeaderSize)
         {return((int) (((pageSize-elementHeaderSize)/(2.0*elementSize))/*+0.5*/));}
 
+    /**
+     * calculates the leaf degree; for compact leaves this is based on the
+     * worst case entry size, as it only bounds the min leaf capacity (the
+     * max capacity is bound by the actual page usage).
+     *
+     * @return the leaf node degree
+     */
+    private int calculateLeafDegree() {
+        return(compactLeaves ?
+                calculateDegree(maxCompactEntrySize, compactLeafHeaderSize) :
+                calculateDegree((2*keySize)+entrySize, leafHeaderSize));
+    }
+
     /**
      *
      * Little function that checks if we have any degree < 2 (which is not allowed)
@@ -154,8 +188,11 @@ public class BPlusConfiguration {
     public int getMaxInternalNodeCapacity()
         {return((2*treeDegree) - 1);}
 
-    public int getMaxLeafNodeCapacity()
-        {return((2*leafNodeDegree) - 1);}
+    public int getMaxLeafNodeCapacity() {
+        return(compactLeaves ?
+                (pageSize - compactLeafHeaderSize) / MIN_COMPACT_ENTRY_SIZE :
+                (2*leafNodeDegree) - 1);
+    }
 
     public int getMaxOverflowNodeCapacity() {
         return ((2 * overflowPageDegree) - 1);
@@ -192,11 +229,141 @@ public class BPlusConfiguration {
     public void setConditionThreshold(int conditionThreshold)
         {this.conditionThreshold = conditionThreshold;}
 
+    public int getPageCacheSize()
+        {return(pageCacheSize);}
+
+    /**
+     * Set the number of pages kept in the page cache; zero disables
+     * caching. Must be set before the tree is created/opened.
+     *
+     * @param pageCacheSize the page cache size (in pages)
+     */
+    public void setPageCacheSize(int pageCacheSize) {
+        if(pageCacheSize < 0)
+            {throw new IllegalArgumentException("Can't have a negative page cache size");}
+        this.pageCacheSize = pageCacheSize;
+    }
+
+    public boolean isMemoryMapped()
+        {return(memoryMapped);}
+
+    /**
+     * Choose whether the tree file is memory mapped instead of accessed
+     * through the stream-style API; when using a memory mapped file the
+     * page cache can be safely disabled. Must be set before the tree is
+     * created/opened.
+     *
+     * @param memoryMapped memory map the tree file?
+     */
+    public void setMemoryMapped(boolean memoryMapped)
+        {this.memoryMapped = memoryMapped;}
+
+    public int getMappedChunkPages()
+        {return(mappedChunkPages);}
+
+    /**
+     * Set the number of pages that are mapped at a time when the
+     * memory mapped file grows.
+     *
+     * @param mappedChunkPages pages per mapped chunk
+     */
+    public void setMappedChunkPages(int mappedChunkPages) {
+        if(mappedChunkPages < 1 ||
+                (long) mappedChunkPages * pageSize > Integer.MAX_VALUE)
+            {throw new IllegalArgumentException("Invalid number of pages per mapped chunk");}
+        this.mappedChunkPages = mappedChunkPages;
+    }
+
+    public boolean isWriteAheadLog()
+        {return(writeAheadLog);}
+
+    /**
+     * Choose whether tree operations go through a write-ahead log, which is
+     * replayed when the tree is opened after a crash; trees that have a log
+     * left behind are always opened in this mode.
+     *
+     * @param writeAheadLog use a write-ahead log?
+     */
+    public void setWriteAheadLog(boolean writeAheadLog)
+        {this.writeAheadLog = writeAheadLog;}
+
+    public int getLogGroupCommitSize()
+        {return(logGroupCommitSize);}
+
+    /**
+     * Set the number of operations committed to the write-ahead log before
+     * it is synced to the disk; a crash loses at most this many operations
+     * (minus one) unless the log is synced explicitly.
+     *
+     * @param logGroupCommitSize commits per log sync
+     */
+    public void setLogGroupCommitSize(int logGroupCommitSize) {
+        if(logGroupCommitSize < 1)
+            {throw new IllegalArgumentException("Group commit size must be at least 1");}
+        this.logGroupCommitSize = logGroupCommitSize;
+    }
+
+    public int getLogCheckpointPages()
+        {return(logCheckpointPages);}
+
+    /**
+     * Set the number of distinct pages the write-ahead log can hold before
+     * they are checkpointed to the tree file.
+     *
+     * @param logCheckpointPages logged pages before checkpointing
+     */
+    public void setLogCheckpointPages(int logCheckpointPages) {
+        if(logCheckpointPages < 1)
+            {throw new IllegalArgumentException("Checkpoint pages must be at least 1");}
+        this.logCheckpointPages = logCheckpointPages;
+    }
+
+    public boolean isCompactLeaves()
+        {return(compactLeaves);}
+
+    /**
+     * Choose whether leaves store their entries in the compact format; keys
+     * are delta encoded against the previous key of the leaf and values are
+     * stored with their actual length (up to the entry size) instead of being
+     * padded, so leaves are split when their page is full instead of at a
+     * fixed capacity. Existing trees keep the format they were created with.
+     *
+     * @param compactLeaves use compact leaves?
+     */
+    public void setCompactLeaves(boolean compactLeaves) {
+        this.compactLeaves = compactLeaves;
+        this.leafNodeDegree = calculateLeafDegree();
+        checkDegreeValidity();
+    }
+
+    public int getCompactLeafHeaderSize()
+        {return(compactLeafHeaderSize);}
+
+    public int getMaxCompactEntrySize()
+        {return(maxCompactEntrySize);}
+
+    /**
+     * Copy the settings that do not affect the file layout (and thus are not
+     * stored in the file header) from another configuration.
+     *
+     * @param other configuration to copy the settings from
+     */
+    void copyStorageSettings(BPlusConfiguration other) {
+        this.pageCacheSize = other.pageCacheSize;
+        this.memoryMapped = other.memoryMapped;
+        this.mappedChunkPages = other.mappedChunkPages;
+        this.writeAheadLog = other.writeAheadLog;
+        this.logGroupCommitSize = other.logGroupCommitSize;
+        this.logCheckpointPages = other.logCheckpointPages;
+    }
+
     public int getHeaderSize()
         {return(headerSize);}
 
     public int getPageCountOffset() {
-        return (headerSize - 16);
+        // right after the four int fields, before the root index and
+        // lookup pointer which take up the last 16 bytes of the header
+        return (headerSize - 32);
     }
 
     public int getLookupOverflowHeaderSize() {
@@ -211,6 +378,13 @@ public class BPlusConfiguration {
         System.out.println("File header size: " + headerSize + " (in bytes)");
         System.out.println("Lookup space size: " + getLookupPageSize() +
                 " (in bytes)");
+        System.out.println("Page cache size: " + pageCacheSize + " (in pages)");
+        System.out.println("Memory mapped: " + memoryMapped +
+                (memoryMapped ? " (" + mappedChunkPages + " pages per chunk)" : ""));
+        System.out.println("Write-ahead log: " + writeAheadLog +
+                (writeAheadLog ? " (sync every " + logGroupCommitSize +
+                        " commits, checkpoint every " + logCheckpointPages + " pages)" : ""));
+        System.out.println("Compact leaves: " + compactLeaves);
         System.out.println("\nInternal Node Degree: " +
                 getTreeDegree() +
                 "\n\t Min cap: " + getMinInternalNodeCapacity() +
@@ -221,7 +395,8 @@ public class BPlusConfiguration {
                 getLeafNodeDegree() +
                 "\n\t Min cap: " + getMinLeafNodeCapacity() +
                 "\n\t Max cap: " + getMaxLeafNodeCapacity() +
-                "\n\t Total header bytes: " + leafHeaderSize);
+                "\n\t Total header bytes: " +
+                (compactLeaves ? compactLeafHeaderSize : leafHeaderSize));
 
         System.out.println("\nOverflow page Degree: " +
                 getOverflowPageDegree() +
@@ -6,25 +6,49 @@ import data_structure.tree.multiway_tree.BpTree.util.InvalidBTreeStateException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Collections;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.InvalidPropertiesFormatException;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ *
+ * Our on-disk B+ Tree; searches and range queries can be performed by
+ * many threads at once as they only share the tree lock in read mode,
+ * while insertions, deletions, bulk loads and commits take it in write
+ * mode and thus run on their own.
+ *
+ */
 @SuppressWarnings("WeakerAccess")
 public class BPlusTree {
 
     private TreeNode root;
     private TreeNode aChild;
     private RandomAccessFile treeFile;
+    private TreePageStore pageStore;
+    private TreePageCache pageCache;
+    private ByteBuffer pageBuffer;
     private BPlusConfiguration conf;
-    private LinkedList<Long> freeSlotPool;
+    private TreeFreePageMap freePageMap;
     private LinkedList<Long> lookupPagesPool;
     private long firstPoolNextPointer;
     private long totalTreePages;
     private long maxPageNumber;
     private int deleteIterations;
     private BPlusTreePerformanceCounter bPerf = null;
+    private ReentrantReadWriteLock treeLock;
+    private long modCount;
+    private String treeFilePath;
+    private TreeWriteAheadLog wal;
+    private LinkedList<Long> poolChanges;
+    private boolean conditionPending;
+    private boolean checkpointing;
 
     /**
      * Super basic constructor, create everything using their
@@ -118,16 +142,100 @@ public class BPlusTree {
     public void insertKey(long key, String value, boolean unique)
             throws IOException, InvalidBTreeStateException,
             IllegalStateException, NumberFormatException {
+        treeLock.writeLock().lock();
+        try {
+            if(root == null)
+                {throw new IllegalStateException("Can't insert to null tree");}
+
+            if(key < 0)
+                {throw new NumberFormatException("Can't have negative keys, sorry.");}
+
+            value = conditionString(value);
+
+            // only a call that changes the tree invalidates the open cursors
+            modCount++;
+
+            // check if our root is full
+            splitRootIfFull();
+            insertNonFull(root, key, value, unique);
+            bPerf.incrementTotalInsertions();
+            commitLogTransaction();
+        } finally {
+            treeLock.writeLock().unlock();
+        }
+    }
 
-        if(root == null)
-            {throw new IllegalStateException("Can't insert to null tree");}
-
-        if(key < 0)
-            {throw new NumberFormatException("Can't have negative keys, sorry.");}
+    /**
+     * Insert a batch of (Key, Value) pairs into the tree; the batch is sorted
+     * by key first (keeping the order of the values of equal keys) so that
+     * consecutive keys which land in the same leaf are added to it with a
+     * single descent from the root, and the leaf is written once for all of
+     * them. We only descend again once a key falls past the leaf's upper
+     * bound or the leaf fills up, in which case the descent splits it.
+     *
+     * The number of pages read per key is reported through the performance
+     * counter.
+     *
+     * @param keys keys to add
+     * @param values values of the keys (same length as keys)
+     * @param unique allow duplicates for this run?
+     * @throws IOException is thrown when any of the read/write ops fail.
+     * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the tree blocks.
+     * @throws IllegalStateException is thrown we have a null tree
+     * @throws IllegalArgumentException is thrown when keys and values differ in length
+     * @throws NumberFormatException is thrown when we have an invalid key value (we only allow >= 0 as keys)
+     */
+    @SuppressWarnings("unused")
+    public void insertBatch(long[] keys, String[] values, boolean unique)
+            throws IOException, InvalidBTreeStateException, IllegalStateException,
+            IllegalArgumentException, NumberFormatException {
+        treeLock.writeLock().lock();
+        try {
+            if(root == null)
+                {throw new IllegalStateException("Can't insert to null tree");}
+
+            if(keys.length != values.length)
+                {throw new IllegalArgumentException("Got " + keys.length +
+                        " keys but " + values.length + " values");}
+
+            // check all keys up front, so we don't insert half of the batch
+            for(long key : keys) {
+                if(key < 0)
+                    {throw new NumberFormatException("Can't have negative keys, sorry.");}
+            }
 
-        value = conditionString(value);
+            modCount++;
+            Integer[] order = sortBatch(keys);
+            BatchLeaf b = new BatchLeaf();
+            int j = 0;
+            while(j < order.length) {
+                // descend once for the leaf of the first key in the run
+                TreeLeaf l = seekInsertLeaf(keys[order[j]], b);
+                boolean dirty = false;
+                do {
+                    int k = order[j++];
+                    dirty |= insertIntoLeaf(l, keys[k], conditionString(values[k]), unique);
+                    bPerf.incrementTotalInsertions();
+                } while(j < order.length && !l.isFull(conf) &&
+                        (b.bound < 0 || keys[order[j]] < b.bound));
+                if(dirty)
+                    {writeNode(l);}
+            }
+            bPerf.incrementBatchInsertions(keys.length, b.pageReads);
+            commitLogTransaction();
+        } finally {
+            treeLock.writeLock().unlock();
+        }
+    }
 
-        // check if our root is full
+    /**
+     * Split the root if it is full, so that the descent of an insertion
+     * never has to go back up; the tree grows by one level.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the blocks.
+     */
+    private void splitRootIfFull() throws IOException, InvalidBTreeStateException {
         if(root.isFull(conf)) {
             // allocate a new *internal* node, to be placed as the
             // *left* child of the new root
@@ -140,11 +248,200 @@ public class BPlusTree {
             // split root.
             splitTreeNode(node_buf, 0);
             writeFileHeader(conf);
-            insertNonFull(node_buf, key, value, unique);
         }
-        else
-            {insertNonFull(root, key, value, unique);}
-        bPerf.incrementTotalInsertions();
+    }
+
+    /**
+     * Descend to the leaf where the key should be inserted splitting any
+     * full node on the way, as insertNonFull does; along with the leaf we
+     * return its (exclusive) upper bound, which is the separator to the
+     * right of it in its parent or -1 if the leaf is the rightmost one.
+     *
+     * @param key key to add
+     * @param b where to store the upper bound and count the page reads
+     * @return the (non full) leaf for the key
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the blocks.
+     */
+    private TreeLeaf seekInsertLeaf(long key, BatchLeaf b)
+            throws IOException, InvalidBTreeStateException {
+        splitRootIfFull();
+        b.bound = -1L;
+        b.pageReads++;
+        TreeNode n = root;
+        while(!n.isLeaf()) {
+            TreeInternalNode inode = (TreeInternalNode)n;
+            int i = binSearchBlock(inode, key, Rank.PlusOne);
+            aChild = readNode(inode.getPointerAt(i));
+            b.pageReads++;
+            if (aChild.isOverflow() || aChild.isLookupPageOverflowNode()) {
+                throw new InvalidBTreeStateException("aChild can't be overflow node");
+            }
+            // after the split aChild is the left half
+            if(aChild.isFull(conf)) {
+                splitTreeNode(inode, i);
+                if(key >= inode.getKeyAt(i)) {
+                    aChild = readNode(inode.getPointerAt(++i));
+                    b.pageReads++;
+                }
+            }
+            // bounds only get tighter as we go down
+            if(i < inode.getCurrentCapacity())
+                {b.bound = inode.getKeyAt(i);}
+            n = aChild;
+        }
+        return((TreeLeaf)n);
+    }
+
+    /**
+     * Sort the indices of a batch of keys by key; the sort is stable so
+     * equal keys keep their order in the batch.
+     *
+     * @param keys the keys of the batch
+     * @return the indices of the keys in ascending key order
+     */
+    private Integer[] sortBatch(long[] keys) {
+        Integer[] order = new Integer[keys.length];
+        for(int i = 0; i < keys.length; i++)
+            {order[i] = i;}
+        Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+        return(order);
+    }
+
+    /**
+     * Bulk load an *empty* tree from a stream of (Key, Value) pairs that is
+     * sorted by key; instead of descending from the root for each key (and
+     * splitting nodes along the way) the tree is built bottom-up: leaves are
+     * packed up to the fill factor and written in key order and as each node
+     * is completed its first key is pushed to the level above it, which is
+     * packed in the same way.
+     *
+     * Each level only buffers the entries of the node being packed plus
+     * enough of the following ones to guarantee that the last node of the
+     * level will not be underutilized; at the end the remainder is either
+     * packed in one node or split evenly in two.
+     *
+     * Duplicate keys (if allowed) are placed in overflow pages which are
+     * written right before the leaf that points to them.
+     *
+     * @param entries the (Key, Value) pairs in ascending key order
+     * @param fillFactor fraction of the max node capacity to fill, in (0, 1]
+     * @param unique drop duplicate keys (true) or add them to overflow pages (false)
+     * @throws IOException is thrown when any of the read/write ops fail.
+     * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the tree blocks.
+     * @throws IllegalStateException is thrown when the tree is null or not empty
+     * @throws IllegalArgumentException is thrown when the fill factor is invalid or the input is not sorted
+     * @throws NumberFormatException is thrown when we have an invalid key value (we only allow >= 0 as keys)
+     */
+    @SuppressWarnings("unused")
+    public void bulkLoad(Iterator<KeyValueWrapper> entries, double fillFactor,
+                         boolean unique)
+            throws IOException, InvalidBTreeStateException, IllegalStateException,
+            IllegalArgumentException, NumberFormatException {
+        treeLock.writeLock().lock();
+        try {
+            if(root == null)
+                {throw new IllegalStateException("Can't bulk load a null tree");}
+
+            if(!root.isLeaf() || !root.isEmpty())
+                {throw new IllegalStateException("Can only bulk load an empty tree");}
+
+            if(!(fillFactor > 0.0 && fillFactor <= 1.0))
+                {throw new IllegalArgumentException("Fill factor must be in (0, 1]");}
+
+            modCount++;
+            // the tree is written straight to the file when logging, as
+            // nothing it writes is reachable until the closing checkpoint
+            long oldRoot = root.getPageIndex();
+            if(wal != null)
+                {wal.setPassThrough(true);}
+
+            // keep what we need to undo a load that fails half-way, the
+            // input is only checked as we go and pages are written by then
+            TreeNode emptyRoot = root;
+            TreeFreePageMap freePages = freePageMap.copy();
+            long pages = totalTreePages, maxPage = maxPageNumber;
+            int changes = poolChanges.size();
+            try {
+                BulkLevel leaves = new BulkLevel(true, fillFactor);
+                BulkEntry last = null;
+                while(entries.hasNext()) {
+                    KeyValueWrapper kv = entries.next();
+                    long key = kv.getKey();
+
+                    if(key < 0)
+                        {throw new NumberFormatException("Can't have negative keys, sorry.");}
+
+                    if(last != null && key < last.key)
+                        {throw new IllegalArgumentException("Bulk load input is not sorted, key: " +
+                                key + " came after: " + last.key);}
+
+                    // duplicate keys go to the overflow pages (if allowed)
+                    if(last != null && key == last.key) {
+                        if(unique)
+                            {continue;}
+                        last.values.add(conditionString(kv.getValue()));
+                    } else {
+                        last = new BulkEntry(key, -1L);
+                        last.values.add(conditionString(kv.getValue()));
+                        leaves.add(last);
+                    }
+                    bPerf.incrementTotalInsertions();
+                }
+
+                // flush the levels bottom-up, the last one gives us the root
+                BulkLevel level = leaves;
+                while(!level.finish())
+                    {level = level.parent;}
+            } catch(IOException | InvalidBTreeStateException | RuntimeException ex) {
+                try {
+                    abortBulkLoad(emptyRoot, freePages, pages, maxPage, changes);
+                } catch(IOException undo) {
+                    ex.addSuppressed(undo);
+                }
+                throw ex;
+            }
+
+            if(wal == null)
+                {writeFileHeader(conf);}
+            else {
+                pageCache.flush();
+                deletePage(oldRoot, false);
+                checkpoint();
+            }
+        } finally {
+            // the closing checkpoint ends the pass-through, but a failed
+            // load must not leave later operations bypassing the log
+            if(wal != null)
+                {wal.setPassThrough(false);}
+            treeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Undo a bulk load that failed half-way; the pages it allocated are
+     * given back by restoring the free page map and the page counts as
+     * they were before the load and the empty root leaf is written again,
+     * as its page is reused for the first leaf when not logging.
+     *
+     * @param emptyRoot the (empty) root leaf before the load
+     * @param freePages copy of the free page map before the load
+     * @param pages total tree pages before the load
+     * @param maxPage max page number before the load
+     * @param changes size of the pool change list before the load
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void abortBulkLoad(TreeNode emptyRoot, TreeFreePageMap freePages,
+                               long pages, long maxPage, int changes)
+            throws IOException {
+        root = emptyRoot;
+        freePageMap = freePages;
+        totalTreePages = pages;
+        maxPageNumber = maxPage;
+        while(poolChanges.size() > changes)
+            {poolChanges.removeLast();}
+        writeNode(root);
+        updatePageIndexCounts(conf);
     }
 
     /**
@@ -179,6 +476,27 @@ public class BPlusTree {
      */
     private void splitTreeNode(TreeInternalNode n, int index)
             throws IOException, InvalidBTreeStateException {
+        long yIndex = aChild.getPageIndex();
+        // keep both pages resident while splitting
+        pageCache.pin(n.getPageIndex());
+        pageCache.pin(yIndex);
+        try
+            {splitPinnedTreeNode(n, index);}
+        finally {
+            pageCache.unpin(yIndex);
+            pageCache.unpin(n.getPageIndex());
+        }
+    }
+
+    /**
+     * Performs the actual split as described in splitTreeNode, both the
+     * parent and the child pages are pinned in the page cache by then.
+     *
+     * @param n internal node "parenting" the split
+     * @param index index in the node n that we need to add the median
+     */
+    private void splitPinnedTreeNode(TreeInternalNode n, int index)
+            throws IOException, InvalidBTreeStateException {
 
 //        System.out.println("-- Splitting node with index: " +
 //                aChild.getPageIndex() + " of type: " +
@@ -236,15 +554,16 @@ public class BPlusTree {
                      yLeaf = (TreeLeaf) ynode,
                      afterLeaf;
 
+            // keep the new sibling close to the leaf it is split from
             zLeaf = new TreeLeaf(yLeaf.getNextPagePointer(),
                     yLeaf.getPageIndex(), TreeNodeType.TREE_LEAF,
-                    generateFirstAvailablePageIndex(conf));
+                    generateFirstAvailablePageIndex(conf, yLeaf.getPageIndex()));
 
             // update the previous pointer from the node after ynode
             if(yLeaf.getNextPagePointer() != -1) {
                 afterLeaf = (TreeLeaf) readNode(yLeaf.getNextPagePointer());
                 afterLeaf.setPrevPagePointer(zLeaf.getPageIndex());
-                afterLeaf.writeNode(treeFile, conf, bPerf);
+                writeNode(afterLeaf);
             }
 
             bPerf.incrementTotalLeaves();
@@ -252,7 +571,9 @@ public class BPlusTree {
             // update pointers in ynode, only have to update next pointer
             yLeaf.setNextPagePointer(zLeaf.getPageIndex());
 
-            setIndex = conf.getLeafNodeDegree()-1;
+            // move half of the entries, that is degree - 1 for fixed size
+            // leaves as they are split only when at max capacity
+            setIndex = yLeaf.getCurrentCapacity()/2;
 
             for(int i = 0; i < setIndex; i++) {
                 //long fk = ynode.getLastKey();
@@ -283,9 +604,9 @@ public class BPlusTree {
 
         znode.setBeingDeleted(false);
         // commit the changes
-        znode.writeNode(treeFile, conf, bPerf);
-        ynode.writeNode(treeFile, conf, bPerf);
-        n.writeNode(treeFile, conf, bPerf);
+        writeNode(znode);
+        writeNode(ynode);
+        writeNode(n);
         // commit page counts
         updatePageIndexCounts(conf);
     }
@@ -321,9 +642,9 @@ public class BPlusTree {
             // set being deleted to false
             novf.setBeingDeleted(false);
             // commit changes to new overflow page
-            novf.writeNode(treeFile, conf, bPerf);
+            writeNode(novf);
             // commit changes to old overflow page
-            ovf.writeNode(treeFile, conf, bPerf);
+            writeNode(ovf);
         } else if(n.isLeaf()) {
             TreeLeaf l = (TreeLeaf)n;
             novf = new TreeOverflow(-1L, l.getPageIndex(),
@@ -338,9 +659,9 @@ public class BPlusTree {
             // set being deleted to false
             novf.setBeingDeleted(false);
             // commit changes to overflow page
-            novf.writeNode(treeFile, conf, bPerf);
+            writeNode(novf);
             // commit changes to leaf page
-            l.writeNode(treeFile, conf, bPerf);
+            writeNode(l);
             // commit page counts
         } else {
             throw new InvalidBTreeStateException("Expected Leaf or Overflow, " +
@@ -422,68 +743,8 @@ public class BPlusTree {
         // check if we have a leaf
         if(n.isLeaf()) {
             TreeLeaf l = (TreeLeaf)n;
-
-            // before we add it, let's check if the key already exists
-            // and if it does pull up (or create) the overflow page and
-            // add the value there.
-            //
-            // Not that we do *not* add the key if we have a true unique flag
-
-
-            // this is to adjust for a corner case due to indexing
-            int iadj = (n.getCurrentCapacity() > 0 &&
-                    i == 0 && n.getFirstKey() > key) ? i : i-1;
-            if(n.getCurrentCapacity() > 0 && n.getKeyAt(iadj) == key) {
-
-                if(unique) {
-                    //System.out.println("Duplicate entry found and unique " +
-                    //        "flag enabled, can't add");
-                    return;
-                }
-
-                //System.out.println("Duplicate found! Adding to overflow page!");
-
-                // overflow page does not exist, yet; time to create it!
-                if(l.getOverflowPointerAt(iadj) < 0) {
-                    createOverflowPage(l, iadj, value);
-                }
-                // page already exists, so pull it and check if it has
-                // available space, if it does all is good; otherwise we
-                // pull the next overflow page or we create another one.
-                else {
-
-                    TreeOverflow ovf =
-                            (TreeOverflow) readNode(l.getOverflowPointerAt(iadj));
-
-                    while(ovf.isFull(conf)) {
-                        // check if we have more, if not create
-                        if(ovf.getNextPagePointer() < 0)
-                            // create page and return
-                            {createOverflowPage(ovf, -1, value); return;}
-                        // load the next page
-                        else
-                            {ovf = (TreeOverflow)readNode(ovf.getNextPagePointer());}
-                    }
-
-                    // if the loaded page is not full then add it.
-                    ovf.pushToValueList(value);
-                    ovf.incrementCapacity(conf);
-                    ovf.writeNode(treeFile, conf, bPerf);
-                }
-            }
-
-            // we have a new key insert
-            else {
-                // now add the (Key, Value) pair
-                l.addToValueList(i, value);
-                l.addToKeyArrayAt(i, key);
-                // also create a NULL overflow pointer
-                l.addToOverflowList(i, -1L);
-                l.incrementCapacity(conf);
-                // commit the changes
-                l.writeNode(treeFile, conf, bPerf);
-            }
-
+            if(insertIntoLeaf(l, key, value, unique))
+                {writeNode(l);}
         } else {
 
             // This requires a bit of explanation; the above while loop
@@ -535,6 +796,86 @@ public class BPlusTree {
         }
     }
 
+    /**
+     * Add the (Key, Value) pair to a (non full) leaf; if the key already
+     * exists the value goes to its overflow pages instead, in which case
+     * the pages touched are written right away.
+     *
+     * @param l leaf to add the pair to
+     * @param key key to add
+     * @param value value paired with the key
+     * @param unique allow duplicate entries for this time?
+     * @return true if the leaf was modified and has to be written, false otherwise
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the blocks.
+     */
+    private boolean insertIntoLeaf(TreeLeaf l, long key, String value, boolean unique)
+            throws IOException, InvalidBTreeStateException {
+        int i = binSearchBlock(l, key, Rank.PlusOne);
+
+        // before we add it, let's check if the key already exists
+        // and if it does pull up (or create) the overflow page and
+        // add the value there.
+        //
+        // Not that we do *not* add the key if we have a true unique flag
+
+
+        // this is to adjust for a corner case due to indexing
+        int iadj = (l.getCurrentCapacity() > 0 &&
+                i == 0 && l.getFirstKey() > key) ? i : i-1;
+        if(l.getCurrentCapacity() > 0 && l.getKeyAt(iadj) == key) {
+
+            if(unique) {
+                //System.out.println("Duplicate entry found and unique " +
+                //        "flag enabled, can't add");
+                return(false);
+            }
+
+            //System.out.println("Duplicate found! Adding to overflow page!");
+
+            // overflow page does not exist, yet; time to create it!
+            if(l.getOverflowPointerAt(iadj) < 0) {
+                createOverflowPage(l, iadj, value);
+            }
+            // page already exists, so pull it and check if it has
+            // available space, if it does all is good; otherwise we
+            // pull the next overflow page or we create another one.
+            else {
+
+                TreeOverflow ovf =
+                        (TreeOverflow) readNode(l.getOverflowPointerAt(iadj));
+
+                while(ovf.isFull(conf)) {
+                    // check if we have more, if not create
+                    if(ovf.getNextPagePointer() < 0)
+                        // create page and return
+                        {createOverflowPage(ovf, -1, value); return(false);}
+                    // load the next page
+                    else
+                        {ovf = (TreeOverflow)readNode(ovf.getNextPagePointer());}
+                }
+
+                // if the loaded page is not full then add it.
+                ovf.pushToValueList(value);
+                ovf.incrementCapacity(conf);
+                writeNode(ovf);
+            }
+        }
+
+        // we have a new key insert
+        else {
+            // now add the (Key, Value) pair
+            l.addToValueList(i, value);
+            l.addToKeyArrayAt(i, key);
+            // also create a NULL overflow pointer
+            l.addToOverflowList(i, -1L);
+            l.incrementCapacity(conf);
+            // the caller commits the changes
+            return(true);
+        }
+        return(false);
+    }
+
     /**
      * Function to parse the overflow pages specifically for the range queries
      *
@@ -574,74 +915,206 @@ public class BPlusTree {
      */
     public RangeResult rangeSearch(long minKey, long maxKey, boolean unique)
             throws IOException, InvalidBTreeStateException {
-        SearchResult sMin = searchKey(minKey, unique);
-        SearchResult sMax;
-        RangeResult rangeQueryResult = new RangeResult();
-        if(sMin.isFound()) {
-            // read up until we find a key that's greater than maxKey
-            // or the last entry.
-
-            int i = sMin.getIndex();
-            while(sMin.getLeaf().getKeyAt(i) <= maxKey) {
-                rangeQueryResult.getQueryResult().
-                        add(new KeyValueWrapper(sMin.getLeaf().getKeyAt(i),
-                                sMin.getLeaf().getValueAt(i)));
-
-                // check if we have an overflow page
-                if(!unique && sMin.getLeaf().getOverflowPointerAt(i) != -1)
-                    {parseOverflowPages(sMin.getLeaf(), i, rangeQueryResult);}
-
-                i++;
+        treeLock.readLock().lock();
+        try {
+            SearchResult sMin = searchKey(minKey, unique);
+            SearchResult sMax;
+            RangeResult rangeQueryResult = new RangeResult();
+            if(sMin.isFound()) {
+                // read up until we find a key that's greater than maxKey
+                // or the last entry.
+
+                int i = sMin.getIndex();
+                while(sMin.getLeaf().getKeyAt(i) <= maxKey) {
+                    rangeQueryResult.getQueryResult().
+                            add(new KeyValueWrapper(sMin.getLeaf().getKeyAt(i),
+                                    sMin.getLeaf().getValueAt(i)));
+
+                    // check if we have an overflow page
+                    if(!unique && sMin.getLeaf().getOverflowPointerAt(i) != -1)
+                        {parseOverflowPages(sMin.getLeaf(), i, rangeQueryResult);}
+
+                    i++;
+
+                    // check if we need to read the next block
+                    if(i == sMin.getLeaf().getCurrentCapacity()) {
+                        // check if we have a next node to load.
+                        if(sMin.getLeaf().getNextPagePointer() < 0)
+                            // if not just break the loop
+                            {break;}
+                        sMin.setLeaf((TreeLeaf)readNode(sMin.getLeaf().getNextPagePointer()));
+                        i = 0;
+                    }
+                }
 
-                // check if we need to read the next block
-                if(i == sMin.getLeaf().getCurrentCapacity()) {
-                    // check if we have a next node to load.
-                    if(sMin.getLeaf().getNextPagePointer() < 0)
+            }
+            // this is the case where both searches might fail to find something, but
+            // we *might* have something between in the given range. To account for
+            // that even if we have *not* found something we will return those results
+            // instead. For example say we have a range of [2, 5] and we only have keys
+            // from [3, 4], thus both searches for min and max would fail to find a
+            // matching key in both cases. Thing is to account for that *both* results
+            // will be stopped at the first key that is less than min and max values
+            // given even if we did not find anything.
+            else {
+                sMax = searchKey(maxKey, unique);
+                int i = sMax.getIndex();
+                while(i >= 0 && sMax.getLeaf().getKeyAt(i) >= minKey) {
+                    rangeQueryResult.getQueryResult().
+                            add(new KeyValueWrapper(sMax.getLeaf().getKeyAt(i),
+                                    sMax.getLeaf().getValueAt(i)));
+
+                    // check if we have an overflow page
+                    if(!unique && sMax.getLeaf().getOverflowPointerAt(i) != -1)
+                        {parseOverflowPages(sMax.getLeaf(), i, rangeQueryResult);}
+
+                    i--;
+                    // check if we need to read the next block
+                    if(i < 0) {
+                        // check if we do have another node to load
+                        if(sMax.getLeaf().getPrevPagePointer() < 0)
                         // if not just break the loop
-                        {break;}
-                    sMin.setLeaf((TreeLeaf)readNode(sMin.getLeaf().getNextPagePointer()));
-                    i = 0;
+                            {break;}
+                        sMax.setLeaf((TreeLeaf)readNode(sMax.getLeaf().getPrevPagePointer()));
+                        // set it to max length
+                        i = sMax.getLeaf().getCurrentCapacity()-1;
+                    }
                 }
-            }
 
+            }
+            bPerf.incrementTotalRangeQueries();
+            // finally return the result list (empty or not)
+            return(rangeQueryResult);
+        } finally {
+            treeLock.readLock().unlock();
         }
-        // this is the case where both searches might fail to find something, but
-        // we *might* have something between in the given range. To account for
-        // that even if we have *not* found something we will return those results
-        // instead. For example say we have a range of [2, 5] and we only have keys
-        // from [3, 4], thus both searches for min and max would fail to find a
-        // matching key in both cases. Thing is to account for that *both* results
-        // will be stopped at the first key that is less than min and max values
-        // given even if we did not find anything.
-        else {
-            sMax = searchKey(maxKey, unique);
-            int i = sMax.getIndex();
-            while(i >= 0 && sMax.getLeaf().getKeyAt(i) >= minKey) {
-                rangeQueryResult.getQueryResult().
-                        add(new KeyValueWrapper(sMax.getLeaf().getKeyAt(i),
-                                sMax.getLeaf().getValueAt(i)));
+    }
 
-                // check if we have an overflow page
-                if(!unique && sMax.getLeaf().getOverflowPointerAt(i) != -1)
-                    {parseOverflowPages(sMax.getLeaf(), i, rangeQueryResult);}
-
-                i--;
-                // check if we need to read the next block
-                if(i < 0) {
-                    // check if we do have another node to load
-                    if(sMax.getLeaf().getPrevPagePointer() < 0)
-                    // if not just break the loop
-                        {break;}
-                    sMax.setLeaf((TreeLeaf)readNode(sMax.getLeaf().getPrevPagePointer()));
-                    // set it to max length
-                    i = sMax.getLeaf().getCurrentCapacity()-1;
-                }
+    /**
+     * Open a cursor that lazily returns the (Key, Value) pairs in the given
+     * range in ascending key order; unlike rangeSearch only one page is kept
+     * in memory at a time, regardless of the range width.
+     *
+     * @param minKey min key of the range
+     * @param maxKey max key of the range
+     * @param unique return only *first* encounter of the (Key, Value) pairs or all?
+     * @return the cursor, positioned before the first pair in the range
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    @SuppressWarnings("unused")
+    public RangeCursor rangeCursor(long minKey, long maxKey, boolean unique)
+            throws IOException
+        {return(rangeCursor(minKey, maxKey, unique, false, Long.MAX_VALUE));}
+
+    /**
+     * Open a cursor that lazily returns the (Key, Value) pairs in the given
+     * range, in ascending or descending key order and up to a limit.
+     *
+     * @param minKey min key of the range
+     * @param maxKey max key of the range
+     * @param unique return only *first* encounter of the (Key, Value) pairs or all?
+     * @param descending return the pairs in descending key order?
+     * @param limit max number of pairs to return
+     * @return the cursor, positioned before the first pair in the range
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    @SuppressWarnings("unused")
+    public RangeCursor rangeCursor(long minKey, long maxKey, boolean unique,
+                                   boolean descending, long limit)
+            throws IOException {
+        bPerf.incrementTotalRangeQueries();
+        return(new RangeCursor(this, minKey, maxKey, unique, descending, limit));
+    }
+
+    /**
+     * Lazily stream the (Key, Value) pairs in the given range in ascending
+     * key order; the stream should be closed when done with it.
+     *
+     * @param minKey min key of the range
+     * @param maxKey max key of the range
+     * @param unique return only *first* encounter of the (Key, Value) pairs or all?
+     * @return the stream of the pairs in the range
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    @SuppressWarnings("unused")
+    public Stream<KeyValueWrapper> rangeStream(long minKey, long maxKey, boolean unique)
+            throws IOException
+        {return(rangeCursor(minKey, maxKey, unique).stream());}
+
+    /**
+     * Return the number of modifications made to the tree so far; used by
+     * cursors to detect that the tree changed under them.
+     *
+     * @return the modification count
+     */
+    long getModificationCount() {
+        treeLock.readLock().lock();
+        try
+            {return(modCount);}
+        finally
+            {treeLock.readLock().unlock();}
+    }
+
+    /**
+     * Descend to the leaf where the key is (or would be) for a cursor;
+     * the leaf is always read anew, so it is not shared with writers even
+     * if it's the root.
+     *
+     * @param key key to look for
+     * @param expectedModCount modification count when the cursor was opened
+     * @return the leaf
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws ConcurrentModificationException is thrown when the tree was modified
+     */
+    TreeLeaf seekLeaf(long key, long expectedModCount)
+            throws IOException, ConcurrentModificationException {
+        treeLock.readLock().lock();
+        try {
+            checkModificationCount(expectedModCount);
+            TreeNode n = root.isLeaf() ? readNode(root.getPageIndex()) : root;
+            while(!n.isLeaf()) {
+                int i = binSearchBlock(n, key, Rank.Exact);
+                // padding to account for the last pointer (if needed)
+                if(i != n.getCurrentCapacity() && key >= n.getKeyAt(i)) {i++;}
+                n = readNode(((TreeInternalNode)n).getPointerAt(i));
             }
+            return((TreeLeaf)n);
+        } finally {
+            treeLock.readLock().unlock();
+        }
+    }
 
+    /**
+     * Read a leaf or overflow page for a cursor
+     *
+     * @param index index of the page
+     * @param expectedModCount modification count when the cursor was opened
+     * @return the node
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws ConcurrentModificationException is thrown when the tree was modified
+     */
+    TreeNode readCursorNode(long index, long expectedModCount)
+            throws IOException, ConcurrentModificationException {
+        treeLock.readLock().lock();
+        try {
+            checkModificationCount(expectedModCount);
+            return(readNode(index));
+        } finally {
+            treeLock.readLock().unlock();
         }
-        bPerf.incrementTotalRangeQueries();
-        // finally return the result list (empty or not)
-        return(rangeQueryResult);
+    }
+
+    /**
+     * Make sure the tree was not modified since a cursor was opened
+     *
+     * @param expectedModCount modification count when the cursor was opened
+     * @throws ConcurrentModificationException is thrown when the tree was modified
+     */
+    private void checkModificationCount(long expectedModCount)
+            throws ConcurrentModificationException {
+        if(modCount != expectedModCount)
+            {throw new ConcurrentModificationException("Tree was modified " +
+                    "while the cursor was open");}
     }
 
     /**
@@ -665,8 +1138,13 @@ public class BPlusTree {
     @SuppressWarnings("unused")
     public SearchResult searchKey(long key, boolean unique)
             throws IOException, InvalidBTreeStateException {
-        bPerf.incrementTotalSearches();
-        return(searchKey(this.root, key, unique));
+        treeLock.readLock().lock();
+        try {
+            bPerf.incrementTotalSearches();
+            return(searchKey(this.root, key, unique));
+        } finally {
+            treeLock.readLock().unlock();
+        }
     }
 
     /**
@@ -730,6 +1208,93 @@ public class BPlusTree {
 
     }
 
+    /**
+     * Search for a batch of keys at once; the keys are sorted and descend
+     * the tree together, each node passing to a child only the (sorted) run
+     * of keys that falls under it. Thus every page is read once per batch
+     * regardless of how many of the keys end up in it, which for batches of
+     * nearby keys saves most of the page reads of the separate searches.
+     *
+     * The results are returned in the order of the keys in the batch and the
+     * number of pages read per key is reported through the performance
+     * counter.
+     *
+     * @param keys keys to match
+     * @param unique return *all* matching (Key, Value) pairs or the *first* found
+     * @return the search results, one per key
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    @SuppressWarnings("unused")
+    public SearchResult[] multiGet(long[] keys, boolean unique)
+            throws IOException, InvalidBTreeStateException {
+        treeLock.readLock().lock();
+        try {
+            SearchResult[] res = new SearchResult[keys.length];
+            if(keys.length == 0)
+                {return(res);}
+            Integer[] order = sortBatch(keys);
+            // the root is read once for the whole batch as well
+            int pages = 1 + multiGet(this.root, keys, order, 0, order.length,
+                    unique, res);
+            for(int i = 0; i < keys.length; i++)
+                {bPerf.incrementTotalSearches();}
+            bPerf.incrementBatchSearches(keys.length, pages);
+            return(res);
+        } finally {
+            treeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Performs the actual batch search for the keys order[from, to) under
+     * the node, recursing once for each child that any of them falls under.
+     *
+     * @param node the node to poke into
+     * @param keys keys of the batch
+     * @param order indices of the keys in ascending key order
+     * @param from first position in order (inclusive)
+     * @param to last position in order (exclusive)
+     * @param unique unique results?
+     * @param res where to store the results
+     * @return the number of pages read under this node
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private int multiGet(TreeNode node, long[] keys, Integer[] order, int from,
+                         int to, boolean unique, SearchResult[] res)
+            throws IOException {
+        // leaves are searched as usual, the page is already here
+        if(node.isLeaf()) {
+            for(int j = from; j < to; j++)
+                {res[order[j]] = searchKey(node, keys[order[j]], unique);}
+            return(0);
+        }
+
+        int pages = 0;
+        int j = from;
+        while(j < to) {
+            long key = keys[order[j]];
+            // find the child as searchKey does
+            int i = binSearchBlock(node, key, Rank.Exact);
+            if(i != node.getCurrentCapacity() && key >= node.getKeyAt(i)) {i++;}
+
+            // gather the following keys that are below the next separator
+            int end = j + 1;
+            if(i == node.getCurrentCapacity())
+                {end = to;}
+            else {
+                long sep = node.getKeyAt(i);
+                while(end < to && keys[order[end]] < sep)
+                    {end++;}
+            }
+
+            TreeNode t = readNode(((TreeInternalNode)node).getPointerAt(i));
+            pages += 1 + multiGet(t, keys, order, j, end, unique, res);
+            j = end;
+        }
+        return(pages);
+    }
+
     /**
      * Function to delete a key from our tree... this function is again
      * adopted from CLRS delete method but this was basically written
@@ -740,6 +1305,9 @@ public class BPlusTree {
      * -- thirdly performs merges if necessary (it capacity falls < degree-1)
      * -- finally condenses the file size depending on load
      *
+     * A key that is not in the tree is looked up first and left alone, as
+     * the descent would merge nodes (and invalidate open cursors) on the way.
+     *
      * @param key key to delete
      * @param unique unique deletions?
      * @return the number of deleted keys
@@ -749,10 +1317,20 @@ public class BPlusTree {
     @SuppressWarnings("unused")
     public DeleteResult deleteKey(long key, boolean unique)
     throws IOException, InvalidBTreeStateException  {
-        if(root.isEmpty()) {
-            return (new DeleteResult(key, (LinkedList<String>) null));
-        } else
-            {return(deleteKey(root, null, -1, -1, key, unique));}
+        treeLock.writeLock().lock();
+        try {
+            // a key which is not there leaves the tree (and the open cursors)
+            // alone, instead of merging nodes on the way down to its leaf
+            if(root.isEmpty() || !searchKey(root, key, true).isFound())
+                {return (new DeleteResult(key, (LinkedList<String>) null));}
+
+            modCount++;
+            DeleteResult result = deleteKey(root, null, -1, -1, key, unique);
+            commitLogTransaction();
+            return(result);
+        } finally {
+            treeLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -777,8 +1355,19 @@ public class BPlusTree {
         // check if we need to consolidate
         if(current.isTimeToMerge(conf)) {
             //System.out.println("Parent needs merging (internal node)");
-            TreeNode mres = mergeOrRedistributeTreeNodes(current, parent,
-                    parentPointerIndex, parentKeyIndex);
+            long cIndex = current.getPageIndex(),
+                 pIndex = parent == null ? -1L : parent.getPageIndex();
+            // keep both pages resident while merging
+            pageCache.pin(cIndex);
+            pageCache.pin(pIndex);
+            TreeNode mres;
+            try {
+                mres = mergeOrRedistributeTreeNodes(current, parent,
+                        parentPointerIndex, parentKeyIndex);
+            } finally {
+                pageCache.unpin(pIndex);
+                pageCache.unpin(cIndex);
+            }
             if(mres != null) {
                 current = mres;
             }
@@ -845,11 +1434,11 @@ public class BPlusTree {
                         if(povf.isEmpty()) {
                             if (ovf == null) {
                                 l.setOverflowPointerAt(i, -1L);
-                                l.writeNode(treeFile, conf, bPerf);
+                                writeNode(l);
                             }
                             else {
                                 ovf.setNextPagePointer(-1L);
-                                ovf.writeNode(treeFile, conf, bPerf);
+                                writeNode(ovf);
                             }
                             // now delete the page
                             deletePage(povf.getPageIndex(), false);
@@ -857,7 +1446,7 @@ public class BPlusTree {
                         // we don't have to delete the page, so let's
                         // update it instead.
                         else
-                            {povf.writeNode(treeFile, conf, bPerf);}
+                            {writeNode(povf);}
 
                         // return the result
                         return(new DeleteResult(key, rvals));
@@ -886,7 +1475,7 @@ public class BPlusTree {
             // or non-unique deletes with overflow pages. We should
             // reach this point after we purged all the overflow pages.
             rvals.add(((TreeLeaf)current).removeEntryAt(i, conf));
-            current.writeNode(treeFile, conf, bPerf);
+            writeNode(current);
         }
         else {
             throw new IllegalStateException("Read unknown or " +
@@ -1023,9 +1612,9 @@ public class BPlusTree {
         // in either case update parent pointer
         parent.setKeyArrayAt(parentKeyIndex, key);
         // finally write the changes
-        to.writeNode(treeFile, conf, bPerf);
-        with.writeNode(treeFile, conf, bPerf);
-        parent.writeNode(treeFile, conf, bPerf);
+        writeNode(to);
+        writeNode(with);
+        writeNode(parent);
     }
 
     /**
@@ -1092,9 +1681,9 @@ public class BPlusTree {
         // in either case update the parent key
         parent.setKeyArrayAt(parentKeyIndex, key);
         // finally write the chances
-        to.writeNode(treeFile, conf, bPerf);
-        with.writeNode(treeFile, conf, bPerf);
-        parent.writeNode(treeFile, conf, bPerf);
+        writeNode(to);
+        writeNode(with);
+        writeNode(parent);
     }
 
     /**
@@ -1161,17 +1750,17 @@ public class BPlusTree {
         // update capacity as in both cases we remove a value
         parent.decrementCapacity(conf);
         // write parent node
-        parent.writeNode(treeFile, conf, bPerf);
+        writeNode(parent);
 
         // update the prev pointer of right next node (if any)
         if(right.getNextPagePointer() != -1) {
             TreeLeaf rnext = (TreeLeaf)readNode(right.getNextPagePointer());
             rnext.setPrevPagePointer(left.getPageIndex());
-            rnext.writeNode(treeFile, conf, bPerf);
+            writeNode(rnext);
         }
 
         // write the left node to disk
-        left.writeNode(treeFile, conf, bPerf);
+        writeNode(left);
         // remove the page
         deletePage(right.getPageIndex(), false);
         // finally return the node reference
@@ -1298,10 +1887,10 @@ public class BPlusTree {
         // update capacity as in both cases we remove a value
         parent.decrementCapacity(conf);
         // write parent node
-        parent.writeNode(treeFile, conf, bPerf);
+        writeNode(parent);
 
         // write the node
-        left.writeNode(treeFile, conf, bPerf);
+        writeNode(left);
         // remove the page
         deletePage(right.getPageIndex(), false);
         // finally remove the node reference
@@ -1469,7 +2058,7 @@ public class BPlusTree {
                     // write root header
                     writeFileHeader(conf);
                     // write left leaf
-                    lChild.writeNode(treeFile, conf, bPerf);
+                    writeNode(lChild);
                     // since we have a new root
                     return(lChild);
                 }
@@ -1515,7 +2104,7 @@ public class BPlusTree {
                     // write root header
                     writeFileHeader(conf);
                     // write left leaf
-                    lChild.writeNode(treeFile, conf, bPerf);
+                    writeNode(lChild);
                     // since we have a new root
                     return(lChild);
                 }
@@ -1766,7 +2355,7 @@ public class BPlusTree {
             bPerf.incrementTotalPages();
             bPerf.incrementTotalLeaves();
             // write the file
-            root.writeNode(treeFile, conf, bPerf);
+            writeNode(root);
         }
         return(root);
     }
@@ -1803,6 +2392,12 @@ public class BPlusTree {
             {
                 return (TreeNodeType.TREE_LOOKUP_OVERFLOW);
             }
+
+            case TreeLeaf.COMPACT_LEAF_TYPE:        // COMPACT LEAF
+                {return(TreeNodeType.TREE_LEAF);}
+
+            case TreeLeaf.COMPACT_ROOT_LEAF_TYPE:   // COMPACT LEAF NODE /w ROOT
+                {return(TreeNodeType.TREE_ROOT_LEAF);}
             default: {
                 throw new InvalidPropertiesFormatException("Unknown " +
                         "node value read; file possibly corrupt?");
@@ -1825,106 +2420,91 @@ public class BPlusTree {
      * this can be done after each deletion or more unsafely
      * before committing the file changes at the end.
      *
+     * The free pages are written as extents (see TreeFreePageMap)
+     * in the lookup page after the header and, if they do not fit
+     * there, in a chain of lookup overflow pages which are taken
+     * from the free pages themselves.
+     *
      * @throws IOException is thrown when an I/O operation fails
      * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
      */
     private void commitLookupPage() throws IOException, InvalidBTreeStateException {
 
-        int i, cap = lookupPagesPool.size();
         // push all the existing lookup pages to the free pool
-        for (i = 0; i < cap; i++) {
-            freeSlotPool.add(lookupPagesPool.removeFirst());
-        }
+        while(!lookupPagesPool.isEmpty())
+            {freePageMap.free(lookupPagesPool.removeFirst());}
         // condition the file first
         conditionFileLength();
 
+        long[] extents = freePageMap.toExtents();
+        int i, first = conf.getFirstLookupPageElements();
         // check if we need more than one lookup page
-        if (freeSlotPool.size() <= conf.getFirstLookupPageElements()) {
+        if (extents.length <= first) {
             System.out.println(" -- We only need a singular page for " +
                     "overflow values" +
-                    "\n\tInitial page capacity: " + freeSlotPool.size());
+                    "\n\tInitial page capacity: " + extents.length +
+                    "\n\tFree pages: " + freePageMap.size());
 
-            // reset the pointer and commit it
-            // seek to the position we have to start to write
-            treeFile.seek(conf.getHeaderSize() - 8 /* 1 less position */);
             this.firstPoolNextPointer = -1L;
-            treeFile.writeLong(this.firstPoolNextPointer);
-            int flpSz = freeSlotPool.size();
-            // now write
-            if (flpSz > 0) {
-                for (Long fpIndex : freeSlotPool) {
-                    treeFile.writeLong(fpIndex);
-                }
-
-            }
-            // if we have less elements than max write -1L
-            // at the end to indicate termination of page
-            // but only for the first "page" (after the
-            // file header).
-            if (flpSz < conf.getFirstLookupPageElements()) {
-                treeFile.writeLong(-1L);
-            }
         } else {
-            int written = 0;
-            int rest = (freeSlotPool.size() - conf.getFirstLookupPageElements()),
-                    // go past the header chunk
-                    poolIndex = conf.getFirstLookupPageElements();
-
-            TreeLookupOverflowNode lpOvf;
-            cap = conf.getMaxLookupPageOverflowCapacity();
+            int cap = conf.getMaxLookupPageOverflowCapacity();
             // calculate the number of pages needed
-            int pages = (int) Math.ceil(rest / ((double) cap));
+            int pages = (int) Math.ceil((extents.length - first) / ((double) cap));
 
+            // take the lowest pages, this can only shrink the extents
             for (i = 0; i < pages; i++) {
-                lookupPagesPool.add(freeSlotPool.removeFirst());
+                lookupPagesPool.add(freePageMap.allocate());
             }
+            extents = freePageMap.toExtents();
 
             // the ending pointer
             lookupPagesPool.add(-1L);
             // get the smallest page available
             firstPoolNextPointer = lookupPagesPool.getFirst();
             // write all the pages
+            int poolIndex = first;
             for (i = 0; i < pages; i++) {
                 // create the page
-                lpOvf = createOverflowLookupPage(lookupPagesPool.get(i),
-                        lookupPagesPool.get(i + 1));
+                TreeLookupOverflowNode lpOvf = createOverflowLookupPage(
+                        lookupPagesPool.get(i), lookupPagesPool.get(i + 1));
 
                 // write it.
-                for (int j = 0;
-                     j < cap && poolIndex < freeSlotPool.size();
+                for (int j = 0; j < cap && poolIndex < extents.length;
                      j++, poolIndex++) {
-                    lpOvf.addToKeyArrayAt(j, freeSlotPool.get(poolIndex));
+                    lpOvf.addToKeyArrayAt(j, extents[poolIndex]);
                     lpOvf.incrementCapacity(conf);
-                    written++;
                 }
-                lpOvf.writeNode(treeFile, conf, bPerf);
+                writeNode(lpOvf);
             }
             // remove the last entry
             lookupPagesPool.removeLast();
 
-            // seek to the position we have to start to write
-            treeFile.seek(conf.getHeaderSize() - 8 /* 1 less position */);
-            treeFile.writeLong(this.firstPoolNextPointer);
-            // write the first page chunk (after the
-            // file header) [no need to check for capacity, as this
-            // is done above]
-            for (i = 0; i < conf.getFirstLookupPageElements(); i++) {
-                treeFile.writeLong(freeSlotPool.get(i));
-                written++;
-            }
-
-
-            if (written != freeSlotPool.size()) {
+            if (poolIndex < extents.length) {
                 throw new InvalidBTreeStateException("Amount of lookup values written" +
                         " does not comply with the size of the pool");
             }
 
             System.out.println(" -- Multiple pages needed for the " +
                     "overflow values" + "\n\tPages needed: " + pages +
-                    "\n\tInitial page capacity: " +
-                    conf.getFirstLookupPageElements() +
-                    "\n\tPer Page capacity: " +
-                    conf.getMaxLookupPageOverflowCapacity());
+                    "\n\tInitial page capacity: " + first +
+                    "\n\tPer Page capacity: " + cap +
+                    "\n\tFree pages: " + freePageMap.size());
+        }
+
+        // seek to the position we have to start to write
+        treeFile.seek(conf.getHeaderSize() - 8 /* 1 less position */);
+        treeFile.writeLong(this.firstPoolNextPointer);
+        // write the first page chunk (after the file header)
+        int flpSz = Math.min(extents.length, first);
+        for (i = 0; i < flpSz; i++) {
+            treeFile.writeLong(extents[i]);
+        }
+        // if we have less elements than max write -1L
+        // at the end to indicate termination of page
+        // but only for the first "page" (after the
+        // file header).
+        if (flpSz < first) {
+            treeFile.writeLong(-1L);
         }
     }
 
@@ -1935,16 +2515,17 @@ public class BPlusTree {
      * @throws IOException is thrown when an I/O operation fails
      */
     private void conditionFileLength() throws IOException {
-        Collections.sort(freeSlotPool);
         long purged = this.maxPageNumber;
-        long lastPos = freeSlotPool.size() > 0 ? freeSlotPool.getLast() : -1L;
+        long lastPos = freePageMap.last();
         while (lastPos != -1L && lastPos == calculatePageOffset(this.maxPageNumber)) {
             this.maxPageNumber--;
-            freeSlotPool.removeLast();
-            lastPos = freeSlotPool.size() > 0 ? freeSlotPool.getLast() : -1L;
+            freePageMap.remove(lastPos);
+            lastPos = freePageMap.last();
         }
-        // set the length to be max page plus one
-        treeFile.setLength(calculatePageOffset(this.maxPageNumber + 1));
+        // set the length to be max page plus one, purged pages must
+        // not be written back from the cache.
+        pageCache.truncate(calculatePageOffset(this.maxPageNumber + 1));
+        pageStore.setLength(calculatePageOffset(this.maxPageNumber + 1));
         System.out.println("\n\n -- Conditioning file has been completed! " +
                 "\n\tPurged pages: " + (purged - this.maxPageNumber) +
                 "\n\tNew file size: " + calculatePageOffset(this.maxPageNumber + 1) +
@@ -1967,20 +2548,21 @@ public class BPlusTree {
         // caution.
         if(index < 0)
             {return(null);}
-        treeFile.seek(index);
+        ByteBuffer page = pageCache.readPage(index);
         // get the page type
-        TreeNodeType nt = getPageType(treeFile.readShort());
+        short pageType = page.getShort();
+        TreeNodeType nt = getPageType(pageType);
 
         // handle internal node reading
         if(isInternalNode(nt)) {
             TreeInternalNode tnode = new TreeInternalNode(nt, index);
-            int curCap = treeFile.readInt();
+            int curCap = page.getInt();
             for(int i = 0; i < curCap; i++) {
-                tnode.addToKeyArrayAt(i, treeFile.readLong());
-                tnode.addPointerAt(i, treeFile.readLong());
+                tnode.addToKeyArrayAt(i, page.getLong());
+                tnode.addPointerAt(i, page.getLong());
             }
             // add the final pointer
-            tnode.addPointerAt(curCap, treeFile.readLong());
+            tnode.addPointerAt(curCap, page.getLong());
             // update the capacity
             tnode.setCurrentCapacity(curCap);
             bPerf.incrementTotalInternalNodeReads();
@@ -1990,16 +2572,19 @@ public class BPlusTree {
         }
         // check if we have an overflow page
         else if(isOverflowPage(nt)) {
-            long nextptr = treeFile.readLong();
-            long prevptr = treeFile.readLong();
-            int curCap = treeFile.readInt();
+            long nextptr = page.getLong();
+            long prevptr = page.getLong();
+            int curCap = page.getInt();
             byte[] strBuf = new byte[conf.getEntrySize()];
             TreeOverflow tnode = new TreeOverflow(nextptr, prevptr, index);
 
-            // read entries
+            // read entries, dropping the zero padding of compact trees
             for(int i = 0; i < curCap; i++) {
-                treeFile.read(strBuf);
-                tnode.addToValueList(i, new String(strBuf));
+                page.get(strBuf);
+                int len = strBuf.length;
+                while(len > 0 && strBuf[len - 1] == 0)
+                    {len--;}
+                tnode.addToValueList(i, new String(strBuf, 0, len));
             }
             // update capacity
             tnode.setCurrentCapacity(curCap);
@@ -2008,18 +2593,22 @@ public class BPlusTree {
         }
         // well, it must be a leaf node
         else if (isLeaf(nt)) {
-            long nextptr = treeFile.readLong();
-            long prevptr = treeFile.readLong();
-            int curCap = treeFile.readInt();
-            byte[] strBuf = new byte[conf.getEntrySize()];
+            long nextptr = page.getLong();
+            long prevptr = page.getLong();
+            int curCap = page.getInt();
             TreeLeaf tnode = new TreeLeaf(nextptr, prevptr, nt, index);
 
             // read entries
-            for(int i = 0; i < curCap; i++) {
-                tnode.addToKeyArrayAt(i, treeFile.readLong());
-                tnode.addToOverflowList(i, treeFile.readLong());
-                treeFile.read(strBuf);
-                tnode.addToValueList(i, new String(strBuf));
+            if(TreeLeaf.isCompactPageType(pageType))
+                {readCompactEntries(tnode, page, curCap);}
+            else {
+                byte[] strBuf = new byte[conf.getEntrySize()];
+                for(int i = 0; i < curCap; i++) {
+                    tnode.addLastToKeyArray(page.getLong());
+                    tnode.addLastToOverflowList(page.getLong());
+                    page.get(strBuf);
+                    tnode.addLastToValueList(new String(strBuf));
+                }
             }
             // update capacity
             tnode.setCurrentCapacity(curCap);
@@ -2030,13 +2619,13 @@ public class BPlusTree {
 
             return(tnode);
         } else {
-            long nextptr = treeFile.readLong();
-            int curCap = treeFile.readInt();
+            long nextptr = page.getLong();
+            int curCap = page.getInt();
             TreeLookupOverflowNode lpOvf = new TreeLookupOverflowNode(index, nextptr);
 
             // now loop through the
             for (int i = 0; i < curCap; i++) {
-                lpOvf.addToKeyArrayAt(i, treeFile.readLong());
+                lpOvf.addToKeyArrayAt(i, page.getLong());
             }
 
             // update capacity
@@ -2046,6 +2635,55 @@ public class BPlusTree {
         }
     }
 
+    /**
+     * Decode the entries of a compact leaf (see TreeLeaf for the layout);
+     * values are decoded straight from the page when it is backed by an
+     * array, so no intermediate buffers are needed.
+     *
+     * @param l leaf to add the entries to
+     * @param page the page, positioned right after the capacity
+     * @param curCap number of entries in the page
+     */
+    private void readCompactEntries(TreeLeaf l, ByteBuffer page, int curCap) {
+        long key = page.getLong();
+        for(int i = 0; i < curCap; i++) {
+            key += TreeLeaf.getVarLong(page);
+            long ovf = TreeLeaf.overflowPointer(TreeLeaf.getVarLong(page), conf);
+            int len = (int) TreeLeaf.getVarLong(page);
+            String value;
+            if(page.hasArray()) {
+                value = new String(page.array(), page.arrayOffset() + page.position(),
+                        len, StandardCharsets.UTF_8);
+                page.position(page.position() + len);
+            } else {
+                byte[] buf = new byte[len];
+                page.get(buf);
+                value = new String(buf, StandardCharsets.UTF_8);
+            }
+            l.addLastToKeyArray(key);
+            l.addLastToOverflowList(ovf);
+            l.addLastToValueList(value);
+        }
+    }
+
+    /**
+     * Write the node to its page through the page cache; in the case
+     * of a root we also update the root index in the file header.
+     *
+     * @param n node to write
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void writeNode(TreeNode n) throws IOException {
+        // update root index in the file (the log keeps it otherwise)
+        if(n.isRoot() && !isHeaderLogged()) {
+            treeFile.seek(conf.getHeaderSize()-16L);
+            treeFile.writeLong(n.getPageIndex());
+        }
+        pageBuffer.clear();
+        n.writeNode(pageBuffer, conf, bPerf);
+        pageCache.writePage(n.getPageIndex(), pageBuffer.array());
+    }
+
     /**
      * Check if the node is an internal node
      *
@@ -2137,13 +2775,47 @@ public class BPlusTree {
         // read the next lookup page pointer
         this.firstPoolNextPointer = r.readLong();
 
+        // generate the configuration (if needed) before reading any pages
+        // as the page cache depends on the stored page size.
+        BPlusConfiguration fileConf = null;
+        if(generateConf) {
+            fileConf = new BPlusConfiguration(pageSize, keySize, entrySize);
+            if(conf != null)
+                {fileConf.copyStorageSettings(conf);}
+        }
+        // pages have to be decoded using the configuration of the file
+        if(fileConf != null)
+            {conf = fileConf;}
+        initializePageCache(conf, true);
+
+        // a log left behind holds a newer state than the header
+        if(wal != null && wal.getRecoveredState() != null) {
+            TreeWriteAheadLog.LogState state = wal.getRecoveredState();
+            totalTreePages = state.totalTreePages;
+            maxPageNumber = state.maxPageNumber;
+            rootIndex = state.root;
+        }
+
         // read the root.
         root = readNode(rootIndex);
-        // finally if needed create a configuration file
-        if(generateConf)
-            {return(new BPlusConfiguration(pageSize, keySize, entrySize));}
-        else
-            {return(null);}
+        // the leaves tell us which format the tree uses
+        conf.setCompactLeaves(hasCompactLeaves(root));
+        // finally return the configuration (if generated) or null
+        return(fileConf);
+    }
+
+    /**
+     * Check if the tree leaves are stored in the compact format by looking
+     * at the page type of the leftmost leaf
+     *
+     * @param n root of the tree
+     * @return true if the leaves are compact, false otherwise.
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private boolean hasCompactLeaves(TreeNode n) throws IOException {
+        while(n.isInternalNode())
+            {n = readNode(((TreeInternalNode) n).getPointerAt(0));}
+        return(TreeLeaf.isCompactPageType(pageCache.readPage(n.getPageIndex()).getShort()));
     }
 
     /**
@@ -2154,6 +2826,9 @@ public class BPlusTree {
      */
     private void writeFileHeader(BPlusConfiguration conf)
             throws IOException {
+        // the log keeps it until the next checkpoint
+        if(isHeaderLogged())
+            {return;}
         treeFile.seek(0L);
         treeFile.writeInt(conf.getHeaderSize());
         treeFile.writeInt(conf.getPageSize());
@@ -2180,6 +2855,7 @@ public class BPlusTree {
             throws IOException, InvalidBTreeStateException {
         File f = new File(path);
         String stmode = mode.substring(0, 2);
+        treeFilePath = path;
         treeFile = new RandomAccessFile(path, stmode);
         // check if the file already exists
         if(f.exists() && !mode.contains("+")) {
@@ -2187,8 +2863,15 @@ public class BPlusTree {
                     " bytes), trying to read it...");
             // read the header
             conf = readFileHeader(treeFile, true);
-            // read the lookup page
-            initializeLookupPage(f.exists());
+            freePageMap = new TreeFreePageMap(conf.getPageSize());
+            // read the lookup page, unless the log has the free pool
+            if(wal != null && wal.getRecoveredState() != null)
+                {freePageMap = wal.getRecoveredState().freePages;}
+            else
+                {initializeLookupPage(f.exists());}
+            // bring the file up to date and start a fresh log
+            if(wal != null)
+                {checkpoint();}
             System.out.println("File seems to be valid. Loaded OK!");
         }
         // if we have to start anew, do so.
@@ -2197,26 +2880,161 @@ public class BPlusTree {
             System.out.println("Tracking I/O performance as well");
             treeFile.setLength(0);
             conf = opt == null ? new BPlusConfiguration() : opt;
+            freePageMap = new TreeFreePageMap(conf.getPageSize());
+            initializePageCache(conf, false);
             initializeLookupPage(false);
             createTree();
             writeFileHeader(conf);
+            if(wal != null)
+                {checkpoint();}
             System.out.println("Done!");
         }
     }
 
     /**
-     * Just commit the tree by actually closing the FD
-     * thus flushing the buffers.
+     * Create the page store for the tree file (memory mapped or not) and
+     * the page cache that sits between the tree and the store; if asked
+     * to, or if a log was left behind by a tree that was not committed,
+     * the write-ahead log is put in front of the store.
+     *
+     * @param conf configuration matching the file
+     * @param recover recover the state of a left behind log?
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void initializePageCache(BPlusConfiguration conf, boolean recover)
+            throws IOException {
+        this.pageStore = conf.isMemoryMapped() ?
+                new TreeMappedPageStore(treeFile.getChannel(), conf) :
+                new TreeFilePageStore(treeFile, conf);
+        File log = new File(getLogPath());
+        if(conf.isWriteAheadLog() || (recover && log.length() > 0)) {
+            this.wal = new TreeWriteAheadLog(pageStore, log.getPath(), conf, bPerf, recover);
+            this.pageStore = wal;
+        }
+        // a stale log must not be replayed over a new file later on
+        else if(log.exists() && !log.delete())
+            {throw new IOException("Cannot delete stale log: " + log.getPath());}
+        this.pageCache = new TreePageCache(pageStore, conf, bPerf);
+        this.pageBuffer = ByteBuffer.allocate(conf.getPageSize());
+    }
+
+    /**
+     * Just commit the tree by writing back any cached pages and
+     * actually closing the FD thus flushing the buffers.
      *
      * @throws IOException is thrown when an I/O operation fails
      * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
      */
     public void commitTree() throws IOException, InvalidBTreeStateException {
-        commitLookupPage();
-        writeFileHeader(conf);
-        this.treeFile.close();
+        treeLock.writeLock().lock();
+        try {
+            modCount++;
+            if(wal != null) {
+                // the file is complete after the checkpoint, drop the log
+                checkpoint();
+                pageStore.close();
+                this.treeFile.close();
+                if(!new File(getLogPath()).delete())
+                    {throw new IOException("Cannot delete log: " + getLogPath());}
+                return;
+            }
+            commitLookupPage();
+            writeFileHeader(conf);
+            pageCache.flush();
+            pageStore.close();
+            this.treeFile.close();
+        } finally {
+            treeLock.writeLock().unlock();
+        }
     }
 
+    /**
+     * Make all of the operations committed so far durable by syncing the
+     * write-ahead log, without waiting for the group commit to fill up;
+     * this does nothing if the tree is not logged.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    @SuppressWarnings("unused")
+    public void syncLog() throws IOException {
+        treeLock.writeLock().lock();
+        try {
+            if(wal != null)
+                {wal.sync();}
+        } finally {
+            treeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Commit the operation that just finished to the write-ahead log (if
+     * any); the modified pages are pushed to the log followed by the commit
+     * record and, if the log has grown enough or the lookup page is due for
+     * conditioning, the log is checkpointed.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    private void commitLogTransaction() throws IOException, InvalidBTreeStateException {
+        if(wal == null)
+            {return;}
+        pageCache.flush();
+        wal.commit(root.getPageIndex(), totalTreePages, maxPageNumber, poolChanges);
+        poolChanges.clear();
+        if(conditionPending || wal.getLoggedPages() >= conf.getLogCheckpointPages())
+            {checkpoint();}
+    }
+
+    /**
+     * Checkpoint the write-ahead log; the logged pages are copied to the
+     * tree file, followed by the lookup page (conditioning the file) and
+     * the header and once all of that is on the disk the log starts over.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     * @throws InvalidBTreeStateException is thrown when there are inconsistencies in the blocks.
+     */
+    private void checkpoint() throws IOException, InvalidBTreeStateException {
+        pageCache.flush();
+        wal.beginCheckpoint();
+        checkpointing = true;
+        try {
+            commitLookupPage();
+            writeFileHeader(conf);
+            pageCache.flush();
+        } finally {
+            checkpointing = false;
+        }
+        treeFile.getChannel().force(true);
+
+        // pages holding the lookup overflow are free as far as the log goes
+        TreeFreePageMap freePages = freePageMap.copy();
+        for(long p : lookupPagesPool)
+            {freePages.free(p);}
+        wal.endCheckpoint(root.getPageIndex(), totalTreePages,
+                maxPageNumber, freePages);
+        poolChanges.clear();
+        conditionPending = false;
+        deleteIterations = 0;
+    }
+
+    /**
+     * Check if the header updates are kept in the write-ahead log instead
+     * of being written to the file; this is the case while logging, except
+     * during checkpoints.
+     *
+     * @return true if the header is not to be written, false otherwise
+     */
+    private boolean isHeaderLogged()
+        {return(wal != null && !checkpointing);}
+
+    /**
+     * Return the path of the write-ahead log of the tree file
+     *
+     * @return the log path
+     */
+    private String getLogPath()
+        {return(treeFilePath + ".wal");}
+
     /**
      * This function initializes the look-up page; in the simple
      * case that it does not already exist it just creates an
@@ -2238,15 +3056,14 @@ public class BPlusTree {
         // if we do, read it.
         else {
 
-            // add this as well.
-            //this.freeSlotPool.add(firstPoolNextPointer);
+            // the values are extents, which are decoded as we go
             long val;
             int parsed = 0;
             for (int i = 0; i < conf.getFirstLookupPageElements(); i++) {
                 if ((val = this.treeFile.readLong()) == -1L) {
                     break;
                 }
-                this.freeSlotPool.add(val);
+                this.freePageMap.addEncoded(val);
             }
 
             // now check if we have more pages
@@ -2254,16 +3071,18 @@ public class BPlusTree {
             TreeLookupOverflowNode lpOvf;
             while (pindex != -1L) {
                 parsed++;
-                freeSlotPool.add(pindex);
                 lpOvf = (TreeLookupOverflowNode) readNode(pindex);
-                freeSlotPool.addAll(lpOvf.keyArray.
-                        stream().collect(Collectors.toList()));
+                for (int i = 0; i < lpOvf.getCurrentCapacity(); i++) {
+                    freePageMap.addEncoded(lpOvf.getKeyAt(i));
+                }
+                // the page itself is free as well
+                freePageMap.free(pindex);
                 pindex = lpOvf.getNextPointer();
             }
 
             System.out.println("-- Parsed " + parsed +
                     " lookup overflow pages and the initial one, totaling: " +
-                    freeSlotPool.size() + " entries");
+                    freePageMap.size() + " free pages");
         }
     }
 
@@ -2273,11 +3092,30 @@ public class BPlusTree {
      * @param conf B+ configuration reference
      * @return page index
      */
-    private long generateFirstAvailablePageIndex(BPlusConfiguration conf) {
+    private long generateFirstAvailablePageIndex(BPlusConfiguration conf)
+        {return(generateFirstAvailablePageIndex(conf, -1L));}
+
+    /**
+     * Generate an available index for a page that is going to be read
+     * right after the given one (like the right sibling of a leaf); the
+     * first free page after it is preferred so that they are laid out
+     * next to each other.
+     *
+     * @param conf B+ configuration reference
+     * @param near index of the page the new one follows (-1 if none)
+     * @return page index
+     */
+    private long generateFirstAvailablePageIndex(BPlusConfiguration conf, long near) {
         long index;
         // check if we have used pages
-        if(freeSlotPool.size() > 0)
-            {index = freeSlotPool.pop(); totalTreePages++; return(index);}
+        if(!freePageMap.isEmpty()) {
+            index = freePageMap.allocate(near);
+            totalTreePages++;
+            // allocations are logged negated
+            if(wal != null)
+                {poolChanges.add(-index);}
+            return(index);
+        }
         // if not pad to the end of the file.
         else {
             if (maxPageNumber <= totalTreePages) {
@@ -2296,6 +3134,9 @@ public class BPlusTree {
      * @throws IOException is thrown when an I/O operation fails
      */
     private void updatePageIndexCounts(BPlusConfiguration conf) throws IOException {
+        // the log keeps them until the next checkpoint
+        if(isHeaderLogged())
+            {return;}
         treeFile.seek(conf.getPageCountOffset());
         treeFile.writeLong(totalTreePages);
         treeFile.writeLong(maxPageNumber);
@@ -2350,8 +3191,12 @@ public class BPlusTree {
         this.maxPageNumber = 0L;
         this.deleteIterations = 0;
         this.firstPoolNextPointer = -1L;
-        this.freeSlotPool = new LinkedList<>();
         this.lookupPagesPool = new LinkedList<>();
+        this.treeLock = new ReentrantReadWriteLock();
+        this.modCount = 0L;
+        this.poolChanges = new LinkedList<>();
+        this.conditionPending = false;
+        this.checkpointing = false;
         this.bPerf.setBTree(this);
     }
 
@@ -2375,17 +3220,23 @@ public class BPlusTree {
      * Delete the page
      *
      * @param pageIndex page index to remove
-     * @param sort sort free sort pool?
+     * @param commit commit the lookup page right away?
      */
-    private void deletePage(long pageIndex, boolean sort)
+    private void deletePage(long pageIndex, boolean commit)
             throws IOException, InvalidBTreeStateException {
-        this.freeSlotPool.add(pageIndex);
+        this.freePageMap.free(pageIndex);
         this.totalTreePages--;
         this.deleteIterations++;
+        if(wal != null)
+            {poolChanges.add(pageIndex);}
 
-        if(sort || isTimeForConditioning()) {
+        if(commit || isTimeForConditioning()) {
             this.deleteIterations = 0;
-            commitLookupPage();
+            // when logging, the lookup page is only written by checkpoints
+            if(wal != null)
+                {conditionPending = true;}
+            else
+                {commitLookupPage();}
         }
     }
 
@@ -2435,6 +3286,15 @@ public class BPlusTree {
             //System.out.println("Cannot have a null string");
         }
 
+        // compact leaves store the value as is, as long as it fits
+        if(conf.isCompactLeaves()) {
+            if(s.length() > conf.getEntrySize())
+                {s = s.substring(0, conf.getEntrySize());}
+            while(TreeLeaf.utf8Length(s) > conf.getEntrySize())
+                {s = s.substring(0, s.length() - 1);}
+            return(s);
+        }
+
         if(s.length() > conf.getEntrySize()) {
             System.out.println("Satellite length can't exceed " +
                     conf.getEntrySize() + " trimming...");
@@ -2451,4 +3311,307 @@ public class BPlusTree {
 
     private enum Rank {Pred, Succ, PlusOne, Exact}
 
+    /**
+     * State kept across the descents of a batch insertion
+     */
+    private static class BatchLeaf {
+        private long bound;             // upper bound of the leaf (-1 if none)
+        private int pageReads;          // pages read by the descents so far
+    }
+
+    /**
+     * An entry waiting to be packed in a node while bulk loading; for leaves
+     * it carries the values of the key, for internal nodes it carries the
+     * page index of the child and its smallest key.
+     */
+    private static class BulkEntry {
+        private final long key;                     // (first) key
+        private final long pointer;                 // child page index
+        private final LinkedList<String> values;    // values of the key
+
+        BulkEntry(long key, long pointer) {
+            this.key = key;
+            this.pointer = pointer;
+            this.values = new LinkedList<>();
+        }
+    }
+
+    /**
+     * One level of the tree being bulk loaded; entries are packed into nodes
+     * of the target capacity as long as enough entries follow to fill the
+     * last node of the level at least to its minimum capacity.
+     *
+     * Compact leaves are packed up to the fill factor of the page bytes
+     * instead; the buffered entries that fit in the next leaf are tracked
+     * as they are added (once they cannot get any more duplicates), using
+     * an upper bound of their encoded size.
+     */
+    private class BulkLevel {
+        private final boolean leafLevel;                // is this the leaf level?
+        private final boolean compact;                  // packing compact leaves?
+        private final double fillFactor;                // node fill factor
+        private final int minEntries;                   // min entries per node
+        private final int maxEntries;                   // max entries per node
+        private final int targetEntries;                // entries per packed node
+        private final int targetBytes;                  // bytes per packed compact leaf
+        private final LinkedList<BulkEntry> buffer;     // entries not packed yet
+        private BulkLevel parent;                       // level above (if any)
+        private int nodes;                              // nodes written so far
+        private long prevLeaf;                          // last leaf written
+        private long nextLeaf;                          // index of the next leaf
+        private int fit;                                // entries fitting the next leaf
+        private int fitBytes;                           // their (max) size in bytes
+        private long fitLastKey;                        // last key fitting
+        private boolean fitClosed;                      // no more entries fit?
+
+        BulkLevel(boolean leafLevel, double fillFactor) {
+            this.leafLevel = leafLevel;
+            this.compact = leafLevel && conf.isCompactLeaves();
+            this.fillFactor = fillFactor;
+            // internal nodes hold one more pointer than their keys
+            if(leafLevel) {
+                this.minEntries = conf.getMinLeafNodeCapacity();
+                this.maxEntries = conf.getMaxLeafNodeCapacity();
+            } else {
+                this.minEntries = conf.getMinInternalNodeCapacity() + 1;
+                this.maxEntries = conf.getMaxInternalNodeCapacity() + 1;
+            }
+            this.targetEntries = Math.max(minEntries + 1,
+                    Math.min(maxEntries, (int) Math.ceil(maxEntries * fillFactor)));
+            this.targetBytes = (int) (conf.getPageSize() * fillFactor);
+            this.buffer = new LinkedList<>();
+            resetFit();
+            this.nodes = 0;
+            this.prevLeaf = -1L;
+            // the (empty) root leaf page is reused for the first leaf (a
+            // failed load writes it back), unless logging where it has to
+            // stay intact until the end
+            if(!leafLevel)
+                {this.nextLeaf = -1L;}
+            else if(wal == null)
+                {this.nextLeaf = root.getPageIndex();}
+            else {
+                this.nextLeaf = generateFirstAvailablePageIndex(conf);
+                bPerf.incrementTotalLeaves();
+            }
+        }
+
+        /**
+         * Add the entry to the level, packing a node if enough entries follow it
+         *
+         * @param e entry to add
+         * @throws IOException is thrown when an I/O operation fails
+         * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the blocks.
+         */
+        void add(BulkEntry e) throws IOException, InvalidBTreeStateException {
+            if(compact) {
+                // the last entry cannot get more duplicates now, fit it
+                if(!fitClosed && fit < buffer.size())
+                    {tryFit(buffer.getLast());}
+                if(fitClosed && buffer.size() >= fit + minEntries + 1) {
+                    packNode(fit, false, false);
+                    resetFit();
+                }
+                buffer.add(e);
+                return;
+            }
+            if(buffer.size() == targetEntries + minEntries + 1)
+                {packNode(targetEntries, false, false);}
+            buffer.add(e);
+        }
+
+        /**
+         * Pack the remaining entries of the level and pass its nodes on to
+         * the level above it.
+         *
+         * @return true if the level ended up with a single node (the root)
+         * @throws IOException is thrown when an I/O operation fails
+         * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the blocks.
+         */
+        boolean finish() throws IOException, InvalidBTreeStateException {
+            int rest = buffer.size();
+            if(compact)
+                {return(finishCompact());}
+            if(nodes == 0 && rest <= maxEntries)
+                {packNode(rest, true, true); return(true);}
+            else if(rest <= maxEntries)
+                {packNode(rest, true, false);}
+            else {
+                // split the remainder evenly, both halves are over the minimum
+                packNode(rest / 2, false, false);
+                packNode(rest - rest / 2, true, false);
+            }
+            return(false);
+        }
+
+        /**
+         * Pack the remaining compact leaf entries; if they do not fit in one
+         * page, the last leaf gets just over the minimum capacity and the
+         * rest (which is less than what fit in the previous leaves) goes to
+         * the one before it.
+         *
+         * @return true if the level ended up with a single node (the root)
+         * @throws IOException is thrown when an I/O operation fails
+         * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the blocks.
+         */
+        private boolean finishCompact() throws IOException, InvalidBTreeStateException {
+            int rest = buffer.size(), bytes = conf.getCompactLeafHeaderSize();
+            long prev = rest > 0 ? buffer.getFirst().key : 0L;
+            for(BulkEntry e : buffer) {
+                bytes += compactEntrySize(e, prev);
+                prev = e.key;
+            }
+            if(rest <= maxEntries && bytes <= conf.getPageSize()) {
+                boolean isRoot = nodes == 0;
+                packNode(rest, true, isRoot);
+                return(isRoot);
+            }
+            int last = Math.max(rest - fit, minEntries + 1);
+            packNode(rest - last, false, false);
+            packNode(last, true, false);
+            return(false);
+        }
+
+        /**
+         * Add the entry to the ones fitting in the next compact leaf, unless
+         * the leaf is full (but never before reaching the min capacity).
+         *
+         * @param e entry to fit, the one after the last fitting entry
+         */
+        private void tryFit(BulkEntry e) {
+            int size = compactEntrySize(e, fit == 0 ? e.key : fitLastKey);
+            if(fit > minEntries && (fit == maxEntries || fitBytes + size > targetBytes))
+                {fitClosed = true; return;}
+            fit++;
+            fitBytes += size;
+            fitLastKey = e.key;
+        }
+
+        /**
+         * Find the entries that fit in the next compact leaf from scratch
+         */
+        private void resetFit() {
+            fit = 0;
+            fitBytes = conf.getCompactLeafHeaderSize();
+            fitClosed = false;
+            for(BulkEntry e : buffer) {
+                tryFit(e);
+                if(fitClosed)
+                    {break;}
+            }
+        }
+
+        /**
+         * Return an upper bound of the size of the entry in a compact leaf;
+         * the overflow page is not known yet, so it counts as the worst case.
+         *
+         * @param e the entry
+         * @param prevKey key of the entry before it in the leaf
+         * @return the entry size (in bytes)
+         */
+        private int compactEntrySize(BulkEntry e, long prevKey) {
+            int len = TreeLeaf.utf8Length(e.values.getFirst());
+            return(TreeLeaf.varLongSize(e.key - prevKey) +
+                    (e.values.size() > 1 ? 9 : 1) +
+                    TreeLeaf.varLongSize(len) + len);
+        }
+
+        /**
+         * Create a node from the first entries of the buffer and write it.
+         *
+         * @param count number of entries to pack
+         * @param lastNode is this the last node of the level?
+         * @param isRoot is this node the root of the tree?
+         * @throws IOException is thrown when an I/O operation fails
+         * @throws InvalidBTreeStateException is thrown when there is an inconsistency in the blocks.
+         */
+        private void packNode(int count, boolean lastNode, boolean isRoot)
+                throws IOException, InvalidBTreeStateException {
+            TreeNode n;
+            long firstKey = count > 0 ? buffer.getFirst().key : -1L;
+            if(leafLevel) {
+                long index = nextLeaf;
+                // write the overflow pages first, so they precede their leaf
+                long[] overflow = new long[count];
+                for(int i = 0; i < count; i++)
+                    {overflow[i] = writeOverflowChain(buffer.get(i), index);}
+                nextLeaf = lastNode ? -1L : generateFirstAvailablePageIndex(conf, index);
+                TreeLeaf l = new TreeLeaf(nextLeaf, prevLeaf, isRoot ?
+                        TreeNodeType.TREE_ROOT_LEAF : TreeNodeType.TREE_LEAF, index);
+                for(int i = 0; i < count; i++) {
+                    BulkEntry e = buffer.removeFirst();
+                    l.addLastToKeyArray(e.key);
+                    l.addLastToValueList(e.values.getFirst());
+                    l.addLastToOverflowList(overflow[i]);
+                }
+                l.setCurrentCapacity(count);
+                prevLeaf = index;
+                // the first leaf is the former root, which is already counted
+                if(nodes > 0)
+                    {bPerf.incrementTotalLeaves();}
+                n = l;
+            } else {
+                TreeInternalNode inode = new TreeInternalNode(isRoot ?
+                        TreeNodeType.TREE_ROOT_INTERNAL : TreeNodeType.TREE_INTERNAL_NODE,
+                        generateFirstAvailablePageIndex(conf));
+                for(int i = 0; i < count; i++) {
+                    BulkEntry e = buffer.removeFirst();
+                    // the first child needs no separator
+                    if(i > 0)
+                        {inode.addLastToKeyArray(e.key);}
+                    inode.addPointerLast(e.pointer);
+                }
+                inode.setCurrentCapacity(count - 1);
+                bPerf.incrementTotalInternalNodes();
+                n = inode;
+            }
+
+            n.setBeingDeleted(false);
+            writeNode(n);
+            nodes++;
+
+            if(isRoot)
+                {root = n;}
+            else {
+                if(parent == null)
+                    {parent = new BulkLevel(false, fillFactor);}
+                parent.add(new BulkEntry(firstKey, n.getPageIndex()));
+            }
+        }
+
+        /**
+         * Write the overflow pages holding the duplicate values of the entry
+         *
+         * @param e entry for which to write the overflow pages
+         * @param leafIndex index of the leaf that holds the entry
+         * @return the index of the first overflow page or -1 if none is needed
+         * @throws IOException is thrown when an I/O operation fails
+         */
+        private long writeOverflowChain(BulkEntry e, long leafIndex)
+                throws IOException {
+            if(e.values.size() < 2)
+                {return(-1L);}
+
+            int cap = conf.getMaxOverflowNodeCapacity();
+            int pages = (e.values.size() - 2) / cap + 1;
+            long first = generateFirstAvailablePageIndex(conf);
+            long prev = leafIndex, index = first;
+            Iterator<String> it = e.values.listIterator(1);
+            for(int p = 0; p < pages; p++) {
+                long next = p + 1 < pages ? generateFirstAvailablePageIndex(conf) : -1L;
+                TreeOverflow ovf = new TreeOverflow(next, prev, index);
+                int i = 0;
+                while(i < cap && it.hasNext())
+                    {ovf.addToValueList(i++, it.next());}
+                ovf.setCurrentCapacity(i);
+                ovf.setBeingDeleted(false);
+                writeNode(ovf);
+                bPerf.incrementTotalOverflowPages();
+                prev = index;
+                index = next;
+            }
+            return(first);
+        }
+    }
+
 }
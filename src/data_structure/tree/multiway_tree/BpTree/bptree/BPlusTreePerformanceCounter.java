@@ -4,59 +4,76 @@ package data_structure.tree.multiway_tree.BpTree.bptree;
 import data_structure.tree.multiway_tree.BpTree.util.InvalidBTreeStateException;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
 
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class BPlusTreePerformanceCounter {
-    private int totalNodeReads;
-    private int totalInternalNodeReads;
-    private int totalLeafNodeReads;
-    private int totalOverflowReads;
-
-    private int totalNodeWrites;
-    private int totalInternalNodeWrites;
-    private int totalLeafNodeWrites;
-    private int totalOverflowWrites;
-
-
-    private int totalInsertionReads;
-    private int totalDeletionReads;
-    private int totalSearchReads;
-    private int totalRangeQueryReads;
-    private int totalInsertionWrites;
-    private int totalDeletionWrites;
-    private int totalSearchWrites;
-    private int totalRangeQueryWrites;
-
-    private int pageReads;
-    private int pageWrites;
-
-    private int pageInternalReads;
-    private int pageLeafReads;
-    private int pageOverflowReads;
-
-    private int pageInternalWrites;
-    private int pageLeafWrites;
-    private int pageOverflowWrites;
-
-    private int totalInsertions;
-    private int totalDeletions;
-    private int totalSearches;
-    private int totalRangeQueries;
-
-    private int totalSplits;
-    private int totalRootSplits;
-    private int totalInternalNodeSplits;
-    private int totalLeafSplits;
-
-
-    private int totalPages;
-    private int totalOverflowPages;
-    private int totalInternalNodes;
-    private int totalLeaves;
-
-    private int totalInternalNodeDeletions;
-    private int totalLeafNodeDeletions;
-    private int totalOverflowPagesDeletions;
+    // searches, range cursors and batched searches run concurrently under
+    // the shared tree lock and count their page reads here as well
+    private final LongAdder totalNodeReads = new LongAdder();
+    private final LongAdder totalInternalNodeReads = new LongAdder();
+    private final LongAdder totalLeafNodeReads = new LongAdder();
+    private final LongAdder totalOverflowReads = new LongAdder();
+
+    private final LongAdder totalNodeWrites = new LongAdder();
+    private final LongAdder totalInternalNodeWrites = new LongAdder();
+    private final LongAdder totalLeafNodeWrites = new LongAdder();
+    private final LongAdder totalOverflowWrites = new LongAdder();
+
+
+    private final LongAdder totalInsertionReads = new LongAdder();
+    private final LongAdder totalDeletionReads = new LongAdder();
+    private final LongAdder totalSearchReads = new LongAdder();
+    private final LongAdder totalRangeQueryReads = new LongAdder();
+    private final LongAdder totalInsertionWrites = new LongAdder();
+    private final LongAdder totalDeletionWrites = new LongAdder();
+    private final LongAdder totalSearchWrites = new LongAdder();
+    private final LongAdder totalRangeQueryWrites = new LongAdder();
+
+    private final LongAdder pageReads = new LongAdder();
+    private final LongAdder pageWrites = new LongAdder();
+
+    private final LongAdder pageInternalReads = new LongAdder();
+    private final LongAdder pageLeafReads = new LongAdder();
+    private final LongAdder pageOverflowReads = new LongAdder();
+
+    private final LongAdder pageInternalWrites = new LongAdder();
+    private final LongAdder pageLeafWrites = new LongAdder();
+    private final LongAdder pageOverflowWrites = new LongAdder();
+
+    private final LongAdder totalInsertions = new LongAdder();
+    private final LongAdder totalDeletions = new LongAdder();
+    private final LongAdder totalSearches = new LongAdder();
+    private final LongAdder totalRangeQueries = new LongAdder();
+
+    private final LongAdder totalSplits = new LongAdder();
+    private final LongAdder totalRootSplits = new LongAdder();
+    private final LongAdder totalInternalNodeSplits = new LongAdder();
+    private final LongAdder totalLeafSplits = new LongAdder();
+
+
+    private final LongAdder totalPages = new LongAdder();
+    private final LongAdder totalOverflowPages = new LongAdder();
+    private final LongAdder totalInternalNodes = new LongAdder();
+    private final LongAdder totalLeaves = new LongAdder();
+
+    private final LongAdder totalInternalNodeDeletions = new LongAdder();
+    private final LongAdder totalLeafNodeDeletions = new LongAdder();
+    private final LongAdder totalOverflowPagesDeletions = new LongAdder();
+
+    private final LongAdder totalPageCacheHits = new LongAdder();
+    private final LongAdder totalPageCacheMisses = new LongAdder();
+    private final LongAdder totalPageCacheEvictions = new LongAdder();
+    private final LongAdder totalPageCacheWriteBacks = new LongAdder();
+
+    private final LongAdder totalLogCommits = new LongAdder();
+    private final LongAdder totalLogSyncs = new LongAdder();
+    private final LongAdder totalLogCheckpoints = new LongAdder();
+
+    private final LongAdder totalBatchSearchKeys = new LongAdder();
+    private final LongAdder totalBatchSearchPageReads = new LongAdder();
+    private final LongAdder totalBatchInsertionKeys = new LongAdder();
+    private final LongAdder totalBatchInsertionPageReads = new LongAdder();
 
     private boolean trackIO;
     private BPlusTree bt = null;
@@ -76,124 +93,234 @@ public class BPlusTreePerformanceCounter {
 
     void incrementTotalPages() {
         if(trackIO) {
-            totalPages++;
+            totalPages.increment();
         }
     }
 
     void incrementTotalOverflowPages() {
         if(trackIO) {
-            totalOverflowPages++;
+            totalOverflowPages.increment();
             incrementTotalPages();
         }
     }
 
     void incrementTotalInternalNodes() {
         if(trackIO) {
-            totalInternalNodes++;
+            totalInternalNodes.increment();
             incrementTotalPages();
         }
     }
 
     void incrementTotalLeaves() {
         if(trackIO) {
-            totalLeaves++;
+            totalLeaves.increment();
             incrementTotalPages();
         }
     }
 
     private void incrementTotalNodeReads() {
         if(trackIO) {
-            totalNodeReads++;
+            totalNodeReads.increment();
         }
     }
 
     private void incrementTotalNodeWrites() {
         if(trackIO) {
-            totalNodeWrites++;
+            totalNodeWrites.increment();
         }
     }
 
     void incrementTotalInsertions() {
         if(trackIO) {
-            totalInsertions++;
+            totalInsertions.increment();
         }
     }
 
     private void incrementTotalDeletions() {
         if(trackIO) {
-            totalDeletions++;
+            totalDeletions.increment();
         }
     }
 
     void incrementTotalInternalNodeDeletions() {
         if(trackIO) {
-            totalInternalNodeDeletions++;
+            totalInternalNodeDeletions.increment();
             incrementTotalDeletions();
         }
     }
 
     public void incrementTotalLeafNodeDeletions() {
         if(trackIO) {
-            totalLeafNodeDeletions++;
+            totalLeafNodeDeletions.increment();
             incrementTotalDeletions();
         }
     }
 
     public void incrementTotalOverflowPageDeletions() {
         if(trackIO) {
-            totalOverflowPagesDeletions++;
+            totalOverflowPagesDeletions.increment();
             incrementTotalDeletions();
         }
     }
 
     void incrementTotalSearches() {
         if(trackIO) {
-            totalSearches++;
+            totalSearches.increment();
         }
     }
 
     void incrementTotalRangeQueries() {
         if(trackIO) {
-            totalRangeQueries++;
+            totalRangeQueries.increment();
         }
     }
 
     private void incrementTotalSplits() {
         if(trackIO) {
-            totalSplits++;
+            totalSplits.increment();
         }
     }
 
     void incrementRootSplits() {
         if(trackIO) {
-            totalRootSplits++;
+            totalRootSplits.increment();
             incrementTotalSplits();
         }
     }
 
     void incrementInternalNodeSplits() {
         if(trackIO) {
-            totalInternalNodeSplits++;
+            totalInternalNodeSplits.increment();
             incrementTotalSplits();
         }
     }
 
     void incrementTotalLeafSplits() {
         if(trackIO) {
-            totalLeafSplits++;
+            totalLeafSplits.increment();
             incrementTotalSplits();
         }
     }
 
+    void incrementPageCacheHits() {
+        if(trackIO) {
+            totalPageCacheHits.increment();
+        }
+    }
+
+    void incrementPageCacheMisses() {
+        if(trackIO) {
+            totalPageCacheMisses.increment();
+        }
+    }
+
+    void incrementPageCacheEvictions() {
+        if(trackIO) {
+            totalPageCacheEvictions.increment();
+        }
+    }
+
+    void incrementPageCacheWriteBacks() {
+        if(trackIO) {
+            totalPageCacheWriteBacks.increment();
+        }
+    }
+
+    public int getTotalPageCacheHits() {
+        return(totalPageCacheHits.intValue());
+    }
+
+    public int getTotalPageCacheMisses() {
+        return(totalPageCacheMisses.intValue());
+    }
+
+    public int getTotalPageCacheEvictions() {
+        return(totalPageCacheEvictions.intValue());
+    }
+
+    public int getTotalPageCacheWriteBacks() {
+        return(totalPageCacheWriteBacks.intValue());
+    }
+
+    void incrementLogCommits() {
+        if(trackIO) {
+            totalLogCommits.increment();
+        }
+    }
+
+    void incrementLogSyncs() {
+        if(trackIO) {
+            totalLogSyncs.increment();
+        }
+    }
+
+    void incrementLogCheckpoints() {
+        if(trackIO) {
+            totalLogCheckpoints.increment();
+        }
+    }
+
+    public int getTotalLogCommits() {
+        return(totalLogCommits.intValue());
+    }
+
+    public int getTotalLogSyncs() {
+        return(totalLogSyncs.intValue());
+    }
+
+    public int getTotalLogCheckpoints() {
+        return(totalLogCheckpoints.intValue());
+    }
+
+    void incrementBatchSearches(int keys, int pageReads) {
+        if(trackIO) {
+            totalBatchSearchKeys.add(keys);
+            totalBatchSearchPageReads.add(pageReads);
+        }
+    }
+
+    void incrementBatchInsertions(int keys, int pageReads) {
+        if(trackIO) {
+            totalBatchInsertionKeys.add(keys);
+            totalBatchInsertionPageReads.add(pageReads);
+        }
+    }
+
+    public int getTotalBatchSearchKeys() {
+        return(totalBatchSearchKeys.intValue());
+    }
+
+    public int getTotalBatchSearchPageReads() {
+        return(totalBatchSearchPageReads.intValue());
+    }
+
+    public int getTotalBatchInsertionKeys() {
+        return(totalBatchInsertionKeys.intValue());
+    }
+
+    public int getTotalBatchInsertionPageReads() {
+        return(totalBatchInsertionPageReads.intValue());
+    }
+
+    public double getBatchSearchPagesPerKey() {
+        long keys = totalBatchSearchKeys.sum();
+        return(keys == 0 ? 0.0 : (double) totalBatchSearchPageReads.sum() / keys);
+    }
+
+    public double getBatchInsertionPagesPerKey() {
+        long keys = totalBatchInsertionKeys.sum();
+        return(keys == 0 ? 0.0 : (double) totalBatchInsertionPageReads.sum() / keys);
+    }
+
     private void incrementPageReads() {
         if(trackIO) {
-            pageReads++;
+            pageReads.increment();
         }
     }
 
     private void incrementPageWrites() {
         if(trackIO) {
-            pageWrites++;
+            pageWrites.increment();
         }
     }
 
@@ -202,15 +329,15 @@ public class BPlusTreePerformanceCounter {
     }
 
     private void setDefaults() {
-        pageReads = 0;
-        pageWrites = 0;
-        pageInternalReads = 0;
-        pageLeafReads = 0;
-        pageOverflowReads = 0;
+        pageReads.reset();
+        pageWrites.reset();
+        pageInternalReads.reset();
+        pageLeafReads.reset();
+        pageOverflowReads.reset();
 
-        pageInternalWrites = 0;
-        pageLeafWrites = 0;
-        pageOverflowWrites = 0;
+        pageInternalWrites.reset();
+        pageLeafWrites.reset();
+        pageOverflowWrites.reset();
     }
 
     private void resetIntermittentPageTracking() {
@@ -218,35 +345,35 @@ public class BPlusTreePerformanceCounter {
     }
 
     public int getPageReads() {
-        return(pageReads);
+        return(pageReads.intValue());
     }
 
     public int getPageWrites() {
-        return(pageWrites);
+        return(pageWrites.intValue());
     }
 
     public int getInterminentInternalPageReads() {
-        return(pageInternalReads);
+        return(pageInternalReads.intValue());
     }
 
     public int getInterminentLeafPageReads() {
-        return(pageLeafReads);
+        return(pageLeafReads.intValue());
     }
 
     public int getInterminentOverflowPageReads() {
-        return(pageOverflowReads);
+        return(pageOverflowReads.intValue());
     }
 
     public int getInterminentInternalPageWrites() {
-        return(pageInternalWrites);
+        return(pageInternalWrites.intValue());
     }
 
     public int getInterminentLeafPageWrites() {
-        return(pageLeafWrites);
+        return(pageLeafWrites.intValue());
     }
 
     public int getInterminentOverflowPageWrites() {
-        return(pageOverflowWrites);
+        return(pageOverflowWrites.intValue());
     }
 
     public int[] deleteIO(long key, boolean unique, boolean verbose)
@@ -283,8 +410,8 @@ public class BPlusTreePerformanceCounter {
         res[6] = getInterminentOverflowPageReads();
         res[7] = getInterminentOverflowPageWrites();
         res[8] = r.isFound() ? 1 : 0;
-        totalDeletionReads += pageReads;
-        totalDeletionWrites += pageWrites;
+        totalDeletionReads.add(pageReads.sum());
+        totalDeletionWrites.add(pageWrites.sum());
 
         resetIntermittentPageTracking();
         return res;
@@ -323,8 +450,8 @@ public class BPlusTreePerformanceCounter {
         res[6] = getInterminentOverflowPageReads();
         res[7] = getInterminentOverflowPageWrites();
         res[8] = r.isFound() ? 1 : 0;
-        totalSearchReads += pageReads;
-        totalSearchWrites += pageWrites;
+        totalSearchReads.add(pageReads.sum());
+        totalSearchWrites.add(pageWrites.sum());
 
         resetIntermittentPageTracking();
         return res;
@@ -360,8 +487,8 @@ public class BPlusTreePerformanceCounter {
         res[5] = getInterminentLeafPageWrites();
         res[6] = getInterminentOverflowPageReads();
         res[7] = getInterminentOverflowPageWrites();
-        totalRangeQueryReads += pageReads;
-        totalRangeQueryWrites += pageWrites;
+        totalRangeQueryReads.add(pageReads.sum());
+        totalRangeQueryWrites.add(pageWrites.sum());
 
         resetIntermittentPageTracking();
         return res;
@@ -396,59 +523,59 @@ public class BPlusTreePerformanceCounter {
         res[6] = getInterminentOverflowPageReads();
         res[7] = getInterminentOverflowPageWrites();
 
-        totalInsertionReads += pageReads;
-        totalInsertionWrites += pageReads;
+        totalInsertionReads.add(pageReads.sum());
+        totalInsertionWrites.add(pageReads.sum());
 
         resetIntermittentPageTracking();
         return res;
     }
 
     public int getTotalIntermittentInsertionReads() {
-        return(totalInsertionReads);
+        return(totalInsertionReads.intValue());
     }
 
     public int getTotalIntermittentInsertionWrites() {
-        return(totalInsertionWrites);
+        return(totalInsertionWrites.intValue());
     }
 
     public void incrementIntermittentInternalNodeReads() {
         if(trackIO) {
-            pageInternalReads++;
+            pageInternalReads.increment();
             incrementPageReads();
         }
     }
 
     private void incrementIntermittentLeafNodeReads() {
         if(trackIO) {
-            pageLeafReads++;
+            pageLeafReads.increment();
             incrementPageReads();
         }
     }
 
     private void incrementIntermittentOverflowPageReads() {
         if(trackIO) {
-            pageOverflowReads++;
+            pageOverflowReads.increment();
             incrementPageReads();
         }
     }
 
     private void incrementIntermittentInternalNodeWrites() {
         if(trackIO) {
-            pageInternalWrites++;
+            pageInternalWrites.increment();
             incrementPageWrites();
         }
     }
 
     private void incrementIntermittentLeafNodeWrites() {
         if(trackIO) {
-            pageLeafWrites++;
+            pageLeafWrites.increment();
             incrementPageWrites();
         }
     }
 
     private void incrementIntermittentOverflowPageWrites() {
         if(trackIO) {
-            pageOverflowWrites++;
+            pageOverflowWrites.increment();
             incrementPageWrites();
         }
     }
@@ -456,7 +583,7 @@ public class BPlusTreePerformanceCounter {
 
     void incrementTotalInternalNodeReads() {
         if(trackIO) {
-            totalInternalNodeReads++;
+            totalInternalNodeReads.increment();
             incrementTotalNodeReads();
             incrementIntermittentInternalNodeReads();
         }
@@ -464,7 +591,7 @@ public class BPlusTreePerformanceCounter {
 
     void incrementTotalLeafNodeReads() {
         if(trackIO) {
-            totalLeafNodeReads++;
+            totalLeafNodeReads.increment();
             incrementTotalNodeReads();
             incrementIntermittentLeafNodeReads();
         }
@@ -472,7 +599,7 @@ public class BPlusTreePerformanceCounter {
 
     void incrementTotalOverflowReads() {
         if(trackIO) {
-            totalOverflowReads++;
+            totalOverflowReads.increment();
             incrementTotalNodeReads();
             incrementIntermittentOverflowPageReads();
         }
@@ -480,7 +607,7 @@ public class BPlusTreePerformanceCounter {
 
     void incrementTotalInternalNodeWrites() {
         if(trackIO) {
-            totalInternalNodeWrites++;
+            totalInternalNodeWrites.increment();
             incrementTotalNodeWrites();
             incrementIntermittentInternalNodeWrites();
         }
@@ -488,7 +615,7 @@ public class BPlusTreePerformanceCounter {
 
     void incrementTotalLeafNodeWrites() {
         if(trackIO) {
-            totalLeafNodeWrites++;
+            totalLeafNodeWrites.increment();
             incrementTotalNodeWrites();
             incrementIntermittentLeafNodeWrites();
         }
@@ -496,96 +623,127 @@ public class BPlusTreePerformanceCounter {
 
     void incrementTotalOverflowNodeWrites() {
         if(trackIO) {
-            totalOverflowWrites++;
+            totalOverflowWrites.increment();
             incrementTotalNodeWrites();
             incrementIntermittentOverflowPageWrites();
         }
     }
 
-    private int totalOperationCount() {
-        return(totalInsertions + totalSearches +
-                totalRangeQueries + totalDeletions);
+    private long totalOperationCount() {
+        return(totalInsertions.sum() + totalSearches.sum() +
+                totalRangeQueries.sum() + totalDeletions.sum());
     }
 
     public void printTotalStatistics() {
         System.out.println("\n !! Printing total recorded statistics !!");
         System.out.println("\nOperations break down");
-        System.out.println("\n\tTotal insertions: " + totalInsertions);
-        System.out.println("\tTotal searches: " + totalSearches);
-        System.out.println("\tTotal range queries: " + totalRangeQueries);
+        System.out.println("\n\tTotal insertions: " + totalInsertions.sum());
+        System.out.println("\tTotal searches: " + totalSearches.sum());
+        System.out.println("\tTotal range queries: " + totalRangeQueries.sum());
         System.out.println("\tTotal performed op count: " + totalOperationCount());
 
         System.out.println("\nTotal I/O break down (this run only)");
         System.out.println("\nTotal Read statistics");
-        System.out.println("\n\tTotal reads: " + totalNodeReads);
-        System.out.println("\tTotal Internal node reads: " + totalInternalNodeReads);
-        System.out.println("\tTotal Leaf node reads: " + totalLeafNodeReads);
-        System.out.println("\tTotal Overflow node reads: " + totalOverflowReads);
+        System.out.println("\n\tTotal reads: " + totalNodeReads.sum());
+        System.out.println("\tTotal Internal node reads: " + totalInternalNodeReads.sum());
+        System.out.println("\tTotal Leaf node reads: " + totalLeafNodeReads.sum());
+        System.out.println("\tTotal Overflow node reads: " + totalOverflowReads.sum());
 
         System.out.println("\nTotal Write statistics: ");
-        System.out.println("\n\tTotal writes: " + totalNodeWrites);
-        System.out.println("\tTotal Internal node writes: " + totalInternalNodeWrites);
-        System.out.println("\tTotal Leaf node writes: " + totalLeafNodeWrites);
-        System.out.println("\tTotal Overflow node writes: " + totalOverflowWrites);
+        System.out.println("\n\tTotal writes: " + totalNodeWrites.sum());
+        System.out.println("\tTotal Internal node writes: " + totalInternalNodeWrites.sum());
+        System.out.println("\tTotal Leaf node writes: " + totalLeafNodeWrites.sum());
+        System.out.println("\tTotal Overflow node writes: " + totalOverflowWrites.sum());
 
         System.out.println("\nPage creation break down.");
-        System.out.println("\n\tTotal pages created: " + totalPages);
-        System.out.println("\tTotal Internal nodes created: " + totalInternalNodes);
-        System.out.println("\tTotal Leaf nodes created: " + totalLeaves);
-        System.out.println("\tTotal Overflow nodes created: " + totalOverflowPages);
+        System.out.println("\n\tTotal pages created: " + totalPages.sum());
+        System.out.println("\tTotal Internal nodes created: " + totalInternalNodes.sum());
+        System.out.println("\tTotal Leaf nodes created: " + totalLeaves.sum());
+        System.out.println("\tTotal Overflow nodes created: " + totalOverflowPages.sum());
 
         System.out.println("\nPage deletion break down.");
-        System.out.println("\n\tTotal pages deleted: " + totalDeletions);
-        System.out.println("\tTotal Internal nodes deleted: " + totalInternalNodeDeletions);
-        System.out.println("\tTotal Leaf nodes deleted: " + totalLeafNodeDeletions);
-        System.out.println("\tTotal Overflow pages deleted: " + totalOverflowPagesDeletions);
+        System.out.println("\n\tTotal pages deleted: " + totalDeletions.sum());
+        System.out.println("\tTotal Internal nodes deleted: " + totalInternalNodeDeletions.sum());
+        System.out.println("\tTotal Leaf nodes deleted: " + totalLeafNodeDeletions.sum());
+        System.out.println("\tTotal Overflow pages deleted: " + totalOverflowPagesDeletions.sum());
 
         System.out.println("\nPage split statistics");
-        System.out.println("\n\tTotal page splits: " + totalSplits);
-        System.out.println("\tActual Root splits: " + totalRootSplits);
-        System.out.println("\tInternal node splits: " + totalInternalNodeSplits);
-        System.out.println("\tLeaf node splits: " + totalLeafSplits);
+        System.out.println("\n\tTotal page splits: " + totalSplits.sum());
+        System.out.println("\tActual Root splits: " + totalRootSplits.sum());
+        System.out.println("\tInternal node splits: " + totalInternalNodeSplits.sum());
+        System.out.println("\tLeaf node splits: " + totalLeafSplits.sum());
+
+        System.out.println("\nPage cache statistics");
+        System.out.println("\n\tPage cache hits: " + totalPageCacheHits.sum());
+        System.out.println("\tPage cache misses (physical reads): " + totalPageCacheMisses.sum());
+        System.out.println("\tPage cache evictions: " + totalPageCacheEvictions.sum());
+        System.out.println("\tPage write backs (physical writes): " + totalPageCacheWriteBacks.sum());
+
+        System.out.println("\nWrite-ahead log statistics");
+        System.out.println("\n\tLog commits: " + totalLogCommits.sum());
+        System.out.println("\tLog syncs: " + totalLogSyncs.sum());
+        System.out.println("\tLog checkpoints: " + totalLogCheckpoints.sum());
+
+        System.out.println("\nBatch operation statistics");
+        System.out.println("\n\tBatch searched keys: " + totalBatchSearchKeys.sum());
+        System.out.println("\tBatch search pages per key: " + getBatchSearchPagesPerKey());
+        System.out.println("\tBatch inserted keys: " + totalBatchInsertionKeys.sum());
+        System.out.println("\tBatch insertion pages per key: " + getBatchInsertionPagesPerKey());
     }
 
     void resetAllMetrics() {
-        totalPages = 0;
-        totalInternalNodes = 0;
-        totalLeaves = 0;
-        totalOverflowPages = 0;
-
-        totalNodeReads = 0;
-        totalInternalNodeReads = 0;
-        totalOverflowReads = 0;
-        totalLeafNodeReads = 0;
-
-        totalNodeWrites = 0;
-        totalInternalNodeWrites = 0;
-        totalLeafNodeWrites = 0;
-        totalOverflowWrites = 0;
-
-        totalInternalNodeDeletions = 0;
-        totalLeafNodeDeletions = 0;
-        totalOverflowPagesDeletions = 0;
-
-        totalDeletions = 0;
-        totalInsertions = 0;
-        totalSearches = 0;
-        totalRangeQueries = 0;
-
-        totalSplits = 0;
-        totalRootSplits = 0;
-        totalInternalNodeSplits = 0;
-        totalLeafSplits = 0;
+        totalPages.reset();
+        totalInternalNodes.reset();
+        totalLeaves.reset();
+        totalOverflowPages.reset();
+
+        totalNodeReads.reset();
+        totalInternalNodeReads.reset();
+        totalOverflowReads.reset();
+        totalLeafNodeReads.reset();
+
+        totalNodeWrites.reset();
+        totalInternalNodeWrites.reset();
+        totalLeafNodeWrites.reset();
+        totalOverflowWrites.reset();
+
+        totalInternalNodeDeletions.reset();
+        totalLeafNodeDeletions.reset();
+        totalOverflowPagesDeletions.reset();
+
+        totalDeletions.reset();
+        totalInsertions.reset();
+        totalSearches.reset();
+        totalRangeQueries.reset();
+
+        totalSplits.reset();
+        totalRootSplits.reset();
+        totalInternalNodeSplits.reset();
+        totalLeafSplits.reset();
+
+        totalPageCacheHits.reset();
+        totalPageCacheMisses.reset();
+        totalPageCacheEvictions.reset();
+        totalPageCacheWriteBacks.reset();
+
+        totalLogCommits.reset();
+        totalLogSyncs.reset();
+        totalLogCheckpoints.reset();
+
+        totalBatchSearchKeys.reset();
+        totalBatchSearchPageReads.reset();
+        totalBatchInsertionKeys.reset();
+        totalBatchInsertionPageReads.reset();
 
         setDefaults();
 
-        totalSearchReads = 0;
-        totalSearchWrites = 0;
-        totalRangeQueryReads = 0;
-        totalRangeQueryWrites = 0;
-        totalInsertionReads = 0;
-        totalInsertionWrites = 0;
-        totalDeletionReads = 0;
-        totalDeletionWrites = 0;
+        totalSearchReads.reset();
+        totalSearchWrites.reset();
+        totalRangeQueryReads.reset();
+        totalRangeQueryWrites.reset();
+        totalInsertionReads.reset();
+        totalInsertionWrites.reset();
+        totalDeletionReads.reset();
+        totalDeletionWrites.reset();
     }
 }
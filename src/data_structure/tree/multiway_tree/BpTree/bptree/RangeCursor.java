@@ -0,0 +1,204 @@
+package data_structure.tree.multiway_tree.BpTree.bptree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *
+ * Lazy alternative to RangeResult for range queries; instead of gathering
+ * all of the matching (Key, Value) pairs up front the cursor walks the leaf
+ * sibling chain (and any overflow pages) one page at a time as it is
+ * iterated, thus it only keeps the current leaf and overflow page around
+ * no matter how wide the range is.
+ *
+ * Pairs are returned in ascending key order or, optionally, in descending
+ * key order; the number of returned pairs can be limited as well.
+ *
+ * The cursor does not lock the tree while it is open, each page is read
+ * under the tree read lock instead; if the tree has been modified since
+ * the cursor was opened the next page read fails with a
+ * ConcurrentModificationException. I/O errors are rethrown as
+ * UncheckedIOException.
+ *
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class RangeCursor implements Iterator<KeyValueWrapper>, Closeable {
+
+    private final BPlusTree tree;         // the tree we iterate
+    private final long minKey;            // min key of the range
+    private final long maxKey;            // max key of the range
+    private final boolean unique;         // only the first value of each key?
+    private final boolean descending;     // iterate in descending order?
+    private final long modCount;          // tree modification count at open
+    private long remaining;               // pairs left before hitting the limit
+    private TreeLeaf leaf;                // current leaf (null when done)
+    private int index;                    // next entry of the current leaf
+    private TreeOverflow ovf;             // current overflow page (if any)
+    private int ovfIndex;                 // next value in the overflow page
+    private long ovfPointer;              // next overflow page to read
+    private long ovfKey;                  // key of the overflow values
+    private KeyValueWrapper nextPair;     // pair fetched by hasNext
+    private boolean closed;               // closed flag
+
+    /**
+     * Open the cursor and position it at the first matching key
+     *
+     * @param tree the tree to iterate
+     * @param minKey min key of the range
+     * @param maxKey max key of the range
+     * @param unique return only the *first* value of each key or all?
+     * @param descending return the pairs in descending key order?
+     * @param limit max number of pairs to return
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    RangeCursor(BPlusTree tree, long minKey, long maxKey, boolean unique,
+                boolean descending, long limit) throws IOException {
+        this.tree = tree;
+        this.minKey = minKey;
+        this.maxKey = maxKey;
+        this.unique = unique;
+        this.descending = descending;
+        this.modCount = tree.getModificationCount();
+        this.remaining = limit;
+        this.ovfPointer = -1L;
+        this.closed = false;
+
+        if(minKey > maxKey || limit <= 0)
+            {return;}
+
+        // position on the first key inside the range; this might be past
+        // the end of the leaf, in which case we move on when fetching.
+        leaf = tree.seekLeaf(descending ? maxKey : minKey, modCount);
+        if(descending) {
+            index = leaf.getCurrentCapacity() - 1;
+            while(index >= 0 && leaf.getKeyAt(index) > maxKey)
+                {index--;}
+        } else {
+            index = 0;
+            while(index < leaf.getCurrentCapacity() && leaf.getKeyAt(index) < minKey)
+                {index++;}
+        }
+    }
+
+    /**
+     * Check if there are more pairs in the range
+     *
+     * @return true if next() will return another pair, false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+        if(nextPair == null && !closed) {
+            try
+                {nextPair = fetch();}
+            catch(IOException e)
+                {throw new UncheckedIOException(e);}
+        }
+        return(nextPair != null);
+    }
+
+    /**
+     * Return the next pair in the range
+     *
+     * @return the next (Key, Value) pair
+     */
+    @Override
+    public KeyValueWrapper next() {
+        if(!hasNext())
+            {throw new NoSuchElementException("No more keys in the range");}
+        KeyValueWrapper kv = nextPair;
+        nextPair = null;
+        remaining--;
+        return(kv);
+    }
+
+    /**
+     * Close the cursor dropping any pages it holds; it is safe to close
+     * it more than once.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        leaf = null;
+        ovf = null;
+        nextPair = null;
+    }
+
+    /**
+     * Return a spliterator over the remaining pairs of the cursor; it is
+     * ordered but cannot be split, as we can only walk the leaves in order.
+     *
+     * @return the spliterator
+     */
+    public Spliterator<KeyValueWrapper> spliterator() {
+        return(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL));
+    }
+
+    /**
+     * Return a sequential stream over the remaining pairs of the cursor;
+     * closing the stream closes the cursor as well.
+     *
+     * @return the stream
+     */
+    public Stream<KeyValueWrapper> stream()
+        {return(StreamSupport.stream(spliterator(), false).onClose(this::close));}
+
+    /**
+     * Read the next pair, loading the next leaf or overflow page if needed
+     *
+     * @return the next pair or null if we are done
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private KeyValueWrapper fetch() throws IOException {
+        while(leaf != null && remaining > 0) {
+            // first return the rest of the values of the last key
+            if(ovf != null) {
+                if(ovfIndex < ovf.getCurrentCapacity())
+                    {return(new KeyValueWrapper(ovfKey, ovf.getValueAt(ovfIndex++)));}
+                ovfPointer = ovf.getNextPagePointer();
+                ovf = null;
+            }
+            if(ovfPointer >= 0) {
+                ovf = (TreeOverflow) tree.readCursorNode(ovfPointer, modCount);
+                ovfPointer = -1L;
+                ovfIndex = 0;
+                continue;
+            }
+
+            // load the sibling leaf when we are done with this one
+            if(index < 0 || index >= leaf.getCurrentCapacity()) {
+                long next = descending ? leaf.getPrevPagePointer() :
+                        leaf.getNextPagePointer();
+                if(next < 0)
+                    {break;}
+                leaf = (TreeLeaf) tree.readCursorNode(next, modCount);
+                index = descending ? leaf.getCurrentCapacity() - 1 : 0;
+                continue;
+            }
+
+            long key = leaf.getKeyAt(index);
+            if(key < minKey || key > maxKey)
+                {break;}
+
+            // the overflow pages are only read when we get to them
+            if(!unique && leaf.getOverflowPointerAt(index) >= 0) {
+                ovfPointer = leaf.getOverflowPointerAt(index);
+                ovfKey = key;
+            }
+            String value = leaf.getValueAt(index);
+            index += descending ? -1 : 1;
+            return(new KeyValueWrapper(key, value));
+        }
+        // we are done, drop the pages
+        leaf = null;
+        ovf = null;
+        return(null);
+    }
+}
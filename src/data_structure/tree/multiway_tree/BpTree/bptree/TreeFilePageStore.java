@@ -0,0 +1,72 @@
+package data_structure.tree.multiway_tree.BpTree.bptree;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ *
+ * Page store that reads and writes our pages through the channel of an
+ * *already* opened RandomAccessFile; we use positional reads and writes
+ * so that concurrent readers do not fight over the file pointer.
+ *
+ */
+@SuppressWarnings("unused")
+class TreeFilePageStore implements TreePageStore {
+
+    private final RandomAccessFile treeFile;    // the B+ Tree file
+    private final FileChannel channel;          // the B+ Tree file channel
+    private final int pageSize;                 // page size (in bytes)
+
+    /**
+     * Constructor which takes the opened file as well as the configuration
+     *
+     * @param treeFile an *already* open pointer which points to our B+ Tree file
+     * @param conf B+ Tree configuration
+     */
+    TreeFilePageStore(RandomAccessFile treeFile, BPlusConfiguration conf) {
+        this.treeFile = treeFile;
+        this.channel = treeFile.getChannel();
+        this.pageSize = conf.getPageSize();
+    }
+
+    @Override
+    public void readPage(long index, byte[] dst) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(dst, 0, pageSize);
+        int read = 0, r;
+        while(read < pageSize && (r = channel.read(buf, index + read)) > 0)
+            {read += r;}
+        if(read < pageSize)
+            {Arrays.fill(dst, read, pageSize, (byte) 0);}
+    }
+
+    @Override
+    public ByteBuffer readPage(long index) throws IOException {
+        byte[] buf = new byte[pageSize];
+        readPage(index, buf);
+        return(ByteBuffer.wrap(buf));
+    }
+
+    @Override
+    public void writePage(long index, byte[] src) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(src, 0, pageSize);
+        while(buf.hasRemaining())
+            {channel.write(buf, index + buf.position());}
+    }
+
+    @Override
+    public void setLength(long length) throws IOException
+        {treeFile.setLength(length);}
+
+    @Override
+    public void flush() {
+        // nothing is buffered here
+    }
+
+    @Override
+    public void close() {
+        // the file is closed by the tree
+    }
+}
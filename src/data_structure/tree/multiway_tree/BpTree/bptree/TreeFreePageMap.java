@@ -0,0 +1,292 @@
+package data_structure.tree.multiway_tree.BpTree.bptree;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Class that keeps track of the free pages of our B+ Tree file using a
+ * bitmap with one bit per page of the file; pages are addressed by their
+ * offset as everywhere else in the tree, so the bit of a page is its offset
+ * divided by the page size.
+ *
+ * A second, much smaller, bitmap summarizes the first one with one bit per
+ * word of it which is set when that word has any free pages; thus looking
+ * for the next free page skips over runs of used pages 4096 at a time and
+ * allocating, freeing and finding the last free page is (nearly) constant
+ * time regardless of how many free pages we have.
+ *
+ * Allocations hand out the lowest free page, unless a hint is given in
+ * which case the first free page after the hint is preferred; this way
+ * pages that are read one after the other, like sibling leaves, tend to end
+ * up next to each other in the file.
+ *
+ * In the file the free pages are stored as extents (runs of free pages),
+ * each one written as the offset of its first page followed by its length
+ * negated if it spans more than a single page. A list of single free pages,
+ * which is how the pool used to be stored, reads exactly the same.
+ *
+ */
+@SuppressWarnings("unused")
+class TreeFreePageMap {
+
+    private final int pageSize;     // page size (in bytes)
+    private long[] words;           // a bit per page, set when it is free
+    private long[] summary;         // a bit per word, set when it has free pages
+    private long freePages;         // number of free pages
+    private long lastDecoded;       // first page of the last decoded extent
+
+    /**
+     * Constructor that creates an empty map
+     *
+     * @param pageSize page size (in bytes)
+     */
+    TreeFreePageMap(int pageSize) {
+        this.pageSize = pageSize;
+        this.words = new long[64];
+        this.summary = new long[1];
+        this.freePages = 0L;
+        this.lastDecoded = -1L;
+    }
+
+    /**
+     * Mark the page as free
+     *
+     * @param index index of the page
+     */
+    void free(long index) {
+        long p = index / pageSize;
+        int w = (int) (p >>> 6);
+        if(w >= words.length)
+            {grow(w);}
+        long bit = 1L << p;
+        if((words[w] & bit) == 0) {
+            words[w] |= bit;
+            summary[w >>> 6] |= 1L << w;
+            freePages++;
+        }
+    }
+
+    /**
+     * Mark the page as used
+     *
+     * @param index index of the page
+     * @return true if the page was free, false otherwise
+     */
+    boolean remove(long index) {
+        long p = index / pageSize;
+        int w = (int) (p >>> 6);
+        long bit = 1L << p;
+        if(w >= words.length || (words[w] & bit) == 0)
+            {return(false);}
+        words[w] &= ~bit;
+        if(words[w] == 0)
+            {summary[w >>> 6] &= ~(1L << w);}
+        freePages--;
+        return(true);
+    }
+
+    /**
+     * Check if the page is free
+     *
+     * @param index index of the page
+     * @return true if the page is free, false otherwise
+     */
+    boolean isFree(long index) {
+        long p = index / pageSize;
+        int w = (int) (p >>> 6);
+        return(w < words.length && (words[w] & (1L << p)) != 0);
+    }
+
+    /**
+     * Return the number of free pages
+     *
+     * @return the number of free pages
+     */
+    long size()
+        {return(freePages);}
+
+    /**
+     * Check if there are any free pages
+     *
+     * @return true if there are no free pages, false otherwise
+     */
+    boolean isEmpty()
+        {return(freePages == 0);}
+
+    /**
+     * Allocate the lowest free page
+     *
+     * @return the index of the page or -1 if there are no free pages
+     */
+    long allocate() {
+        long p = nextFree(0);
+        if(p < 0)
+            {return(-1L);}
+        long index = p * pageSize;
+        remove(index);
+        return(index);
+    }
+
+    /**
+     * Allocate the first free page after the given one or, if there is
+     * none, the lowest free page.
+     *
+     * @param hint index of the page the new one should follow
+     * @return the index of the page or -1 if there are no free pages
+     */
+    long allocate(long hint) {
+        long p = hint < 0 ? -1L : nextFree(hint / pageSize + 1);
+        if(p < 0)
+            {return(allocate());}
+        long index = p * pageSize;
+        remove(index);
+        return(index);
+    }
+
+    /**
+     * Return the highest free page
+     *
+     * @return the index of the page or -1 if there are no free pages
+     */
+    long last() {
+        for(int s = summary.length - 1; s >= 0; s--) {
+            if(summary[s] != 0) {
+                int w = (s << 6) + 63 - Long.numberOfLeadingZeros(summary[s]);
+                long p = ((long) w << 6) + 63 - Long.numberOfLeadingZeros(words[w]);
+                return(p * pageSize);
+            }
+        }
+        return(-1L);
+    }
+
+    /**
+     * Mark all the pages as used
+     */
+    void clear() {
+        Arrays.fill(words, 0L);
+        Arrays.fill(summary, 0L);
+        freePages = 0L;
+        lastDecoded = -1L;
+    }
+
+    /**
+     * Return a copy of the map
+     *
+     * @return the copy
+     */
+    TreeFreePageMap copy() {
+        TreeFreePageMap m = new TreeFreePageMap(pageSize);
+        m.words = words.clone();
+        m.summary = summary.clone();
+        m.freePages = freePages;
+        return(m);
+    }
+
+    /**
+     * Encode the free pages as extents, as they are stored in the file
+     *
+     * @return the encoded extents in ascending page order
+     */
+    long[] toExtents() {
+        long[] out = new long[16];
+        int n = 0;
+        long p = nextFree(0);
+        while(p >= 0) {
+            long end = nextUsed(p);
+            if(n + 2 > out.length)
+                {out = Arrays.copyOf(out, out.length * 2);}
+            out[n++] = p * pageSize;
+            if(end - p > 1)
+                {out[n++] = -(end - p);}
+            p = nextFree(end);
+        }
+        return(Arrays.copyOf(out, n));
+    }
+
+    /**
+     * Decode the next value of a sequence of encoded extents, marking
+     * the pages it covers as free.
+     *
+     * @param v the encoded value
+     */
+    void addEncoded(long v) {
+        if(v >= 0) {
+            free(v);
+            lastDecoded = v;
+        } else if(lastDecoded >= 0) {
+            // the first page of the extent is already free
+            for(long i = 1; i < -v; i++)
+                {free(lastDecoded + i * pageSize);}
+            lastDecoded = -1L;
+        }
+    }
+
+    /**
+     * Find the first free page at or after the given page
+     *
+     * @param from page number to start from
+     * @return the page number or -1 if there is none
+     */
+    private long nextFree(long from) {
+        int w = (int) (from >>> 6);
+        if(w >= words.length)
+            {return(-1L);}
+        long bits = words[w] & (-1L << from);
+        if(bits == 0) {
+            // skip the words without free pages
+            if((w = nextWord(w + 1)) < 0)
+                {return(-1L);}
+            bits = words[w];
+        }
+        return(((long) w << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    /**
+     * Find the first used page at or after the given page; pages past the
+     * end of the map count as used.
+     *
+     * @param from page number to start from
+     * @return the page number
+     */
+    private long nextUsed(long from) {
+        int w = (int) (from >>> 6);
+        if(w >= words.length)
+            {return(from);}
+        long bits = ~words[w] & (-1L << from);
+        while(bits == 0) {
+            if(++w == words.length)
+                {return((long) w << 6);}
+            bits = ~words[w];
+        }
+        return(((long) w << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    /**
+     * Find the first word with free pages at or after the given word
+     *
+     * @param from word to start from
+     * @return the word or -1 if there is none
+     */
+    private int nextWord(int from) {
+        int s = from >>> 6;
+        if(s >= summary.length)
+            {return(-1);}
+        long bits = summary[s] & (-1L << from);
+        while(bits == 0) {
+            if(++s == summary.length)
+                {return(-1);}
+            bits = summary[s];
+        }
+        return((s << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    /**
+     * Grow the bitmap so that it holds the given word
+     *
+     * @param w word that must fit
+     */
+    private void grow(int w) {
+        words = Arrays.copyOf(words, Math.max(w + 1, words.length * 2));
+        summary = Arrays.copyOf(summary, (words.length + 63) >>> 6);
+    }
+}
@@ -1,7 +1,7 @@
 package data_structure.tree.multiway_tree.BpTree.bptree;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 
 
@@ -67,40 +67,27 @@ class TreeInternalNode extends TreeNode {
      *
      *  we go like: k1 -- p0 -- k2 -- p1 ... kn -- pn+1
      *
-     * @param r pointer to *opened* B+ tree file
+     * @param page page sized buffer to serialize the node into
      * @throws IOException is thrown when an I/O exception is captured.
      */
     @Override
-    public void writeNode(RandomAccessFile r, BPlusConfiguration conf,
+    public void writeNode(ByteBuffer page, BPlusConfiguration conf,
                           BPlusTreePerformanceCounter bPerf)
             throws IOException {
 
-        // update root index in the file
-        if(this.isRoot()) {
-            r.seek(conf.getHeaderSize()-8);
-            r.writeLong(getPageIndex());
-        }
-
-        // account for the header page as well.
-        r.seek(getPageIndex());
-
         // write the node type
-        r.writeShort(getPageType());
+        page.putShort(getPageType());
 
         // write current capacity
-        r.writeInt(getCurrentCapacity());
+        page.putInt(getCurrentCapacity());
 
         // now write Key/Pointer pairs
         for(int i = 0; i < getCurrentCapacity(); i++) {
-            r.writeLong(getKeyAt(i));       // Key
-            r.writeLong(getPointerAt(i));   // Pointer
+            page.putLong(getKeyAt(i));       // Key
+            page.putLong(getPointerAt(i));   // Pointer
         }
         // final pointer.
-        r.writeLong(getPointerAt(getCurrentCapacity()));
-
-        // annoying correction
-        if(r.length() < getPageIndex()+conf.getPageSize())
-            {r.setLength(getPageIndex()+conf.getPageSize());}
+        page.putLong(getPointerAt(getCurrentCapacity()));
 
         bPerf.incrementTotalInternalNodeWrites();
     }
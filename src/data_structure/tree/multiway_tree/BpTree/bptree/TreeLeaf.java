@@ -4,8 +4,9 @@ package data_structure.tree.multiway_tree.BpTree.bptree;
 import data_structure.tree.multiway_tree.BpTree.util.InvalidBTreeStateException;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 /**
@@ -14,6 +15,9 @@ import java.util.LinkedList;
  */
 @SuppressWarnings("unused")
 class TreeLeaf extends TreeNode {
+    static final short COMPACT_LEAF_TYPE = 7;       // page type of compact leaves
+    static final short COMPACT_ROOT_LEAF_TYPE = 8;  // page type of compact root leaves
+
     private long nextPagePointer;           // pointer to next leaf in the list
     private long prevPagePointer;           // pointer to prev leaf in the list
     private LinkedList<String> valueList;   // satellite data list
@@ -103,6 +107,44 @@ class TreeLeaf extends TreeNode {
         return(s);
     }
 
+    /**
+     * Compact leaves are full when a worst case entry might not fit in the
+     * page any more, instead of when reaching a fixed capacity.
+     *
+     * @param conf configuration to deduce which degree to use
+     * @return true is the node is full false if it's not.
+     */
+    @Override
+    boolean isFull(BPlusConfiguration conf) {
+        if(!conf.isCompactLeaves())
+            {return(super.isFull(conf));}
+        return(getCurrentCapacity() >= conf.getMaxLeafNodeCapacity() ||
+                conf.getPageSize() - getCompactSize(conf) < conf.getMaxCompactEntrySize());
+    }
+
+    /**
+     * Calculate the number of bytes the leaf takes up in the compact format
+     *
+     * @param conf configuration parameter
+     * @return the size of the serialized leaf (in bytes)
+     */
+    int getCompactSize(BPlusConfiguration conf) {
+        int size = conf.getCompactLeafHeaderSize();
+        Iterator<Long> keys = keyArray.iterator();
+        Iterator<Long> ovfs = overflowList.iterator();
+        Iterator<String> values = valueList.iterator();
+        long prev = keyArray.isEmpty() ? 0L : keyArray.getFirst();
+        for(int i = 0; i < getCurrentCapacity(); i++) {
+            long key = keys.next();
+            int len = utf8Length(values.next());
+            size += varLongSize(key - prev) +
+                    varLongSize(overflowSlot(ovfs.next(), conf)) +
+                    varLongSize(len) + len;
+            prev = key;
+        }
+        return(size);
+    }
+
     /**
      *
      * Leaf node write structure is as follows:
@@ -112,50 +154,183 @@ class TreeLeaf extends TreeNode {
      *  -- prev pointer -- (8 bytes)
      *  -- key/value pairs -- (max size * (key size + satellite size))
      *
-     * @param r pointer to *opened* B+ tree file
+     * @param page page sized buffer to serialize the node into
      * @param conf configuration parameter
      * @throws IOException is thrown when an I/O operation fails
      */
     @Override
-    public void writeNode(RandomAccessFile r, BPlusConfiguration conf,
+    public void writeNode(ByteBuffer page, BPlusConfiguration conf,
                           BPlusTreePerformanceCounter bPerf)
             throws IOException {
 
-        // update root index in the file
-        if(this.isRoot()) {
-            r.seek(conf.getHeaderSize()-16L);
-            r.writeLong(getPageIndex());
+        if(conf.isCompactLeaves()) {
+            writeCompactNode(page, conf);
+            bPerf.incrementTotalLeafNodeWrites();
+            return;
         }
 
-        // account for the header page as well.
-        r.seek(getPageIndex());
-
         // now write the node type
-        r.writeShort(getPageType());
+        page.putShort(getPageType());
 
         // write the next pointer
-        r.writeLong(nextPagePointer);
+        page.putLong(nextPagePointer);
 
         // write the prev pointer
-        r.writeLong(prevPagePointer);
+        page.putLong(prevPagePointer);
 
         // then write the current capacity
-        r.writeInt(getCurrentCapacity());
+        page.putInt(getCurrentCapacity());
 
         // now write the Key/Value pairs
         for(int i = 0; i < getCurrentCapacity(); i++) {
-            r.writeLong(getKeyAt(i));
-            r.writeLong(getOverflowPointerAt(i));
-            r.write(valueList.get(i).getBytes(StandardCharsets.UTF_8));
+            page.putLong(getKeyAt(i));
+            page.putLong(getOverflowPointerAt(i));
+            page.put(valueList.get(i).getBytes(StandardCharsets.UTF_8));
         }
 
-        // annoying correction
-        if(r.length() < getPageIndex()+conf.getPageSize())
-            {r.setLength(getPageIndex()+conf.getPageSize());}
-
         bPerf.incrementTotalLeafNodeWrites();
     }
 
+    /**
+     *
+     * Compact leaf node write structure is as follows:
+     *
+     *  -- node type -- (2 bytes)
+     *  -- next pointer -- (8 bytes)
+     *  -- prev pointer -- (8 bytes)
+     *  -- current capacity -- (4 bytes)
+     *  -- first key -- (8 bytes)
+     *  -- entries -- (variable size)
+     *
+     *  Each entry holds the difference of its key from the previous one,
+     *  its overflow page number (0 for none) and its value length, all as
+     *  varints, followed by the UTF-8 bytes of the value.
+     *
+     * @param page page sized buffer to serialize the node into
+     * @param conf configuration parameter
+     */
+    private void writeCompactNode(ByteBuffer page, BPlusConfiguration conf) {
+        page.putShort(isRoot() ? COMPACT_ROOT_LEAF_TYPE : COMPACT_LEAF_TYPE);
+        page.putLong(nextPagePointer);
+        page.putLong(prevPagePointer);
+        page.putInt(getCurrentCapacity());
+
+        long prev = keyArray.isEmpty() ? 0L : keyArray.getFirst();
+        page.putLong(prev);
+
+        Iterator<Long> keys = keyArray.iterator();
+        Iterator<Long> ovfs = overflowList.iterator();
+        Iterator<String> values = valueList.iterator();
+        for(int i = 0; i < getCurrentCapacity(); i++) {
+            long key = keys.next();
+            byte[] value = values.next().getBytes(StandardCharsets.UTF_8);
+            putVarLong(page, key - prev);
+            putVarLong(page, overflowSlot(ovfs.next(), conf));
+            putVarLong(page, value.length);
+            page.put(value);
+            prev = key;
+        }
+    }
+
+    /**
+     * Check if the page type is one of the compact leaf types
+     *
+     * @param pageType page type as read from the page
+     * @return true if the page holds a compact leaf, false otherwise.
+     */
+    static boolean isCompactPageType(short pageType)
+        {return(pageType == COMPACT_LEAF_TYPE || pageType == COMPACT_ROOT_LEAF_TYPE);}
+
+    /**
+     * Map an overflow pointer to the number stored in compact leaves; pages
+     * are page size aligned, so we store the page number (-1 becomes 0).
+     *
+     * @param pointer the overflow page pointer
+     * @param conf configuration parameter
+     * @return the stored number
+     */
+    static long overflowSlot(long pointer, BPlusConfiguration conf)
+        {return(pointer < 0 ? 0L : pointer / conf.getPageSize());}
+
+    /**
+     * Map the number stored in compact leaves back to an overflow pointer
+     *
+     * @param slot the stored number
+     * @param conf configuration parameter
+     * @return the overflow page pointer
+     */
+    static long overflowPointer(long slot, BPlusConfiguration conf)
+        {return(slot == 0 ? -1L : slot * conf.getPageSize());}
+
+    /**
+     * Write a non-negative value as a varint (7 bits per byte, low first)
+     *
+     * @param page buffer to write to
+     * @param v value to write
+     */
+    static void putVarLong(ByteBuffer page, long v) {
+        while((v & ~0x7FL) != 0) {
+            page.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        page.put((byte) v);
+    }
+
+    /**
+     * Read a varint written by putVarLong
+     *
+     * @param page buffer to read from
+     * @return the value read
+     */
+    static long getVarLong(ByteBuffer page) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = page.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while(b < 0);
+        return(v);
+    }
+
+    /**
+     * Return the number of bytes needed to encode the value as a varint
+     *
+     * @param v value to encode (>= 0)
+     * @return the encoded size (in bytes)
+     */
+    static int varLongSize(long v) {
+        int n = 1;
+        while((v >>>= 7) != 0)
+            {n++;}
+        return(n);
+    }
+
+    /**
+     * Return the length of the string once encoded in UTF-8, without
+     * actually encoding it
+     *
+     * @param s string to measure
+     * @return the encoded length (in bytes)
+     */
+    static int utf8Length(String s) {
+        int len = 0;
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c < 0x80)
+                {len++;}
+            else if(c < 0x800)
+                {len += 2;}
+            else if(Character.isHighSurrogate(c) && i + 1 < s.length() &&
+                    Character.isLowSurrogate(s.charAt(i + 1)))
+                {len += 4; i++;}
+            else
+                {len += 3;}
+        }
+        return(len);
+    }
+
     @Override
     public void printNode() {
         System.out.println("\nPrinting node of type: " + getNodeType().toString() +
@@ -1,7 +1,7 @@
 package data_structure.tree.multiway_tree.BpTree.bptree;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 @SuppressWarnings("unused")
 class TreeLookupOverflowNode extends TreeNode {
@@ -29,32 +29,29 @@ class TreeLookupOverflowNode extends TreeNode {
      * <p>
      * -- page indexes (in place of keys) (8 bytes)
      *
-     * @param r     an *already* open pointer which points to our B+ Tree file
+     * @param page  page sized buffer to serialize the node into
      * @param conf  B+ Tree configuration
      * @param bPerf instance of performance counter class
      * @throws IOException is thrown when an I/O operation fails
      */
     @Override
-    public void writeNode(RandomAccessFile r,
+    public void writeNode(ByteBuffer page,
                           BPlusConfiguration conf,
                           BPlusTreePerformanceCounter bPerf)
             throws IOException {
 
-        // account for the header page as well
-        r.seek(getPageIndex());
-
         // write the node type
-        r.writeShort(getPageType());
+        page.putShort(getPageType());
 
         // write the next pointer
-        r.writeLong(next);
+        page.putLong(next);
 
         // write current capacity
-        r.writeInt(getCurrentCapacity());
+        page.putInt(getCurrentCapacity());
 
         // now write the index values
         for (int i = 0; i < getCurrentCapacity(); i++) {
-            r.writeLong(getKeyAt(i));
+            page.putLong(getKeyAt(i));
         }
 
     }
@@ -0,0 +1,144 @@
+package data_structure.tree.multiway_tree.BpTree.bptree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ * Page store that memory maps our B+ Tree file so that pages are decoded
+ * straight from the mapping without any per-field system calls.
+ *
+ * The file is mapped in fixed size chunks (a multiple of the page size, so
+ * that a page never crosses two chunks) and new chunks are mapped as the
+ * tree grows; this means that the file is physically extended a chunk at
+ * a time, so we keep track of the actual (logical) length and trim the
+ * file back to it when the store is closed.
+ *
+ * The mapping bookkeeping is synchronized as pages can be read by many
+ * threads at once; the returned views can be used without any locking.
+ *
+ */
+@SuppressWarnings("unused")
+class TreeMappedPageStore implements TreePageStore {
+
+    private final FileChannel channel;                  // the B+ Tree file channel
+    private final ArrayList<MappedByteBuffer> chunks;   // mapped chunks, in order
+    private final int pageSize;                         // page size (in bytes)
+    private final long chunkSize;                       // chunk size (in bytes)
+    private long length;                                // logical file length
+
+    /**
+     * Constructor which takes the channel of the *already* opened file
+     *
+     * @param channel channel of our B+ Tree file
+     * @param conf B+ Tree configuration
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    TreeMappedPageStore(FileChannel channel, BPlusConfiguration conf)
+            throws IOException {
+        this.channel = channel;
+        this.pageSize = conf.getPageSize();
+        this.chunkSize = (long) conf.getPageSize() * conf.getMappedChunkPages();
+        this.chunks = new ArrayList<>();
+        this.length = channel.size();
+    }
+
+    @Override
+    public void readPage(long index, byte[] dst) throws IOException {
+        ByteBuffer page = readPage(index);
+        page.get(dst, 0, pageSize);
+    }
+
+    @Override
+    public synchronized ByteBuffer readPage(long index) throws IOException {
+        // pages past the end of the file are empty
+        if(index + pageSize > length)
+            {return(ByteBuffer.wrap(new byte[pageSize]));}
+        return(pageView(index));
+    }
+
+    @Override
+    public synchronized void writePage(long index, byte[] src) throws IOException {
+        pageView(index).put(src, 0, pageSize);
+        if(index + pageSize > length)
+            {length = index + pageSize;}
+    }
+
+    /**
+     * Shrinking the file drops any chunks that are now past its end; the
+     * file is physically truncated only down to the end of the last chunk
+     * still mapped, the rest happens when the store is closed.
+     *
+     * @param length the new file length (in bytes)
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    @Override
+    public synchronized void setLength(long length) throws IOException {
+        if(length < this.length) {
+            int keep = (int) ((length + chunkSize - 1) / chunkSize);
+            while(chunks.size() > keep) {
+                MappedByteBuffer chunk = chunks.remove(chunks.size() - 1);
+                if(chunk != null)
+                    {chunk.force();}
+            }
+            channel.truncate(Math.max(length, chunks.size() * chunkSize));
+        }
+        this.length = length;
+    }
+
+    @Override
+    public synchronized void flush() {
+        for(MappedByteBuffer chunk : chunks) {
+            if(chunk != null)
+                {chunk.force();}
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        chunks.clear();
+        // trim the chunk padding
+        channel.truncate(length);
+    }
+
+    /**
+     * Return a view of the page inside its mapped chunk, mapping the
+     * chunk first if needed.
+     *
+     * @param index index of the page
+     * @return a buffer of page size bytes positioned at the start of the page
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private synchronized ByteBuffer pageView(long index) throws IOException {
+        int c = (int) (index / chunkSize);
+        int offset = (int) (index % chunkSize);
+        ByteBuffer view = mapChunk(c).duplicate();
+        view.position(offset);
+        view.limit(offset + pageSize);
+        return(view.slice());
+    }
+
+    /**
+     * Get the mapped chunk, growing the mapping if needed; mapping a chunk
+     * past the end of the file extends the file as well.
+     *
+     * @param c the chunk number
+     * @return the mapped chunk
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private MappedByteBuffer mapChunk(int c) throws IOException {
+        if(c >= chunks.size())
+            {chunks.addAll(Arrays.asList(new MappedByteBuffer[c - chunks.size() + 1]));}
+        MappedByteBuffer chunk = chunks.get(c);
+        if(chunk == null) {
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, c * chunkSize, chunkSize);
+            chunks.set(c, chunk);
+        }
+        return(chunk);
+    }
+}
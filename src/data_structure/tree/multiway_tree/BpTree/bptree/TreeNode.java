@@ -3,7 +3,7 @@ package data_structure.tree.multiway_tree.BpTree.bptree;
 import data_structure.tree.multiway_tree.BpTree.util.InvalidBTreeStateException;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.InvalidPropertiesFormatException;
 import java.util.LinkedList;
 
@@ -434,11 +434,11 @@ abstract class TreeNode {
      *
      * More details in each implementation.
      *
-     * @param r an *already* open pointer which points to our B+ Tree file
+     * @param page page sized buffer (positioned at its start) to serialize the node into
      * @param conf B+ Tree configuration
      * @throws IOException is thrown when an I/O operation fails.
      */
-    public abstract void writeNode(RandomAccessFile r, BPlusConfiguration conf,
+    public abstract void writeNode(ByteBuffer page, BPlusConfiguration conf,
                                    BPlusTreePerformanceCounter bPerf)
             throws IOException;
 
@@ -1,7 +1,7 @@
 package data_structure.tree.multiway_tree.BpTree.bptree;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 
@@ -69,35 +69,33 @@ class TreeOverflow extends TreeNode {
      *  -- prev pointer -- (8 bytes)
      *  -- values -- (max size * satellite size)
      *
-     * @param r pointer to *opened* B+ tree file
+     * @param page page sized buffer to serialize the node into
      * @throws IOException is thrown when an I/O operation fails
      */
     @Override
-    public void writeNode(RandomAccessFile r, BPlusConfiguration conf,
+    public void writeNode(ByteBuffer page, BPlusConfiguration conf,
                           BPlusTreePerformanceCounter bPerf)
             throws IOException {
-        // account for the header page as well.
-        r.seek(getPageIndex());
-
         // now write the node type
-        r.writeShort(getPageType());
+        page.putShort(getPageType());
 
         // write the next pointer
-        r.writeLong(nextPagePointer);
+        page.putLong(nextPagePointer);
 
         // write the prev pointer
-        r.writeLong(prevPagePointer);
+        page.putLong(prevPagePointer);
 
         // then write the current capacity
-        r.writeInt(getCurrentCapacity());
-
-        // now write the values
-        for(int i = 0; i < getCurrentCapacity(); i++)
-            {r.write(valueList.get(i).getBytes(StandardCharsets.UTF_8));}
-
-        // annoying correction
-        if(r.length() < getPageIndex()+conf.getPageSize())
-            {r.setLength(getPageIndex()+conf.getPageSize());}
+        page.putInt(getCurrentCapacity());
+
+        // now write the values; values of compact trees are not padded,
+        // so fill the rest of their slot with zeros
+        for(int i = 0; i < getCurrentCapacity(); i++) {
+            byte[] value = valueList.get(i).getBytes(StandardCharsets.UTF_8);
+            page.put(value);
+            for(int j = value.length; j < conf.getEntrySize(); j++)
+                {page.put((byte) 0);}
+        }
 
         bPerf.incrementTotalOverflowNodeWrites();
     }
@@ -0,0 +1,257 @@
+package data_structure.tree.multiway_tree.BpTree.bptree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * Class that implements a size-bounded page cache which sits between
+ * our B+ Tree and the page store that holds the actual file.
+ *
+ * Pages are kept as raw page sized byte arrays (frames) indexed by their
+ * page index and evicted in LRU order; modified frames are only written
+ * back to the store when they are evicted or when the cache is flushed
+ * (usually when committing the tree). Frames can also be pinned so they
+ * are not evicted while a split or a merge is in progress.
+ *
+ * A capacity of zero disables caching altogether and all reads and writes
+ * go straight to the store.
+ *
+ * Reads can be issued by many threads at once (the tree lets searches run
+ * concurrently) while writes, pins and flushes only happen when the tree
+ * is exclusively locked; thus the frame bookkeeping is synchronized but a
+ * frame's contents never change while readers are around. Evicted frame
+ * buffers are not reused since a reader might still be decoding them and
+ * store reads on a miss happen outside of the lock, so that misses do not
+ * serialize all readers on I/O.
+ *
+ */
+@SuppressWarnings("unused")
+class TreePageCache {
+
+    private final TreePageStore store;                  // the page store
+    private final BPlusTreePerformanceCounter bPerf;    // performance counter
+    private final LinkedHashMap<Long, Frame> frames;    // frames in LRU order
+    private final HashSet<Long> dirtyPages;             // modified frames
+    private final int pageSize;                         // page size (in bytes)
+    private final int capacity;                         // max frames kept
+
+    /**
+     * Constructor that creates the page cache on top of a page store.
+     *
+     * @param store the page store holding our B+ Tree file
+     * @param conf B+ Tree configuration
+     * @param bPerf performance counter class
+     */
+    TreePageCache(TreePageStore store, BPlusConfiguration conf,
+                  BPlusTreePerformanceCounter bPerf) {
+        this.store = store;
+        this.bPerf = bPerf;
+        this.pageSize = conf.getPageSize();
+        this.capacity = conf.getPageCacheSize();
+        // access ordered, so the eldest entry is the least recently used
+        this.frames = new LinkedHashMap<>(16, 0.75f, true);
+        this.dirtyPages = new HashSet<>();
+    }
+
+    /**
+     * Get the contents of the page at the specified index; if the page is
+     * not cached it is read from the store (possibly evicting another page).
+     *
+     * The returned buffer is positioned at the start of the page and is
+     * only valid until the next operation on the cache.
+     *
+     * @param index index of the page in the file
+     * @return a buffer which wraps the page contents
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    ByteBuffer readPage(long index) throws IOException {
+        // caching is disabled, just read it.
+        if(capacity == 0) {
+            bPerf.incrementPageCacheMisses();
+            return(store.readPage(index));
+        }
+
+        synchronized(this) {
+            Frame f = frames.get(index);
+            if(f != null) {
+                bPerf.incrementPageCacheHits();
+                return(ByteBuffer.wrap(f.data));
+            }
+            bPerf.incrementPageCacheMisses();
+        }
+
+        byte[] data = new byte[pageSize];
+        store.readPage(index, data);
+
+        synchronized(this) {
+            // another reader might have loaded it in the meantime
+            Frame f = frames.get(index);
+            if(f == null)
+                {f = allocateFrame(index, data);}
+            return(ByteBuffer.wrap(f.data));
+        }
+    }
+
+    /**
+     * Update the page at the specified index; the page is written to the store
+     * only when evicted or when flushing the cache.
+     *
+     * @param index index of the page in the file
+     * @param page page contents (at least page size bytes)
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    synchronized void writePage(long index, byte[] page) throws IOException {
+        // caching is disabled, just write it.
+        if(capacity == 0) {
+            writeBack(index, page);
+            return;
+        }
+
+        Frame f = frames.get(index);
+        if(f == null)
+            {f = allocateFrame(index, new byte[pageSize]);}
+        System.arraycopy(page, 0, f.data, 0, pageSize);
+        f.dirty = true;
+        dirtyPages.add(index);
+    }
+
+    /**
+     * Pin the page so that it cannot be evicted until it is unpinned;
+     * pins are counted, so each pin must be paired with an unpin.
+     *
+     * @param index index of the page to pin
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    synchronized void pin(long index) throws IOException {
+        if(capacity == 0 || index < 0)
+            {return;}
+        Frame f = frames.get(index);
+        if(f == null) {
+            f = allocateFrame(index, new byte[pageSize]);
+            store.readPage(index, f.data);
+        }
+        f.pinCount++;
+    }
+
+    /**
+     * Release a pin previously acquired on the page.
+     *
+     * @param index index of the page to unpin
+     */
+    synchronized void unpin(long index) {
+        Frame f = capacity > 0 ? frames.get(index) : null;
+        if(f != null && f.pinCount > 0)
+            {f.pinCount--;}
+    }
+
+    /**
+     * Write back all of the modified pages to the store.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    synchronized void flush() throws IOException {
+        for(Long index : dirtyPages) {
+            Frame f = frames.get(index);
+            if(f != null && f.dirty) {
+                writeBack(index, f.data);
+                f.dirty = false;
+            }
+        }
+        dirtyPages.clear();
+    }
+
+    /**
+     * Drop all the cached pages which lie past the given file length;
+     * this has to be called when the file is shrunk as these pages are
+     * not used anymore and should not be written back.
+     *
+     * @param length the new file length
+     */
+    synchronized void truncate(long length) {
+        Iterator<Map.Entry<Long, Frame>> it = frames.entrySet().iterator();
+        while(it.hasNext()) {
+            Long index = it.next().getKey();
+            if(index >= length) {
+                it.remove();
+                dirtyPages.remove(index);
+            }
+        }
+    }
+
+    /**
+     * Return the number of pages currently cached
+     *
+     * @return the number of cached pages
+     */
+    synchronized int getCachedPages()
+        {return(frames.size());}
+
+    /**
+     * Create a new frame for the page, evicting the least recently used
+     * unpinned frame if the cache is full.
+     *
+     * @param index index of the page
+     * @param data page sized buffer of the frame
+     * @return the newly created frame
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private Frame allocateFrame(long index, byte[] data) throws IOException {
+        if(frames.size() >= capacity)
+            {evictFrame();}
+        Frame f = new Frame(data);
+        frames.put(index, f);
+        return(f);
+    }
+
+    /**
+     * Evict the least recently used frame that is not pinned
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void evictFrame() throws IOException {
+        Iterator<Map.Entry<Long, Frame>> it = frames.entrySet().iterator();
+        while(it.hasNext()) {
+            Map.Entry<Long, Frame> e = it.next();
+            Frame f = e.getValue();
+            if(f.pinCount > 0)
+                {continue;}
+            if(f.dirty) {
+                writeBack(e.getKey(), f.data);
+                dirtyPages.remove(e.getKey());
+            }
+            it.remove();
+            bPerf.incrementPageCacheEvictions();
+            return;
+        }
+        // everything is pinned, go over the capacity for now
+    }
+
+    /**
+     * Write a whole page to the store
+     *
+     * @param index index of the page
+     * @param buf page contents
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void writeBack(long index, byte[] buf) throws IOException {
+        store.writePage(index, buf);
+        bPerf.incrementPageCacheWriteBacks();
+    }
+
+    /**
+     * A cached page
+     */
+    private static class Frame {
+        private final byte[] data;  // page contents
+        private boolean dirty;      // modified since read?
+        private int pinCount;       // number of pins held
+
+        Frame(byte[] data)
+            {this.data = data;}
+    }
+}
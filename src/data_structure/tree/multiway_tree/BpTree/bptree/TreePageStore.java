@@ -0,0 +1,68 @@
+package data_structure.tree.multiway_tree.BpTree.bptree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * Interface that describes the storage backend where our B+ Tree pages
+ * reside; the page cache sits on top of it.
+ *
+ * Pages are addressed by their page index (which is the actual offset of
+ * the page in the file) and are always read and written as a whole.
+ *
+ */
+interface TreePageStore {
+
+    /**
+     * Read the page at the specified index into the given array; any part
+     * of the page which lies past the end of the file is zeroed.
+     *
+     * @param index index of the page
+     * @param dst array to read the page into (at least page size bytes)
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    void readPage(long index, byte[] dst) throws IOException;
+
+    /**
+     * Return a buffer positioned at the start of the page at the specified
+     * index; implementations may return a view of their own storage, so
+     * the buffer is only valid until the next write.
+     *
+     * @param index index of the page
+     * @return a buffer with the page contents
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    ByteBuffer readPage(long index) throws IOException;
+
+    /**
+     * Write the page at the specified index.
+     *
+     * @param index index of the page
+     * @param src page contents (at least page size bytes)
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    void writePage(long index, byte[] src) throws IOException;
+
+    /**
+     * Adjust the length of the underlying file.
+     *
+     * @param length the new file length (in bytes)
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    void setLength(long length) throws IOException;
+
+    /**
+     * Make sure all written pages reach the underlying file.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    void flush() throws IOException;
+
+    /**
+     * Flush and release the store; the file itself is closed by the tree.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,468 @@
+package data_structure.tree.multiway_tree.BpTree.bptree;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * Write-ahead log that sits between the page cache and the actual page
+ * store of our B+ Tree; the tree file itself is only modified when the
+ * log is checkpointed, while in the meantime every page write is appended
+ * to the log and served from memory for subsequent reads.
+ *
+ * Each tree operation ends with a commit record that holds everything the
+ * tree keeps outside of its pages (root index, page counts and changes to
+ * the free page pool), so the log alone is enough to bring the tree to the
+ * last committed operation after a crash. Commits are made durable in
+ * groups: the log is forced to the disk once every group commit size
+ * commits (or when explicitly synced), instead of once per operation.
+ *
+ * The log layout is as follows:
+ *
+ *  -- magic number -- (4 bytes)
+ *  -- page size -- (4 bytes)
+ *  -- salt -- (8 bytes, changes on each checkpoint)
+ *  -- base record -- (tree state right after the checkpoint)
+ *  -- page and commit records --
+ *
+ *  page record: type (1 byte), page index (8 bytes), page, crc (4 bytes)
+ *  base/commit record: type (1 byte), root index, total pages, max page
+ *  number (8 bytes each), number of pool entries (4 bytes), pool entries
+ *  (8 bytes each) and crc (4 bytes).
+ *
+ * The base record carries the whole free page pool (encoded as extents,
+ * see TreeFreePageMap), while commit records only carry the changes since
+ * the previous commit: freed pages as they are and allocated pages negated
+ * (page indexes are always positive).
+ * Checksums include the salt, replay stops at the first record that is
+ * torn or fails its checksum and any page records after the last commit
+ * are discarded.
+ *
+ */
+@SuppressWarnings("unused")
+class TreeWriteAheadLog implements TreePageStore {
+
+    private static final int LOG_MAGIC = 0x42574C31;    // "BWL1"
+    private static final int LOG_HEADER_SIZE = 16;      // magic, page size, salt
+    private static final byte PAGE_RECORD = 1;
+    private static final byte COMMIT_RECORD = 2;
+    private static final byte BASE_RECORD = 3;
+
+    private final TreePageStore store;                  // the tree page store
+    private final RandomAccessFile logFile;             // the log file
+    private final FileChannel log;                      // the log file channel
+    private final BPlusTreePerformanceCounter bPerf;    // performance counter
+    private final HashMap<Long, byte[]> pages;          // pages since the checkpoint
+    private final ByteBuffer pageRecord;                // page record buffer
+    private final CRC32 crc;                            // checksum calculator
+    private final int pageSize;                         // page size (in bytes)
+    private final int groupCommitSize;                  // commits per log sync
+    private long salt;                                  // current log salt
+    private long logLength;                             // end of the log
+    private int unsyncedCommits;                        // commits not synced yet
+    private boolean passThrough;                        // write to the store directly?
+    private LogState recovered;                         // state found in the log
+
+    /**
+     * Open the log file for the tree; if asked to, any committed state in
+     * an existing log is recovered, otherwise the log is discarded.
+     *
+     * @param store the page store holding our B+ Tree file
+     * @param logPath path of the log file
+     * @param conf B+ Tree configuration
+     * @param bPerf performance counter class
+     * @param recover recover the state in an existing log?
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    TreeWriteAheadLog(TreePageStore store, String logPath, BPlusConfiguration conf,
+                      BPlusTreePerformanceCounter bPerf, boolean recover)
+            throws IOException {
+        this.store = store;
+        this.bPerf = bPerf;
+        this.pageSize = conf.getPageSize();
+        this.groupCommitSize = conf.getLogGroupCommitSize();
+        this.pages = new HashMap<>();
+        this.pageRecord = ByteBuffer.allocate(1 + 8 + pageSize + 4);
+        this.crc = new CRC32();
+        this.logFile = new RandomAccessFile(logPath, "rw");
+        this.log = logFile.getChannel();
+        this.passThrough = false;
+
+        if(recover)
+            {replay();}
+        else
+            {log.truncate(0);}
+        this.logLength = log.size();
+    }
+
+    /**
+     * Return the tree state recovered from the log when it was opened
+     *
+     * @return the recovered state or null if there was nothing to recover
+     */
+    LogState getRecoveredState()
+        {return(recovered);}
+
+    /**
+     * Return the number of distinct pages logged since the last checkpoint
+     *
+     * @return the number of pages
+     */
+    synchronized int getLoggedPages()
+        {return(pages.size());}
+
+    @Override
+    public synchronized void readPage(long index, byte[] dst) throws IOException {
+        byte[] page = pages.get(index);
+        if(page == null)
+            {store.readPage(index, dst);}
+        else
+            {System.arraycopy(page, 0, dst, 0, pageSize);}
+    }
+
+    @Override
+    public synchronized ByteBuffer readPage(long index) throws IOException {
+        // logged pages are replaced (never modified) on writes, so we
+        // can hand them out as they are.
+        byte[] page = pages.get(index);
+        return(page == null ? store.readPage(index) : ByteBuffer.wrap(page));
+    }
+
+    @Override
+    public synchronized void writePage(long index, byte[] src) throws IOException {
+        if(passThrough) {
+            pages.remove(index);
+            store.writePage(index, src);
+            return;
+        }
+
+        pages.put(index, Arrays.copyOf(src, pageSize));
+        pageRecord.clear();
+        pageRecord.put(PAGE_RECORD);
+        pageRecord.putLong(index);
+        pageRecord.put(src, 0, pageSize);
+        appendRecord(pageRecord);
+    }
+
+    /**
+     * Only the tree file is resized, this is done while checkpointing
+     *
+     * @param length the new file length (in bytes)
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    @Override
+    public synchronized void setLength(long length) throws IOException {
+        pages.keySet().removeIf(index -> index >= length);
+        store.setLength(length);
+    }
+
+    /**
+     * Flushing the log means syncing any commits not yet on the disk
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    @Override
+    public synchronized void flush() throws IOException
+        {sync();}
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        logFile.close();
+        store.close();
+    }
+
+    /**
+     * Append a commit record for the operation that just completed; the
+     * log is synced if enough commits have piled up.
+     *
+     * @param root index of the root page
+     * @param totalTreePages number of pages used by the tree
+     * @param maxPageNumber the max page number in the file
+     * @param poolChanges changes to the free page pool (allocations negated)
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    synchronized void commit(long root, long totalTreePages, long maxPageNumber,
+                             LinkedList<Long> poolChanges) throws IOException {
+        long[] changes = new long[poolChanges.size()];
+        int i = 0;
+        for(Long p : poolChanges)
+            {changes[i++] = p;}
+        appendRecord(stateRecord(COMMIT_RECORD, root, totalTreePages,
+                maxPageNumber, changes));
+        bPerf.incrementLogCommits();
+        if(++unsyncedCommits >= groupCommitSize)
+            {sync();}
+    }
+
+    /**
+     * Force all the commits so far to the disk
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    synchronized void sync() throws IOException {
+        if(unsyncedCommits > 0) {
+            log.force(false);
+            unsyncedCommits = 0;
+            bPerf.incrementLogSyncs();
+        }
+    }
+
+    /**
+     * Write (or stop writing) the pages straight to the tree file; this
+     * is used while checkpointing as well as for operations that only
+     * touch pages which are unused as far as the log is concerned.
+     *
+     * @param passThrough write to the tree file directly?
+     */
+    synchronized void setPassThrough(boolean passThrough)
+        {this.passThrough = passThrough;}
+
+    /**
+     * First step of the checkpoint; sync the log and copy all of the logged
+     * pages to the tree file, then switch to writing there directly so the
+     * tree can commit the rest of its state to the file.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    synchronized void beginCheckpoint() throws IOException {
+        sync();
+        for(Map.Entry<Long, byte[]> e : pages.entrySet())
+            {store.writePage(e.getKey(), e.getValue());}
+        passThrough = true;
+    }
+
+    /**
+     * Last step of the checkpoint; once the tree file is on the disk the log
+     * is reset and starts with the state of the tree at this point. The
+     * store is flushed here, but syncing the tree file itself is up to the
+     * caller, which has to do so before calling this.
+     *
+     * @param root index of the root page
+     * @param totalTreePages number of pages used by the tree
+     * @param maxPageNumber the max page number in the file
+     * @param freePages all of the free pages
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    synchronized void endCheckpoint(long root, long totalTreePages,
+                                    long maxPageNumber, TreeFreePageMap freePages)
+            throws IOException {
+        store.flush();
+        pages.clear();
+        log.truncate(0);
+        logLength = 0;
+        salt = System.nanoTime();
+
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC);
+        header.putInt(pageSize);
+        header.putLong(salt);
+        header.flip();
+        writeFully(header);
+        appendRecord(stateRecord(BASE_RECORD, root, totalTreePages,
+                maxPageNumber, freePages.toExtents()));
+        log.force(false);
+        unsyncedCommits = 0;
+        passThrough = false;
+        bPerf.incrementLogCheckpoints();
+    }
+
+    /**
+     * Create a base or commit record
+     *
+     * @param type record type
+     * @param root index of the root page
+     * @param totalTreePages number of pages used by the tree
+     * @param maxPageNumber the max page number in the file
+     * @param pool pool changes or all of the free pages (as extents)
+     * @return the record, ready to be appended
+     */
+    private ByteBuffer stateRecord(byte type, long root, long totalTreePages,
+                                   long maxPageNumber, long[] pool) {
+        ByteBuffer r = ByteBuffer.allocate(1 + 3 * 8 + 4 + 8 * pool.length + 4);
+        r.put(type);
+        r.putLong(root);
+        r.putLong(totalTreePages);
+        r.putLong(maxPageNumber);
+        r.putInt(pool.length);
+        for(long p : pool)
+            {r.putLong(p);}
+        return(r);
+    }
+
+    /**
+     * Seal the record with its checksum and append it to the log
+     *
+     * @param r record positioned right after its contents
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void appendRecord(ByteBuffer r) throws IOException {
+        r.putInt(checksum(r.array(), r.position()));
+        r.flip();
+        writeFully(r);
+    }
+
+    /**
+     * Write the buffer at the end of the log
+     *
+     * @param b buffer to write
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void writeFully(ByteBuffer b) throws IOException {
+        while(b.hasRemaining())
+            {logLength += log.write(b, logLength);}
+    }
+
+    /**
+     * Calculate the checksum of a record (salted)
+     *
+     * @param b record contents
+     * @param len length of the contents
+     * @return the checksum
+     */
+    private int checksum(byte[] b, int len) {
+        crc.reset();
+        for(int i = 56; i >= 0; i -= 8)
+            {crc.update((int) (salt >>> i));}
+        crc.update(b, 0, len);
+        return((int) crc.getValue());
+    }
+
+    /**
+     * Read the log and rebuild the state of the last commit in it; if the
+     * log has no valid base record there is nothing to recover.
+     *
+     * @throws IOException is thrown when an I/O operation fails
+     */
+    private void replay() throws IOException {
+        HashMap<Long, byte[]> pending = new HashMap<>();
+        LogState state = null;
+        long valid = 0;
+        int commits = 0;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(log.position(0))));
+        try {
+            if(in.readInt() != LOG_MAGIC || in.readInt() != pageSize)
+                {throw new EOFException();}
+            salt = in.readLong();
+            long pos = LOG_HEADER_SIZE;
+
+            while(true) {
+                byte type = in.readByte();
+                ByteBuffer r;
+                if(type == PAGE_RECORD) {
+                    r = ByteBuffer.allocate(1 + 8 + pageSize);
+                    r.put(type);
+                    in.readFully(r.array(), 1, 8 + pageSize);
+                } else if(type == COMMIT_RECORD || type == BASE_RECORD) {
+                    byte[] fixed = new byte[3 * 8 + 4];
+                    in.readFully(fixed);
+                    int n = ByteBuffer.wrap(fixed, 3 * 8, 4).getInt();
+                    if(n < 0)
+                        {break;}
+                    r = ByteBuffer.allocate(1 + fixed.length + 8 * n);
+                    r.put(type);
+                    r.put(fixed);
+                    in.readFully(r.array(), r.position(), 8 * n);
+                } else
+                    {break;}
+
+                // stop at the first torn or corrupted record
+                if(in.readInt() != checksum(r.array(), r.capacity()))
+                    {break;}
+                pos += r.capacity() + 4;
+
+                r.position(1);
+                if(type == PAGE_RECORD) {
+                    long index = r.getLong();
+                    byte[] page = new byte[pageSize];
+                    r.get(page);
+                    pending.put(index, page);
+                    continue;
+                }
+
+                long root = r.getLong(), total = r.getLong(), max = r.getLong();
+                int n = r.getInt();
+                if(type == BASE_RECORD) {
+                    // the base record must be the first one
+                    if(state != null)
+                        {break;}
+                    state = new LogState(root, total, max, pageSize);
+                    for(int i = 0; i < n; i++)
+                        {state.freePages.addEncoded(r.getLong());}
+                } else {
+                    if(state == null)
+                        {break;}
+                    state.apply(root, total, max, r, n);
+                    commits++;
+                }
+                pages.putAll(pending);
+                pending.clear();
+                valid = pos;
+            }
+        } catch(EOFException ex) {
+            // torn tail (or empty log), we stop here
+        }
+
+        if(state == null)
+            {pages.clear();}
+        else {
+            recovered = state;
+            System.out.println(" -- Recovered " + commits + " commits (" +
+                    pages.size() + " pages) from the write-ahead log");
+        }
+        // drop the tail after the last commit
+        log.truncate(valid);
+    }
+
+    /**
+     * Tree state found in the log
+     */
+    static class LogState {
+        final TreeFreePageMap freePages;    // the free page pool
+        long root;                          // index of the root page
+        long totalTreePages;                // number of pages used by the tree
+        long maxPageNumber;                 // the max page number in the file
+
+        LogState(long root, long totalTreePages, long maxPageNumber, int pageSize) {
+            this.root = root;
+            this.totalTreePages = totalTreePages;
+            this.maxPageNumber = maxPageNumber;
+            this.freePages = new TreeFreePageMap(pageSize);
+        }
+
+        /**
+         * Apply a commit record to the state
+         *
+         * @param root index of the root page
+         * @param total number of pages used by the tree
+         * @param max the max page number in the file
+         * @param changes buffer holding the pool changes
+         * @param n number of pool changes
+         */
+        private void apply(long root, long total, long max, ByteBuffer changes, int n) {
+            this.root = root;
+            this.totalTreePages = total;
+            this.maxPageNumber = max;
+            for(int i = 0; i < n; i++) {
+                long p = changes.getLong();
+                if(p < 0)
+                    {freePages.remove(-p);}
+                else
+                    {freePages.free(p);}
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package data_structure.tree.multiway_tree.BpTree.test;
+
+import data_structure.tree.multiway_tree.BpTree.bptree.BPlusConfiguration;
+import data_structure.tree.multiway_tree.BpTree.bptree.BPlusTree;
+import data_structure.tree.multiway_tree.BpTree.bptree.BPlusTreePerformanceCounter;
+import data_structure.tree.multiway_tree.BpTree.util.Utilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BPlusTree concurrency tester; checks that searches and range queries
+ * return correct results when issued from many threads at once (with or
+ * without a writer running alongside them) and reports the throughput.
+ */
+public class BPlusTreeConcurrencyTest {
+    private String satelliteValue;
+    private int startKey;
+    private int endKey;
+    private int totalKeys;
+    private int threads;
+    private int opsPerThread;
+
+    private BPlusTree bt;
+    private BPlusTreePerformanceCounter bPerf;
+
+    @Before
+    public void before() throws Exception {
+        System.out.println("Before test");
+        startKey = 0;
+        endKey = 20000;
+        totalKeys = endKey - startKey;
+        satelliteValue = " ";
+        threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        opsPerThread = 20000;
+
+        BPlusConfiguration btConf = new BPlusConfiguration(256);
+        // keep the cache smaller than the tree, so readers keep evicting
+        btConf.setPageCacheSize(64);
+        bPerf = new BPlusTreePerformanceCounter(true);
+        bt = new BPlusTree(btConf, "rw+", "treeConcurrent.bin", bPerf);
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, true, bt);
+    }
+
+    @After
+    public void after() throws Exception {
+        bt.commitTree();
+    }
+
+    /**
+     * Run the same amount of searches per thread using one and then many
+     * threads; every key must be found no matter how many readers we have.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testConcurrentSearches() throws Exception {
+        double single = runReaders(1);
+        double multi = runReaders(threads);
+        System.out.println("Search throughput, 1 thread: " + (long) single +
+                " ops/s, " + threads + " threads: " + (long) multi + " ops/s");
+    }
+
+    /**
+     * Run the readers while a writer inserts and deletes keys outside of the
+     * range they are looking at; readers must always see all of their keys
+     * and the writer's changes must all be there when it is done.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testConcurrentSearchesWithWriter() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        try {
+            Future<Integer> writer = pool.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    // add a new key range, then drop every other key of it
+                    for(int i = endKey; i < endKey + totalKeys; i++)
+                        {bt.insertKey(i, satelliteValue, true);}
+                    for(int i = endKey; i < endKey + totalKeys; i += 2) {
+                        if(!bt.deleteKey(i, true).isFound())
+                            {throw new Exception("Writer failed to delete key: " + i);}
+                    }
+                    return(totalKeys);
+                }
+            });
+
+            ArrayList<Future<Integer>> readers = new ArrayList<>();
+            for(int t = 0; t < threads; t++)
+                {readers.add(pool.submit(searchTask(t)));}
+
+            for(Future<Integer> f : readers)
+                {f.get();}
+            writer.get();
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        for(int i = endKey; i < endKey + totalKeys; i++) {
+            if(bt.searchKey(i, true).isFound() != ((i - endKey) % 2 == 1))
+                {throw new Exception("Writer changes are not correct for key: " + i);}
+        }
+    }
+
+    /**
+     * Run batched searches from many threads at once; the statistics are
+     * updated by all of the readers concurrently and must not lose any of
+     * the searched keys.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testConcurrentStatistics() throws Exception {
+        final int batches = 500, batchSize = 16;
+        int before = bPerf.getTotalBatchSearchKeys();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayList<Future<Integer>> readers = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                final int seed = t;
+                readers.add(pool.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        Random r = new Random(seed);
+                        long[] keys = new long[batchSize];
+                        for(int b = 0; b < batches; b++) {
+                            for(int i = 0; i < batchSize; i++)
+                                {keys[i] = startKey + r.nextInt(totalKeys);}
+                            bt.multiGet(keys, true);
+                        }
+                        return(batches);
+                    }
+                }));
+            }
+            for(Future<Integer> f : readers)
+                {f.get();}
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        int counted = bPerf.getTotalBatchSearchKeys() - before;
+        if(counted != threads * batches * batchSize)
+            {throw new Exception("Counted " + counted + " batch searched keys instead of " +
+                    threads * batches * batchSize);}
+    }
+
+    /**
+     * Run the searches using the specified number of threads
+     *
+     * @param n number of threads to use
+     * @return the total throughput in operations per second
+     * @throws Exception is thrown when an error is caught
+     */
+    private double runReaders(int n) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        long start = System.nanoTime();
+        try {
+            ArrayList<Future<Integer>> readers = new ArrayList<>();
+            for(int t = 0; t < n; t++)
+                {readers.add(pool.submit(searchTask(t)));}
+            for(Future<Integer> f : readers)
+                {f.get();}
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        return((n * (double) opsPerThread) / secs);
+    }
+
+    /**
+     * Create a reader which performs random searches and (every so often)
+     * short range queries over the initially loaded keys.
+     *
+     * @param seed seed for the key generator
+     * @return the reader task
+     */
+    private Callable<Integer> searchTask(final int seed) {
+        return(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                Random r = new Random(seed);
+                for(int i = 0; i < opsPerThread; i++) {
+                    int key = startKey + r.nextInt(totalKeys);
+                    if(i % 64 == 0) {
+                        int hi = Math.min(key + 16, endKey - 1);
+                        int found = bt.rangeSearch(key, hi, true).getQueryResult().size();
+                        if(found != hi - key + 1)
+                            {throw new Exception("Range query [" + key + ", " + hi +
+                                    "] returned " + found + " keys");}
+                    }
+                    else if(!bt.searchKey(key, true).isFound())
+                        {throw new Exception("Failed to find key: " + key);}
+                }
+                return(opsPerThread);
+            }
+        });
+    }
+}
@@ -3,12 +3,20 @@ package data_structure.tree.multiway_tree.BpTree.test;
 import data_structure.tree.multiway_tree.BpTree.bptree.BPlusConfiguration;
 import data_structure.tree.multiway_tree.BpTree.bptree.BPlusTree;
 import data_structure.tree.multiway_tree.BpTree.bptree.BPlusTreePerformanceCounter;
+import data_structure.tree.multiway_tree.BpTree.bptree.KeyValueWrapper;
+import data_structure.tree.multiway_tree.BpTree.bptree.RangeCursor;
+import data_structure.tree.multiway_tree.BpTree.bptree.SearchResult;
 import data_structure.tree.multiway_tree.BpTree.util.Utilities;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.LinkedList;
+import java.util.Random;
 
 /** 
 * BPlusTree Tester. 
@@ -492,4 +500,913 @@ public class BPlusTreeTest {
 
    }
 
+
+    /**
+     * This test loads up sequentially a key list onto trees of the
+     * following degrees:
+     *
+     *    - Page sizes: 256, 1024 (1Kb), 2048 (2Kb)
+     *
+     * while keeping only a handful of pages in the page cache; then
+     * the trees are committed, re-opened and each of the keys is
+     * searched to make sure that all of the cached (dirty) pages were
+     * written back. Finally we check that the page cache served most
+     * of the page reads for these searches.
+     *
+     * @throws Exception is thrown when an error is catch'ed in any of the operations performed.
+     */
+    @Test
+    public void testPageCacheWriteBack() throws Exception {
+        uniqueEntries = true;
+        verboseResults = false;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+
+        // keep only a few pages around to force evictions
+        btConf256.setPageCacheSize(16);
+        btConf1024.setPageCacheSize(16);
+        btConf2048.setPageCacheSize(16);
+
+        // set up the the counters for each tree
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        // create the trees, add the keys and commit them
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt256);
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt1024);
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt2048);
+
+        if(bPerf256.getTotalPageCacheEvictions() == 0)
+            {throw new Exception("BTree with page size: 256 did not evict any pages");}
+
+        bt256.commitTree();
+        bt1024.commitTree();
+        bt2048.commitTree();
+
+        // now re-open them
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw", "tree2048.bin", bPerf2048);
+
+        int found_cnt256 = 0;
+        int found_cnt1024 = 0;
+        int found_cnt2048 = 0;
+
+        int[] res256, res1024, res2048;
+        for(int i = startKey; i < endKey; i++) {
+            res256 = bPerf256.searchIO(i, uniqueEntries, verboseResults);
+            res1024 = bPerf1024.searchIO(i, uniqueEntries, verboseResults);
+            res2048 = bPerf2048.searchIO(i, uniqueEntries, verboseResults);
+
+            if(res256[8] == 1) {found_cnt256++;}
+            if(res1024[8] == 1) {found_cnt1024++;}
+            if(res2048[8] == 1) {found_cnt2048++;}
+        }
+
+        // check result numbers
+        if(found_cnt256 != totalKeys)
+            {throw new Exception("BTree with page size: 256 failed to find all keys");}
+
+        if(found_cnt1024 != totalKeys)
+            {throw new Exception("BTree with page size: 1024 failed to find all keys");}
+
+        if(found_cnt2048 != totalKeys)
+            {throw new Exception("BTree with page size: 2048 failed to find all keys");}
+
+        // sequential searches should mostly hit the cache
+        if(bPerf1024.getTotalPageCacheHits() <= bPerf1024.getTotalPageCacheMisses())
+            {throw new Exception("BTree with page size: 1024 did not hit the page cache");}
+    }
+
+
+    /**
+     * Test if the memory mapped page store works as expected, with and
+     * without the page cache on top of it; the mapped chunks are kept
+     * small so that the mapping has to grow (and shrink when the file
+     * is conditioned) a few times.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testMemoryMappedStorage() throws Exception {
+        uniqueEntries = true;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+
+        btConf256.setMemoryMapped(true);
+        btConf256.setMappedChunkPages(8);
+        btConf256.setPageCacheSize(0);
+        btConf1024.setMemoryMapped(true);
+        btConf1024.setMappedChunkPages(8);
+        btConf2048.setMemoryMapped(true);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        // create the trees, add the keys and remove half of them
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt256);
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt1024);
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt2048);
+
+        for(int i = startKey; i < endKey; i += 2) {
+            if(!bt256.deleteKey(i, uniqueEntries).isFound())
+                {throw new Exception("BTree with page size: 256 failed to delete key: " + i);}
+            if(!bt1024.deleteKey(i, uniqueEntries).isFound())
+                {throw new Exception("BTree with page size: 1024 failed to delete key: " + i);}
+            if(!bt2048.deleteKey(i, uniqueEntries).isFound())
+                {throw new Exception("BTree with page size: 2048 failed to delete key: " + i);}
+        }
+
+        bt256.commitTree();
+        bt1024.commitTree();
+        bt2048.commitTree();
+
+        // re-open them from the mapped file
+        bt256 = new BPlusTree(btConf256, "rw", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw", "tree2048.bin", bPerf2048);
+
+        for(int i = startKey; i < endKey; i++) {
+            boolean expected = (i - startKey) % 2 == 1;
+            if(bt256.searchKey(i, uniqueEntries).isFound() != expected)
+                {throw new Exception("BTree with page size: 256 failed on key: " + i);}
+            if(bt1024.searchKey(i, uniqueEntries).isFound() != expected)
+                {throw new Exception("BTree with page size: 1024 failed on key: " + i);}
+            if(bt2048.searchKey(i, uniqueEntries).isFound() != expected)
+                {throw new Exception("BTree with page size: 2048 failed on key: " + i);}
+        }
+    }
+
+    /**
+     * Test if the trees are recovered from their write-ahead log when they
+     * are not committed (as if the process crashed); the page size 256
+     * tree gets insertions and deletions with frequent checkpoints, the
+     * page size 1024 tree is bulk loaded and reopened without logging
+     * enabled (the left behind log must still be replayed) and the page
+     * size 2048 tree gets a torn log tail, losing its last operation.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testWriteAheadLogRecovery() throws Exception {
+        uniqueEntries = true;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+
+        btConf256.setWriteAheadLog(true);
+        btConf256.setLogGroupCommitSize(8);
+        btConf256.setLogCheckpointPages(64);
+        btConf256.setPageCacheSize(64);
+        btConf1024.setWriteAheadLog(true);
+        btConf2048.setWriteAheadLog(true);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        // add all the keys and remove the even ones
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt256);
+        for(int i = startKey; i < endKey; i += 2) {
+            if(!bt256.deleteKey(i, uniqueEntries).isFound())
+                {throw new Exception("BTree with page size: 256 failed to delete key: " + i);}
+        }
+        bt256.syncLog();
+
+        if(bPerf256.getTotalLogSyncs() >= bPerf256.getTotalLogCommits())
+            {throw new Exception("Log commits of BTree with page size: 256 were not grouped");}
+        if(bPerf256.getTotalLogCheckpoints() < 2)
+            {throw new Exception("Log of BTree with page size: 256 was not checkpointed");}
+
+        // bulk load the odd keys and insert the even ones
+        LinkedList<KeyValueWrapper> odd = new LinkedList<>();
+        for(int i = startKey + 1; i < endKey; i += 2)
+            {odd.add(new KeyValueWrapper(i, satelliteValue));}
+        bt1024.bulkLoad(odd.iterator(), 1.0, uniqueEntries);
+        for(int i = startKey; i < endKey; i += 2)
+            {bt1024.insertKey(i, satelliteValue, uniqueEntries);}
+        bt1024.syncLog();
+
+        // add the keys, the last one is lost with the log tail
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, uniqueEntries, bt2048);
+        bt2048.syncLog();
+        RandomAccessFile log = new RandomAccessFile("tree2048.bin.wal", "rw");
+        log.setLength(log.length() - 3);
+        log.close();
+
+        // "crash", then re-open the trees
+        bt256 = new BPlusTree(btConf256, "rw", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(new BPlusConfiguration(1024), "rw", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw", "tree2048.bin", bPerf2048);
+
+        for(int i = startKey; i < endKey; i++) {
+            if(bt256.searchKey(i, uniqueEntries).isFound() != ((i - startKey) % 2 == 1))
+                {throw new Exception("BTree with page size: 256 failed to recover key: " + i);}
+            if(!bt1024.searchKey(i, uniqueEntries).isFound())
+                {throw new Exception("BTree with page size: 1024 failed to recover key: " + i);}
+            if(bt2048.searchKey(i, uniqueEntries).isFound() != (i < endKey - 1))
+                {throw new Exception("BTree with page size: 2048 failed to recover key: " + i);}
+        }
+
+        // the recovered trees must keep working as well
+        bt256.insertKey(startKey, satelliteValue, uniqueEntries);
+        bt2048.insertKey(endKey - 1, satelliteValue, uniqueEntries);
+        if(!bt256.searchKey(startKey, uniqueEntries).isFound() ||
+                !bt2048.searchKey(endKey - 1, uniqueEntries).isFound())
+            {throw new Exception("Recovered trees failed to insert keys");}
+    }
+
+    /**
+     * Test bulk loading the trees from sorted input; the page size 256 tree
+     * is loaded full with the odd keys and then gets the even ones through
+     * regular inserts, the page size 1024 tree is loaded with duplicates
+     * and the page size 2048 tree is half full and gets all of its keys
+     * deleted afterwards.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testBulkLoad() throws Exception {
+        int dups = 3;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        LinkedList<KeyValueWrapper> odd = new LinkedList<>();
+        LinkedList<KeyValueWrapper> all = new LinkedList<>();
+        LinkedList<KeyValueWrapper> dup = new LinkedList<>();
+        for(int i = startKey; i < endKey; i++) {
+            if(i % 2 == 1)
+                {odd.add(new KeyValueWrapper(i, satelliteValue));}
+            all.add(new KeyValueWrapper(i, satelliteValue));
+            for(int j = 0; j < dups; j++)
+                {dup.add(new KeyValueWrapper(i, "v" + j));}
+        }
+
+        bt256.bulkLoad(odd.iterator(), 1.0, true);
+        bt1024.bulkLoad(dup.iterator(), 0.7, false);
+        bt2048.bulkLoad(all.iterator(), 0.5, true);
+
+        // only an empty tree can be bulk loaded
+        try {
+            bt2048.bulkLoad(all.iterator(), 0.5, true);
+            throw new Exception("BTree with page size: 2048 was bulk loaded twice");
+        } catch(IllegalStateException ex) {
+            // expected
+        }
+
+        // fill in the gaps with regular inserts
+        for(int i = startKey; i < endKey; i += 2)
+            {bt256.insertKey(i, satelliteValue, true);}
+
+        // check the contents
+        for(int i = startKey; i < endKey; i++) {
+            if(!bt256.searchKey(i, true).isFound())
+                {throw new Exception("BTree with page size: 256 failed to find key: " + i);}
+            if(bt1024.searchKey(i, false).getValues().size() != dups)
+                {throw new Exception("BTree with page size: 1024 failed to find all duplicates of key: " + i);}
+        }
+
+        if(bt2048.rangeSearch(startKey, endKey, true).getQueryResult().size() != totalKeys)
+            {throw new Exception("BTree with page size: 2048 failed the range search");}
+
+        // now empty the half full tree, merging all the way up
+        for(int i = startKey; i < endKey; i++) {
+            if(!bt2048.deleteKey(i, true).isFound())
+                {throw new Exception("BTree with page size: 2048 failed to delete key: " + i);}
+        }
+
+        bt256.commitTree();
+        bt1024.commitTree();
+
+        // re-open the trees and check them once more
+        bt256 = new BPlusTree(btConf256, "rw", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw", "tree1024.bin", bPerf1024);
+
+        if(bt256.rangeSearch(startKey, endKey, true).getQueryResult().size() != totalKeys)
+            {throw new Exception("BTree with page size: 256 failed the range search");}
+        if(bt1024.rangeSearch(startKey, endKey, false).getQueryResult().size() != totalKeys * dups)
+            {throw new Exception("BTree with page size: 1024 failed the range search");}
+    }
+
+    /**
+     * Test that a bulk load failing half-way (on unsorted or negative keys)
+     * leaves the trees empty and usable; the page size 256 tree gets a key
+     * out of order, the page size 1024 tree a negative key after enough
+     * duplicates to need overflow pages and the page size 2048 tree (with
+     * compact leaves) a key out of order. None of their pages may leak and
+     * the trees must take a proper bulk load and inserts afterwards.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testBulkLoadRollback() throws Exception {
+        int dups = 40;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+        btConf2048.setCompactLeaves(true);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        LinkedList<KeyValueWrapper> all = new LinkedList<>();
+        LinkedList<KeyValueWrapper> dup = new LinkedList<>();
+        for(int i = startKey; i < endKey; i++) {
+            all.add(new KeyValueWrapper(i, satelliteValue));
+            if(i < 100) {
+                for(int j = 0; j < dups; j++)
+                    {dup.add(new KeyValueWrapper(i, "v" + j));}
+            }
+        }
+        LinkedList<KeyValueWrapper> unsorted = new LinkedList<>(all);
+        unsorted.add(new KeyValueWrapper(startKey + 1, satelliteValue));
+        dup.add(new KeyValueWrapper(-1, satelliteValue));
+
+        long pages256 = bt256.getTotalTreePages();
+        long pages1024 = bt1024.getTotalTreePages();
+        long pages2048 = bt2048.getTotalTreePages();
+        try {
+            bt256.bulkLoad(unsorted.iterator(), 1.0, true);
+            throw new Exception("BTree with page size: 256 was bulk loaded from unsorted input");
+        } catch(IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            bt1024.bulkLoad(dup.iterator(), 1.0, false);
+            throw new Exception("BTree with page size: 1024 was bulk loaded with a negative key");
+        } catch(NumberFormatException ex) {
+            // expected
+        }
+        try {
+            bt2048.bulkLoad(unsorted.iterator(), 0.7, true);
+            throw new Exception("BTree with page size: 2048 was bulk loaded from unsorted input");
+        } catch(IllegalArgumentException ex) {
+            // expected
+        }
+
+        // the trees are still empty and got all of their pages back
+        if(bt256.getTotalTreePages() != pages256 || bt1024.getTotalTreePages() != pages1024 ||
+                bt2048.getTotalTreePages() != pages2048)
+            {throw new Exception("Pages of a failed bulk load were leaked");}
+        if(bt256.rangeCursor(startKey, endKey, true).hasNext() ||
+                bt1024.rangeCursor(startKey, endKey, false).hasNext() ||
+                bt2048.rangeCursor(startKey, endKey, true).hasNext())
+            {throw new Exception("A failed bulk load left keys in the tree");}
+
+        // and they can be loaded and written to as usual, also once re-opened
+        bt256.bulkLoad(all.iterator(), 1.0, true);
+        for(int i = endKey; i < endKey + 100; i++) {
+            bt1024.insertKey(i, satelliteValue, true);
+            bt2048.insertKey(i, satelliteValue, true);
+        }
+        bt256.commitTree();
+        bt1024.commitTree();
+        bt2048.commitTree();
+
+        bt256 = new BPlusTree(btConf256, "rw", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw", "tree2048.bin", bPerf2048);
+        for(int i = startKey; i < endKey; i++) {
+            if(!bt256.searchKey(i, true).isFound())
+                {throw new Exception("BTree with page size: 256 failed to find key: " + i);}
+            if(bt1024.searchKey(i, true).isFound() || bt2048.searchKey(i, true).isFound())
+                {throw new Exception("A failed bulk load left key: " + i);}
+        }
+        for(int i = endKey; i < endKey + 100; i++) {
+            if(!bt1024.searchKey(i, true).isFound() || !bt2048.searchKey(i, true).isFound())
+                {throw new Exception("Trees failed to find inserted key: " + i);}
+        }
+    }
+
+    /**
+     * Test that a failed bulk load of a logged tree (which writes straight
+     * to the tree file while loading) goes back to logging; the inserts
+     * that follow it must add their pages to the log and be recovered
+     * from it when the tree is not committed.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testBulkLoadRollbackWithLog() throws Exception {
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+        btConf1024.setWriteAheadLog(true);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        LinkedList<KeyValueWrapper> unsorted = new LinkedList<>();
+        for(int i = startKey; i < endKey; i++)
+            {unsorted.add(new KeyValueWrapper(i, satelliteValue));}
+        unsorted.add(new KeyValueWrapper(startKey, satelliteValue));
+        try {
+            bt1024.bulkLoad(unsorted.iterator(), 1.0, true);
+            throw new Exception("BTree with page size: 1024 was bulk loaded from unsorted input");
+        } catch(IllegalArgumentException ex) {
+            // expected
+        }
+
+        // every insert logs at least the page of its leaf
+        int inserts = 20;
+        bt1024.syncLog();
+        long logLength = new File("tree1024.bin.wal").length();
+        for(int i = startKey; i < startKey + inserts; i++)
+            {bt1024.insertKey(i, satelliteValue, true);}
+        bt1024.syncLog();
+        if(new File("tree1024.bin.wal").length() - logLength < inserts * 1024L)
+            {throw new Exception("Inserts after a failed bulk load bypassed the log");}
+
+        // "crash", then re-open the tree
+        bt1024 = new BPlusTree(btConf1024, "rw", "tree1024.bin", bPerf1024);
+        for(int i = startKey; i < endKey; i++) {
+            if(bt1024.searchKey(i, true).isFound() != (i < startKey + inserts))
+                {throw new Exception("BTree with page size: 1024 failed to recover key: " + i);}
+        }
+    }
+
+    /**
+     * Test the compact leaf format; the page size 256 tree gets values of
+     * varying length inserted and half of them deleted in random order and
+     * is re-opened with a fixed leaf configuration (the file format must
+     * win), the page size 1024 tree must use fewer pages than a fixed leaf
+     * tree holding the same keys and the page size 2048 tree is bulk loaded
+     * with duplicates, gets more keys inserted and is emptied afterwards.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testCompactLeaves() throws Exception {
+        int dups = 3;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+
+        btConf256.setCompactLeaves(true);
+        btConf1024.setCompactLeaves(true);
+        btConf2048.setCompactLeaves(true);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        // values get longer as the keys grow (up to the entry size)
+        LinkedList<Integer> keys = new LinkedList<>();
+        for(int i = startKey; i < endKey; i++)
+            {keys.add(i);}
+        Collections.shuffle(keys, new Random(42));
+        for(int i : keys)
+            {bt256.insertKey(i, compactValue(i), true);}
+        for(int i : keys) {
+            if(i % 2 == 0 && !bt256.deleteKey(i, true).isFound())
+                {throw new Exception("BTree with page size: 256 failed to delete key: " + i);}
+        }
+
+        bt256.commitTree();
+        bt256 = new BPlusTree(new BPlusConfiguration(256), "rw", "tree256.bin", bPerf256);
+        if(!bt256.getTreeConfiguration().isCompactLeaves())
+            {throw new Exception("BTree with page size: 256 lost its leaf format");}
+
+        for(int i = startKey; i < endKey; i++) {
+            SearchResult r = bt256.searchKey(i, true);
+            if(r.isFound() != (i % 2 == 1) ||
+                    (r.isFound() && !r.getValues().getFirst().equals(compactValue(i))))
+                {throw new Exception("BTree with page size: 256 failed on key: " + i);}
+        }
+
+        // compare against a tree with fixed size leaves
+        BPlusTree fixed = new BPlusTree(new BPlusConfiguration(1024), "rw+",
+                "treeFixed1024.bin", new BPlusTreePerformanceCounter(true));
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, true, bt1024);
+        Utilities.sequentialAddToTree(startKey, endKey,
+                satelliteValue, true, fixed);
+        long fixedPages = fixed.getTotalTreePages();
+        fixed.commitTree();
+        if(bt1024.getTotalTreePages() * 2 > fixedPages)
+            {throw new Exception("BTree with page size: 1024 uses " + bt1024.getTotalTreePages() +
+                    " pages, fixed leaves use " + fixedPages);}
+
+        // bulk load with duplicates, then fill in the gaps
+        LinkedList<KeyValueWrapper> dup = new LinkedList<>();
+        for(int i = startKey; i < endKey; i += 2) {
+            for(int j = 0; j < dups; j++)
+                {dup.add(new KeyValueWrapper(i, compactValue(i) + j));}
+        }
+        bt2048.bulkLoad(dup.iterator(), 1.0, false);
+        for(int i = startKey + 1; i < endKey; i += 2)
+            {bt2048.insertKey(i, compactValue(i), false);}
+
+        for(int i = startKey; i < endKey; i++) {
+            LinkedList<String> values = bt2048.searchKey(i, false).getValues();
+            if(values == null || values.size() != (i % 2 == 0 ? dups : 1) ||
+                    !values.getFirst().startsWith(compactValue(i)))
+                {throw new Exception("BTree with page size: 2048 failed on key: " + i);}
+        }
+        for(int i = startKey; i < endKey; i++) {
+            if(!bt2048.deleteKey(i, false).isFound())
+                {throw new Exception("BTree with page size: 2048 failed to delete key: " + i);}
+            if(bt2048.searchKey(i, false).isFound())
+                {throw new Exception("BTree with page size: 2048 still has key: " + i);}
+        }
+    }
+
+    /**
+     * Value used for the key in the compact leaf tests
+     *
+     * @param key the key
+     * @return the value
+     */
+    private String compactValue(int key)
+        {return(Integer.toString(key * 31, 36));}
+
+    /**
+     * Test the range cursors against the materialized range search results
+     * in ascending and descending order, with and without duplicates and
+     * with a limit; a cursor must also fail when the tree changes under it.
+     *
+     * @throws Exception is thrown when an error is caught
+     */
+    @Test
+    public void testRangeCursor() throws Exception {
+        int dups = 40;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        // only the even keys, so that ranges can start between keys
+        for(int i = startKey; i < endKey; i += 2)
+            {bt256.insertKey(i, satelliteValue, true);}
+        // a few keys with enough duplicates to need overflow pages
+        for(int i = 0; i < 100; i++) {
+            for(int j = 0; j < dups; j++)
+                {bt1024.insertKey(i, "v" + j, false);}
+        }
+
+        // whole tree, then a range that falls between existing keys
+        compareCursor(bt256.rangeCursor(startKey, endKey, true),
+                bt256.rangeSearch(startKey, endKey, true).getQueryResult());
+        compareCursor(bt256.rangeCursor(101, 4001, true),
+                bt256.rangeSearch(102, 4000, true).getQueryResult());
+
+        // descending order
+        LinkedList<KeyValueWrapper> desc =
+                bt256.rangeSearch(102, 4000, true).getQueryResult();
+        Collections.reverse(desc);
+        compareCursor(bt256.rangeCursor(101, 4001, true, true, Long.MAX_VALUE), desc);
+
+        // limits, in both directions
+        RangeCursor c = bt256.rangeCursor(startKey, endKey, true, false, 10);
+        for(int i = 0; i < 10; i++) {
+            if(!c.hasNext() || c.next().getKey() != startKey + 2 * i)
+                {throw new Exception("Limited cursor returned the wrong keys");}
+        }
+        if(c.hasNext())
+            {throw new Exception("Limited cursor did not stop at the limit");}
+        c = bt256.rangeCursor(startKey, endKey, true, true, 1);
+        if(c.next().getKey() != endKey - 2 || c.hasNext())
+            {throw new Exception("Descending limited cursor returned the wrong keys");}
+
+        // an empty range and an inverted range
+        if(bt256.rangeCursor(endKey, endKey + 100, true).hasNext() ||
+                bt256.rangeCursor(100, 50, true).hasNext())
+            {throw new Exception("Cursor over an empty range returned keys");}
+
+        // duplicates, also through the stream interface
+        compareCursor(bt1024.rangeCursor(10, 20, false),
+                bt1024.rangeSearch(10, 20, false).getQueryResult());
+        if(bt1024.rangeStream(0, 99, false).count() != 100 * dups)
+            {throw new Exception("Stream failed to return all the duplicates");}
+        if(bt1024.rangeStream(0, 99, true).count() != 100)
+            {throw new Exception("Stream failed to return all the unique keys");}
+
+        // rejected calls don't modify the tree, so open cursors stay valid
+        c = bt256.rangeCursor(startKey, endKey, true);
+        c.next();
+        try {
+            bt256.insertKey(-1, satelliteValue, true);
+            throw new Exception("Negative key was inserted");
+        } catch(NumberFormatException ex) {
+            // expected
+        }
+        try {
+            bt256.insertBatch(new long[]{1, 3}, new String[]{satelliteValue}, true);
+            throw new Exception("Batch with missing values was inserted");
+        } catch(IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            bt256.bulkLoad(Collections.<KeyValueWrapper>emptyIterator(), 1.0, true);
+            throw new Exception("Non-empty tree was bulk loaded");
+        } catch(IllegalStateException ex) {
+            // expected
+        }
+        int seen = 1;
+        for(; c.hasNext(); seen++) {
+            c.next();
+            // deletes of keys which are not there (only even keys are) don't either
+            if(seen == totalKeys / 4 &&
+                    (bt256.deleteKey(startKey + 1, true).isFound() ||
+                     bt256.deleteKey(endKey + 1, true).isFound()))
+                {throw new Exception("Deleted a key which was never inserted");}
+        }
+        if(seen != (endKey - startKey) / 2)
+            {throw new Exception("Cursor returned " + seen + " keys after rejected calls");}
+        c.close();
+
+        // deleting a key invalidates open cursors
+        c = bt256.rangeCursor(startKey, endKey, true);
+        c.next();
+        bt256.deleteKey(endKey - 2, true);
+        try {
+            while(c.hasNext())
+                {c.next();}
+            throw new Exception("Cursor did not notice the key being deleted");
+        } catch(ConcurrentModificationException ex) {
+            // expected
+        }
+        c.close();
+
+        // modifying the tree invalidates open cursors
+        c = bt256.rangeCursor(startKey, endKey, true);
+        c.next();
+        bt256.insertKey(1, satelliteValue, true);
+        try {
+            while(c.hasNext())
+                {c.next();}
+            throw new Exception("Cursor did not notice the tree being modified");
+        } catch(ConcurrentModificationException ex) {
+            // expected
+        }
+        c.close();
+    }
+
+    /**
+     * Loads the trees with batches of shuffled keys and checks that batched
+     * searches return the same results as the separate ones, in the order
+     * of the keys in the batch, while reading fewer pages per key.
+     *
+     * @throws Exception is thrown when an error is catch'ed in any of the operations performed.
+     */
+    @Test
+    public void testBatchOperations() throws Exception {
+        int batchSize = 500;
+
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        LinkedList<Long> keys = new LinkedList<>();
+        for(long i = startKey; i < endKey; i++)
+            {keys.add(i);}
+        Collections.shuffle(keys, new Random(42));
+
+        // insert the keys in batches, twice in the tree with duplicates
+        long[] kbatch = new long[batchSize];
+        String[] vbatch = new String[batchSize];
+        int n = 0;
+        for(long key : keys) {
+            kbatch[n] = key;
+            vbatch[n++] = "v" + key;
+            if(n == batchSize) {
+                bt256.insertBatch(kbatch, vbatch, true);
+                bt1024.insertBatch(kbatch, vbatch, false);
+                bt1024.insertBatch(kbatch, vbatch, false);
+                n = 0;
+            }
+        }
+        // an unsorted batch, its values must follow their keys
+        bt2048.insertBatch(new long[] {3, 1, 2}, new String[] {"c", "a", "b"}, true);
+
+        // check them, including keys that are not there
+        long[] sbatch = new long[batchSize];
+        Random r = new Random(7);
+        for(int b = 0; b < 10; b++) {
+            for(int i = 0; i < batchSize; i++)
+                {sbatch[i] = r.nextInt(totalKeys + 100);}
+            SearchResult[] res256 = bt256.multiGet(sbatch, true);
+            SearchResult[] res1024 = bt1024.multiGet(sbatch, false);
+            for(int i = 0; i < batchSize; i++) {
+                boolean exists = sbatch[i] < endKey;
+                if(res256[i].isFound() != exists)
+                    {throw new Exception("BTree with page size: 256 batch search failed for key: " + sbatch[i]);}
+                if(exists && !res256[i].getValues().getFirst().trim().equals("v" + sbatch[i]))
+                    {throw new Exception("BTree with page size: 256 batch search returned the wrong value for key: " + sbatch[i]);}
+                if(res1024[i].isFound() != exists ||
+                        (exists && res1024[i].getValues().size() != 2))
+                    {throw new Exception("BTree with page size: 1024 batch search failed for key: " + sbatch[i]);}
+            }
+        }
+
+        // a batch of nearby keys shares most of the descents
+        int keysBefore = bPerf256.getTotalBatchSearchKeys();
+        int pagesBefore = bPerf256.getTotalBatchSearchPageReads();
+        long[] seq = new long[batchSize];
+        for(int i = 0; i < batchSize; i++)
+            {seq[i] = startKey + i;}
+        bt256.multiGet(seq, true);
+        if(bPerf256.getTotalBatchSearchKeys() - keysBefore != batchSize ||
+                bPerf256.getTotalBatchSearchPageReads() - pagesBefore >= batchSize)
+            {throw new Exception("BTree with page size: 256 did not share the page reads of the batch");}
+
+        SearchResult[] res2048 = bt2048.multiGet(new long[] {2, 3, 1, 2, 4}, true);
+        String[] expected = {"b", "c", "a", "b", null};
+        for(int i = 0; i < expected.length; i++) {
+            if(expected[i] == null ? res2048[i].isFound() :
+                    !res2048[i].getValues().getFirst().trim().equals(expected[i]))
+                {throw new Exception("BTree with page size: 2048 returned the results out of order");}
+        }
+
+        // invalid batches should not insert anything
+        try {
+            bt2048.insertBatch(new long[] {10, -1}, new String[] {"x", "y"}, true);
+            throw new Exception("Batch with a negative key was inserted");
+        } catch(NumberFormatException ex) {
+            // expected
+        }
+        try {
+            bt2048.insertBatch(new long[] {10}, new String[0], true);
+            throw new Exception("Batch with missing values was inserted");
+        } catch(IllegalArgumentException ex) {
+            // expected
+        }
+        if(bt2048.searchKey(10, true).isFound())
+            {throw new Exception("BTree with page size: 2048 inserted part of an invalid batch");}
+    }
+
+    /**
+     * Frees pages all over the file and checks that they survive reopening
+     * the trees (which needs a few lookup overflow pages to hold them) and
+     * that they are reused before the files grow again.
+     *
+     * @throws Exception is thrown when an error is catch'ed in any of the operations performed.
+     */
+    @Test
+    public void testFreePageReuse() throws Exception {
+        // initialize the configuration
+        btConf256 = new BPlusConfiguration(256);
+        btConf1024 = new BPlusConfiguration(1024);
+        btConf2048 = new BPlusConfiguration(2048);
+        btConf1024.setWriteAheadLog(true);
+
+        bPerf256 = new BPlusTreePerformanceCounter(true);
+        bPerf1024 = new BPlusTreePerformanceCounter(true);
+        bPerf2048 = new BPlusTreePerformanceCounter(true);
+
+        bt256 = new BPlusTree(btConf256, "rw+", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw+", "tree1024.bin", bPerf1024);
+        bt2048 = new BPlusTree(btConf2048, "rw+", "tree2048.bin", bPerf2048);
+
+        for(int i = startKey; i < endKey; i++) {
+            bt256.insertKey(i, satelliteValue, true);
+            bt1024.insertKey(i, satelliteValue, true);
+        }
+
+        // delete most of the keys at random, leaving holes everywhere
+        Random r = new Random(3);
+        LinkedList<Long> kept = new LinkedList<>();
+        for(long i = startKey; i < endKey; i++) {
+            if(r.nextInt(10) < 7) {
+                bt256.deleteKey(i, true);
+                bt1024.deleteKey(i, true);
+            } else
+                {kept.add(i);}
+        }
+
+        long pages256 = bt256.getTotalTreePages();
+        long pages1024 = bt1024.getTotalTreePages();
+        long max256 = bt256.getMaxPageNumber();
+        long max1024 = bt1024.getMaxPageNumber();
+        bt256.commitTree();
+        bt1024.commitTree();
+
+        bt256 = new BPlusTree(btConf256, "rw", "tree256.bin", bPerf256);
+        bt1024 = new BPlusTree(btConf1024, "rw", "tree1024.bin", bPerf1024);
+        if(bt256.getTotalTreePages() != pages256 || bt1024.getTotalTreePages() != pages1024)
+            {throw new Exception("Page counts changed after reopening the trees");}
+
+        // the free pages should be enough for half of the deleted keys
+        for(long i = endKey; i < endKey + totalKeys / 3; i++) {
+            bt256.insertKey(i, satelliteValue, true);
+            bt1024.insertKey(i, satelliteValue, true);
+            kept.add(i);
+        }
+        if(bt256.getMaxPageNumber() > max256)
+            {throw new Exception("BTree with page size: 256 grew instead of reusing free pages");}
+        if(bt1024.getMaxPageNumber() > max1024)
+            {throw new Exception("BTree with page size: 1024 grew instead of reusing free pages");}
+
+        for(long key : kept) {
+            if(!bt256.searchKey(key, true).isFound())
+                {throw new Exception("BTree with page size: 256 failed to find key: " + key);}
+            if(!bt1024.searchKey(key, true).isFound())
+                {throw new Exception("BTree with page size: 1024 failed to find key: " + key);}
+        }
+    }
+
+    /**
+     * Check that the cursor returns exactly the expected pairs in order
+     *
+     * @param c cursor to drain
+     * @param expected the expected pairs
+     * @throws Exception is thrown when the results do not match
+     */
+    private void compareCursor(RangeCursor c, LinkedList<KeyValueWrapper> expected)
+            throws Exception {
+        for(KeyValueWrapper kv : expected) {
+            if(!c.hasNext())
+                {throw new Exception("Cursor ended early, expected key: " + kv.getKey());}
+            KeyValueWrapper ckv = c.next();
+            if(ckv.getKey() != kv.getKey() || !ckv.getValue().equals(kv.getValue()))
+                {throw new Exception("Cursor returned key: " + ckv.getKey() +
+                        " instead of: " + kv.getKey());}
+        }
+        if(c.hasNext())
+            {throw new Exception("Cursor returned more keys than expected");}
+        c.close();
+    }
+
 }